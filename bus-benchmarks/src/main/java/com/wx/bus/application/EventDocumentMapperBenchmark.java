@@ -0,0 +1,59 @@
+package com.wx.bus.application;
+
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.domain.Initiator;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventDocumentMapper} 两个方向的转换（与 mapper 同包以访问包内可见的 {@code toDocument}）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventDocumentMapperBenchmark {
+
+    private EventEnvelope envelope;
+    private EventDocument document;
+    private Instant now;
+
+    @Setup
+    public void setUp() {
+        now = Instant.now();
+        envelope = new EventEnvelope(
+            "evt-bench-1", "trace-1", "span-1", null, "order.purchased",
+            Map.of("orderId", "o-10001", "userId", "u-1", "amount", 12800),
+            EventEnvelope.PAYLOAD_TYPE_JSON,
+            new Initiator("order-service", "createOrder", "u-1", "req-1"),
+            Instant.parse("2025-02-28T10:00:00Z"), null, null
+        );
+        document = EventDocumentMapper.toDocument(envelope, EventStatus.SENT, now, 0, now, now, now);
+    }
+
+    @Benchmark
+    public EventDocument toDocument() {
+        return EventDocumentMapper.toDocument(envelope, EventStatus.PENDING, now, 0, null, now, now);
+    }
+
+    @Benchmark
+    public EventEnvelope documentToEnvelope() {
+        return EventDocumentMapper.documentToEnvelope(document);
+    }
+}
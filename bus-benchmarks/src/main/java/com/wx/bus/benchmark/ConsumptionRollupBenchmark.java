@@ -0,0 +1,94 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.application.ConsumptionRollupService;
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.support.BusMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConsumptionRollupService}：单事件汇总与按窗口批量汇总（含重复 eventId）的开销。
+ * <p>每个事件 3 个消费者、每个消费者 {@code attempts} 次尝试，历史越长单次汇总越重。</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConsumptionRollupBenchmark {
+
+    private static final int EVENTS = 1000;
+
+    @Param({"1", "5"})
+    int attempts;
+
+    @Param({"200"})
+    int windowSize;
+
+    private ConsumptionRollupService service;
+    private List<String> eventIds;
+    private List<ConsumptionRollupService.RollupRequest> window;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        InMemoryStores stores = new InMemoryStores(true);
+        Instant now = Instant.now();
+        eventIds = new ArrayList<>(EVENTS);
+        for (int e = 0; e < EVENTS; e++) {
+            String eventId = "evt-" + e;
+            EventDocument doc = new EventDocument();
+            doc.setId(eventId);
+            doc.setEventId(eventId);
+            doc.setStatus("SENT");
+            stores.events().put(eventId, doc);
+            for (String consumerId : Fixtures.CONSUMERS) {
+                for (int a = 0; a < attempts; a++) {
+                    EventConsumptionDocument c = new EventConsumptionDocument();
+                    c.setEventId(eventId);
+                    c.setConsumerId(consumerId);
+                    c.setAttemptNo(a);
+                    c.setSuccess(a == attempts - 1 ? Boolean.TRUE : Boolean.FALSE);
+                    c.setConsumedAt(now);
+                    stores.addConsumption(c);
+                }
+            }
+            eventIds.add(eventId);
+        }
+        // 一个窗口内每个事件的反馈各触发一次汇总，模拟多消费者反馈产生的重复 eventId
+        window = new ArrayList<>(windowSize);
+        for (int i = 0; window.size() < windowSize; i++) {
+            String eventId = eventIds.get(i % EVENTS);
+            for (int c = 0; c < Fixtures.CONSUMERS.length && window.size() < windowSize; c++) {
+                window.add(new ConsumptionRollupService.RollupRequest(eventId, Fixtures.TOPIC, Fixtures.CONSUMERS[c]));
+            }
+        }
+        service = new ConsumptionRollupService(stores.eventRepository(), stores.eventConsumptionRepository(), BusMetrics.noop());
+    }
+
+    @Benchmark
+    public void rollupAndWriteBack() {
+        service.rollupAndWriteBack(eventIds.get(cursor++ % EVENTS));
+    }
+
+    @Benchmark
+    public int rollupAndWriteBackAll() {
+        return service.rollupAndWriteBackAll(window);
+    }
+}
@@ -0,0 +1,68 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.application.EventPublishService;
+import com.wx.bus.application.PublishResult;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.support.BusMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventPublishService#publish} / {@link EventPublishService#publishAll}：路由查找、文档构建、落库与发 MQ 的 CPU 开销（存储与 broker 为内存替身）。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventPublishBenchmark {
+
+    @Param({"100"})
+    int batchSize;
+
+    private EventPublishService service;
+    private List<EventEnvelope> batch;
+
+    @Setup
+    public void setUp() {
+        InMemoryStores stores = new InMemoryStores(false).withConsumers(Fixtures.TOPIC, Fixtures.CONSUMERS);
+        service = new EventPublishService(
+            stores.routingTable(),
+            stores.eventRepository(),
+            stores.eventConsumptionRepository(),
+            envelope -> { },
+            false,
+            16,
+            null,
+            BusMetrics.noop()
+        );
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(Fixtures.envelope());
+        }
+    }
+
+    @Benchmark
+    public PublishResult publish() {
+        return service.publish(Fixtures.envelope());
+    }
+
+    @Benchmark
+    public List<PublishResult> publishAll() {
+        return service.publishAll(batch);
+    }
+}
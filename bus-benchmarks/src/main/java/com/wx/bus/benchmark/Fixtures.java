@@ -0,0 +1,39 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.domain.Initiator;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 基准共用的样例数据。
+ */
+final class Fixtures {
+
+    static final String TOPIC = "order.purchased";
+    static final String[] CONSUMERS = {"member-service", "coupon-service", "report-service"};
+
+    private Fixtures() {}
+
+    static EventEnvelope envelope() {
+        return envelope(UUID.randomUUID().toString());
+    }
+
+    static EventEnvelope envelope(String eventId) {
+        return new EventEnvelope(
+            eventId,
+            "trace-1",
+            "span-1",
+            null,
+            TOPIC,
+            Map.of("orderId", "o-10001", "userId", "u-1", "amount", 12800),
+            EventEnvelope.PAYLOAD_TYPE_JSON,
+            new Initiator("order-service", "createOrder", "u-1", "req-1"),
+            Instant.parse("2025-02-28T10:00:00Z"),
+            null,
+            null
+        );
+    }
+}
@@ -0,0 +1,165 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.application.TopicRoutingTable;
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Mongo 仓储的内存替身：以 JDK 动态代理实现仓储接口，只支持热路径用到的方法，其余抛 {@link UnsupportedOperationException}。
+ * <p>{@code retain=false} 时写入只计数不保存（发布类基准避免内存随迭代增长）；{@code retain=true} 时按 eventId 保存，供汇总类基准读取。</p>
+ */
+public final class InMemoryStores {
+
+    private final boolean retain;
+    private final Map<String, EventDocument> events = new ConcurrentHashMap<>();
+    private final Map<String, List<EventConsumptionDocument>> consumptions = new ConcurrentHashMap<>();
+    private final List<TopicConsumerDocument> topicConsumers = new CopyOnWriteArrayList<>();
+
+    public InMemoryStores(boolean retain) {
+        this.retain = retain;
+    }
+
+    /** 为 topic 添加启用中的消费者配置 */
+    public InMemoryStores withConsumers(String topic, String... consumerIds) {
+        for (String consumerId : consumerIds) {
+            TopicConsumerDocument tc = new TopicConsumerDocument();
+            tc.setId(topic + ":" + consumerId);
+            tc.setTopic(topic);
+            tc.setConsumerId(consumerId);
+            tc.setEnabled(true);
+            topicConsumers.add(tc);
+        }
+        return this;
+    }
+
+    public void clear() {
+        events.clear();
+        consumptions.clear();
+    }
+
+    public Map<String, EventDocument> events() {
+        return events;
+    }
+
+    public void addConsumption(EventConsumptionDocument doc) {
+        consumptions.computeIfAbsent(doc.getEventId(), k -> new CopyOnWriteArrayList<>()).add(doc);
+    }
+
+    public TopicRoutingTable routingTable() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", new SimpleMeterRegistry());
+        return new TopicRoutingTable(topicConsumerRepository(), beans.getBeanProvider(MeterRegistry.class), Long.MAX_VALUE);
+    }
+
+    public TopicConsumerRepository topicConsumerRepository() {
+        return proxy(TopicConsumerRepository.class, Map.of(
+            "findByEnabledTrue", args -> List.copyOf(topicConsumers)
+        ));
+    }
+
+    @SuppressWarnings("unchecked")
+    public EventRepository eventRepository() {
+        return proxy(EventRepository.class, Map.of(
+            "insert", args -> {
+                if (args[0] instanceof Iterable<?> docs) {
+                    docs.forEach(d -> saveEvent((EventDocument) d));
+                } else {
+                    saveEvent((EventDocument) args[0]);
+                }
+                return args[0];
+            },
+            "saveAll", args -> {
+                ((Iterable<EventDocument>) args[0]).forEach(this::saveEvent);
+                return args[0];
+            },
+            "insertAbsent", args -> {
+                ((List<EventDocument>) args[0]).forEach(this::saveEvent);
+                return List.of();
+            },
+            "save", args -> saveEvent((EventDocument) args[0]),
+            "findById", args -> Optional.ofNullable(events.get((String) args[0])),
+            "markSentIfPending", args -> (long) ((Collection<?>) args[0]).size(),
+            "markFailedIfPending", args -> (long) ((Collection<?>) args[0]).size(),
+            "applyRollupStatuses", args -> {
+                Map<String, String> statusByEventId = (Map<String, String>) args[0];
+                Instant at = (Instant) args[1];
+                int matched = 0;
+                for (Map.Entry<String, String> e : statusByEventId.entrySet()) {
+                    EventDocument doc = events.get(e.getKey());
+                    if (doc != null) {
+                        doc.setStatus(e.getValue());
+                        doc.setStatusAt(at);
+                        doc.setUpdatedAt(at);
+                        matched++;
+                    }
+                }
+                return matched;
+            }
+        ));
+    }
+
+    @SuppressWarnings("unchecked")
+    public EventConsumptionRepository eventConsumptionRepository() {
+        return proxy(EventConsumptionRepository.class, Map.of(
+            "insert", args -> {
+                if (retain) {
+                    ((Iterable<EventConsumptionDocument>) args[0]).forEach(this::addConsumption);
+                }
+                return args[0];
+            },
+            "findByEventIdIn", args -> {
+                List<EventConsumptionDocument> result = new ArrayList<>();
+                for (String eventId : (Collection<String>) args[0]) {
+                    result.addAll(consumptions.getOrDefault(eventId, List.of()));
+                }
+                return result;
+            },
+            "findByEventIdOrderByAttemptNoDesc", args -> consumptions.getOrDefault((String) args[0], List.of())
+        ));
+    }
+
+    private EventDocument saveEvent(EventDocument doc) {
+        if (retain) {
+            events.put(doc.getId(), doc);
+        }
+        return doc;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> handler = handlers.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return handler.apply(args);
+            }
+        });
+    }
+}
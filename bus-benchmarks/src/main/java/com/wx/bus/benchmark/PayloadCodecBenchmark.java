@@ -0,0 +1,80 @@
+package com.wx.bus.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.codec.PayloadCodec;
+import com.wx.bus.infrastructure.codec.PayloadCodecConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PayloadCodec} 各实现的编码/解码开销；编码后字节数经 {@link EncodedSize} 辅助计数器随 encode 结果一并报告
+ * （{@code encode:encodedBytes}），便于对比线上体积。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadCodecBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String codecName;
+
+    private PayloadCodec codec;
+    private EventEnvelope envelope;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        codec = switch (codecName) {
+            case "smile" -> PayloadCodecConfig.smile(objectMapper, List.of());
+            case "cbor" -> PayloadCodecConfig.cbor(objectMapper, List.of());
+            default -> PayloadCodecConfig.json(objectMapper);
+        };
+        envelope = Fixtures.envelope("evt-bench-1");
+        encoded = codec.encode(envelope);
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) {
+        byte[] bytes = codec.encode(envelope);
+        size.encodedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public EventEnvelope decode() {
+        return codec.decode(encoded);
+    }
+
+    /** 编码后字节数：按原值报告，不随调用次数累加 */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class EncodedSize {
+
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encodedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.annotation.EventInitiator;
+import com.wx.bus.annotation.PublishEvent;
+import com.wx.bus.aop.PublishEventAspect;
+import com.wx.bus.application.EventPublishService;
+import com.wx.bus.application.PublishResult;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.support.BusMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PublishEventAspect#around}：SpEL 求值、注解解析与信封构建的开销。
+ * <p>发布服务替换为直接返回成功的桩，只测切面本身；{@link #direct} 为不经代理的对照。</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublishEventAspectBenchmark {
+
+    private OrderService target;
+    private OrderService proxied;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        InMemoryStores stores = new InMemoryStores(false).withConsumers(Fixtures.TOPIC, Fixtures.CONSUMERS);
+        EventPublishService stub = new EventPublishService(
+            stores.routingTable(), stores.eventRepository(), stores.eventConsumptionRepository(),
+            envelope -> { }, false, 16, null, BusMetrics.noop()
+        ) {
+            @Override
+            public PublishResult publish(EventEnvelope envelope) {
+                return PublishResult.ok(envelope.eventId());
+            }
+        };
+        target = new OrderService();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new PublishEventAspect(stub));
+        proxied = factory.getProxy();
+        order = new Order("o-10001", "u-1", 12800);
+    }
+
+    @Benchmark
+    public Order direct() {
+        return target.place(order);
+    }
+
+    @Benchmark
+    public Order payloadFromResult() {
+        return proxied.place(order);
+    }
+
+    @Benchmark
+    public Order payloadFromExpression() {
+        return proxied.placeWithTrace(order);
+    }
+
+    public record Order(String orderId, String userId, long amount) {}
+
+    @EventInitiator(service = "order-service")
+    public static class OrderService {
+
+        @PublishEvent(topic = Fixtures.TOPIC, initiatorOperation = "placeOrder")
+        public Order place(Order order) {
+            return order;
+        }
+
+        @PublishEvent(
+            topic = Fixtures.TOPIC,
+            payload = "{'orderId': #p0.orderId, 'amount': #p0.amount}",
+            traceId = "#p0.userId",
+            initiatorOperation = "placeOrder"
+        )
+        public Order placeWithTrace(Order order) {
+            return order;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.wx.bus.benchmark;
+
+import com.wx.bus.api.WxBusEventPublisher;
+import com.wx.bus.application.EventPublishService;
+import com.wx.bus.application.PublishResult;
+import com.wx.bus.event.EventPublishListener;
+import com.wx.bus.event.EventPublishRequestEvent;
+import com.wx.bus.support.BusMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code bus.execution.virtual-threads}：{@link WxBusEventPublisher#publishAsync} 在平台线程池（64 线程，与默认配置一致）
+ * 与虚拟线程下的并发扩展性。broker 往返以 1ms 阻塞模拟，每次调用同时发起 {@code inFlight} 个发布并等待全部完成。
+ * <p>平台线程模式吞吐在 inFlight 超过限流后持平；虚拟线程模式随 inFlight 增长，且无需调整任何线程池参数。</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadPublishBenchmark {
+
+    private static final int PLATFORM_POOL_SIZE = 64;
+    private static final int PLATFORM_QUEUE_CAPACITY = 10_000;
+    private static final long BROKER_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"64", "512", "4096"})
+    int inFlight;
+
+    private WxBusEventPublisher publisher;
+    private ThreadPoolTaskExecutor platformExecutor;
+
+    @Setup
+    public void setUp() {
+        InMemoryStores stores = new InMemoryStores(false).withConsumers(Fixtures.TOPIC, Fixtures.CONSUMERS);
+        EventPublishService service = new EventPublishService(
+            stores.routingTable(),
+            stores.eventRepository(),
+            stores.eventConsumptionRepository(),
+            envelope -> LockSupport.parkNanos(BROKER_RTT_NANOS),
+            false,
+            16,
+            null,
+            BusMetrics.noop()
+        );
+        EventPublishListener listener = new EventPublishListener(service);
+
+        // 与 BusExecutionConfig#busTaskExecutor 相同的构造方式
+        AsyncTaskExecutor executor;
+        if ("virtual".equals(threads)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("bus-async-");
+            virtual.setVirtualThreads(true);
+            executor = virtual;
+        } else {
+            platformExecutor = new ThreadPoolTaskExecutor();
+            platformExecutor.setThreadNamePrefix("bus-async-");
+            platformExecutor.setCorePoolSize(PLATFORM_POOL_SIZE);
+            platformExecutor.setMaxPoolSize(PLATFORM_POOL_SIZE);
+            platformExecutor.setQueueCapacity(PLATFORM_QUEUE_CAPACITY);
+            platformExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            platformExecutor.initialize();
+            executor = platformExecutor;
+        }
+        publisher = new WxBusEventPublisher(
+            event -> listener.onEventPublishRequest((EventPublishRequestEvent) event),
+            executor
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (platformExecutor != null) {
+            platformExecutor.shutdown();
+        }
+    }
+
+    /** 一次操作 = 一批 inFlight 个并发发布全部完成；单条吞吐 = 得分 × inFlight */
+    @Benchmark
+    public void publishInFlight() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            futures[i] = publisher.publishAsync(Fixtures.envelope());
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /** 对照：调用线程直接同步发布，阻塞在模拟的 broker 往返上 */
+    @Benchmark
+    public PublishResult publishSync() {
+        return publisher.publish(Fixtures.envelope());
+    }
+}
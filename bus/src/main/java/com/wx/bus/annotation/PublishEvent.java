@@ -13,6 +13,7 @@ import java.lang.annotation.Target;
  *   <li>{@link #topic()} 必填，事件 topic</li>
  *   <li>{@link #payload()} SpEL，默认 "#result" 表示方法返回值作为 payload</li>
  *   <li>initiator 可由本注解的 service/operation 或类/方法上的 {@link EventInitiator} 提供</li>
+ *   <li>{@link #async()} 为 true 时发布交给进程内异步管道，方法返回不等待落库与 MQ</li>
  * </ul>
  */
 @Target(ElementType.METHOD)
@@ -59,4 +60,10 @@ public @interface PublishEvent {
      * 发起方 operation。
      */
     String initiatorOperation() default "";
+
+    /**
+     * 是否异步发布（fire-and-forget）：true 时事件进入进程内有界队列由后台线程批量发布，方法返回不等待；
+     * 全局开关 {@code bus.publish.async=true} 时所有方法均异步。队列满时按 {@code bus.publish.async-overflow-policy} 处理。
+     */
+    boolean async() default false;
 }
@@ -2,6 +2,7 @@ package com.wx.bus.aop;
 
 import com.wx.bus.annotation.EventInitiator;
 import com.wx.bus.annotation.PublishEvent;
+import com.wx.bus.application.AsyncPublishPipeline;
 import com.wx.bus.application.EventPublishService;
 import com.wx.bus.support.LogContext;
 import com.wx.bus.application.PublishResult;
@@ -17,28 +18,53 @@ import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import java.lang.reflect.Method;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 对带 {@link PublishEvent} 的方法在成功返回后发布事件；不抛异常，不影响主流程。
  * <p>由 {@link com.wx.bus.config.WxBusConfiguration} 注册为 Bean。</p>
  * <p>不作用于 Controller/RestController，避免与 Spring Data 的 ProjectingArgumentResolver 等 Web 参数解析冲突。</p>
+ * <p>注解属性、initiator 与参数名按方法缓存，SpEL 只解析一次并由 SpEL 编译器编译；默认 payload（#result）与 occurAt 不经 SpEL。</p>
+ * <p>{@code async = true} 或全局 {@code bus.publish.async=true} 时只把信封交给 {@link AsyncPublishPipeline}，业务线程不等待落库与 MQ。</p>
  */
 @Aspect
 @Order(Ordered.LOWEST_PRECEDENCE)
 public class PublishEventAspect {
 
     private static final Logger log = LoggerFactory.getLogger(PublishEventAspect.class);
-    private static final ExpressionParser PARSER = new SpelExpressionParser();
+    /**
+     * MIXED：表达式先解释执行，稳定后编译为字节码；编译后的表达式遇到类型变化（如 #result 换了类型）会自动回退解释执行。
+     * 不用 IMMEDIATE，因其编译后遇到类型变化直接抛异常，在本切面中会被吞掉并回退默认值，导致 payload 静默丢失。
+     */
+    private static final ExpressionParser PARSER = new SpelExpressionParser(
+        new SpelParserConfiguration(SpelCompilerMode.MIXED, PublishEventAspect.class.getClassLoader())
+    );
+    private static final String RESULT_EXPRESSION = "#result";
+    private static final String DEFAULT_OCCUR_AT = "T(java.time.Instant).now()";
 
     private final EventPublishService eventPublishService;
+    /** 为 null 时一律同步发布 */
+    private final AsyncPublishPipeline asyncPublishPipeline;
+    /** 每个被拦截方法的元数据缓存：注解解析、initiator、参数名与预解析表达式只在首次调用时计算 */
+    private final Map<Method, MethodMetadata> metadataCache = new ConcurrentHashMap<>();
 
     public PublishEventAspect(EventPublishService eventPublishService) {
+        this(eventPublishService, null);
+    }
+
+    public PublishEventAspect(EventPublishService eventPublishService, AsyncPublishPipeline asyncPublishPipeline) {
         this.eventPublishService = eventPublishService;
+        this.asyncPublishPipeline = asyncPublishPipeline;
     }
 
     /** 无参 pointcut，且使用 @Around 而非 @AfterReturning(returning=)，避免 formal unbound in pointcut。 */
@@ -53,10 +79,10 @@ public class PublishEventAspect {
     public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
         Object result = joinPoint.proceed();
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        PublishEvent ann = signature.getMethod().getAnnotation(PublishEvent.class);
-        if (ann == null) return result;
+        MethodMetadata meta = metadataCache.computeIfAbsent(signature.getMethod(), m -> MethodMetadata.resolve(m, signature));
+        if (meta == null) return result;
 
-        String topic = ann.topic();
+        String topic = meta.topic();
         if (topic == null || topic.isBlank()) {
             log.warn("PublishEvent topic is blank, skip userId={}", LogContext.getUserId());
             return result;
@@ -65,7 +91,7 @@ public class PublishEventAspect {
         StandardEvaluationContext context = new StandardEvaluationContext();
         context.setVariable("result", result);
         Object[] args = joinPoint.getArgs();
-        String[] names = signature.getParameterNames();
+        String[] names = meta.parameterNames();
         if (names != null) {
             for (int i = 0; i < names.length; i++) {
                 context.setVariable(names[i], i < args.length ? args[i] : null);
@@ -73,35 +99,16 @@ public class PublishEventAspect {
             }
         }
 
-        Object payload = eval(ann.payload(), context, result);
-        if (payload == null && "#result".equals(ann.payload())) {
+        Object payload = meta.payloadIsResult() ? result : eval(meta.payload(), context, result);
+        if (payload == null && meta.payloadIsResult()) {
             log.debug("PublishEvent payload(#result) is null, skip topic={} userId={}", topic, LogContext.getUserId());
             return result;
         }
 
-        Instant occurAt = evalInstant(ann.occurAt(), context);
-        String traceId = evalString(ann.traceId(), context);
-        String spanId = evalString(ann.spanId(), context);
-        String parentEventId = evalString(ann.parentEventId(), context);
-
-        String initiatorService = ann.initiatorService();
-        String initiatorOperation = ann.initiatorOperation();
-        if ((initiatorService == null || initiatorService.isEmpty()) || (initiatorOperation == null || initiatorOperation.isEmpty())) {
-            EventInitiator init = Optional.ofNullable(AnnotationUtils.findAnnotation(signature.getMethod(), EventInitiator.class))
-                .orElse(AnnotationUtils.findAnnotation(signature.getDeclaringType(), EventInitiator.class));
-            if (init != null) {
-                if (initiatorService == null || initiatorService.isEmpty()) initiatorService = init.service();
-                if (initiatorOperation == null || initiatorOperation.isEmpty()) initiatorOperation = init.operation();
-            }
-        }
-        Initiator initiator = (initiatorService != null && !initiatorService.isEmpty()) || (initiatorOperation != null && !initiatorOperation.isEmpty())
-            ? new Initiator(
-                initiatorService != null ? initiatorService : "",
-                initiatorOperation != null ? initiatorOperation : "",
-                null,
-                null
-            )
-            : null;
+        Instant occurAt = evalInstant(meta.occurAt(), context);
+        String traceId = evalString(meta.traceId(), context);
+        String spanId = evalString(meta.spanId(), context);
+        String parentEventId = evalString(meta.parentEventId(), context);
 
         EventEnvelope envelope = EventPublishService.buildEnvelope(
             null,
@@ -111,11 +118,15 @@ public class PublishEventAspect {
             topic,
             payload,
             EventEnvelope.PAYLOAD_TYPE_JSON,
-            initiator,
+            meta.initiator(),
             occurAt,
             null
         );
 
+        if (asyncPublishPipeline != null && (meta.async() || asyncPublishPipeline.isDefaultAsync())) {
+            asyncPublishPipeline.submit(envelope);
+            return result;
+        }
         try {
             PublishResult pr = eventPublishService.publish(envelope);
             if (!pr.success()) {
@@ -127,36 +138,107 @@ public class PublishEventAspect {
         return result;
     }
 
-    private static Object eval(String expr, StandardEvaluationContext context, Object defaultVal) {
-        if (expr == null || expr.isBlank()) return defaultVal;
+    private static Object eval(Expression expr, StandardEvaluationContext context, Object defaultVal) {
+        if (expr == null) return defaultVal;
         try {
-            return PARSER.parseExpression(expr).getValue(context);
+            return expr.getValue(context);
         } catch (Exception e) {
-            log.debug("SpEL eval failed expr={} userId={}", expr, LogContext.getUserId(), e);
+            log.debug("SpEL eval failed expr={} userId={}", expr.getExpressionString(), LogContext.getUserId(), e);
             return defaultVal;
         }
     }
 
-    private static Instant evalInstant(String expr, StandardEvaluationContext context) {
-        if (expr == null || expr.isBlank()) return Instant.now();
+    private static Instant evalInstant(Expression expr, StandardEvaluationContext context) {
+        if (expr == null) return Instant.now();
         try {
-            Object v = PARSER.parseExpression(expr).getValue(context);
+            Object v = expr.getValue(context);
             if (v instanceof Instant i) return i;
             if (v != null) return Instant.parse(v.toString());
         } catch (Exception e) {
-            log.debug("SpEL eval instant failed expr={} userId={}", expr, LogContext.getUserId(), e);
+            log.debug("SpEL eval instant failed expr={} userId={}", expr.getExpressionString(), LogContext.getUserId(), e);
         }
         return Instant.now();
     }
 
-    private static String evalString(String expr, StandardEvaluationContext context) {
-        if (expr == null || expr.isBlank()) return null;
+    private static String evalString(Expression expr, StandardEvaluationContext context) {
+        if (expr == null) return null;
         try {
-            Object v = PARSER.parseExpression(expr).getValue(context);
+            Object v = expr.getValue(context);
             return v == null ? null : v.toString();
         } catch (Exception e) {
-            log.debug("SpEL eval string failed expr={} userId={}", expr, LogContext.getUserId(), e);
+            log.debug("SpEL eval string failed expr={} userId={}", expr.getExpressionString(), LogContext.getUserId(), e);
+            return null;
+        }
+    }
+
+    /** 解析 SpEL；空串返回 null，语法错误记 warn 后按未配置处理（与逐次解析时求值失败回退默认值一致） */
+    private static Expression parse(String expr) {
+        if (expr == null || expr.isBlank()) return null;
+        try {
+            return PARSER.parseExpression(expr);
+        } catch (Exception e) {
+            log.warn("SpEL parse failed expr={} userId={}", expr, LogContext.getUserId(), e);
             return null;
         }
     }
+
+    /**
+     * 单个被拦截方法的发布元数据：注解属性、预解析的表达式、解析后的 initiator 与参数名，首次调用时构建后复用。
+     *
+     * @param payloadIsResult payload 为默认的 {@code #result} 时直接取返回值，不走 SpEL
+     * @param occurAt         为默认的 {@code T(java.time.Instant).now()} 时为 null，直接取当前时间
+     * @param async           注解上的 {@link PublishEvent#async()}
+     */
+    private record MethodMetadata(
+        String topic,
+        Expression payload,
+        boolean payloadIsResult,
+        Expression occurAt,
+        Expression traceId,
+        Expression spanId,
+        Expression parentEventId,
+        Initiator initiator,
+        String[] parameterNames,
+        boolean async
+    ) {
+
+        /** 方法上无 {@link PublishEvent} 时返回 null（computeIfAbsent 不缓存，与原先每次判空一致） */
+        static MethodMetadata resolve(Method method, MethodSignature signature) {
+            PublishEvent ann = method.getAnnotation(PublishEvent.class);
+            if (ann == null) return null;
+
+            String initiatorService = ann.initiatorService();
+            String initiatorOperation = ann.initiatorOperation();
+            if ((initiatorService == null || initiatorService.isEmpty()) || (initiatorOperation == null || initiatorOperation.isEmpty())) {
+                EventInitiator init = Optional.ofNullable(AnnotationUtils.findAnnotation(method, EventInitiator.class))
+                    .orElse(AnnotationUtils.findAnnotation(signature.getDeclaringType(), EventInitiator.class));
+                if (init != null) {
+                    if (initiatorService == null || initiatorService.isEmpty()) initiatorService = init.service();
+                    if (initiatorOperation == null || initiatorOperation.isEmpty()) initiatorOperation = init.operation();
+                }
+            }
+            Initiator initiator = (initiatorService != null && !initiatorService.isEmpty()) || (initiatorOperation != null && !initiatorOperation.isEmpty())
+                ? new Initiator(
+                    initiatorService != null ? initiatorService : "",
+                    initiatorOperation != null ? initiatorOperation : "",
+                    null,
+                    null
+                )
+                : null;
+
+            boolean payloadIsResult = RESULT_EXPRESSION.equals(ann.payload());
+            return new MethodMetadata(
+                ann.topic(),
+                payloadIsResult ? null : parse(ann.payload()),
+                payloadIsResult,
+                DEFAULT_OCCUR_AT.equals(ann.occurAt()) ? null : parse(ann.occurAt()),
+                parse(ann.traceId()),
+                parse(ann.spanId()),
+                parse(ann.parentEventId()),
+                initiator,
+                signature.getParameterNames(),
+                ann.async()
+            );
+        }
+    }
 }
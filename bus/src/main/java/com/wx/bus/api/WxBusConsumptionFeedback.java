@@ -1,15 +1,18 @@
 package com.wx.bus.api;
 
 import com.wx.bus.application.port.ConsumptionFeedbackPort;
+import com.wx.bus.event.ConsumptionFeedbackBatchEvent;
 import com.wx.bus.event.ConsumptionFeedbackEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.List;
 
 /**
  * 消费反馈公共门面：通过 Spring 事件触发反馈写入，无 REST。
  * <p>调用方注入本类后调用 {@link #recordFeedback}，内部发布 {@link ConsumptionFeedbackEvent}，由监听器写入 event_consumptions 并触发汇总回写。</p>
+ * <p>{@link #recordFeedbacks} 为批量版本，发布 {@link ConsumptionFeedbackBatchEvent}，一批反馈一次批量写入。</p>
  */
 @Component
 public class WxBusConsumptionFeedback implements ConsumptionFeedbackPort {
@@ -27,8 +30,20 @@ public class WxBusConsumptionFeedback implements ConsumptionFeedbackPort {
                               Instant consumedAt,
                               String errorMessage,
                               String errorCode) {
+        recordFeedback(new Feedback(eventId, null, consumerId, success, consumedAt, errorMessage, errorCode));
+    }
+
+    @Override
+    public void recordFeedback(Feedback feedback) {
         eventPublisher.publishEvent(new ConsumptionFeedbackEvent(
-            this, eventId, consumerId, success, consumedAt, errorMessage, errorCode
+            this, feedback.eventId(), feedback.topic(), feedback.consumerId(), feedback.success(),
+            feedback.consumedAt(), feedback.errorMessage(), feedback.errorCode()
         ));
     }
+
+    @Override
+    public void recordFeedbacks(List<Feedback> feedbacks) {
+        if (feedbacks == null || feedbacks.isEmpty()) return;
+        eventPublisher.publishEvent(new ConsumptionFeedbackBatchEvent(this, feedbacks));
+    }
 }
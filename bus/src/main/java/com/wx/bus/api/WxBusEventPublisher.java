@@ -4,10 +4,16 @@ import com.wx.bus.api.dto.PublishEventRequest;
 import com.wx.bus.application.EventPublishService;
 import com.wx.bus.application.PublishResult;
 import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.event.EventBatchPublishRequestEvent;
 import com.wx.bus.event.EventPublishRequestEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 事件发布公共门面：通过 Spring 事件触发发布，无 REST。
  * <p>调用方注入本类后调用 {@link #publish(EventEnvelope)} 或 {@link #publish(PublishEventRequest)}，内部发布 {@link EventPublishRequestEvent}，由监听器执行落库与发 MQ。</p>
@@ -16,9 +22,14 @@ import org.springframework.stereotype.Component;
 public class WxBusEventPublisher {
 
     private final ApplicationEventPublisher eventPublisher;
+    private final AsyncTaskExecutor taskExecutor;
 
-    public WxBusEventPublisher(ApplicationEventPublisher eventPublisher) {
+    public WxBusEventPublisher(
+        ApplicationEventPublisher eventPublisher,
+        @Qualifier("busTaskExecutor") AsyncTaskExecutor taskExecutor
+    ) {
         this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
     }
 
     /**
@@ -31,6 +42,29 @@ public class WxBusEventPublisher {
         return result != null ? result : PublishResult.skipped(envelope.eventId(), "Publish not completed");
     }
 
+    /**
+     * 异步发布事件（信封）：在 busTaskExecutor 上执行 {@link #publish(EventEnvelope)}，调用线程不阻塞在 Mongo/AMQP I/O 上。
+     * <p>{@code bus.execution.virtual-threads=true} 时每次发布占用一个虚拟线程，并发度不受线程池大小限制。</p>
+     */
+    public CompletableFuture<PublishResult> publishAsync(EventEnvelope envelope) {
+        return CompletableFuture.supplyAsync(() -> publish(envelope), taskExecutor);
+    }
+
+    /**
+     * 批量发布事件（信封）。同步等待监听器执行完毕后返回结果，与入参顺序一一对应。
+     * <p>适合导入类任务：整批一次 bulk insert、一次批量发 MQ，吞吐明显高于逐条 {@link #publish(EventEnvelope)}。</p>
+     */
+    public List<PublishResult> publishAll(List<EventEnvelope> envelopes) {
+        if (envelopes == null || envelopes.isEmpty()) return List.of();
+        EventBatchPublishRequestEvent event = new EventBatchPublishRequestEvent(this, envelopes);
+        eventPublisher.publishEvent(event);
+        List<PublishResult> results = event.getResults();
+        if (results != null) return results;
+        return envelopes.stream()
+            .map(e -> PublishResult.skipped(e.eventId(), "Publish not completed"))
+            .toList();
+    }
+
     /**
      * 发布事件（请求体）。根据 request 构建信封后发布，eventId/occurredAt 可空由服务端补全。
      */
@@ -0,0 +1,288 @@
+package com.wx.bus.application;
+
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.support.LogContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内异步发布管道：{@code @PublishEvent(async = true)} 或 {@code bus.publish.async=true} 时，切面把信封交给本管道后立即返回，
+ * 由后台线程按批调用 {@link EventPublishService#publishAll}。
+ * <ul>
+ *   <li>有界队列（{@code bus.publish.async-queue-capacity}），攒满 {@code async-batch-size} 条或等待 {@code async-flush-interval-ms} 即发一批</li>
+ *   <li>队列满时按 {@code async-overflow-policy} 处理：CALLER_RUNS 由业务线程同步发布（默认，不丢事件）；
+ *       BLOCK 最多等待 {@code async-block-timeout-ms}，超时丢弃；DROP 直接丢弃</li>
+ *   <li>整批发布抛异常时退回逐条发布，单条坏信封不影响同批其它事件</li>
+ *   <li>进程正常关闭时排空队列；进程崩溃时队列中未发布的事件会丢失，需要不丢时使用 outbox（{@code bus.outbox.enabled}）。
+ *       「检查运行状态 + 入队」与关闭时置位在同一把读写锁下，关闭之后的提交一律同步发布，不会落在最后一次排空之后的队列里</li>
+ * </ul>
+ * <p>指标：bus.publish.async.queue.size、bus.publish.async.submitted、bus.publish.async.overflow{policy}、
+ * bus.publish.async.failed、bus.publish.async.batch（批次耗时）。</p>
+ */
+@Component
+public class AsyncPublishPipeline implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncPublishPipeline.class);
+
+    /** 队列满时的处理策略 */
+    public enum OverflowPolicy {
+        /** 业务线程同步发布 */
+        CALLER_RUNS,
+        /** 阻塞等待队列空位，超时丢弃 */
+        BLOCK,
+        /** 直接丢弃 */
+        DROP
+    }
+
+    private final EventPublishService eventPublishService;
+    private final boolean defaultAsync;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final BlockingQueue<Item> queue;
+
+    private final Counter submitted;
+    private final Counter overflow;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    /** 读锁：submit 检查 running 并入队；写锁：start/stop 切换 running */
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    public AsyncPublishPipeline(
+        EventPublishService eventPublishService,
+        ObjectProvider<MeterRegistry> meterRegistry,
+        @Value("${bus.publish.async:false}") boolean defaultAsync,
+        @Value("${bus.publish.async-queue-capacity:10000}") int queueCapacity,
+        @Value("${bus.publish.async-batch-size:200}") int batchSize,
+        @Value("${bus.publish.async-flush-interval-ms:50}") long flushIntervalMillis,
+        @Value("${bus.publish.async-overflow-policy:CALLER_RUNS}") OverflowPolicy overflowPolicy,
+        @Value("${bus.publish.async-block-timeout-ms:1000}") long blockTimeoutMillis
+    ) {
+        this.eventPublishService = eventPublishService;
+        this.defaultAsync = defaultAsync;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.submitted = Counter.builder("bus.publish.async.submitted").register(registry);
+        this.overflow = Counter.builder("bus.publish.async.overflow").tag("policy", overflowPolicy.name()).register(registry);
+        this.failed = Counter.builder("bus.publish.async.failed").register(registry);
+        this.batchTimer = Timer.builder("bus.publish.async.batch").register(registry);
+        Gauge.builder("bus.publish.async.queue.size", queue, BlockingQueue::size).register(registry);
+    }
+
+    /** 全局异步模式（bus.publish.async） */
+    public boolean isDefaultAsync() {
+        return defaultAsync;
+    }
+
+    /**
+     * 提交一条待发布信封，正常情况下立即返回；队列满时按溢出策略处理。
+     */
+    public void submit(EventEnvelope envelope) {
+        Item item = new Item(envelope, MDC.get(LogContext.USER_ID_KEY));
+        boolean accepting;
+        lifecycleLock.readLock().lock();
+        try {
+            accepting = running;
+            if (accepting && enqueue(item)) {
+                submitted.increment();
+                return;
+            }
+        } finally {
+            lifecycleLock.readLock().unlock();
+        }
+        if (!accepting) {
+            // 未启动或已关闭：不再入队，直接同步发布
+            publishNow(item);
+            return;
+        }
+        switch (overflowPolicy) {
+            case CALLER_RUNS -> publishNow(item);
+            case BLOCK -> log.error("Async publish queue full, dropped after {}ms topic={} eventId={} userId={}",
+                blockTimeoutMillis, envelope.topic(), envelope.eventId(), LogContext.getUserId());
+            case DROP -> log.error("Async publish queue full, dropped topic={} eventId={} userId={}",
+                envelope.topic(), envelope.eventId(), LogContext.getUserId());
+        }
+    }
+
+    /** 入队；队列满时计一次溢出，BLOCK 策略在 blockTimeoutMillis 内等待空位（worker 仍在运行，会腾出空位） */
+    private boolean enqueue(Item item) {
+        if (queue.offer(item)) return true;
+        overflow.increment();
+        if (overflowPolicy != OverflowPolicy.BLOCK) return false;
+        try {
+            return queue.offer(item, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        setRunning(true);
+        Thread t = new Thread(this::drainLoop, "bus-publish-pipeline");
+        t.setDaemon(true);
+        t.start();
+        worker = t;
+    }
+
+    @Override
+    public void stop() {
+        // 不 interrupt：worker 可能正处于 Mongo/Rabbit I/O 中，中断会打断写入；置位后最多一个 flush 间隔即退出循环。
+        // 写锁等进行中的 submit 入队完成，之后的 submit 都看到 running=false 走同步发布，下面的 flushRemaining 不会漏掉事件
+        setRunning(false);
+        Thread t = worker;
+        if (t != null) {
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (t.isAlive()) {
+                log.warn("Async publish worker still busy after 10s, flushing remaining queue on caller thread");
+            }
+            worker = null;
+        }
+        // join 超时时 worker 未排空的残留在当前线程发完
+        flushRemaining();
+    }
+
+    private void setRunning(boolean value) {
+        lifecycleLock.writeLock().lock();
+        try {
+            running = value;
+        } finally {
+            lifecycleLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** 晚于业务 Bean 停止、早于 Mongo/Rabbit 连接关闭，保证关闭时队列里的事件能发出去 */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void drainLoop() {
+        List<Item> batch = new ArrayList<>(batchSize);
+        while (running) {
+            boolean interrupted = false;
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            // 已出队的事件只在这里交给 publishAll 一次，之后无论成败都清空，不会重发
+            publishBatch(batch);
+            batch.clear();
+            if (interrupted) {
+                log.warn("Async publish worker interrupted, draining queue and exiting");
+                break;
+            }
+        }
+        flushRemaining();
+    }
+
+    /** 攒一批：最多等一个 flush 间隔拿到首条，再在同一间隔内补满到 batchSize */
+    private void collect(List<Item> batch) throws InterruptedException {
+        Item first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize) break;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            Item next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+
+    private void flushRemaining() {
+        List<Item> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            publishBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void publishBatch(List<Item> batch) {
+        if (batch.isEmpty()) return;
+        List<EventEnvelope> envelopes = batch.stream().map(Item::envelope).toList();
+        List<PublishResult> results;
+        try {
+            results = batchTimer.record(() -> eventPublishService.publishAll(envelopes));
+        } catch (Exception e) {
+            // 整批失败时逐条重试，避免一条坏信封拖累整批；已落库的 eventId 会按重复返回 skipped，不会重复写入
+            log.error("Async publish batch failed, falling back to per-event publish size={} firstEventId={}",
+                batch.size(), envelopes.get(0).eventId(), e);
+            batch.forEach(this::publishNow);
+            return;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            PublishResult pr = results.get(i);
+            if (!pr.success()) {
+                failed.increment();
+                Item item = batch.get(i);
+                log.error("PublishEvent failed topic={} eventId={} message={} userId={}",
+                    item.envelope().topic(), pr.eventId(), pr.message(), userId(item));
+            }
+        }
+    }
+
+    private void publishNow(Item item) {
+        try {
+            PublishResult pr = eventPublishService.publish(item.envelope());
+            if (!pr.success()) {
+                failed.increment();
+                log.error("PublishEvent failed topic={} eventId={} message={} userId={}",
+                    item.envelope().topic(), pr.eventId(), pr.message(), userId(item));
+            }
+        } catch (Exception e) {
+            failed.increment();
+            log.error("PublishEvent error topic={} eventId={} userId={}",
+                item.envelope().topic(), item.envelope().eventId(), userId(item), e);
+        }
+    }
+
+    private static String userId(Item item) {
+        return item.userId() != null ? item.userId() : LogContext.getUserId();
+    }
+
+    /** 队列元素：信封 + 提交线程的 userId（后台线程打日志用） */
+    private record Item(EventEnvelope envelope, String userId) {}
+}
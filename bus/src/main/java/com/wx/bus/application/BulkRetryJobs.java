@@ -0,0 +1,213 @@
+package com.wx.bus.application;
+
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.BulkRetryJobDocument;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.support.LogContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 批量重推任务：按筛选条件（topic、status、occurredAt 范围、consumerId）创建任务，由 {@link BulkRetryRunner} 后台限速执行。
+ * <p>任务状态：PENDING → RUNNING → COMPLETED / FAILED / CANCELLED；取消或失败的任务可恢复为 PENDING，从断点继续。</p>
+ * <p>重推时只向最新一条消费记录为失败的消费者定向重投；筛选 consumerId 时只处理该消费者最新一次失败的事件，
+ * 此时 total 为不含 consumerId 条件的上限。total 在创建后异步统计，统计完成前为 null。</p>
+ */
+@Service
+public class BulkRetryJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkRetryJobs.class);
+
+    /** 任务状态 */
+    public enum State {
+        PENDING, RUNNING, CANCELLED, COMPLETED, FAILED
+    }
+
+    /** 批量重推允许筛选的事件状态；未指定时默认 FAILED、PARTIAL */
+    public static final Set<String> RETRYABLE_STATUSES = Set.of(
+        EventStatus.FAILED.name(),
+        EventStatus.PARTIAL.name(),
+        EventStatus.RETRYING.name(),
+        EventStatus.SENT.name()
+    );
+    private static final List<String> DEFAULT_STATUSES = List.of(EventStatus.FAILED.name(), EventStatus.PARTIAL.name());
+
+    private final MongoTemplate mongoTemplate;
+    private final double defaultRatePerSecond;
+    private final double maxRatePerSecond;
+    private final int defaultBatchSize;
+    /** 创建任务后统计 total，单线程串行，避免同时创建多个任务时并发全量计数 */
+    private final ExecutorService countExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bus-bulk-retry-count");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BulkRetryJobs(
+        MongoTemplate mongoTemplate,
+        @Value("${bus.retry.bulk.rate-per-second:200}") double defaultRatePerSecond,
+        @Value("${bus.retry.bulk.max-rate-per-second:2000}") double maxRatePerSecond,
+        @Value("${bus.retry.bulk.batch-size:100}") int defaultBatchSize
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    /**
+     * 新建任务（PENDING）并立即返回；total（创建时符合条件的事件数）由后台线程统计后回填，返回值中为 null。
+     *
+     * @param ratePerSecond 每秒重推事件数，null 或非正数取默认值，超过上限按上限
+     * @param batchSize     每批事件数，null 或非正数取默认值
+     * @throws IllegalArgumentException statuses 含不允许重推的状态，或时间范围颠倒
+     */
+    public BulkRetryJobDocument create(Filter filter, Double ratePerSecond, Integer batchSize, String createdBy) {
+        List<String> statuses = filter.statuses() == null || filter.statuses().isEmpty() ? DEFAULT_STATUSES : filter.statuses();
+        for (String status : statuses) {
+            if (!RETRYABLE_STATUSES.contains(status)) {
+                throw new IllegalArgumentException("status not retryable: " + status);
+            }
+        }
+        if (filter.occurredFrom() != null && filter.occurredTo() != null && filter.occurredFrom().isAfter(filter.occurredTo())) {
+            throw new IllegalArgumentException("occurredFrom is after occurredTo");
+        }
+        Instant now = Instant.now();
+        BulkRetryJobDocument job = new BulkRetryJobDocument();
+        job.setId(UUID.randomUUID().toString());
+        job.setState(State.PENDING.name());
+        job.setTopic(blankToNull(filter.topic()));
+        job.setStatuses(List.copyOf(statuses));
+        job.setOccurredFrom(filter.occurredFrom());
+        job.setOccurredTo(filter.occurredTo());
+        job.setConsumerId(blankToNull(filter.consumerId()));
+        job.setRatePerSecond(Math.min(ratePerSecond != null && ratePerSecond > 0 ? ratePerSecond : defaultRatePerSecond, maxRatePerSecond));
+        job.setBatchSize(batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize);
+        job.setCreatedBy(createdBy);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        mongoTemplate.insert(job);
+        log.info("Bulk retry job created jobId={} topic={} statuses={} consumerId={} userId={}",
+            job.getId(), job.getTopic(), job.getStatuses(), job.getConsumerId(), LogContext.getUserId());
+        Query query = eventQuery(job);
+        countExecutor.execute(() -> countTotal(job.getId(), query));
+        return job;
+    }
+
+    /** 统计符合条件的事件数并回填 total；大范围筛选可能扫描大量索引键，不阻塞创建请求 */
+    private void countTotal(String jobId, Query query) {
+        try {
+            long total = mongoTemplate.count(query, EventDocument.class);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(jobId)), Update.update("total", total), BulkRetryJobDocument.class);
+            log.info("Bulk retry job counted jobId={} total={}", jobId, total);
+        } catch (Exception e) {
+            log.warn("Bulk retry job count failed, total stays unknown jobId={}", jobId, e);
+        }
+    }
+
+    public BulkRetryJobDocument get(String jobId) {
+        return mongoTemplate.findById(jobId, BulkRetryJobDocument.class);
+    }
+
+    /** 最近创建的任务，按 createdAt 倒序 */
+    public List<BulkRetryJobDocument> list(int limit) {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(limit);
+        return mongoTemplate.find(query, BulkRetryJobDocument.class);
+    }
+
+    /**
+     * 取消 PENDING/RUNNING 任务；执行中的任务在下一次写断点时发现已取消并停止，已发出的批次不回滚。
+     *
+     * @return 更新后的任务；不存在或已结束时为 null
+     */
+    public BulkRetryJobDocument cancel(String jobId) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is(jobId).and("state").in(State.PENDING.name(), State.RUNNING.name()));
+        Update update = new Update()
+            .set("state", State.CANCELLED.name())
+            .set("finishedAt", now)
+            .set("updatedAt", now);
+        BulkRetryJobDocument job = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), BulkRetryJobDocument.class);
+        if (job != null) {
+            log.info("Bulk retry job cancelled jobId={} retried={} userId={}", jobId, job.getRetried(), LogContext.getUserId());
+        }
+        return job;
+    }
+
+    /**
+     * 恢复 CANCELLED/FAILED 任务为 PENDING，保留断点与进度计数，由执行端从断点之后继续。
+     *
+     * @return 更新后的任务；不存在或状态不允许恢复时为 null
+     */
+    public BulkRetryJobDocument resume(String jobId) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is(jobId).and("state").in(State.CANCELLED.name(), State.FAILED.name()));
+        Update update = new Update()
+            .set("state", State.PENDING.name())
+            .unset("owner")
+            .unset("heartbeatAt")
+            .unset("error")
+            .unset("finishedAt")
+            .set("updatedAt", now);
+        BulkRetryJobDocument job = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), BulkRetryJobDocument.class);
+        if (job != null) {
+            log.info("Bulk retry job resumed jobId={} checkpointEventId={} userId={}", jobId, job.getCheckpointEventId(), LogContext.getUserId());
+        }
+        return job;
+    }
+
+    /**
+     * 任务对应的事件查询（不含排序与断点）：status $in、topic、occurredAt 范围。
+     * <p>consumerId 不在查询中过滤（queue 汇总模式下 events.consumerOutcomes 不随反馈更新），由执行端按消费记录逐批判断。</p>
+     */
+    static Query eventQuery(BulkRetryJobDocument job) {
+        return Query.query(new Criteria().andOperator(eventCriteria(job)));
+    }
+
+    /** 任务筛选条件的各项，供执行端追加断点条件后合并为同一个 $and */
+    static List<Criteria> eventCriteria(BulkRetryJobDocument job) {
+        List<Criteria> and = new ArrayList<>();
+        and.add(Criteria.where("status").in(job.getStatuses()));
+        if (job.getTopic() != null) {
+            and.add(Criteria.where("topic").is(job.getTopic()));
+        }
+        if (job.getOccurredFrom() != null || job.getOccurredTo() != null) {
+            Criteria occurredAt = Criteria.where("occurredAt");
+            if (job.getOccurredFrom() != null) occurredAt = occurredAt.gte(job.getOccurredFrom());
+            if (job.getOccurredTo() != null) occurredAt = occurredAt.lte(job.getOccurredTo());
+            and.add(occurredAt);
+        }
+        return and;
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+
+    /**
+     * 批量重推筛选条件，各项为 null 表示不限。
+     *
+     * @param topic        topic
+     * @param statuses     事件状态，须为 {@link #RETRYABLE_STATUSES} 的子集；为空时取 FAILED、PARTIAL
+     * @param occurredFrom occurredAt 下界（含）
+     * @param occurredTo   occurredAt 上界（含）
+     * @param consumerId   只重推该消费者最新一次消费失败的事件
+     */
+    public record Filter(String topic, List<String> statuses, Instant occurredFrom, Instant occurredTo, String consumerId) {}
+}
@@ -0,0 +1,376 @@
+package com.wx.bus.application;
+
+import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.mongo.BulkRetryJobDocument;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.bus.infrastructure.rabbit.ConsumerBindingConfig;
+import com.wx.bus.support.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 批量重推执行：轮询认领 {@link BulkRetryJobs} 创建的任务，按 (occurredAt, _id) 升序以游标流式读取符合条件的事件，
+ * 攒批后经令牌桶限速批量发布，逐批写断点与进度。
+ * <ul>
+ *   <li>认领：PENDING 任务，或心跳超过 {@code bus.retry.bulk.lease-ttl-ms} 的 RUNNING 任务（执行节点宕机后由其他节点接管）</li>
+ *   <li>断点：每批发布并登记 retryCount 后，以 owner + RUNNING 为条件写入最后一条的 (occurredAt, _id)；
+ *       条件不满足（已取消或被接管）即停止。崩溃时最后一批可能重复发出（至少一次，消费端按 eventId 幂等）</li>
+ *   <li>投递：有最新一次消费失败的消费者时只向其队列定向重投（{@link EventPublisherPort#redeliverAll}），其余按 topic 发布</li>
+ *   <li>背压：发布前检查目标消费者队列积压，超过 {@code bus.retry.bulk.max-queue-depth} 时关闭游标、暂停并保持心跳，
+ *       积压回落后从断点重开（该批重新读取），等待期间不占用服务端游标</li>
+ *   <li>游标：每段最长 {@link #CURSOR_MAX_AGE_MILLIS} 后关闭并从断点重开，避免限速等待期间游标超时</li>
+ *   <li>发布失败（broker 不可用等）时任务置 FAILED 并记录原因，断点停在失败批之前，恢复后从该批重新开始</li>
+ * </ul>
+ * <p>单节点同一时间只执行一个任务；默认关闭，由管理端等运维节点开启 {@code bus.retry.bulk.enabled=true}。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "bus.retry.bulk.enabled", havingValue = "true")
+public class BulkRetryRunner implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkRetryRunner.class);
+
+    private static final long CURSOR_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final EventRepository eventRepository;
+    private final EventConsumptionRepository eventConsumptionRepository;
+    private final EventPublisherPort eventPublisher;
+    private final TopicRoutingTable topicRoutingTable;
+    private final AmqpAdmin amqpAdmin;
+    private final long pollIntervalMillis;
+    private final Duration leaseTtl;
+    private final long maxQueueDepth;
+    private final String nodeId;
+
+    private volatile ScheduledExecutorService scheduler;
+
+    public BulkRetryRunner(
+        MongoTemplate mongoTemplate,
+        EventRepository eventRepository,
+        EventConsumptionRepository eventConsumptionRepository,
+        EventPublisherPort eventPublisher,
+        TopicRoutingTable topicRoutingTable,
+        AmqpAdmin amqpAdmin,
+        @Value("${bus.retry.bulk.poll-interval-ms:2000}") long pollIntervalMillis,
+        @Value("${bus.retry.bulk.lease-ttl-ms:30000}") long leaseTtlMillis,
+        @Value("${bus.retry.bulk.max-queue-depth:10000}") long maxQueueDepth,
+        @Value("${spring.application.name:bus}") String applicationName
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventRepository = eventRepository;
+        this.eventConsumptionRepository = eventConsumptionRepository;
+        this.eventPublisher = eventPublisher;
+        this.topicRoutingTable = topicRoutingTable;
+        this.amqpAdmin = amqpAdmin;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMillis);
+        this.maxQueueDepth = maxQueueDepth;
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bus-bulk-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::tick, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler = s;
+        log.info("Bulk retry runner started nodeId={}", nodeId);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            // 中断限速/背压等待；执行中的任务心跳过期后由其他节点或重启后从断点接管
+            s.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    void tick() {
+        try {
+            BulkRetryJobDocument job;
+            while (scheduler != null && (job = claim()) != null) {
+                run(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Bulk retry tick failed nodeId={}", nodeId, e);
+        }
+    }
+
+    /** 认领最早创建的 PENDING 任务或心跳过期的 RUNNING 任务 */
+    private BulkRetryJobDocument claim() {
+        Instant now = Instant.now();
+        Query query = Query.query(new Criteria().orOperator(
+            Criteria.where("state").is(BulkRetryJobs.State.PENDING.name()),
+            Criteria.where("state").is(BulkRetryJobs.State.RUNNING.name()).and("heartbeatAt").lt(now.minus(leaseTtl))
+        )).with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update update = new Update()
+            .set("state", BulkRetryJobs.State.RUNNING.name())
+            .set("owner", nodeId)
+            .set("heartbeatAt", now)
+            .set("updatedAt", now);
+        BulkRetryJobDocument job = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), BulkRetryJobDocument.class);
+        if (job != null && job.getStartedAt() == null) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job.getId())), Update.update("startedAt", now), BulkRetryJobDocument.class);
+        }
+        return job;
+    }
+
+    private void run(BulkRetryJobDocument job) throws InterruptedException {
+        log.info("Bulk retry job started jobId={} nodeId={} checkpointEventId={}", job.getId(), nodeId, job.getCheckpointEventId());
+        TokenBucket bucket = new TokenBucket(job.getRatePerSecond(), Math.max(job.getBatchSize(), job.getRatePerSecond()));
+        Checkpoint checkpoint = new Checkpoint(job.getCheckpointOccurredAt(), job.getCheckpointEventId());
+        try {
+            while (true) {
+                Segment segment = runSegment(job, checkpoint, bucket);
+                if (segment == Segment.STOPPED) return;
+                if (segment == Segment.EXHAUSTED) break;
+                if (segment == Segment.BACKLOGGED && !awaitConsumerCapacity(job, checkpoint.backloggedConsumers)) return;
+            }
+            finish(job, BulkRetryJobs.State.COMPLETED, null);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Bulk retry job failed jobId={} checkpointEventId={}", job.getId(), checkpoint.eventId, e);
+            finish(job, BulkRetryJobs.State.FAILED, e.toString());
+        }
+    }
+
+    /** 从断点打开一段游标，读到末尾、达到最长时间、目标队列积压或任务停止为止 */
+    private Segment runSegment(BulkRetryJobDocument job, Checkpoint checkpoint, TokenBucket bucket) throws InterruptedException {
+        List<Criteria> criteria = new ArrayList<>(BulkRetryJobs.eventCriteria(job));
+        if (checkpoint.occurredAt != null) {
+            criteria.add(new Criteria().orOperator(
+                Criteria.where("occurredAt").gt(checkpoint.occurredAt),
+                Criteria.where("occurredAt").is(checkpoint.occurredAt).and("_id").gt(checkpoint.eventId)
+            ));
+        }
+        Query query = Query.query(new Criteria().andOperator(criteria));
+        query.with(Sort.by(Sort.Order.asc("occurredAt"), Sort.Order.asc("_id"))).cursorBatchSize(job.getBatchSize());
+        long openedAt = System.currentTimeMillis();
+        try (Stream<EventDocument> stream = mongoTemplate.stream(query, EventDocument.class)) {
+            Iterator<EventDocument> it = stream.iterator();
+            List<EventDocument> batch = new ArrayList<>(job.getBatchSize());
+            while (it.hasNext()) {
+                batch.add(it.next());
+                if (batch.size() < job.getBatchSize()) continue;
+                Segment processed = processBatch(job, batch, checkpoint, bucket);
+                if (processed != Segment.CONTINUE) return processed;
+                batch.clear();
+                if (System.currentTimeMillis() - openedAt > CURSOR_MAX_AGE_MILLIS) return Segment.CONTINUE;
+            }
+            if (!batch.isEmpty()) {
+                Segment processed = processBatch(job, batch, checkpoint, bucket);
+                if (processed != Segment.CONTINUE) return processed;
+            }
+            return Segment.EXHAUSTED;
+        }
+    }
+
+    /**
+     * 处理一批：过滤已过期/指定消费者未失败的事件，检查背压、等待令牌后定向重投或按 topic 发布，登记重推并写断点。
+     *
+     * @return CONTINUE 已处理；BACKLOGGED 目标队列积压，本批未发出、断点不变；STOPPED 任务已取消或被其他节点接管
+     */
+    private Segment processBatch(BulkRetryJobDocument job, List<EventDocument> batch, Checkpoint checkpoint, TokenBucket bucket)
+        throws InterruptedException {
+        Plan plan = plan(job, batch, Instant.now());
+        int eligible = plan.redeliveries().size() + plan.fanOut().size();
+        if (eligible > 0) {
+            String backlogged = backloggedQueue(plan.consumerIds());
+            if (backlogged != null) {
+                log.debug("Bulk retry paused jobId={} queue={} maxQueueDepth={}", job.getId(), backlogged, maxQueueDepth);
+                checkpoint.backloggedConsumers = plan.consumerIds();
+                return Segment.BACKLOGGED;
+            }
+            bucket.acquire(eligible);
+            try {
+                if (!plan.redeliveries().isEmpty()) eventPublisher.redeliverAll(plan.redeliveries());
+                if (!plan.fanOut().isEmpty()) eventPublisher.publishAll(plan.fanOut());
+            } catch (RuntimeException e) {
+                updateIfOwned(job, new Update().inc("failed", eligible));
+                throw e;
+            }
+            List<String> eventIds = new ArrayList<>(eligible);
+            plan.redeliveries().forEach(r -> eventIds.add(r.envelope().eventId()));
+            plan.fanOut().forEach(e -> eventIds.add(e.eventId()));
+            eventRepository.markRetriedAll(eventIds, Instant.now());
+        }
+        EventDocument last = batch.get(batch.size() - 1);
+        checkpoint.occurredAt = last.getOccurredAt();
+        checkpoint.eventId = last.getId();
+        Update update = new Update()
+            .set("checkpointOccurredAt", checkpoint.occurredAt)
+            .set("checkpointEventId", checkpoint.eventId)
+            .inc("scanned", batch.size())
+            .inc("retried", eligible)
+            .inc("skipped", batch.size() - eligible)
+            .set("heartbeatAt", Instant.now())
+            .set("updatedAt", Instant.now());
+        return updateIfOwned(job, update) ? Segment.CONTINUE : Segment.STOPPED;
+    }
+
+    /**
+     * 按消费记录决定每条未过期事件的投递方式：有最新一次失败的消费者时只向其队列定向重投，否则按 topic 发布；
+     * 任务指定 consumerId 时只处理该消费者最新一次失败的事件，且只投递给它。
+     */
+    private Plan plan(BulkRetryJobDocument job, List<EventDocument> batch, Instant now) {
+        List<EventDocument> candidates = batch.stream()
+            .filter(doc -> doc.getExpireAt() == null || !doc.getExpireAt().isBefore(now))
+            .toList();
+        List<EventPublisherPort.Redelivery> redeliveries = new ArrayList<>();
+        List<EventEnvelope> fanOut = new ArrayList<>();
+        Set<String> consumerIds = new LinkedHashSet<>();
+        if (candidates.isEmpty()) return new Plan(redeliveries, fanOut, consumerIds);
+        Map<String, List<String>> failedByEvent = EventRetryService.failedConsumersByEvent(
+            eventConsumptionRepository.findByEventIdIn(candidates.stream().map(EventDocument::getEventId).toList())
+        );
+        for (EventDocument doc : candidates) {
+            List<String> failed = failedByEvent.getOrDefault(doc.getEventId(), List.of());
+            if (job.getConsumerId() != null) {
+                if (!failed.contains(job.getConsumerId())) continue;
+                failed = List.of(job.getConsumerId());
+            }
+            EventEnvelope envelope = EventDocumentMapper.documentToEnvelope(doc);
+            if (failed.isEmpty()) {
+                fanOut.add(envelope);
+                for (TopicConsumerDocument c : topicRoutingTable.enabledConsumers(doc.getTopic())) {
+                    consumerIds.add(c.getConsumerId());
+                }
+            } else {
+                redeliveries.add(new EventPublisherPort.Redelivery(envelope, failed));
+                consumerIds.addAll(failed);
+            }
+        }
+        return new Plan(redeliveries, fanOut, consumerIds);
+    }
+
+    /**
+     * 游标关闭后等待目标消费者队列积压回落到上限以下，期间保持心跳。
+     *
+     * @return false 等待期间任务已取消或被接管
+     */
+    private boolean awaitConsumerCapacity(BulkRetryJobDocument job, Set<String> consumerIds) throws InterruptedException {
+        while (true) {
+            TimeUnit.MILLISECONDS.sleep(pollIntervalMillis);
+            Instant now = Instant.now();
+            if (!updateIfOwned(job, new Update().set("heartbeatAt", now).set("updatedAt", now))) return false;
+            if (backloggedQueue(consumerIds) == null) return true;
+        }
+    }
+
+    /** 积压超过上限的第一个消费者队列；关闭背压、队列不存在或 broker 查询失败时不阻塞（发布失败会使任务进入 FAILED） */
+    private String backloggedQueue(Set<String> consumerIds) {
+        if (maxQueueDepth <= 0) return null;
+        for (String consumerId : consumerIds) {
+            String queue = ConsumerBindingConfig.queueName(consumerId);
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                if (info != null && info.getMessageCount() > maxQueueDepth) return queue;
+            } catch (RuntimeException e) {
+                log.debug("Bulk retry queue depth check failed queue={}", queue, e);
+            }
+        }
+        return null;
+    }
+
+    private boolean updateIfOwned(BulkRetryJobDocument job, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(job.getId())
+            .and("owner").is(nodeId)
+            .and("state").is(BulkRetryJobs.State.RUNNING.name()));
+        boolean owned = mongoTemplate.updateFirst(query, update, BulkRetryJobDocument.class).getMatchedCount() > 0;
+        if (!owned) {
+            log.info("Bulk retry job stopped (cancelled or taken over) jobId={} nodeId={}", job.getId(), nodeId);
+        }
+        return owned;
+    }
+
+    private void finish(BulkRetryJobDocument job, BulkRetryJobs.State state, String error) {
+        Instant now = Instant.now();
+        Update update = new Update()
+            .set("state", state.name())
+            .set("finishedAt", now)
+            .set("updatedAt", now);
+        if (error != null) {
+            update.set("error", error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        }
+        if (updateIfOwned(job, update)) {
+            log.info("Bulk retry job {} jobId={} nodeId={}", state, job.getId(), nodeId);
+        }
+    }
+
+    /**
+     * 一批的投递计划。
+     *
+     * @param redeliveries 定向重投到失败消费者队列的事件
+     * @param fanOut       按 topic 发布的事件（没有失败消费者，如发送失败或超时未消费）
+     * @param consumerIds  本批涉及的消费者，用于背压检查
+     */
+    private record Plan(List<EventPublisherPort.Redelivery> redeliveries, List<EventEnvelope> fanOut, Set<String> consumerIds) {}
+
+    private enum Segment {
+        /** 游标读到末尾 */
+        EXHAUSTED,
+        /** 达到游标最长时间，从断点重开；作为一批的结果时表示已处理、继续读取 */
+        CONTINUE,
+        /** 目标消费者队列积压：已关闭游标，等待积压回落后从断点重开 */
+        BACKLOGGED,
+        /** 任务已取消或被接管 */
+        STOPPED
+    }
+
+    /** 当前执行位置，只由执行线程访问 */
+    private static final class Checkpoint {
+        Instant occurredAt;
+        String eventId;
+        /** 最近一次因积压暂停时本批涉及的消费者，重开游标前据此等待 */
+        Set<String> backloggedConsumers = Set.of();
+
+        Checkpoint(Instant occurredAt, String eventId) {
+            this.occurredAt = occurredAt;
+            this.eventId = eventId;
+        }
+    }
+}
@@ -1,19 +1,29 @@
 package com.wx.bus.application;
 
+import com.wx.bus.application.port.ConsumptionFeedbackPort;
 import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.support.BusMetrics;
 import com.wx.bus.support.LogContext;
 import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
 import com.wx.bus.infrastructure.rabbit.RollupPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * 消费反馈：若该 (eventId, consumerId) 最新记录为待消费（success=null）则更新该条，否则插入新行（attemptNo 递增），并投递 eventId 到汇总队列。
- * <p>首次回调更新初始化记录，后续重试/再次回调则新增行，便于保留多次重试历史。</p>
+ * 消费反馈：若该 (eventId, consumerId) 存在待消费记录（success=null）则更新该条，否则插入新行（attemptNo 递增），并投递 eventId 到汇总队列。
+ * <p>首次回调更新初始化记录，后续重试/再次回调则新增行，便于保留多次重试历史。
+ * 两种写入均为单次原子操作（见 {@link EventConsumptionRepository#recordAttempt}），多节点并发重复投递时 attemptNo 不重复。</p>
+ * <p>{@code bus.rollup.mode=incremental} 时不投递汇总队列，直接由 {@link ConsumptionRollupService#applyOutcome} 增量回写 events；
+ * 事件未初始化计数（升级前的旧事件等）时仍回退到汇总队列。</p>
+ * <p>写入消费记录（record）与触发汇总（rollup）的耗时经 {@link BusMetrics} 按 topic、consumerId 记录。</p>
  */
 @Service
 public class ConsumptionFeedbackService {
@@ -22,55 +32,94 @@ public class ConsumptionFeedbackService {
 
     private final EventConsumptionRepository eventConsumptionRepository;
     private final RollupPublisher rollupPublisher;
+    private final ConsumptionRollupService rollupService;
+    private final boolean incrementalRollup;
+    private final BusMetrics busMetrics;
 
     public ConsumptionFeedbackService(
         EventConsumptionRepository eventConsumptionRepository,
-        RollupPublisher rollupPublisher
+        RollupPublisher rollupPublisher,
+        ConsumptionRollupService rollupService,
+        @Value("${bus.rollup.mode:queue}") String rollupMode,
+        BusMetrics busMetrics
     ) {
         this.eventConsumptionRepository = eventConsumptionRepository;
         this.rollupPublisher = rollupPublisher;
+        this.rollupService = rollupService;
+        this.incrementalRollup = "incremental".equalsIgnoreCase(rollupMode);
+        this.busMetrics = busMetrics;
     }
 
     /**
-     * 记录一次消费反馈：若最新记录为待消费（success=null）则更新该条，否则插入新行（attemptNo 递增），并发送 eventId 到汇总队列。
+     * 记录一次消费反馈：若存在待消费记录（success=null）则原子认领该条，否则插入新行（attemptNo 原子递增），并触发汇总。
+     * <p>不带 topic，指标标签记为 unknown；已知 topic 时用 {@link #recordFeedback(ConsumptionFeedbackPort.Feedback)}。</p>
      */
     public void recordFeedback(String eventId, String consumerId, boolean success,
                                Instant consumedAt, String errorMessage, String errorCode) {
-        Instant at = consumedAt != null ? consumedAt : Instant.now();
-        List<EventConsumptionDocument> list = eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(eventId, consumerId);
-        EventConsumptionDocument latest = list.isEmpty() ? null : list.get(0);
+        recordFeedback(new ConsumptionFeedbackPort.Feedback(eventId, null, consumerId, success, consumedAt, errorMessage, errorCode));
+    }
 
-        if (latest != null && latest.getSuccess() == null) {
-            // 待消费：更新该条，不新增
-            latest.setSuccess(success);
-            latest.setConsumedAt(at);
-            latest.setErrorMessage(errorMessage);
-            latest.setErrorCode(errorCode);
-            eventConsumptionRepository.save(latest);
-            rollupPublisher.sendEventIdForRollup(eventId);
-            log.debug("Updated consumption (pending) eventId={} consumerId={} attemptNo={} success={} userId={}", eventId, consumerId, latest.getAttemptNo(), success, LogContext.getUserId());
-            return;
+    /**
+     * 记录一次消费反馈，topic 用于反馈与汇总阶段的指标标签。
+     */
+    public void recordFeedback(ConsumptionFeedbackPort.Feedback feedback) {
+        String eventId = feedback.eventId();
+        String consumerId = feedback.consumerId();
+        Instant at = feedback.consumedAt() != null ? feedback.consumedAt() : Instant.now();
+        long start = System.nanoTime();
+        EventConsumptionDocument recorded = eventConsumptionRepository.recordAttempt(
+            eventId, consumerId, feedback.success(), at, feedback.errorMessage(), feedback.errorCode()
+        );
+        busMetrics.feedbackStage("record", feedback.topic(), consumerId, start);
+        start = System.nanoTime();
+        rollup(feedback, at);
+        busMetrics.feedbackStage("rollup", feedback.topic(), consumerId, start);
+        log.debug("Recorded consumption eventId={} consumerId={} attemptNo={} success={} userId={}", eventId, consumerId, recorded.getAttemptNo(), feedback.success(), LogContext.getUserId());
+    }
+
+    /**
+     * 批量记录一批消费反馈：一次批量写入 event_consumptions，再按事件触发汇总（队列模式下同一事件只投递一次）。
+     */
+    public void recordFeedbacks(List<ConsumptionFeedbackPort.Feedback> feedbacks) {
+        if (feedbacks == null || feedbacks.isEmpty()) return;
+        Instant now = Instant.now();
+        List<EventConsumptionDocument> attempts = new ArrayList<>(feedbacks.size());
+        for (ConsumptionFeedbackPort.Feedback f : feedbacks) {
+            EventConsumptionDocument doc = new EventConsumptionDocument();
+            doc.setEventId(f.eventId());
+            doc.setConsumerId(f.consumerId());
+            doc.setSuccess(f.success());
+            doc.setConsumedAt(f.consumedAt() != null ? f.consumedAt() : now);
+            doc.setErrorMessage(f.errorMessage());
+            doc.setErrorCode(f.errorCode());
+            attempts.add(doc);
         }
+        String topic = BusMetrics.batchTag(feedbacks, ConsumptionFeedbackPort.Feedback::topic);
+        String consumerId = BusMetrics.batchTag(feedbacks, ConsumptionFeedbackPort.Feedback::consumerId);
+        long start = System.nanoTime();
+        eventConsumptionRepository.recordAttempts(attempts);
+        busMetrics.feedbackStage("record", topic, consumerId, start);
 
-        // 已有明确结果或尚无记录：新增一行
-        int nextAttempt = nextAttemptNo(list);
-        EventConsumptionDocument doc = new EventConsumptionDocument();
-        doc.setEventId(eventId);
-        doc.setConsumerId(consumerId);
-        doc.setAttemptNo(nextAttempt);
-        doc.setSuccess(success);
-        doc.setConsumedAt(at);
-        doc.setErrorMessage(errorMessage);
-        doc.setErrorCode(errorCode);
-        doc.setCreatedAt(Instant.now());
-        eventConsumptionRepository.save(doc);
-        rollupPublisher.sendEventIdForRollup(eventId);
-        log.debug("Recorded consumption eventId={} consumerId={} attemptNo={} success={} userId={}", eventId, consumerId, nextAttempt, success, LogContext.getUserId());
+        start = System.nanoTime();
+        Map<String, ConsumptionFeedbackPort.Feedback> queued = new LinkedHashMap<>();
+        for (ConsumptionFeedbackPort.Feedback f : feedbacks) {
+            if (incrementalRollup && rollupService.applyOutcome(f.eventId(), f.consumerId(), f.success())) {
+                busMetrics.rollupLatency(f.topic(), f.consumerId(), f.consumedAt() != null ? f.consumedAt() : now, Instant.now());
+            } else {
+                queued.putIfAbsent(f.eventId(), f);
+            }
+        }
+        queued.values().forEach(f -> rollupPublisher.sendEventIdForRollup(f.eventId(), f.topic(), f.consumerId()));
+        busMetrics.feedbackStage("rollup", topic, consumerId, start);
+        log.debug("Recorded consumption batch size={} queuedForRollup={} userId={}", feedbacks.size(), queued.size(), LogContext.getUserId());
     }
 
-    /** 根据已有列表计算下一条 attemptNo（列表已按 attemptNo 降序） */
-    private int nextAttemptNo(List<EventConsumptionDocument> list) {
-        int max = list.isEmpty() ? 0 : list.get(0).getAttemptNo();
-        return max + 1;
+    /** 增量模式下直接回写 events，未初始化计数时回退到汇总队列 */
+    private void rollup(ConsumptionFeedbackPort.Feedback feedback, Instant consumedAt) {
+        if (incrementalRollup && rollupService.applyOutcome(feedback.eventId(), feedback.consumerId(), feedback.success())) {
+            busMetrics.rollupLatency(feedback.topic(), feedback.consumerId(), consumedAt, Instant.now());
+            return;
+        }
+        rollupPublisher.sendEventIdForRollup(feedback.eventId(), feedback.topic(), feedback.consumerId());
     }
 }
@@ -1,23 +1,32 @@
 package com.wx.bus.application;
 
+import com.wx.bus.domain.ConsumerOutcome;
 import com.wx.bus.domain.EventStatus;
+import com.wx.bus.support.BusMetrics;
 import com.wx.bus.support.LogContext;
 import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
 import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
-import com.wx.bus.infrastructure.mongo.EventDocument;
 import com.wx.bus.infrastructure.mongo.EventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * 消费汇总：按 (eventId, consumerId) 取最新一条（attemptNo 最大），汇总为 CONSUMED/PARTIAL/FAILED 后回写 events.status。
- * <p>由消费汇总专用队列的 {@link com.wx.bus.infrastructure.rabbit.RollupListener} 串行调用。</p>
+ * <p>由消费汇总专用队列的 {@link com.wx.bus.infrastructure.rabbit.RollupListener} 按批调用：同一窗口内的 eventId 去重后
+ * 一次 $in 查询消费记录、一次 bulk write 回写，吞吐随窗口大小而非反馈条数增长。</p>
+ * <p>{@code bus.rollup.mode=incremental} 时由 {@link ConsumptionFeedbackService} 直接调用 {@link #applyOutcome}，
+ * 基于 events 上的各消费者结果计数一次条件更新完成汇总，不经过汇总队列。</p>
+ * <p>批量汇总的查询（query）与回写（write）耗时经 {@link BusMetrics} 按触发汇总的反馈的 topic、consumerId 记录。</p>
  */
 @Service
 public class ConsumptionRollupService {
@@ -26,13 +35,16 @@ public class ConsumptionRollupService {
 
     private final EventRepository eventRepository;
     private final EventConsumptionRepository eventConsumptionRepository;
+    private final BusMetrics busMetrics;
 
     public ConsumptionRollupService(
         EventRepository eventRepository,
-        EventConsumptionRepository eventConsumptionRepository
+        EventConsumptionRepository eventConsumptionRepository,
+        BusMetrics busMetrics
     ) {
         this.eventRepository = eventRepository;
         this.eventConsumptionRepository = eventConsumptionRepository;
+        this.busMetrics = busMetrics;
     }
 
     /**
@@ -40,37 +52,114 @@ public class ConsumptionRollupService {
      * <p>规则：存在 success=null → SENT；全失败 → FAILED；全成功 → CONSUMED；否则 PARTIAL。</p>
      */
     public void rollupAndWriteBack(String eventId) {
-        EventDocument event = eventRepository.findById(eventId).orElse(null);
-        if (event == null) {
-            log.warn("Event not found for rollup eventId={} userId={}", eventId, LogContext.getUserId());
-            return;
+        rollupAndWriteBackAll(List.of(new RollupRequest(eventId, null, null)));
+    }
+
+    /**
+     * 批量汇总：eventId 去重后一次查询全部消费记录，逐事件计算状态，一次 bulk write 回写。
+     *
+     * @return 实际回写的事件数
+     */
+    public int rollupAndWriteBackAll(List<RollupRequest> requests) {
+        if (requests.isEmpty()) return 0;
+        Set<String> ids = new LinkedHashSet<>();
+        Map<String, String> topicByEventId = new HashMap<>();
+        for (RollupRequest request : requests) {
+            ids.add(request.eventId());
+            if (request.topic() != null) topicByEventId.putIfAbsent(request.eventId(), request.topic());
+        }
+        String topic = BusMetrics.batchTag(requests, RollupRequest::topic);
+        String consumerId = BusMetrics.batchTag(requests, RollupRequest::consumerId);
+
+        long start = System.nanoTime();
+        Map<String, Map<String, EventConsumptionDocument>> latestByEvent = new HashMap<>();
+        for (EventConsumptionDocument c : eventConsumptionRepository.findByEventIdIn(ids)) {
+            latestByEvent.computeIfAbsent(c.getEventId(), k -> new HashMap<>())
+                .merge(c.getConsumerId(), c, (a, b) -> a.getAttemptNo() >= b.getAttemptNo() ? a : b);
+        }
+
+        Map<String, String> statusByEventId = new LinkedHashMap<>();
+        for (String eventId : ids) {
+            Collection<EventConsumptionDocument> latest = latestByEvent.getOrDefault(eventId, Map.of()).values();
+            statusByEventId.put(eventId, rollupStatus(latest).name());
         }
 
-        List<EventConsumptionDocument> all = eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(eventId);
-        Map<String, EventConsumptionDocument> latestByConsumer = all.stream()
-            .collect(Collectors.toMap(EventConsumptionDocument::getConsumerId, c -> c, (a, b) -> a));
+        busMetrics.rollupStage("query", topic, consumerId, start);
 
-        long withNull = latestByConsumer.values().stream().filter(c -> c.getSuccess() == null).count();
-        long successCount = latestByConsumer.values().stream().filter(c -> Boolean.TRUE.equals(c.getSuccess())).count();
-        long failCount = latestByConsumer.values().stream().filter(c -> Boolean.FALSE.equals(c.getSuccess())).count();
+        start = System.nanoTime();
+        Instant rolledUpAt = Instant.now();
+        int matched = eventRepository.applyRollupStatuses(statusByEventId, rolledUpAt);
+        busMetrics.rollupStage("write", topic, consumerId, start);
+        recordRollupLatency(latestByEvent, topicByEventId, rolledUpAt);
+        if (matched < statusByEventId.size()) {
+            log.warn("Events not found for rollup missing={} batch={} userId={}", statusByEventId.size() - matched, statusByEventId.size(), LogContext.getUserId());
+        }
+        log.debug("Rollup batch size={} statuses={} userId={}", ids.size(), statusByEventId, LogContext.getUserId());
+        return matched;
+    }
+
+    /**
+     * 增量汇总：把 consumerId 的最新结果改为本次反馈结果，同步调整 events 上的计数并推导 status，不读取消费记录。
+     * <p>依次尝试以 PENDING / 另一结果为前置条件的条件更新，命中即完成；结果未变化（重复反馈）同样视为已处理。</p>
+     *
+     * @return false 表示事件未初始化计数（旧文档、发布后新增的消费者或 consumerId 不能作为字段名），需走队列汇总
+     */
+    public boolean applyOutcome(String eventId, String consumerId, boolean success) {
+        if (consumerId == null || consumerId.isEmpty() || consumerId.contains(".") || consumerId.startsWith("$")) {
+            return false;
+        }
+        ConsumerOutcome to = ConsumerOutcome.of(success);
+        Instant now = Instant.now();
+        for (ConsumerOutcome from : ConsumerOutcome.values()) {
+            if (from == to) continue;
+            String status = eventRepository.applyConsumerOutcome(eventId, consumerId, from.name(), to.name(), now);
+            if (status != null) {
+                log.debug("Incremental rollup eventId={} consumerId={} {}->{} status={} userId={}", eventId, consumerId, from, to, status, LogContext.getUserId());
+                return true;
+            }
+        }
+        return eventRepository.hasConsumerOutcome(eventId, consumerId, to.name());
+    }
+
+    /**
+     * 每个事件只记录最近一次反馈（consumedAt 最大者）到回写的延迟：汇总由该反馈触发，其余消费者的旧反馈不重复计入。
+     * topic 取自汇总请求，旧消息未携带时记为 unknown。
+     */
+    private void recordRollupLatency(
+        Map<String, Map<String, EventConsumptionDocument>> latestByEvent, Map<String, String> topicByEventId, Instant rolledUpAt
+    ) {
+        for (Map.Entry<String, Map<String, EventConsumptionDocument>> e : latestByEvent.entrySet()) {
+            EventConsumptionDocument newest = null;
+            for (EventConsumptionDocument c : e.getValue().values()) {
+                if (c.getConsumedAt() != null && (newest == null || c.getConsumedAt().isAfter(newest.getConsumedAt()))) {
+                    newest = c;
+                }
+            }
+            if (newest != null) {
+                busMetrics.rollupLatency(topicByEventId.get(e.getKey()), newest.getConsumerId(), newest.getConsumedAt(), rolledUpAt);
+            }
+        }
+    }
+
+    /** 按各消费者最新一条记录汇总事件状态 */
+    static EventStatus rollupStatus(Collection<EventConsumptionDocument> latestByConsumer) {
+        long withNull = latestByConsumer.stream().filter(c -> c.getSuccess() == null).count();
+        long successCount = latestByConsumer.stream().filter(c -> Boolean.TRUE.equals(c.getSuccess())).count();
+        long failCount = latestByConsumer.stream().filter(c -> Boolean.FALSE.equals(c.getSuccess())).count();
         int total = latestByConsumer.size();
 
-        String newStatus;
         if (withNull > 0) {
-            newStatus = EventStatus.SENT.name();
+            return EventStatus.SENT;
         } else if (failCount == total) {
-            newStatus = EventStatus.FAILED.name();
+            return EventStatus.FAILED;
         } else if (successCount == total) {
-            newStatus = EventStatus.CONSUMED.name();
-        } else {
-            newStatus = EventStatus.PARTIAL.name();
+            return EventStatus.CONSUMED;
         }
-
-        Instant now = Instant.now();
-        event.setStatus(newStatus);
-        event.setStatusAt(now);
-        event.setUpdatedAt(now);
-        eventRepository.save(event);
-        log.debug("Rollup eventId={} status={} userId={}", eventId, newStatus, LogContext.getUserId());
+        return EventStatus.PARTIAL;
     }
+
+    /**
+     * 一次汇总请求：触发汇总的反馈所属事件，以及该反馈的 topic、consumerId（仅用于指标标签，可为空）。
+     */
+    public record RollupRequest(String eventId, String topic, String consumerId) {}
 }
@@ -1,5 +1,6 @@
 package com.wx.bus.application;
 
+import com.wx.bus.domain.ConsumerOutcome;
 import com.wx.bus.domain.EventEnvelope;
 import com.wx.bus.domain.EventStatus;
 import com.wx.bus.domain.Initiator;
@@ -8,43 +9,67 @@ import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
 import com.wx.bus.infrastructure.mongo.EventDocument;
 import com.wx.bus.infrastructure.mongo.EventRepository;
 import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
-import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
 import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.support.BusMetrics;
 import com.wx.bus.support.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * 事件发送（先落库后发 MQ）。
- * <p>流程：校验 topic_consumers → 写 events(PENDING) + 初始化 event_consumptions → 发 MQ → 更新 SENT。</p>
+ * <p>流程：校验 topic_consumers（经内存路由表 {@link TopicRoutingTable}）→ 写 events(PENDING，各消费者结果初始化为 PENDING) + 初始化 event_consumptions → 发 MQ → 更新 SENT。</p>
  * <p>无 topic_consumers 配置时打 ERROR 日志、返回 {@link PublishResult#skipped}，不抛异常、不写库不发 MQ。</p>
+ * <p>{@code bus.outbox.enabled=true} 时只落库 PENDING 即返回，由 {@link OutboxRelay} 后台投递并置 SENT。</p>
+ * <p>发布端开启 publisher confirm（{@link EventPublisherPort#confirmsAsynchronously()}）时，发送后保持 PENDING，由回执异步置 SENT/FAILED。</p>
+ * <p>开启 claim-check（{@link PayloadClaimCheck}）时，超过阈值的载荷先写外部存储，events 与 MQ 只携带引用。</p>
+ * <p>各阶段（lookup/mongo_write/mq_send/status_update）耗时与发布结果经 {@link BusMetrics} 按 topic 记录。</p>
+ * <p>{@link #publishAll} 为批量版本：每个集合一次 bulk insert、同一 channel 批量发 MQ、一次 updateMulti 置 SENT；单条 {@link #publish} 复用同一流程。</p>
+ * <p>eventId 已存在的事件视为重复发布：不覆盖已落库的事件与消费记录、不重发 MQ，返回 skipped。</p>
  */
 @Service
 public class EventPublishService {
 
     private static final Logger log = LoggerFactory.getLogger(EventPublishService.class);
 
-    private final TopicConsumerRepository topicConsumerRepository;
+    private final TopicRoutingTable topicRoutingTable;
     private final EventRepository eventRepository;
     private final EventConsumptionRepository eventConsumptionRepository;
     private final EventPublisherPort eventPublisher;
+    private final boolean outboxEnabled;
+    private final int outboxPartitions;
+    /** 为 null 时不做 claim-check，载荷始终内联 */
+    private final PayloadClaimCheck payloadClaimCheck;
+    private final BusMetrics busMetrics;
 
     public EventPublishService(
-        TopicConsumerRepository topicConsumerRepository,
+        TopicRoutingTable topicRoutingTable,
         EventRepository eventRepository,
         EventConsumptionRepository eventConsumptionRepository,
-        EventPublisherPort eventPublisher
+        EventPublisherPort eventPublisher,
+        @Value("${bus.outbox.enabled:false}") boolean outboxEnabled,
+        @Value("${bus.outbox.partitions:16}") int outboxPartitions,
+        PayloadClaimCheck payloadClaimCheck,
+        BusMetrics busMetrics
     ) {
-        this.topicConsumerRepository = topicConsumerRepository;
+        this.topicRoutingTable = topicRoutingTable;
         this.eventRepository = eventRepository;
         this.eventConsumptionRepository = eventConsumptionRepository;
         this.eventPublisher = eventPublisher;
+        this.outboxEnabled = outboxEnabled;
+        this.outboxPartitions = outboxPartitions;
+        this.payloadClaimCheck = payloadClaimCheck;
+        this.busMetrics = busMetrics;
     }
 
     /**
@@ -52,57 +77,146 @@ public class EventPublishService {
      */
     @Transactional
     public PublishResult publish(EventEnvelope envelope) {
-        String eventId = envelope.eventId();
-        String topic = envelope.topic();
+        return publishAll(List.of(envelope)).get(0);
+    }
+
+    /**
+     * 批量发布事件，返回结果与入参顺序一一对应。
+     * <p>消费者配置取自 {@link TopicRoutingTable}；无配置的事件单独返回 skipped，不影响同批其他事件。
+     * MQ 批量发送失败时整批置 FAILED（部分消息可能已到达 broker，后续由消费汇总覆盖状态）。</p>
+     */
+    @Transactional
+    public List<PublishResult> publishAll(List<EventEnvelope> envelopes) {
+        if (envelopes == null || envelopes.isEmpty()) return List.of();
+        String batchTopic = BusMetrics.batchTopic(envelopes);
 
-        List<TopicConsumerDocument> consumers = topicConsumerRepository.findByTopicAndEnabledTrue(topic);
-        if (consumers == null || consumers.isEmpty()) {
-            log.error("No enabled topic_consumers for topic={}, eventId={}; aborting send userId={}", topic, eventId, LogContext.getUserId());
-            return PublishResult.skipped(eventId, "No enabled consumers for topic: " + topic);
+        long stageStart = System.nanoTime();
+        Map<String, List<TopicConsumerDocument>> consumersByTopic = new HashMap<>();
+        PublishResult[] results = new PublishResult[envelopes.size()];
+        List<Integer> accepted = new ArrayList<>(envelopes.size());
+        for (int i = 0; i < envelopes.size(); i++) {
+            EventEnvelope envelope = envelopes.get(i);
+            List<TopicConsumerDocument> consumers = consumersByTopic.computeIfAbsent(
+                envelope.topic(), topicRoutingTable::enabledConsumers
+            );
+            if (consumers == null || consumers.isEmpty()) {
+                log.error("No enabled topic_consumers for topic={}, eventId={}; aborting send userId={}", envelope.topic(), envelope.eventId(), LogContext.getUserId());
+                busMetrics.publishResult(envelope.topic(), "skipped");
+                results[i] = PublishResult.skipped(envelope.eventId(), "No enabled consumers for topic: " + envelope.topic());
+            } else {
+                accepted.add(i);
+            }
         }
+        busMetrics.publishStage("lookup", batchTopic, stageStart);
+        if (accepted.isEmpty()) return List.of(results);
 
         Instant now = Instant.now();
-        EventDocument doc = EventDocumentMapper.toDocument(
-            envelope, EventStatus.PENDING, now, 0, null, now, now
-        );
-        doc.setId(eventId);
-        eventRepository.save(doc);
-
-        for (TopicConsumerDocument tc : consumers) {
-            EventConsumptionDocument consumption = new EventConsumptionDocument();
-            consumption.setEventId(eventId);
-            consumption.setConsumerId(tc.getConsumerId());
-            consumption.setAttemptNo(0);
-            consumption.setSuccess(null);
-            consumption.setConsumedAt(null);
-            consumption.setCreatedAt(now);
-            eventConsumptionRepository.save(consumption);
+        List<EventDocument> docs = new ArrayList<>(accepted.size());
+        List<EventEnvelope> checkedIn = new ArrayList<>(accepted.size());
+        for (int i : accepted) {
+            EventEnvelope envelope = payloadClaimCheck != null ? payloadClaimCheck.checkIn(envelopes.get(i)) : envelopes.get(i);
+            EventDocument doc = EventDocumentMapper.toDocument(
+                envelope, EventStatus.PENDING, now, 0, null, now, now
+            );
+            doc.setOutboxPartition(OutboxRelay.partitionOf(envelope.eventId(), outboxPartitions));
+            Map<String, String> outcomes = new LinkedHashMap<>();
+            for (TopicConsumerDocument tc : consumersByTopic.get(envelope.topic())) {
+                outcomes.put(tc.getConsumerId(), ConsumerOutcome.PENDING.name());
+            }
+            doc.setConsumerOutcomes(outcomes);
+            doc.setPendingCount(outcomes.size());
+            doc.setSuccessCount(0);
+            doc.setFailedCount(0);
+            docs.add(doc);
+            checkedIn.add(envelope);
+        }
+        stageStart = System.nanoTime();
+        rejectDuplicates(eventRepository.insertAbsent(docs), accepted, envelopes, results);
+        List<EventConsumptionDocument> consumptions = new ArrayList<>();
+        List<EventEnvelope> toPublish = new ArrayList<>(accepted.size());
+        List<EventDocument> inserted = new ArrayList<>(accepted.size());
+        for (int k = 0; k < accepted.size(); k++) {
+            if (results[accepted.get(k)] != null) continue;
+            EventEnvelope envelope = checkedIn.get(k);
+            for (TopicConsumerDocument tc : consumersByTopic.get(envelope.topic())) {
+                consumptions.add(initialConsumption(envelope.eventId(), tc.getConsumerId(), now));
+            }
+            inserted.add(docs.get(k));
+            toPublish.add(new EventEnvelope(
+                envelope.eventId(), envelope.traceId(), envelope.spanId(), envelope.parentEventId(),
+                envelope.topic(), envelope.payload(), envelope.payloadType(), envelope.initiator(),
+                envelope.occurredAt(), now, envelope.expireAt()
+            ));
+        }
+        if (!consumptions.isEmpty()) {
+            eventConsumptionRepository.insert(consumptions);
         }
+        busMetrics.publishStage("mongo_write", batchTopic, stageStart);
+        accepted.removeIf(i -> results[i] != null);
+        if (accepted.isEmpty()) return List.of(results);
 
-        EventEnvelope toPublish = new EventEnvelope(
-            envelope.eventId(), envelope.traceId(), envelope.spanId(), envelope.parentEventId(),
-            envelope.topic(), envelope.payload(), envelope.payloadType(), envelope.initiator(),
-            envelope.occurredAt(), now, envelope.expireAt()
-        );
+        if (outboxEnabled) {
+            // outbox 模式：只落库 PENDING，由 OutboxRelay 后台投递，业务线程不等待 broker
+            for (int i : accepted) {
+                results[i] = PublishResult.ok(envelopes.get(i).eventId());
+                busMetrics.publishResult(envelopes.get(i).topic(), "ok");
+            }
+            return List.of(results);
+        }
+
+        List<String> eventIds = inserted.stream().map(EventDocument::getEventId).toList();
+        stageStart = System.nanoTime();
         try {
-             eventPublisher.publish(toPublish);
+            eventPublisher.publishAll(toPublish);
         } catch (Exception e) {
-            log.error("Failed to publish eventId={} to MQ userId={}", eventId, LogContext.getUserId(), e);
-            doc.setStatus(EventStatus.FAILED.name());
-            doc.setStatusAt(Instant.now());
-            doc.setUpdatedAt(Instant.now());
-            eventRepository.save(doc);
-            return PublishResult.skipped(eventId, "MQ publish failed: " + e.getMessage());
+            busMetrics.publishStage("mq_send", batchTopic, stageStart);
+            log.error("Failed to publish events to MQ size={} firstEventId={} userId={}", eventIds.size(), eventIds.get(0), LogContext.getUserId(), e);
+            stageStart = System.nanoTime();
+            eventRepository.markFailedIfPending(eventIds, Instant.now());
+            busMetrics.publishStage("status_update", batchTopic, stageStart);
+            for (int i : accepted) {
+                results[i] = PublishResult.skipped(envelopes.get(i).eventId(), "MQ publish failed: " + e.getMessage());
+                busMetrics.publishResult(envelopes.get(i).topic(), "failed");
+            }
+            return List.of(results);
+        }
+        busMetrics.publishStage("mq_send", batchTopic, stageStart);
+        busMetrics.sentLatency(toPublish);
+
+        if (!eventPublisher.confirmsAsynchronously()) {
+            stageStart = System.nanoTime();
+            eventRepository.markSentIfPending(eventIds, now);
+            busMetrics.publishStage("status_update", batchTopic, stageStart);
         }
+        for (int i : accepted) {
+            results[i] = PublishResult.ok(envelopes.get(i).eventId());
+            busMetrics.publishResult(envelopes.get(i).topic(), "ok");
+        }
+        return List.of(results);
+    }
 
-        doc.setStatus(EventStatus.SENT.name());
-        doc.setStatusAt(now);
-        doc.setSentAt(now);
-        doc.setLastSentAt(now);
-        doc.setUpdatedAt(now);
-        eventRepository.save(doc);
+    /**
+     * 已落库（或批内重复）的 eventId 不覆盖、不重新初始化消费记录、不重发 MQ，按 skipped 返回；
+     * 需要再次投递已有事件时走 {@link EventRetryService}。
+     */
+    private void rejectDuplicates(List<Integer> duplicates, List<Integer> accepted, List<EventEnvelope> envelopes, PublishResult[] results) {
+        for (int k : duplicates) {
+            EventEnvelope envelope = envelopes.get(accepted.get(k));
+            log.warn("Duplicate eventId, already published; skip topic={} eventId={} userId={}", envelope.topic(), envelope.eventId(), LogContext.getUserId());
+            busMetrics.publishResult(envelope.topic(), "skipped");
+            results[accepted.get(k)] = PublishResult.skipped(envelope.eventId(), "Duplicate eventId: " + envelope.eventId());
+        }
+    }
 
-        return PublishResult.ok(eventId);
+    private static EventConsumptionDocument initialConsumption(String eventId, String consumerId, Instant now) {
+        EventConsumptionDocument consumption = new EventConsumptionDocument();
+        consumption.setEventId(eventId);
+        consumption.setConsumerId(consumerId);
+        consumption.setAttemptNo(0);
+        consumption.setSuccess(null);
+        consumption.setConsumedAt(null);
+        consumption.setCreatedAt(now);
+        return consumption;
     }
 
     /**
@@ -3,6 +3,8 @@ package com.wx.bus.application;
 import com.wx.bus.domain.EventEnvelope;
 import com.wx.bus.domain.EventStatus;
 import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
 import com.wx.bus.infrastructure.mongo.EventDocument;
 import com.wx.bus.infrastructure.mongo.EventRepository;
 import com.wx.bus.support.LogContext;
@@ -11,10 +13,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * 事件重推：根据 eventId 从 events 加载信封，再次发布到 MQ 并更新 retryCount/status。
- * <p>供管理端 man 调用；仅允许 FAILED、RETRYING、SENT 状态重推。</p>
+ * 事件重推：根据 eventId 从 events 加载信封，再次投递到 MQ 并更新 retryCount/status。
+ * <p>供管理端 man 调用；仅允许 FAILED、PARTIAL、RETRYING、SENT 状态重推。</p>
+ * <p>存在最新一条消费记录为失败的消费者时，只向这些消费者的队列定向重投（{@link EventPublisherPort#redeliver}），
+ * 已消费成功的消费者不会再次收到；没有失败消费者（如发送失败、超时未消费）时按原 topic 发布。</p>
  */
 @Service
 public class EventRetryService {
@@ -23,14 +32,17 @@ public class EventRetryService {
 
     private final EventRepository eventRepository;
     private final EventPublisherPort eventPublisher;
+    private final EventConsumptionRepository eventConsumptionRepository;
 
-    public EventRetryService(EventRepository eventRepository, EventPublisherPort eventPublisher) {
+    public EventRetryService(EventRepository eventRepository, EventPublisherPort eventPublisher,
+                             EventConsumptionRepository eventConsumptionRepository) {
         this.eventRepository = eventRepository;
         this.eventPublisher = eventPublisher;
+        this.eventConsumptionRepository = eventConsumptionRepository;
     }
 
     /**
-     * 重推指定事件：发布到 MQ 并更新 events 的 retryCount、lastSentAt、status。
+     * 重推指定事件：向失败的消费者定向重投（无失败消费者时按 topic 发布），并更新 events 的 retryCount、lastSentAt、status。
      *
      * @param eventId 事件 ID
      * @return true 重推成功，false 事件不存在或状态不允许重推
@@ -51,25 +63,49 @@ public class EventRetryService {
             return false;
         }
         EventEnvelope envelope = EventDocumentMapper.documentToEnvelope(doc);
+        List<String> failedConsumers = failedConsumersByEvent(eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(eventId))
+            .getOrDefault(eventId, List.of());
         try {
-            eventPublisher.publish(envelope);
+            if (failedConsumers.isEmpty()) {
+                eventPublisher.publish(envelope);
+            } else {
+                eventPublisher.redeliver(envelope, failedConsumers);
+            }
         } catch (Exception e) {
             log.error("Retry publish failed eventId={} userId={}", eventId, LogContext.getUserId(), e);
             return false;
         }
-        Instant now = Instant.now();
-        doc.setRetryCount(doc.getRetryCount() + 1);
-        doc.setLastSentAt(now);
-        doc.setStatus(EventStatus.SENT.name());
-        doc.setStatusAt(now);
-        doc.setUpdatedAt(now);
-        eventRepository.save(doc);
-        log.info("Retry done eventId={} retryCount={} userId={}", eventId, doc.getRetryCount(), LogContext.getUserId());
+        eventRepository.markRetried(eventId, Instant.now());
+        log.info("Retry done eventId={} retryCount={} consumers={} userId={}", eventId, doc.getRetryCount() + 1,
+            failedConsumers.isEmpty() ? "*" : failedConsumers, LogContext.getUserId());
         return true;
     }
 
+    /**
+     * 按消费记录找出各事件需要重投的消费者：(eventId, consumerId) 下 attemptNo 最大的一条为 success=false。
+     *
+     * @return eventId → 失败的 consumerId 列表；没有失败消费者的事件不在结果中
+     */
+    static Map<String, List<String>> failedConsumersByEvent(Collection<EventConsumptionDocument> consumptions) {
+        Map<String, Map<String, EventConsumptionDocument>> latestByEvent = new HashMap<>();
+        for (EventConsumptionDocument c : consumptions) {
+            latestByEvent.computeIfAbsent(c.getEventId(), k -> new HashMap<>())
+                .merge(c.getConsumerId(), c, (a, b) -> a.getAttemptNo() >= b.getAttemptNo() ? a : b);
+        }
+        Map<String, List<String>> result = new HashMap<>();
+        latestByEvent.forEach((eventId, byConsumer) -> {
+            List<String> failed = new ArrayList<>();
+            for (EventConsumptionDocument c : byConsumer.values()) {
+                if (Boolean.FALSE.equals(c.getSuccess())) failed.add(c.getConsumerId());
+            }
+            if (!failed.isEmpty()) result.put(eventId, failed);
+        });
+        return result;
+    }
+
     private static boolean isRetryableStatus(String status) {
         return EventStatus.FAILED.name().equals(status)
+            || EventStatus.PARTIAL.name().equals(status)
             || EventStatus.RETRYING.name().equals(status)
             || EventStatus.SENT.name().equals(status);
     }
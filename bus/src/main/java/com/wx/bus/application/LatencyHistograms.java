@@ -0,0 +1,194 @@
+package com.wx.bus.application;
+
+import com.wx.bus.infrastructure.mongo.LatencyHistogramDocument;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端延迟直方图：按 (阶段, topic, consumerId) 在内存中用 HdrHistogram {@link Recorder} 增量记录，
+ * 每 {@code bus.latency.flush-interval-ms} 取一次区间直方图，压缩编码后追加写入 latency_histograms。
+ * <ul>
+ *   <li>{@link Stage#OCCURRED_SENT}：occurredAt → sentAt（发布端排队、落库、outbox 延迟），发布端投递成功后每事件记录一次，
+ *       不区分消费者，consumerId 记为 {@code *}</li>
+ *   <li>{@link Stage#SENT_CONSUMED}：sentAt → 消费者收到（MQ 传输与队列积压）</li>
+ *   <li>{@link Stage#CONSUMED_ROLLED_UP}：consumedAt → 汇总回写 events（汇总队列或增量回写延迟），topic 取自触发汇总的消费反馈</li>
+ * </ul>
+ * <p>记录为无锁写入，不读 Mongo；管理端按时间窗口读取各节点的区间直方图合并后计算 p50/p99/p999。
+ * 区间直方图按 {@code bus.latency.retention-hours} 设置 expireAt，由 TTL 索引清理。</p>
+ * <p>内存：每个键一个 packed {@link Recorder}（只为出现过的量级分配计数，通常数 KB，非 packed 的 1 天量程约 95KB），
+ * 连续 {@code bus.latency.idle-evict-ms} 没有记录的键在上报时移除。键数随 topic × 消费者增长，默认关闭，
+ * 需要端到端分位数时以 {@code bus.latency.enabled=true} 开启。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "bus.latency.enabled", havingValue = "true")
+public class LatencyHistograms implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyHistograms.class);
+
+    /** 可记录的最大延迟（微秒），超出按最大值记；超过一小时的延迟已属故障，分位数只需知道其超限 */
+    public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    /** 有效数字位数：2 位即 1% 精度 */
+    public static final int SIGNIFICANT_DIGITS = 2;
+    /** 发生→发送阶段不区分消费者 */
+    public static final String ANY_CONSUMER = "*";
+
+    /** 延迟阶段，{@link #tag()} 为写入 latency_histograms.stage 的值 */
+    public enum Stage {
+        OCCURRED_SENT("occurred_sent"),
+        SENT_CONSUMED("sent_consumed"),
+        CONSUMED_ROLLED_UP("consumed_rolled_up");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final long flushIntervalMillis;
+    private final Duration retention;
+    private final Duration idleEvict;
+    private final String nodeId;
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    public LatencyHistograms(
+        MongoTemplate mongoTemplate,
+        @Value("${bus.latency.flush-interval-ms:10000}") long flushIntervalMillis,
+        @Value("${bus.latency.retention-hours:24}") long retentionHours,
+        @Value("${bus.latency.idle-evict-ms:600000}") long idleEvictMillis,
+        @Value("${spring.application.name:bus}") String applicationName
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.retention = Duration.ofHours(retentionHours);
+        this.idleEvict = Duration.ofMillis(idleEvictMillis);
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * 记录一次延迟；from/to 任一为空时忽略，负值（时钟偏差）按 0 记。
+     */
+    public void record(Stage stage, String topic, String consumerId, Instant from, Instant to) {
+        if (from == null || to == null) return;
+        long micros = Math.max(0, Duration.between(from, to).toNanos() / 1000);
+        Slot slot = slots.computeIfAbsent(new Key(stage, topic, consumerId), k -> new Slot());
+        slot.recorder.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bus-latency-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler = s;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            s.shutdown();
+            scheduler = null;
+            try {
+                s.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /** 当前在内存中的键数 */
+    int keyCount() {
+        return slots.size();
+    }
+
+    /** 取各 Recorder 的区间直方图，非空的压缩编码后一次批量写入；空闲超过 idle-evict-ms 的键移除 */
+    void flush() {
+        try {
+            Instant now = Instant.now();
+            List<LatencyHistogramDocument> docs = new ArrayList<>();
+            for (Map.Entry<Key, Slot> e : slots.entrySet()) {
+                Slot slot = e.getValue();
+                Histogram interval = slot.recorder.getIntervalHistogram(slot.recycled);
+                slot.recycled = interval;
+                Instant windowStart = slot.lastFlushedAt;
+                slot.lastFlushedAt = now;
+                if (interval.getTotalCount() > 0) {
+                    slot.lastRecordedAt = now;
+                    docs.add(toDocument(e.getKey(), interval, windowStart, now));
+                } else if (!slot.lastRecordedAt.plus(idleEvict).isAfter(now) && slots.remove(e.getKey(), slot)) {
+                    // 移除前已取到引用的并发记录落在旧 Recorder 上，再取一次区间直方图写出；之后的记录进入新建的键
+                    Histogram tail = slot.recorder.getIntervalHistogram(slot.recycled);
+                    if (tail.getTotalCount() > 0) docs.add(toDocument(e.getKey(), tail, windowStart, now));
+                }
+            }
+            if (!docs.isEmpty()) {
+                mongoTemplate.insert(docs, LatencyHistogramDocument.class);
+            }
+        } catch (Exception e) {
+            log.warn("Latency histogram flush failed nodeId={}", nodeId, e);
+        }
+    }
+
+    private LatencyHistogramDocument toDocument(Key key, Histogram histogram, Instant windowStart, Instant windowEnd) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        LatencyHistogramDocument doc = new LatencyHistogramDocument();
+        doc.setNodeId(nodeId);
+        doc.setStage(key.stage().tag());
+        doc.setTopic(key.topic());
+        doc.setConsumerId(key.consumerId());
+        doc.setWindowStart(windowStart);
+        doc.setWindowEnd(windowEnd);
+        doc.setCount(histogram.getTotalCount());
+        doc.setHistogram(Arrays.copyOf(buffer.array(), length));
+        doc.setExpireAt(windowEnd.plus(retention));
+        return doc;
+    }
+
+    private record Key(Stage stage, String topic, String consumerId) {}
+
+    /** 单个 (阶段, topic, consumerId) 的记录器（packed、量程自动扩展，记录值已限制在最大量程内）；recycled 与时间字段只由上报线程访问 */
+    private static final class Slot {
+        final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS, true);
+        Histogram recycled;
+        Instant lastFlushedAt = Instant.now();
+        Instant lastRecordedAt = Instant.now();
+    }
+}
@@ -0,0 +1,212 @@
+package com.wx.bus.application;
+
+import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.OutboxLeaseManager;
+import com.wx.bus.support.BusMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务性 outbox 投递：{@code bus.outbox.enabled=true} 时 {@link EventPublishService} 只落库 PENDING，由本组件后台批量投递 MQ。
+ * <p>按 status+outboxPartition+createdAt 索引轮询本节点持有分区内的 PENDING 事件；投递前登记 lastSentAt，
+ * 发送成功后置 SENT（publisher confirm 模式下由回执置 SENT）。进程在登记后、置 SENT 前崩溃时，
+ * 事件在 {@code resend-after-ms} 后被再次取出重发（至少一次，消费端按 eventId 幂等）。</p>
+ * <p>分区租约由 {@link OutboxLeaseManager} 维护，多节点按存活节点数（outbox_nodes 心跳）均分分区；正常关闭时立即释放本节点分区。
+ * outboxPartition 在写入时按当时的 {@code bus.outbox.partitions} 计算；调小分区数后，租约集合中更大的旧分区号按取模归入现有分区一并轮询，
+ * 滚动发布期间新旧配置的节点可能同时投递同一事件（至少一次）。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "bus.outbox.enabled", havingValue = "true")
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final EventRepository eventRepository;
+    private final EventPublisherPort eventPublisher;
+    private final OutboxLeaseManager leaseManager;
+    private final BusMetrics busMetrics;
+    private final int partitions;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final Duration leaseTtl;
+    private final Duration resendAfter;
+    private final String nodeId;
+
+    private volatile ScheduledExecutorService scheduler;
+    private volatile List<Integer> ownedPartitions = List.of();
+    /** 实际轮询的 outboxPartition 取值：持有分区加上按取模归属它们的旧分区 */
+    private volatile List<Integer> pollPartitions = List.of();
+    private volatile List<Integer> legacyPartitions = List.of();
+    private volatile long leaseRefreshedAt;
+
+    public OutboxRelay(
+        EventRepository eventRepository,
+        EventPublisherPort eventPublisher,
+        OutboxLeaseManager leaseManager,
+        BusMetrics busMetrics,
+        @Value("${bus.outbox.partitions:16}") int partitions,
+        @Value("${bus.outbox.batch-size:500}") int batchSize,
+        @Value("${bus.outbox.poll-interval-ms:200}") long pollIntervalMillis,
+        @Value("${bus.outbox.lease-ttl-ms:15000}") long leaseTtlMillis,
+        @Value("${bus.outbox.resend-after-ms:30000}") long resendAfterMillis,
+        @Value("${spring.application.name:bus}") String applicationName
+    ) {
+        this.eventRepository = eventRepository;
+        this.eventPublisher = eventPublisher;
+        this.leaseManager = leaseManager;
+        this.busMetrics = busMetrics;
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMillis);
+        this.resendAfter = Duration.ofMillis(resendAfterMillis);
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+    }
+
+    /** eventId 所属 outbox 分区 */
+    public static int partitionOf(String eventId, int partitions) {
+        return Math.floorMod(eventId.hashCode(), partitions);
+    }
+
+    /**
+     * 需要轮询的 outboxPartition 取值：持有分区 p，以及 {@code known} 中不小于 {@code partitions}、且 {@code q % partitions} 为持有分区的旧分区 q。
+     * <p>事件的 outboxPartition 在写入时按当时的分区数计算；分区数调小后，旧分区上的 PENDING 事件按取模归入现有分区继续投递。</p>
+     */
+    static List<Integer> pollPartitions(List<Integer> owned, Collection<Integer> known, int partitions) {
+        if (owned.isEmpty()) return List.of();
+        Set<Integer> ownedSet = new HashSet<>(owned);
+        List<Integer> result = new ArrayList<>(owned);
+        for (Integer q : known) {
+            if (q != null && q >= partitions && ownedSet.contains(q % partitions)) result.add(q);
+        }
+        return List.copyOf(result);
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bus-outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::tick, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        scheduler = s;
+        log.info("Outbox relay started nodeId={} partitions={}", nodeId, partitions);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            s.shutdown();
+            scheduler = null;
+            try {
+                // 等当前一轮投递结束再释放，否则进行中的续约会把租约与心跳写回；超时则等租约自然过期
+                if (s.awaitTermination(5, TimeUnit.SECONDS)) {
+                    leaseManager.leave(nodeId);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Outbox relay failed to release leases nodeId={}", nodeId, e);
+            }
+            ownedPartitions = List.of();
+            pollPartitions = List.of();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /** 当前节点持有的分区（只读快照） */
+    public List<Integer> ownedPartitions() {
+        return ownedPartitions;
+    }
+
+    private void tick() {
+        try {
+            long nowMillis = System.currentTimeMillis();
+            if (nowMillis - leaseRefreshedAt > leaseTtl.toMillis() / 3) {
+                List<Integer> owned = List.copyOf(leaseManager.rebalance(nodeId, partitions, leaseTtl));
+                ownedPartitions = owned;
+                refreshLegacyPartitions();
+                pollPartitions = pollPartitions(owned, legacyPartitions, partitions);
+                leaseRefreshedAt = nowMillis;
+            }
+            // 取满一批说明仍有积压，立即继续
+            while (relayOnce() == batchSize && scheduler != null) {
+                if (System.currentTimeMillis() - leaseRefreshedAt > leaseTtl.toMillis() / 3) break;
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay tick failed nodeId={}", nodeId, e);
+        }
+    }
+
+    /** 租约集合中不小于当前分区数的分区号：说明分区数曾经更大，其上可能还有 PENDING 事件 */
+    private void refreshLegacyPartitions() {
+        List<Integer> legacy;
+        try {
+            legacy = leaseManager.knownPartitions().stream().filter(p -> p >= partitions).toList();
+        } catch (Exception e) {
+            log.warn("Outbox relay failed to read known partitions, keeping previous legacy set nodeId={}", nodeId, e);
+            return;
+        }
+        if (!legacy.equals(legacyPartitions)) {
+            log.warn("Outbox partitions above bus.outbox.partitions={} found in leases, polling them by modulo partitions={}",
+                partitions, legacy);
+            legacyPartitions = legacy;
+        }
+    }
+
+    private int relayOnce() {
+        List<Integer> polled = pollPartitions;
+        if (polled.isEmpty()) return 0;
+        Instant now = Instant.now();
+        List<EventDocument> batch = eventRepository.findOutboxBatch(polled, now.minus(resendAfter), batchSize);
+        if (batch.isEmpty()) return 0;
+
+        List<String> eventIds = batch.stream().map(EventDocument::getEventId).toList();
+        eventRepository.markDispatched(eventIds, now);
+        List<EventEnvelope> envelopes = batch.stream()
+            .map(EventDocumentMapper::documentToEnvelope)
+            .map(e -> new EventEnvelope(
+                e.eventId(), e.traceId(), e.spanId(), e.parentEventId(), e.topic(), e.payload(),
+                e.payloadType(), e.initiator(), e.occurredAt(), now, e.expireAt()
+            ))
+            .toList();
+        try {
+            eventPublisher.publishAll(envelopes);
+        } catch (Exception e) {
+            log.error("Outbox relay publish failed size={} firstEventId={}; will resend after {}ms",
+                eventIds.size(), eventIds.get(0), resendAfter.toMillis(), e);
+            return 0;
+        }
+        busMetrics.sentLatency(envelopes);
+        if (!eventPublisher.confirmsAsynchronously()) {
+            eventRepository.markSentIfPending(eventIds, now);
+        }
+        log.debug("Outbox relayed size={} nodeId={}", eventIds.size(), nodeId);
+        return batch.size();
+    }
+}
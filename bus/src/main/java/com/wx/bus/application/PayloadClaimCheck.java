@@ -0,0 +1,177 @@
+package com.wx.bus.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.mongo.PayloadClaimCheckStore;
+import com.wx.bus.support.LogContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * claim-check：序列化后超过 {@code bus.claim-check.threshold-bytes} 的载荷只写一次外部存储（GridFS），
+ * events 文档与 MQ 消息的 payload 替换为引用，payloadType 置为 {@link EventEnvelope#PAYLOAD_TYPE_CLAIM_CHECK}。
+ * <p>引用格式：{@code {"ref": 存储 ID, "size": 字节数, "payloadType": 原始 payloadType}}。outbox 投递与管理端重推从 events 文档恢复信封，
+ * 仍携带引用，不重复写存储。</p>
+ * <p>存储文件的到期时间取事件 expireAt 与 {@code bus.claim-check.retention-hours} 中较早者，到期后由
+ * {@link PayloadClaimCheckCleaner} 删除；重推需在保留期内进行。</p>
+ * <p>消费端在调用 {@link com.wx.bus.application.port.BusEventConsumer} 前按引用加载原始载荷，加载结果按引用缓存在本地 LRU，
+ * 按载荷总字节数（{@code bus.claim-check.cache-max-bytes}）淘汰，单个超过上限的载荷不缓存；同一事件被多次投递或重推时不重复读存储。
+ * 解析不依赖 {@code bus.claim-check.enabled}。</p>
+ */
+@Component
+public class PayloadClaimCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadClaimCheck.class);
+
+    static final String REF_KEY = "ref";
+    static final String SIZE_KEY = "size";
+    static final String PAYLOAD_TYPE_KEY = "payloadType";
+
+    private final PayloadClaimCheckStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int thresholdBytes;
+    private final Duration retention;
+    private final long cacheMaxBytes;
+    /** ref → 载荷字节，访问顺序；缓存字节而非对象，避免消费者修改共享的反序列化结果。与 cacheBytes 一起由 cache 锁保护 */
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes;
+
+    public PayloadClaimCheck(
+        PayloadClaimCheckStore store,
+        ObjectMapper objectMapper,
+        @Value("${bus.claim-check.enabled:false}") boolean enabled,
+        @Value("${bus.claim-check.threshold-bytes:262144}") int thresholdBytes,
+        @Value("${bus.claim-check.retention-hours:168}") long retentionHours,
+        @Value("${bus.claim-check.cache-max-bytes:67108864}") long cacheMaxBytes
+    ) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+        this.retention = Duration.ofHours(retentionHours);
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    /**
+     * 发布前调用：未开启、载荷为空、已是引用或未达阈值时原样返回；否则写入存储并返回携带引用的信封。
+     * 序列化或写存储失败时按原载荷发布，不影响主流程。
+     */
+    public EventEnvelope checkIn(EventEnvelope envelope) {
+        if (!enabled || envelope.payload() == null || EventEnvelope.PAYLOAD_TYPE_CLAIM_CHECK.equals(envelope.payloadType())) {
+            return envelope;
+        }
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(envelope.payload());
+        } catch (IOException e) {
+            log.warn("Claim-check serialize failed, publishing inline eventId={} userId={}", envelope.eventId(), LogContext.getUserId(), e);
+            return envelope;
+        }
+        if (bytes.length < thresholdBytes) return envelope;
+
+        String payloadType = envelope.payloadType() != null ? envelope.payloadType() : EventEnvelope.PAYLOAD_TYPE_JSON;
+        String ref;
+        try {
+            ref = store.store(envelope.eventId(), bytes, payloadType, expireAt(envelope));
+        } catch (RuntimeException e) {
+            log.warn("Claim-check store failed, publishing inline eventId={} userId={}", envelope.eventId(), LogContext.getUserId(), e);
+            return envelope;
+        }
+        log.debug("Claim-check stored eventId={} ref={} size={} userId={}", envelope.eventId(), ref, bytes.length, LogContext.getUserId());
+        Map<String, Object> reference = new LinkedHashMap<>();
+        reference.put(REF_KEY, ref);
+        reference.put(SIZE_KEY, bytes.length);
+        reference.put(PAYLOAD_TYPE_KEY, payloadType);
+        return new EventEnvelope(
+            envelope.eventId(), envelope.traceId(), envelope.spanId(), envelope.parentEventId(),
+            envelope.topic(), reference, EventEnvelope.PAYLOAD_TYPE_CLAIM_CHECK, envelope.initiator(),
+            envelope.occurredAt(), envelope.sentAt(), envelope.expireAt()
+        );
+    }
+
+    /**
+     * 消费前调用：引用载荷替换为原始载荷与 payloadType，其余原样返回。
+     *
+     * @throws IllegalStateException 引用无效或存储中不存在
+     */
+    public EventEnvelope resolve(EventEnvelope envelope) {
+        if (!EventEnvelope.PAYLOAD_TYPE_CLAIM_CHECK.equals(envelope.payloadType())) return envelope;
+        ResolvedPayload resolved = resolvePayload(envelope.payload(), envelope.payloadType());
+        return new EventEnvelope(
+            envelope.eventId(), envelope.traceId(), envelope.spanId(), envelope.parentEventId(),
+            envelope.topic(), resolved.payload(), resolved.payloadType(), envelope.initiator(),
+            envelope.occurredAt(), envelope.sentAt(), envelope.expireAt()
+        );
+    }
+
+    /**
+     * 按 payload/payloadType 解析（管理端详情等直接读 events 文档的场景）；非引用载荷原样返回。
+     *
+     * @throws IllegalStateException 引用无效或存储中不存在
+     */
+    public ResolvedPayload resolvePayload(Object payload, String payloadType) {
+        if (!EventEnvelope.PAYLOAD_TYPE_CLAIM_CHECK.equals(payloadType)) {
+            return new ResolvedPayload(payload, payloadType);
+        }
+        if (!(payload instanceof Map<?, ?> reference) || !(reference.get(REF_KEY) instanceof String ref)) {
+            throw new IllegalStateException("Invalid claim-check reference: " + payload);
+        }
+        byte[] bytes = load(ref);
+        try {
+            Object original = objectMapper.readValue(bytes, Object.class);
+            Object originalType = reference.get(PAYLOAD_TYPE_KEY);
+            return new ResolvedPayload(original, originalType != null ? originalType.toString() : EventEnvelope.PAYLOAD_TYPE_JSON);
+        } catch (IOException e) {
+            throw new IllegalStateException("Claim-check payload decode failed ref=" + ref, e);
+        }
+    }
+
+    private byte[] load(String ref) {
+        synchronized (cache) {
+            byte[] cached = cache.get(ref);
+            if (cached != null) return cached;
+        }
+        byte[] bytes = store.load(ref);
+        if (bytes == null) {
+            throw new IllegalStateException("Claim-check payload not found ref=" + ref);
+        }
+        cache(ref, bytes);
+        return bytes;
+    }
+
+    private void cache(String ref, byte[] bytes) {
+        if (bytes.length > cacheMaxBytes) return;
+        synchronized (cache) {
+            byte[] previous = cache.put(ref, bytes);
+            cacheBytes += bytes.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = cache.values().iterator();
+            while (cacheBytes > cacheMaxBytes && eldest.hasNext()) {
+                cacheBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private Instant expireAt(EventEnvelope envelope) {
+        Instant retained = Instant.now().plus(retention);
+        return envelope.expireAt() != null && envelope.expireAt().isBefore(retained) ? envelope.expireAt() : retained;
+    }
+
+    /**
+     * 解析后的载荷。
+     *
+     * @param payload     原始载荷
+     * @param payloadType 原始载荷类型
+     */
+    public record ResolvedPayload(Object payload, String payloadType) {}
+}
@@ -0,0 +1,156 @@
+package com.wx.bus.application;
+
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.PayloadClaimCheckStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * claim-check 存储清理：每 {@code bus.claim-check.cleanup-interval-ms} 执行一次。
+ * <ul>
+ *   <li>过期：删除 metadata.expireAt 已到的文件（写入时取事件 expireAt 与保留期中较早者）</li>
+ *   <li>孤儿：按上传时间扫描超过 {@code bus.claim-check.orphan-grace-ms} 的新文件，按 metadata.eventId 回查 events，
+ *       事件不存在（写存储后落库失败或被拒绝）即删除。宽限期覆盖 checkIn 到 events 落库之间的窗口</li>
+ * </ul>
+ * <p>孤儿扫描的水位只在内存中推进，节点重启后从保留期起点重新扫描；漏扫的孤儿最迟在到期时由过期清理删除。
+ * 多节点同时清理时删除幂等。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "bus.claim-check.enabled", havingValue = "true")
+public class PayloadClaimCheckCleaner implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadClaimCheckCleaner.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final PayloadClaimCheckStore store;
+    private final MongoTemplate mongoTemplate;
+    private final long intervalMillis;
+    private final Duration orphanGrace;
+    private final Duration retention;
+    private final boolean ensureIndexes;
+
+    private volatile ScheduledExecutorService scheduler;
+    /** 孤儿扫描水位：此前上传的文件已回查过；只由清理线程访问 */
+    private Instant orphanCheckedUntil;
+
+    public PayloadClaimCheckCleaner(
+        PayloadClaimCheckStore store,
+        MongoTemplate mongoTemplate,
+        @Value("${bus.claim-check.cleanup-interval-ms:600000}") long intervalMillis,
+        @Value("${bus.claim-check.orphan-grace-ms:600000}") long orphanGraceMillis,
+        @Value("${bus.claim-check.retention-hours:168}") long retentionHours,
+        @Value("${bus.mongo.ensure-indexes:true}") boolean ensureIndexes
+    ) {
+        this.store = store;
+        this.mongoTemplate = mongoTemplate;
+        this.intervalMillis = intervalMillis;
+        this.orphanGrace = Duration.ofMillis(orphanGraceMillis);
+        this.retention = Duration.ofHours(retentionHours);
+        this.ensureIndexes = ensureIndexes;
+    }
+
+    @Override
+    public void start() {
+        orphanCheckedUntil = Instant.now().minus(retention);
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bus-claim-check-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        if (ensureIndexes) {
+            s.execute(() -> {
+                try {
+                    store.ensureIndexes();
+                } catch (Exception e) {
+                    log.warn("Claim-check index creation failed", e);
+                }
+            });
+        }
+        s.scheduleWithFixedDelay(this::cleanup, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        scheduler = s;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null) {
+            s.shutdown();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    void cleanup() {
+        try {
+            Instant now = Instant.now();
+            store.deleteExpired(now);
+            int orphans = deleteOrphans(now.minus(orphanGrace));
+            if (orphans > 0) {
+                log.info("Deleted orphaned claim-check payloads count={}", orphans);
+            }
+        } catch (Exception e) {
+            log.warn("Claim-check cleanup failed", e);
+        }
+    }
+
+    /** 分批回查 [水位, until) 内上传的文件，删除事件不存在的，返回删除数 */
+    private int deleteOrphans(Instant until) {
+        int deleted = 0;
+        while (orphanCheckedUntil.isBefore(until)) {
+            List<PayloadClaimCheckStore.StoredPayload> batch = store.findUploadedBetween(orphanCheckedUntil, until, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                orphanCheckedUntil = until;
+                break;
+            }
+            Set<String> existing = existingEventIds(batch);
+            List<String> orphans = new ArrayList<>();
+            for (PayloadClaimCheckStore.StoredPayload p : batch) {
+                if (p.eventId() != null && !existing.contains(p.eventId())) orphans.add(p.ref());
+            }
+            store.delete(orphans);
+            deleted += orphans.size();
+            Instant last = batch.get(batch.size() - 1).uploadedAt();
+            if (batch.size() < BATCH_SIZE) {
+                orphanCheckedUntil = until;
+                break;
+            }
+            // 同一毫秒上传的文件超过一批时水位无法前进，跳过该毫秒避免死循环，遗漏的由过期清理兜底
+            orphanCheckedUntil = last.isAfter(orphanCheckedUntil) ? last : last.plusMillis(1);
+        }
+        return deleted;
+    }
+
+    private Set<String> existingEventIds(List<PayloadClaimCheckStore.StoredPayload> batch) {
+        List<String> eventIds = batch.stream().map(PayloadClaimCheckStore.StoredPayload::eventId).filter(Objects::nonNull).distinct().toList();
+        Query query = Query.query(Criteria.where("eventId").in(eventIds));
+        query.fields().include("eventId");
+        Set<String> existing = new HashSet<>();
+        for (EventDocument doc : mongoTemplate.find(query, EventDocument.class)) {
+            existing.add(doc.getEventId());
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,127 @@
+package com.wx.bus.application;
+
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
+import com.wx.bus.support.LogContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * topic → 启用消费者的内存路由表，替代发布时每条事件查一次 topic_consumers。
+ * <p>整表快照：一次查询全部 enabled=true 的配置并按 topic 分组；超过 {@code bus.routing.ttl-ms} 后由首个访问线程重新加载，
+ * 其余线程在加载期间继续使用旧快照。本进程内对 topic_consumers 的写入（管理端增删改）经
+ * {@link com.wx.bus.infrastructure.mongo.TopicConsumerChangeListener} 立即调用 {@link #invalidate()}；其他节点最长滞后一个 TTL。</p>
+ * <p>指标：{@code bus.routing.lookups}（result=hit/miss）、{@code bus.routing.staleness}（快照已存在秒数）、{@code bus.routing.topics}。</p>
+ */
+@Component
+public class TopicRoutingTable {
+
+    private static final Logger log = LoggerFactory.getLogger(TopicRoutingTable.class);
+
+    private final TopicConsumerRepository topicConsumerRepository;
+    private final long ttlMillis;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    /** 每次 invalidate 递增；加载期间发生失效时不缓存本次结果，避免旧数据覆盖失效 */
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile Snapshot snapshot;
+
+    public TopicRoutingTable(
+        TopicConsumerRepository topicConsumerRepository,
+        ObjectProvider<MeterRegistry> meterRegistry,
+        @Value("${bus.routing.ttl-ms:30000}") long ttlMillis
+    ) {
+        this.topicConsumerRepository = topicConsumerRepository;
+        this.ttlMillis = ttlMillis;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.hits = Counter.builder("bus.routing.lookups").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("bus.routing.lookups").tag("result", "miss").register(registry);
+        Gauge.builder("bus.routing.staleness", this, TopicRoutingTable::stalenessSeconds)
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("bus.routing.topics", this, t -> {
+            Snapshot s = t.snapshot;
+            return s == null ? 0 : s.consumersByTopic().size();
+        }).register(registry);
+    }
+
+    /**
+     * 某 topic 下启用中的消费者配置；无配置时返回空列表。
+     */
+    public List<TopicConsumerDocument> enabledConsumers(String topic) {
+        Snapshot s = snapshot;
+        if (s == null || s.isExpired(ttlMillis)) {
+            s = reload(s);
+        } else {
+            hits.increment();
+        }
+        return s.consumersByTopic().getOrDefault(topic, List.of());
+    }
+
+    /**
+     * 丢弃当前快照，下一次查询重新加载。
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        log.debug("Topic routing table invalidated userId={}", LogContext.getUserId());
+    }
+
+    /** 快照已存在的秒数；未加载时为 0 */
+    public double stalenessSeconds() {
+        Snapshot s = snapshot;
+        return s == null ? 0 : (System.currentTimeMillis() - s.loadedAtMillis()) / 1000.0;
+    }
+
+    private Snapshot reload(Snapshot stale) {
+        if (stale != null && !reloadLock.tryLock()) {
+            // 其他线程正在加载，先用旧快照
+            hits.increment();
+            return stale;
+        }
+        if (stale == null) {
+            reloadLock.lock();
+        }
+        try {
+            Snapshot current = snapshot;
+            if (current != null && current != stale && !current.isExpired(ttlMillis)) {
+                hits.increment();
+                return current;
+            }
+            misses.increment();
+            long gen = generation.get();
+            Map<String, List<TopicConsumerDocument>> byTopic = topicConsumerRepository.findByEnabledTrue().stream()
+                .collect(Collectors.groupingBy(TopicConsumerDocument::getTopic, Collectors.toUnmodifiableList()));
+            Snapshot loaded = new Snapshot(Map.copyOf(byTopic), System.currentTimeMillis());
+            if (generation.get() == gen) {
+                snapshot = loaded;
+            }
+            log.debug("Topic routing table loaded topics={} userId={}", byTopic.size(), LogContext.getUserId());
+            return loaded;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private record Snapshot(Map<String, List<TopicConsumerDocument>> consumersByTopic, long loadedAtMillis) {
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAtMillis > ttlMillis;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.wx.bus.application.port;
 
 import com.wx.bus.domain.EventEnvelope;
 
+import java.util.List;
+
 /**
  * 业务事件消费者接口：接入方实现此接口并注册为 Bean，bus 从 MQ 拉取事件后回调。
  * <p>方法正常返回视为消费成功，抛出异常视为失败；bus 会据此写入消费反馈并触发汇总。</p>
@@ -15,4 +17,19 @@ public interface BusEventConsumer {
      * @param envelope 事件信封（含 eventId、topic、payload 等）
      */
     void onEvent(EventEnvelope envelope);
+
+    /**
+     * 批量处理一批事件（{@code bus.consumer.batch-enabled=true} 时由 bus 按投递批次调用），默认逐条调用 {@link #onEvent}。
+     * <p>正常返回视为整批成功；抛出异常时 bus 会对该批<b>每一条</b>（包括抛异常前已处理完的）再调用一次 {@link #onEvent} 以确定每条结果，
+     * 因此覆盖实现与 {@link #onEvent} 都必须幂等（MQ 至少一次投递本身也要求幂等）。</p>
+     * <p>逐条回退中抛异常的事件记为消费失败，整批仍然 ack、不重回队列，失败事件经管理端重推；
+     * 这与单条消费一致（单条消费抛出的异常由容器拒绝且不重回队列），只是批量时异常不再向容器抛出。</p>
+     *
+     * @param envelopes 同一投递批次的事件，顺序与队列中一致
+     */
+    default void onEvents(List<EventEnvelope> envelopes) {
+        for (EventEnvelope envelope : envelopes) {
+            onEvent(envelope);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.wx.bus.application.port;
 
 import java.time.Instant;
+import java.util.List;
 
 /**
  * 消费反馈端口：上报一次消费结果，供监听器调用，便于测试 mock。
@@ -8,7 +9,7 @@ import java.time.Instant;
 public interface ConsumptionFeedbackPort {
 
     /**
-     * 上报一次消费结果。
+     * 上报一次消费结果（不带 topic，指标中 topic 记为 unknown）。
      */
     void recordFeedback(String eventId,
                         String consumerId,
@@ -16,4 +17,42 @@ public interface ConsumptionFeedbackPort {
                         Instant consumedAt,
                         String errorMessage,
                         String errorCode);
+
+    /**
+     * 上报一次消费结果，topic 用于反馈与汇总阶段的指标标签。默认忽略 topic。
+     */
+    default void recordFeedback(Feedback feedback) {
+        recordFeedback(feedback.eventId(), feedback.consumerId(), feedback.success(), feedback.consumedAt(),
+            feedback.errorMessage(), feedback.errorCode());
+    }
+
+    /**
+     * 批量上报一批消费结果（批量消费监听器每个投递批次调用一次）。默认逐条调用 {@link #recordFeedback(Feedback)}。
+     */
+    default void recordFeedbacks(List<Feedback> feedbacks) {
+        for (Feedback f : feedbacks) {
+            recordFeedback(f);
+        }
+    }
+
+    /**
+     * 单条消费结果。
+     *
+     * @param eventId      事件 ID
+     * @param topic        事件 topic，未知时为空（仅用于指标标签）
+     * @param consumerId   消费者 ID
+     * @param success      是否消费成功
+     * @param consumedAt   消费完成时间，可为空（使用当前时间）
+     * @param errorMessage 失败时的错误信息
+     * @param errorCode    失败时的错误码或异常类型
+     */
+    record Feedback(
+        String eventId,
+        String topic,
+        String consumerId,
+        boolean success,
+        Instant consumedAt,
+        String errorMessage,
+        String errorCode
+    ) {}
 }
@@ -2,6 +2,9 @@ package com.wx.bus.application.port;
 
 import com.wx.bus.domain.EventEnvelope;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 事件发往 MQ 的端口（应用层依赖接口，便于测试 mock）。
  */
@@ -11,4 +14,49 @@ public interface EventPublisherPort {
      * 将事件信封发布到 MQ。
      */
     void publish(EventEnvelope envelope);
+
+    /**
+     * 批量发布；默认逐条调用 {@link #publish}，实现方可复用同一通道一次性发送。
+     * <p>任一条失败即抛出异常，调用方按整批失败处理。</p>
+     */
+    default void publishAll(List<EventEnvelope> envelopes) {
+        for (EventEnvelope envelope : envelopes) {
+            publish(envelope);
+        }
+    }
+
+    /**
+     * 定向重投：直接投递到指定消费者的队列，不经 topic 交换机，同一 topic 下其他消费者不会再次收到。
+     * <p>不参与 publisher confirm 的状态回写，调用方自行登记重推；消费者队列不存在时消息被 broker 丢弃。</p>
+     * <p>默认退回 {@link #publish}（按 topic 扇出），不支持按队列投递的实现无需覆盖。</p>
+     */
+    default void redeliver(EventEnvelope envelope, Collection<String> consumerIds) {
+        publish(envelope);
+    }
+
+    /**
+     * 批量定向重投；默认逐条调用 {@link #redeliver}，实现方可复用同一通道一次性发送。
+     * <p>任一条失败即抛出异常，调用方按整批失败处理。</p>
+     */
+    default void redeliverAll(List<Redelivery> redeliveries) {
+        for (Redelivery r : redeliveries) {
+            redeliver(r.envelope(), r.consumerIds());
+        }
+    }
+
+    /**
+     * 是否由实现方在 broker 回执到达后异步回写 SENT/FAILED（如 publisher confirm 模式）。
+     * <p>为 true 时调用方发送成功后保持 PENDING，不再同步置 SENT。</p>
+     */
+    default boolean confirmsAsynchronously() {
+        return false;
+    }
+
+    /**
+     * 一条定向重投。
+     *
+     * @param envelope    事件信封
+     * @param consumerIds 需要再次收到该事件的消费者
+     */
+    record Redelivery(EventEnvelope envelope, List<String> consumerIds) {}
 }
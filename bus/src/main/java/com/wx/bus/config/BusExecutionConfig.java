@@ -0,0 +1,75 @@
+package com.wx.bus.config;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bus 执行器：{@code bus.execution.virtual-threads=true} 时 MQ 监听容器与异步发布均运行在虚拟线程上。
+ * <ul>
+ *   <li>busTaskExecutor：异步发布（{@link com.wx.bus.api.WxBusEventPublisher#publishAsync}）使用；
+ *       虚拟线程模式下每个任务一个虚拟线程、无需调池；否则为固定 {@code bus.execution.async-concurrency-limit} 个平台线程的线程池，
+ *       任务在有界队列（{@code bus.execution.async-queue-capacity}）中排队复用线程，队列满时由提交线程同步执行（背压，不丢发布）；
+ *       关闭时等待已提交任务完成</li>
+ *   <li>busListenerTaskExecutor：仅虚拟线程模式注册，供消费者与消费汇总的监听容器使用，消费线程阻塞在 Mongo/AMQP I/O 时不占用平台线程</li>
+ * </ul>
+ * <p>两者均把提交线程的 MDC（含 userId）带到执行线程，日志上下文与同步调用一致。</p>
+ */
+@Configuration
+public class BusExecutionConfig {
+
+    @Bean("busTaskExecutor")
+    AsyncTaskExecutor busTaskExecutor(
+        @Value("${bus.execution.virtual-threads:false}") boolean virtualThreads,
+        @Value("${bus.execution.async-concurrency-limit:64}") int concurrencyLimit,
+        @Value("${bus.execution.async-queue-capacity:10000}") int queueCapacity
+    ) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("bus-async-");
+            executor.setVirtualThreads(true);
+            executor.setTaskDecorator(BusExecutionConfig::withMdc);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("bus-async-");
+        executor.setCorePoolSize(concurrencyLimit);
+        executor.setMaxPoolSize(concurrencyLimit);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.setTaskDecorator(BusExecutionConfig::withMdc);
+        return executor;
+    }
+
+    @Bean("busListenerTaskExecutor")
+    @ConditionalOnProperty(name = "bus.execution.virtual-threads", havingValue = "true")
+    AsyncTaskExecutor busListenerTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("bus-listener-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(BusExecutionConfig::withMdc);
+        return executor;
+    }
+
+    /** {@link TaskDecorator}：提交时复制 MDC，执行时设置、结束后清理 */
+    private static Runnable withMdc(Runnable task) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            if (mdc != null) MDC.setContextMap(mdc);
+            try {
+                task.run();
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+}
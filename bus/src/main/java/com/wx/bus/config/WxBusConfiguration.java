@@ -1,6 +1,7 @@
 package com.wx.bus.config;
 
 import com.wx.bus.aop.PublishEventAspect;
+import com.wx.bus.application.AsyncPublishPipeline;
 import com.wx.bus.application.EventPublishService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -22,7 +23,7 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 public class WxBusConfiguration {
 
     @Bean
-    public PublishEventAspect publishEventAspect(EventPublishService eventPublishService) {
-        return new PublishEventAspect(eventPublishService);
+    public PublishEventAspect publishEventAspect(EventPublishService eventPublishService, AsyncPublishPipeline asyncPublishPipeline) {
+        return new PublishEventAspect(eventPublishService, asyncPublishPipeline);
     }
 }
@@ -0,0 +1,23 @@
+package com.wx.bus.domain;
+
+/**
+ * 单个消费者对某事件的最新消费结果（增量汇总用）。
+ * <ul>
+ *   <li>{@link #PENDING} 已投递，尚未反馈</li>
+ *   <li>{@link #SUCCESS} 最近一次反馈成功</li>
+ *   <li>{@link #FAILED} 最近一次反馈失败</li>
+ * </ul>
+ */
+public enum ConsumerOutcome {
+
+    /** 待消费 */
+    PENDING,
+    /** 消费成功 */
+    SUCCESS,
+    /** 消费失败 */
+    FAILED;
+
+    public static ConsumerOutcome of(boolean success) {
+        return success ? SUCCESS : FAILED;
+    }
+}
@@ -32,4 +32,7 @@ public record EventEnvelope(
 ) {
     /** 默认 JSON 载荷类型 */
     public static final String PAYLOAD_TYPE_JSON = "application/json";
+
+    /** claim-check 引用载荷：payload 仅含外部存储引用，原始载荷由消费端按引用加载 */
+    public static final String PAYLOAD_TYPE_CLAIM_CHECK = "application/vnd.wx-bus.claim-check";
 }
@@ -0,0 +1,23 @@
+package com.wx.bus.event;
+
+import com.wx.bus.application.port.ConsumptionFeedbackPort;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * 批量消费反馈的 Spring 事件：门面 {@link com.wx.bus.api.WxBusConsumptionFeedback#recordFeedbacks} 发布此事件，监听器一次批量写入 event_consumptions 并触发汇总。
+ */
+public class ConsumptionFeedbackBatchEvent extends ApplicationEvent {
+
+    private final List<ConsumptionFeedbackPort.Feedback> feedbacks;
+
+    public ConsumptionFeedbackBatchEvent(Object source, List<ConsumptionFeedbackPort.Feedback> feedbacks) {
+        super(source);
+        this.feedbacks = feedbacks;
+    }
+
+    public List<ConsumptionFeedbackPort.Feedback> getFeedbacks() {
+        return feedbacks;
+    }
+}
@@ -10,6 +10,8 @@ import java.time.Instant;
 public class ConsumptionFeedbackEvent extends ApplicationEvent {
 
     private final String eventId;
+    /** 可为空，仅用于指标标签 */
+    private final String topic;
     private final String consumerId;
     private final boolean success;
     private final Instant consumedAt;
@@ -18,6 +20,7 @@ public class ConsumptionFeedbackEvent extends ApplicationEvent {
 
     public ConsumptionFeedbackEvent(Object source,
                                     String eventId,
+                                    String topic,
                                     String consumerId,
                                     boolean success,
                                     Instant consumedAt,
@@ -25,6 +28,7 @@ public class ConsumptionFeedbackEvent extends ApplicationEvent {
                                     String errorCode) {
         super(source);
         this.eventId = eventId;
+        this.topic = topic;
         this.consumerId = consumerId;
         this.success = success;
         this.consumedAt = consumedAt != null ? consumedAt : Instant.now();
@@ -33,6 +37,7 @@ public class ConsumptionFeedbackEvent extends ApplicationEvent {
     }
 
     public String getEventId() { return eventId; }
+    public String getTopic() { return topic; }
     public String getConsumerId() { return consumerId; }
     public boolean isSuccess() { return success; }
     public Instant getConsumedAt() { return consumedAt; }
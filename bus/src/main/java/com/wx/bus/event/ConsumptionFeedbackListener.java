@@ -1,11 +1,12 @@
 package com.wx.bus.event;
 
 import com.wx.bus.application.ConsumptionFeedbackService;
+import com.wx.bus.application.port.ConsumptionFeedbackPort;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 /**
- * 监听 {@link ConsumptionFeedbackEvent}，调用 {@link ConsumptionFeedbackService#recordFeedback}。
+ * 监听 {@link ConsumptionFeedbackEvent} / {@link ConsumptionFeedbackBatchEvent}，调用 {@link ConsumptionFeedbackService#recordFeedback} / {@link ConsumptionFeedbackService#recordFeedbacks}。
  */
 @Component
 public class ConsumptionFeedbackListener {
@@ -18,13 +19,19 @@ public class ConsumptionFeedbackListener {
 
     @EventListener
     public void onConsumptionFeedback(ConsumptionFeedbackEvent event) {
-        consumptionFeedbackService.recordFeedback(
+        consumptionFeedbackService.recordFeedback(new ConsumptionFeedbackPort.Feedback(
             event.getEventId(),
+            event.getTopic(),
             event.getConsumerId(),
             event.isSuccess(),
             event.getConsumedAt(),
             event.getErrorMessage(),
             event.getErrorCode()
-        );
+        ));
+    }
+
+    @EventListener
+    public void onConsumptionFeedbackBatch(ConsumptionFeedbackBatchEvent event) {
+        consumptionFeedbackService.recordFeedbacks(event.getFeedbacks());
     }
 }
@@ -0,0 +1,33 @@
+package com.wx.bus.event;
+
+import com.wx.bus.application.PublishResult;
+import com.wx.bus.domain.EventEnvelope;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * 批量发布请求的 Spring 事件：门面 {@link com.wx.bus.api.WxBusEventPublisher#publishAll} 发布此事件，监听器执行批量落库与发 MQ 并回写结果。
+ */
+public class EventBatchPublishRequestEvent extends ApplicationEvent {
+
+    private final List<EventEnvelope> envelopes;
+    private volatile List<PublishResult> results;
+
+    public EventBatchPublishRequestEvent(Object source, List<EventEnvelope> envelopes) {
+        super(source);
+        this.envelopes = envelopes;
+    }
+
+    public List<EventEnvelope> getEnvelopes() {
+        return envelopes;
+    }
+
+    public void setResults(List<PublishResult> results) {
+        this.results = results;
+    }
+
+    public List<PublishResult> getResults() {
+        return results;
+    }
+}
@@ -6,8 +6,10 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
- * 监听 {@link EventPublishRequestEvent}，调用 {@link EventPublishService#publish} 并将结果回写到事件对象。
+ * 监听 {@link EventPublishRequestEvent} / {@link EventBatchPublishRequestEvent}，调用 {@link EventPublishService} 并将结果回写到事件对象。
  */
 @Component
 public class EventPublishListener {
@@ -24,4 +26,11 @@ public class EventPublishListener {
         PublishResult result = eventPublishService.publish(event.getEnvelope());
         event.setResult(result);
     }
+
+    @EventListener
+    @Order(0)
+    public void onEventBatchPublishRequest(EventBatchPublishRequestEvent event) {
+        List<PublishResult> results = eventPublishService.publishAll(event.getEnvelopes());
+        event.setResults(results);
+    }
 }
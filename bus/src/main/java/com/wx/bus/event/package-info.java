@@ -1,5 +1,5 @@
 /**
- * Spring 事件与监听器：发布请求 {@link EventPublishRequestEvent} / {@link EventPublishListener}，
- * 消费反馈 {@link ConsumptionFeedbackEvent} / {@link ConsumptionFeedbackListener}。
+ * Spring 事件与监听器：发布请求 {@link EventPublishRequestEvent}、{@link EventBatchPublishRequestEvent} / {@link EventPublishListener}，
+ * 消费反馈 {@link ConsumptionFeedbackEvent}、{@link ConsumptionFeedbackBatchEvent} / {@link ConsumptionFeedbackListener}。
  */
 package com.wx.bus.event;
@@ -0,0 +1,54 @@
+package com.wx.bus.infrastructure.codec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip 压缩（JDK 自带）：压缩率高于 lz4，CPU 开销也更高，适合带宽敏感的 topic。
+ * <p>解压结果超过 {@code bus.compression.max-decompressed-bytes} 时拒绝，避免高压缩比的消息体撑爆堆。</p>
+ */
+@Component
+public class GzipPayloadCompressor implements PayloadCompressor {
+
+    private final int maxDecompressedBytes;
+
+    public GzipPayloadCompressor(@Value("${bus.compression.max-decompressed-bytes:67108864}") int maxDecompressedBytes) {
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    @Override
+    public String encoding() {
+        return "gzip";
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("gzip compress failed", e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] out = gzip.readNBytes(maxDecompressedBytes);
+            if (gzip.read() != -1) {
+                throw new IllegalArgumentException("gzip payload exceeds max decompressed size " + maxDecompressedBytes);
+            }
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException("gzip decompress failed", e);
+        }
+    }
+}
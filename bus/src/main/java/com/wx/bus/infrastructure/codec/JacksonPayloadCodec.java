@@ -0,0 +1,55 @@
+package com.wx.bus.infrastructure.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.wx.bus.domain.EventEnvelope;
+
+import java.io.IOException;
+
+/**
+ * 基于 Jackson 的编解码：JSON/Smile/CBOR 共用同一套模块与配置（与 Spring 的 ObjectMapper 一致），只是底层格式工厂不同。
+ * <p>预先构建 {@link ObjectReader}/{@link ObjectWriter}，避免每条消息重新查找序列化器。</p>
+ */
+public class JacksonPayloadCodec implements PayloadCodec {
+
+    private final String name;
+    private final String contentType;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    public JacksonPayloadCodec(String name, String contentType, ObjectMapper mapper) {
+        this.name = name;
+        this.contentType = contentType;
+        this.reader = mapper.readerFor(EventEnvelope.class);
+        this.writer = mapper.writerFor(EventEnvelope.class);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String contentType() {
+        return contentType;
+    }
+
+    @Override
+    public byte[] encode(EventEnvelope envelope) {
+        try {
+            return writer.writeValueAsBytes(envelope);
+        } catch (IOException e) {
+            throw new IllegalStateException(name + " encode failed eventId=" + envelope.eventId(), e);
+        }
+    }
+
+    @Override
+    public EventEnvelope decode(byte[] body) {
+        try {
+            return reader.readValue(body);
+        } catch (IOException e) {
+            throw new IllegalStateException(name + " decode failed", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.wx.bus.infrastructure.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * lz4 块压缩：压缩/解压速度远高于 gzip，适合大载荷高吞吐的 topic。
+ * <p>格式为 4 字节原始长度（大端）+ lz4 块，解压时按原始长度一次分配。原始长度来自消息体，不可信：
+ * 超过 {@code bus.compression.max-decompressed-bytes} 或为负时拒绝，且用 safe 解压器按输入边界解码，
+ * 损坏或伪造的块只会抛异常，不会越界读写。</p>
+ */
+@Component
+public class Lz4PayloadCompressor implements PayloadCompressor {
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+    private final int maxDecompressedBytes;
+
+    public Lz4PayloadCompressor(@Value("${bus.compression.max-decompressed-bytes:67108864}") int maxDecompressedBytes) {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    @Override
+    public String encoding() {
+        return "lz4";
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        byte[] out = new byte[Integer.BYTES + compressor.maxCompressedLength(data.length)];
+        ByteBuffer.wrap(out).putInt(data.length);
+        int len = compressor.compress(data, 0, data.length, out, Integer.BYTES);
+        byte[] result = new byte[Integer.BYTES + len];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    @Override
+    public byte[] decompress(byte[] data) {
+        if (data.length < Integer.BYTES) {
+            throw new IllegalArgumentException("lz4 payload too short: " + data.length + " bytes");
+        }
+        int originalLength = ByteBuffer.wrap(data).getInt();
+        if (originalLength < 0 || originalLength > maxDecompressedBytes) {
+            throw new IllegalArgumentException(
+                "lz4 declared length " + originalLength + " out of range, max " + maxDecompressedBytes);
+        }
+        byte[] out = new byte[originalLength];
+        int len = decompressor.decompress(data, Integer.BYTES, data.length - Integer.BYTES, out, 0, originalLength);
+        if (len != originalLength) {
+            throw new IllegalArgumentException("lz4 decompressed " + len + " bytes, declared " + originalLength);
+        }
+        return out;
+    }
+}
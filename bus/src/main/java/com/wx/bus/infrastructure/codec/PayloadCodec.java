@@ -0,0 +1,21 @@
+package com.wx.bus.infrastructure.codec;
+
+import com.wx.bus.domain.EventEnvelope;
+
+/**
+ * 事件信封编解码 SPI：发布端按 topic 选择编码，写入消息头 content-type；消费端按 content-type 选择解码，直接读字节不经 String。
+ * <p>接入方可注册自定义实现为 Spring Bean（如 Protobuf），{@link #name()} 用于 {@code bus.codec.topics} 配置（自定义实现不受 {@code bus.codec.decoders} 控制，注册即可用），
+ * {@link #contentType()} 需全局唯一。</p>
+ */
+public interface PayloadCodec {
+
+    /** 配置中引用的编码名，如 json、smile、cbor */
+    String name();
+
+    /** 写入 AMQP content-type 的 MIME 类型 */
+    String contentType();
+
+    byte[] encode(EventEnvelope envelope);
+
+    EventEnvelope decode(byte[] body);
+}
@@ -0,0 +1,90 @@
+package com.wx.bus.infrastructure.codec;
+
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 内置编解码：json（默认，兼容历史消息）、smile、cbor。
+ * <p>Smile/CBOR 只在 {@code bus.codec.default}、{@code bus.codec.topics} 或 {@code bus.codec.decoders} 选用时创建，
+ * 由 {@link SmileMapper}/{@link CBORMapper} 构建：注册 classpath 上的 Jackson 模块与应用声明的 {@link Module} Bean，
+ * 并沿用 Spring ObjectMapper 的特性开关、包含策略与命名策略。不使用 {@code ObjectMapper.copyWith}，
+ * 应用的 ObjectMapper 为 {@code JsonMapper} 等子类时也能启动。</p>
+ */
+@Configuration
+public class PayloadCodecConfig {
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+    public static final String CBOR_CONTENT_TYPE = "application/cbor";
+
+    @Bean
+    public PayloadCodec jsonPayloadCodec(ObjectMapper objectMapper) {
+        return json(objectMapper);
+    }
+
+    @Bean
+    @Conditional(PayloadCodecSelectedCondition.Smile.class)
+    public PayloadCodec smilePayloadCodec(ObjectMapper objectMapper, ObjectProvider<Module> modules) {
+        return smile(objectMapper, modules.orderedStream().toList());
+    }
+
+    @Bean
+    @Conditional(PayloadCodecSelectedCondition.Cbor.class)
+    public PayloadCodec cborPayloadCodec(ObjectMapper objectMapper, ObjectProvider<Module> modules) {
+        return cbor(objectMapper, modules.orderedStream().toList());
+    }
+
+    /** JSON 编解码（非 Spring 场景及测试直接构造用） */
+    public static PayloadCodec json(ObjectMapper objectMapper) {
+        return new JacksonPayloadCodec("json", JSON_CONTENT_TYPE, objectMapper);
+    }
+
+    /** Smile 编解码，配置取自 source，modules 为 classpath 自动发现之外需要额外注册的模块 */
+    public static PayloadCodec smile(ObjectMapper source, Collection<? extends Module> modules) {
+        return new JacksonPayloadCodec("smile", SMILE_CONTENT_TYPE, configureLike(SmileMapper.builder(), source, modules));
+    }
+
+    /** CBOR 编解码，参数同 {@link #smile} */
+    public static PayloadCodec cbor(ObjectMapper source, Collection<? extends Module> modules) {
+        return new JacksonPayloadCodec("cbor", CBOR_CONTENT_TYPE, configureLike(CBORMapper.builder(), source, modules));
+    }
+
+    /** 二进制格式的 mapper：模块重新注册（同类型模块只生效一次），特性开关逐项沿用 source */
+    private static <M extends ObjectMapper, B extends MapperBuilder<M, B>> M configureLike(
+        B builder, ObjectMapper source, Collection<? extends Module> modules
+    ) {
+        builder.findAndAddModules();
+        builder.addModules(List.copyOf(modules));
+        SerializationConfig ser = source.getSerializationConfig();
+        DeserializationConfig de = source.getDeserializationConfig();
+        for (MapperFeature f : MapperFeature.values()) {
+            builder.configure(f, ser.isEnabled(f));
+        }
+        for (SerializationFeature f : SerializationFeature.values()) {
+            builder.configure(f, ser.isEnabled(f));
+        }
+        for (DeserializationFeature f : DeserializationFeature.values()) {
+            builder.configure(f, de.isEnabled(f));
+        }
+        builder.serializationInclusion(ser.getDefaultPropertyInclusion().getValueInclusion());
+        if (ser.getPropertyNamingStrategy() != null) {
+            builder.propertyNamingStrategy(ser.getPropertyNamingStrategy());
+        }
+        return builder.build();
+    }
+}
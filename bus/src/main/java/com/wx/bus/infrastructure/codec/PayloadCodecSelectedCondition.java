@@ -0,0 +1,45 @@
+package com.wx.bus.infrastructure.codec;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * 内置编码是否被选用：名称出现在 {@code bus.codec.default}、{@code bus.codec.topics} 的取值或 {@code bus.codec.decoders} 中。
+ * <p>{@code bus.codec.decoders} 供只消费不发布的应用声明需要解码的编码（逗号分隔，如 {@code smile,cbor}）。</p>
+ */
+abstract class PayloadCodecSelectedCondition implements Condition {
+
+    private final String codecName;
+
+    PayloadCodecSelectedCondition(String codecName) {
+        this.codecName = codecName;
+    }
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Environment env = context.getEnvironment();
+        if (codecName.equals(env.getProperty("bus.codec.default", "json").trim())) return true;
+        for (String entry : env.getProperty("bus.codec.topics", "").split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq > 0 && codecName.equals(entry.substring(eq + 1).trim())) return true;
+        }
+        for (String name : env.getProperty("bus.codec.decoders", "").split(",")) {
+            if (codecName.equals(name.trim())) return true;
+        }
+        return false;
+    }
+
+    static class Smile extends PayloadCodecSelectedCondition {
+        Smile() {
+            super("smile");
+        }
+    }
+
+    static class Cbor extends PayloadCodecSelectedCondition {
+        Cbor() {
+            super("cbor");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.wx.bus.infrastructure.codec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编解码注册表：发布端按 topic 取编码（{@code bus.codec.topics} 为 {@code topic=name} 逗号分隔，未配置的 topic 用 {@code bus.codec.default}），
+ * 消费端按消息 content-type 取解码。
+ * <p>未知或缺失的 content-type（如升级前以字符串发送、content-type 为 text/plain 的消息）按 JSON 解码，保证滚动升级期间新旧消息都能消费。</p>
+ */
+@Component
+public class PayloadCodecs {
+
+    private final Map<String, PayloadCodec> byContentType = new HashMap<>();
+    private final Map<String, PayloadCodec> byTopic = new HashMap<>();
+    private final PayloadCodec defaultCodec;
+    private final PayloadCodec fallbackDecoder;
+
+    @Autowired
+    public PayloadCodecs(
+        List<PayloadCodec> codecs,
+        @Value("${bus.codec.default:json}") String defaultName,
+        @Value("${bus.codec.topics:}") String topicMappings
+    ) {
+        Map<String, PayloadCodec> byName = new HashMap<>();
+        for (PayloadCodec codec : codecs) {
+            byName.put(codec.name(), codec);
+            byContentType.put(codec.contentType(), codec);
+        }
+        this.defaultCodec = require(byName, defaultName);
+        this.fallbackDecoder = byContentType.getOrDefault(PayloadCodecConfig.JSON_CONTENT_TYPE, defaultCodec);
+        if (topicMappings != null && !topicMappings.isBlank()) {
+            for (String entry : topicMappings.split(",")) {
+                String s = entry.trim();
+                if (s.isEmpty()) continue;
+                int eq = s.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalStateException("Invalid bus.codec.topics entry, expected topic=codec: " + s);
+                }
+                byTopic.put(s.substring(0, eq).trim(), require(byName, s.substring(eq + 1).trim()));
+            }
+        }
+    }
+
+    /** 只含单个编码的注册表（测试或手工构造监听器时使用） */
+    public static PayloadCodecs of(PayloadCodec codec) {
+        return new PayloadCodecs(List.of(codec), codec.name(), "");
+    }
+
+    /** 发布时使用的编码 */
+    public PayloadCodec forTopic(String topic) {
+        return byTopic.getOrDefault(topic, defaultCodec);
+    }
+
+    /** 消费时按 content-type 取解码；content-type 可带参数（如 charset），只比较 MIME 类型 */
+    public PayloadCodec forContentType(String contentType) {
+        if (contentType == null) return fallbackDecoder;
+        int semi = contentType.indexOf(';');
+        String mime = (semi >= 0 ? contentType.substring(0, semi) : contentType).trim();
+        return byContentType.getOrDefault(mime, fallbackDecoder);
+    }
+
+    private static PayloadCodec require(Map<String, PayloadCodec> byName, String name) {
+        PayloadCodec codec = byName.get(name);
+        if (codec == null) {
+            throw new IllegalStateException("Unknown payload codec: " + name + ", available: " + byName.keySet());
+        }
+        return codec;
+    }
+}
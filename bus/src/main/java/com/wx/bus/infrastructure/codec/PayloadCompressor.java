@@ -0,0 +1,15 @@
+package com.wx.bus.infrastructure.codec;
+
+/**
+ * 载荷压缩 SPI：超过 {@code bus.compression.threshold-bytes} 的消息体与 events.payload 按 {@code bus.compression.algorithm} 压缩。
+ * <p>{@link #encoding()} 写入 AMQP content-encoding 与 events.payloadEncoding，读取端据此选择解压；接入方可注册自定义实现为 Bean（如 zstd）。</p>
+ */
+public interface PayloadCompressor {
+
+    /** 编码名，如 gzip、lz4，需全局唯一 */
+    String encoding();
+
+    byte[] compress(byte[] data);
+
+    byte[] decompress(byte[] data);
+}
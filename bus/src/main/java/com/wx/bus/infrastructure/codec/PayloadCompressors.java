@@ -0,0 +1,59 @@
+package com.wx.bus.infrastructure.codec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压缩注册表：写入时按 {@code bus.compression.algorithm}（none 为关闭）与 {@code bus.compression.threshold-bytes} 决定是否压缩，
+ * 读取时按 content-encoding / payloadEncoding 取解压。
+ * <p>未知的编码名（如升级前消息的 content-encoding=UTF-8）视为未压缩，原样交给解码。</p>
+ */
+@Component
+public class PayloadCompressors {
+
+    public static final String NONE = "none";
+
+    private final Map<String, PayloadCompressor> byEncoding = new HashMap<>();
+    private final PayloadCompressor active;
+    private final int thresholdBytes;
+
+    public PayloadCompressors(
+        List<PayloadCompressor> compressors,
+        @Value("${bus.compression.algorithm:none}") String algorithm,
+        @Value("${bus.compression.threshold-bytes:16384}") int thresholdBytes
+    ) {
+        for (PayloadCompressor c : compressors) {
+            byEncoding.put(c.encoding(), c);
+        }
+        if (algorithm == null || algorithm.isBlank() || NONE.equalsIgnoreCase(algorithm)) {
+            this.active = null;
+        } else {
+            this.active = byEncoding.get(algorithm);
+            if (active == null) {
+                throw new IllegalStateException("Unknown bus.compression.algorithm: " + algorithm + ", available: " + byEncoding.keySet());
+            }
+        }
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /** 不压缩的注册表（测试或手工构造时使用），仍可按编码名解压 */
+    public static PayloadCompressors decompressOnly(List<PayloadCompressor> compressors) {
+        return new PayloadCompressors(compressors, NONE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按长度决定写入时使用的压缩；未开启或未达阈值返回 null。
+     */
+    public PayloadCompressor forSize(int length) {
+        return active != null && length >= thresholdBytes ? active : null;
+    }
+
+    /** 读取时按编码名取解压；null 或未知编码返回 null（按未压缩处理） */
+    public PayloadCompressor forEncoding(String encoding) {
+        return encoding == null ? null : byEncoding.get(encoding);
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * 事件信封的线上编码：{@link com.wx.bus.infrastructure.codec.PayloadCodec} SPI 及 JSON/Smile/CBOR 实现，按 topic 选择编码、按 content-type 解码；
+ * {@link com.wx.bus.infrastructure.codec.PayloadCompressor} SPI 及 gzip/lz4 实现，超过阈值的消息体与 events.payload 压缩存储。
+ */
+package com.wx.bus.infrastructure.codec;
@@ -0,0 +1,102 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * bulk_retry_jobs 集合文档：一个批量重推任务的筛选条件、限速参数、断点与进度。
+ * <p>由 {@link com.wx.bus.application.BulkRetryJobs} 创建/取消/恢复，{@link com.wx.bus.application.BulkRetryRunner} 认领执行；
+ * 断点为已处理的最后一条 (occurredAt, _id)，恢复时从其后继续。</p>
+ */
+@Document(collection = "bulk_retry_jobs")
+@CompoundIndex(name = "state_createdAt", def = "{'state': 1, 'createdAt': 1}")
+public class BulkRetryJobDocument {
+
+    @Id
+    private String id;
+    /** PENDING / RUNNING / CANCELLED / COMPLETED / FAILED */
+    private String state;
+
+    private String topic;
+    private List<String> statuses;
+    private Instant occurredFrom;
+    private Instant occurredTo;
+    /** 非空时只重推该消费者最新一次消费失败的事件 */
+    private String consumerId;
+
+    private double ratePerSecond;
+    private int batchSize;
+
+    /** 创建时符合条件的事件数（估计值，执行期间状态会变化）；创建后异步统计，null 表示统计中或统计失败 */
+    private Long total;
+    private long scanned;
+    private long retried;
+    private long skipped;
+    /** 发布失败的事件数（发布失败时任务置 FAILED，断点停在该批之前） */
+    private long failed;
+    private Instant checkpointOccurredAt;
+    private String checkpointEventId;
+
+    /** 执行节点与心跳，心跳超时的 RUNNING 任务可被其他节点接管 */
+    private String owner;
+    private Instant heartbeatAt;
+    private String error;
+    private String createdBy;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant updatedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+    public List<String> getStatuses() { return statuses; }
+    public void setStatuses(List<String> statuses) { this.statuses = statuses; }
+    public Instant getOccurredFrom() { return occurredFrom; }
+    public void setOccurredFrom(Instant occurredFrom) { this.occurredFrom = occurredFrom; }
+    public Instant getOccurredTo() { return occurredTo; }
+    public void setOccurredTo(Instant occurredTo) { this.occurredTo = occurredTo; }
+    public String getConsumerId() { return consumerId; }
+    public void setConsumerId(String consumerId) { this.consumerId = consumerId; }
+    public double getRatePerSecond() { return ratePerSecond; }
+    public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+    public long getScanned() { return scanned; }
+    public void setScanned(long scanned) { this.scanned = scanned; }
+    public long getRetried() { return retried; }
+    public void setRetried(long retried) { this.retried = retried; }
+    public long getSkipped() { return skipped; }
+    public void setSkipped(long skipped) { this.skipped = skipped; }
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+    public Instant getCheckpointOccurredAt() { return checkpointOccurredAt; }
+    public void setCheckpointOccurredAt(Instant checkpointOccurredAt) { this.checkpointOccurredAt = checkpointOccurredAt; }
+    public String getCheckpointEventId() { return checkpointEventId; }
+    public void setCheckpointEventId(String checkpointEventId) { this.checkpointEventId = checkpointEventId; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Instant getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(Instant heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public String getCreatedBy() { return createdBy; }
+    public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
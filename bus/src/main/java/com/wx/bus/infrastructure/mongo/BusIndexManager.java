@@ -0,0 +1,317 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.wx.bus.domain.EventStatus;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * bus 集合的索引管理与查询计划诊断。
+ * <ul>
+ *   <li>启动后在后台线程按实体注解（{@code @Indexed}/{@code @CompoundIndex}）逐个确保索引存在；不依赖
+ *       {@code spring.data.mongodb.auto-index-creation}，不阻塞启动，单个索引失败（如同键不同名的旧索引）只记 warn；
+ *       event_consumptions 的 attemptNo 唯一索引因旧数据重复失败时先重新编号再重建，见 {@link #renumberDuplicateAttempts()}</li>
+ *   <li>确保完成后删除已被复合索引取代的旧索引（{@link #OBSOLETE_INDEXES}），减少写入时的索引维护</li>
+ *   <li>{@link #explainCanonicalQueries()} 对各热点查询执行 explain（queryPlanner，不实际执行查询），标记全表扫描（COLLSCAN）</li>
+ * </ul>
+ * <p>{@code bus.mongo.ensure-indexes=false} 可关闭启动建索引（由 DBA 按设计文档手工建）。</p>
+ */
+@Component
+public class BusIndexManager implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(BusIndexManager.class);
+
+    /** 需要确保索引的实体；索引定义以实体注解为准 */
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(
+        EventDocument.class,
+        EventConsumptionDocument.class,
+        TopicConsumerDocument.class,
+        TopicConfigDocument.class,
+        LatencyHistogramDocument.class,
+        BulkRetryJobDocument.class,
+        PartitionNodeDocument.class
+    );
+
+    /** 与实体同结构、集合名不同的集合（集合名 → 实体），按同一实体注解确保索引 */
+    private static final Map<String, Class<?>> SHARED_SCHEMA_COLLECTIONS = Map.of(
+        RollupLeaseManager.NODE_COLLECTION, PartitionNodeDocument.class
+    );
+
+    /**
+     * 已废弃的索引（实体 → 索引名）：events 上的单字段 topic、status 是 topic_occurredAt、status_occurredAt 的前缀，
+     * 查询均可由复合索引承担，保留只增加每次写入的索引维护开销。
+     */
+    private static final Map<Class<?>, List<String>> OBSOLETE_INDEXES = Map.of(
+        EventDocument.class, List.of("topic", "status")
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean ensureIndexes;
+
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    public BusIndexManager(
+        MongoTemplate mongoTemplate,
+        @Value("${bus.mongo.ensure-indexes:true}") boolean ensureIndexes
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.ensureIndexes = ensureIndexes;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!ensureIndexes) return;
+        Thread t = new Thread(this::ensureAll, "bus-index-manager");
+        t.setDaemon(true);
+        t.start();
+        worker = t;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+            worker = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 按实体注解确保全部索引存在，返回成功确保的索引数。已存在的同名同定义索引由服务端直接返回，开销可忽略。
+     */
+    public int ensureAll() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(
+            (MongoMappingContext) mongoTemplate.getConverter().getMappingContext()
+        );
+        int ensured = 0;
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            ensured += ensure(resolver, entity, mongoTemplate.getCollectionName(entity));
+        }
+        for (Map.Entry<String, Class<?>> shared : SHARED_SCHEMA_COLLECTIONS.entrySet()) {
+            ensured += ensure(resolver, shared.getValue(), shared.getKey());
+        }
+        if (Thread.currentThread().isInterrupted()) return ensured;
+        for (Map.Entry<Class<?>, List<String>> obsolete : OBSOLETE_INDEXES.entrySet()) {
+            dropObsolete(obsolete.getKey(), obsolete.getValue());
+        }
+        log.info("Bus indexes ensured count={}", ensured);
+        return ensured;
+    }
+
+    private int ensure(IndexResolver resolver, Class<?> entity, String collection) {
+        IndexOperations ops = mongoTemplate.indexOps(collection, entity);
+        int ensured = 0;
+        for (IndexDefinition index : resolver.resolveIndexFor(entity)) {
+            if (Thread.currentThread().isInterrupted()) return ensured;
+            try {
+                ops.ensureIndex(index);
+                ensured++;
+            } catch (DuplicateKeyException e) {
+                if (entity == EventConsumptionDocument.class && renumberDuplicateAttempts() > 0) {
+                    try {
+                        ops.ensureIndex(index);
+                        ensured++;
+                        continue;
+                    } catch (Exception retry) {
+                        e.addSuppressed(retry);
+                    }
+                }
+                log.error("Unique index build failed on duplicate keys collection={} keys={}", collection, index.getIndexKeys(), e);
+            } catch (Exception e) {
+                log.warn("Ensure index failed collection={} keys={} options={}",
+                    collection, index.getIndexKeys(), index.getIndexOptions(), e);
+            }
+        }
+        return ensured;
+    }
+
+    /** 删除存在的旧索引；替代它们的复合索引已在同一轮确保 */
+    private void dropObsolete(Class<?> entity, List<String> names) {
+        IndexOperations ops = mongoTemplate.indexOps(entity);
+        try {
+            Set<String> existing = new HashSet<>();
+            ops.getIndexInfo().forEach(info -> existing.add(info.getName()));
+            for (String name : names) {
+                if (!existing.contains(name)) continue;
+                ops.dropIndex(name);
+                log.info("Dropped obsolete index collection={} name={}", mongoTemplate.getCollectionName(entity), name);
+            }
+        } catch (Exception e) {
+            log.warn("Drop obsolete indexes failed collection={} names={}", mongoTemplate.getCollectionName(entity), names, e);
+        }
+    }
+
+    /**
+     * 唯一索引 (eventId, consumerId, attemptNo) 引入前写入的重复 attemptNo 重新编号：每组重复保留 _id 最小的一条，
+     * 其余依次改为该 (eventId, consumerId) 当前最大 attemptNo + 1，历史记录不删除。返回改号的记录数。
+     * <p>只在该唯一索引因重复键建立失败时执行一次分组扫描；改号期间仍有反馈写入时可能需要下次启动再收敛。</p>
+     */
+    int renumberDuplicateAttempts() {
+        MongoCollection<Document> consumptions = mongoTemplate.getCollection(mongoTemplate.getCollectionName(EventConsumptionDocument.class));
+        List<Document> pipeline = List.of(
+            new Document("$group", new Document("_id", new Document("eventId", "$eventId")
+                .append("consumerId", "$consumerId").append("attemptNo", "$attemptNo"))
+                .append("ids", new Document("$push", "$_id"))
+                .append("count", new Document("$sum", 1))),
+            new Document("$match", new Document("count", new Document("$gt", 1)))
+        );
+        int renumbered = 0;
+        for (Document group : consumptions.aggregate(pipeline).allowDiskUse(true)) {
+            Document key = group.get("_id", Document.class);
+            Document pair = new Document("eventId", key.get("eventId")).append("consumerId", key.get("consumerId"));
+            List<Object> ids = new ArrayList<>(group.getList("ids", Object.class));
+            ids.sort(Comparator.comparing(Object::toString));
+            for (Object id : ids.subList(1, ids.size())) {
+                Document latest = consumptions.find(pair).sort(new Document("attemptNo", -1))
+                    .projection(new Document("attemptNo", 1)).first();
+                int next = (latest != null ? latest.getInteger("attemptNo", 0) : 0) + 1;
+                consumptions.updateOne(new Document("_id", id), new Document("$set", new Document("attemptNo", next)));
+                renumbered++;
+            }
+        }
+        log.warn("Renumbered duplicate event_consumptions attempts before building unique index count={}", renumbered);
+        return renumbered;
+    }
+
+    /**
+     * 对各热点查询执行 explain，返回每个查询的胜出计划；{@link QueryPlan#collectionScan()} 为 true 表示缺少可用索引。
+     */
+    public List<QueryPlan> explainCanonicalQueries() {
+        Date now = new Date();
+        Date dayAgo = Date.from(Instant.now().minus(1, ChronoUnit.DAYS));
+        Document listSort = new Document("occurredAt", -1).append("_id", -1);
+        String events = mongoTemplate.getCollectionName(EventDocument.class);
+        String consumptions = mongoTemplate.getCollectionName(EventConsumptionDocument.class);
+        String topicConsumers = mongoTemplate.getCollectionName(TopicConsumerDocument.class);
+
+        List<QueryPlan> plans = new ArrayList<>();
+        plans.add(explainFind("events.byEventId", events, new Document("eventId", "x"), null, 1));
+        plans.add(explainFind("events.outboxBatch", events,
+            new Document("status", EventStatus.PENDING.name())
+                .append("outboxPartition", new Document("$in", List.of(0, 1)))
+                .append("$or", List.of(new Document("lastSentAt", null), new Document("lastSentAt", new Document("$lt", now)))),
+            new Document("createdAt", 1), 500));
+        plans.add(explainFind("events.list", events, new Document(), listSort, 21));
+        plans.add(explainFind("events.list.status", events, new Document("status", "FAILED"), listSort, 21));
+        plans.add(explainFind("events.list.statusTopic", events, new Document("status", "FAILED").append("topic", "x"), listSort, 21));
+        plans.add(explainFind("events.list.topic", events, new Document("topic", "x"), listSort, 21));
+        plans.add(explainFind("events.list.userId", events, new Document("initiator.userId", "x"), listSort, 21));
+        plans.add(explainFind("events.list.traceId", events, new Document("traceId", "x"), listSort, 21));
+        plans.add(explainFind("events.list.occurredAtRange", events,
+            new Document("occurredAt", new Document("$gte", dayAgo).append("$lte", now)), listSort, 21));
+        plans.add(explainAggregate("events.hourlyCounts", events, List.of(
+            new Document("$match", new Document("occurredAt", new Document("$gte", dayAgo).append("$lt", now))),
+            new Document("$group", new Document("_id", new Document("$hour", "$occurredAt")).append("count", new Document("$sum", 1)))
+        )));
+        plans.add(explainFind("events.updatedSince", events,
+            new Document("updatedAt", new Document("$gte", dayAgo).append("$lt", now)), null, 0));
+        plans.add(explainFind("event_consumptions.latestByConsumer", consumptions,
+            new Document("eventId", "x").append("consumerId", "x"), new Document("attemptNo", -1), 1));
+        plans.add(explainFind("event_consumptions.byEventId", consumptions,
+            new Document("eventId", "x"), new Document("attemptNo", -1), 0));
+        plans.add(explainFind("event_consumptions.pending", consumptions,
+            new Document("eventId", new Document("$in", List.of("x", "y"))).append("success", null), null, 0));
+        plans.add(explainFind("event_consumptions.byEventIds", consumptions,
+            new Document("eventId", new Document("$in", List.of("x", "y"))), null, 0));
+        plans.add(explainFind("topic_consumers.enabled", topicConsumers, new Document("enabled", true), null, 0));
+        plans.add(explainFind("topic_consumers.byTopicEnabled", topicConsumers,
+            new Document("topic", "x").append("enabled", true), null, 0));
+        return plans;
+    }
+
+    private QueryPlan explainFind(String name, String collection, Document filter, Document sort, int limit) {
+        Document find = new Document("find", collection).append("filter", filter);
+        if (sort != null) find.append("sort", sort);
+        if (limit > 0) find.append("limit", limit);
+        return explain(name, collection, find);
+    }
+
+    private QueryPlan explainAggregate(String name, String collection, List<Document> pipeline) {
+        return explain(name, collection,
+            new Document("aggregate", collection).append("pipeline", pipeline).append("cursor", new Document()));
+    }
+
+    private QueryPlan explain(String name, String collection, Document command) {
+        try {
+            Document result = mongoTemplate.getDb().runCommand(
+                new Document("explain", command).append("verbosity", "queryPlanner")
+            );
+            Set<String> stages = new LinkedHashSet<>();
+            Set<String> indexes = new LinkedHashSet<>();
+            collectWinningPlans(result, stages, indexes, false);
+            return new QueryPlan(name, collection, List.copyOf(stages), List.copyOf(indexes), stages.contains("COLLSCAN"), null);
+        } catch (Exception e) {
+            log.warn("Explain failed query={} collection={}", name, collection, e);
+            return new QueryPlan(name, collection, List.of(), List.of(), false, e.getMessage());
+        }
+    }
+
+    /**
+     * 遍历 explain 输出，只收集 winningPlan 子树中的 stage 与 indexName（忽略 rejectedPlans）；
+     * 兼容聚合（$cursor 阶段）、分片（shards）与新版 SBE（winningPlan.queryPlan）的嵌套结构。
+     */
+    private static void collectWinningPlans(Object node, Set<String> stages, Set<String> indexes, boolean inWinning) {
+        if (node instanceof Document doc) {
+            for (Map.Entry<String, Object> e : doc.entrySet()) {
+                String key = e.getKey();
+                if ("rejectedPlans".equals(key)) continue;
+                if (inWinning && "stage".equals(key) && e.getValue() instanceof String stage) stages.add(stage);
+                if (inWinning && "indexName".equals(key) && e.getValue() instanceof String index) indexes.add(index);
+                collectWinningPlans(e.getValue(), stages, indexes, inWinning || "winningPlan".equals(key));
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) {
+                collectWinningPlans(item, stages, indexes, inWinning);
+            }
+        }
+    }
+
+    /**
+     * 单个查询的胜出计划。
+     *
+     * @param name           查询名（集合.用途）
+     * @param collection     集合名
+     * @param stages         胜出计划中的各阶段，如 IXSCAN、FETCH、SORT、COLLSCAN
+     * @param indexes        使用的索引名
+     * @param collectionScan 是否存在全表扫描
+     * @param error          explain 失败时的错误信息
+     */
+    public record QueryPlan(
+        String name,
+        String collection,
+        List<String> stages,
+        List<String> indexes,
+        boolean collectionScan,
+        String error
+    ) {}
+}
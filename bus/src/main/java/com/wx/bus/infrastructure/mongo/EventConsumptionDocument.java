@@ -1,6 +1,7 @@
 package com.wx.bus.infrastructure.mongo;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -8,9 +9,11 @@ import java.time.Instant;
 
 /**
  * event_consumptions 集合文档（与设计文档 2.5 一致）。
- * <p>无 (eventId, consumerId) 唯一约束；同一消费者多次回调各插入一条（attemptNo 递增），便于排查。</p>
+ * <p>无 (eventId, consumerId) 唯一约束；同一消费者多次回调各插入一条（attemptNo 递增），便于排查。
+ * (eventId, consumerId, attemptNo) 唯一：新记录取现有最大 attemptNo + 1 插入，并发撞号由该唯一索引拒绝后重新取号。</p>
  */
 @Document(collection = "event_consumptions")
+@CompoundIndex(name = "eventId_consumerId_attemptNo", def = "{'eventId': 1, 'consumerId': 1, 'attemptNo': -1}", unique = true)
 public class EventConsumptionDocument {
 
     @Id
@@ -0,0 +1,30 @@
+package com.wx.bus.infrastructure.mongo;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * event_consumptions 的原子反馈写入（自定义片段，由 {@link EventConsumptionRepositoryCustomImpl} 基于 MongoTemplate 实现）。
+ */
+public interface EventConsumptionRepositoryCustom {
+
+    /**
+     * 记录一次消费反馈：存在待消费记录（success=null）时以 findAndModify 原子认领并写入结果；
+     * 否则以 (eventId, consumerId) 现有最大 attemptNo + 1 插入新记录，与并发反馈撞号时由唯一索引拒绝并重新取号。
+     * <p>并发重复投递时每次反馈得到不同的 attemptNo，同一待消费记录只会被一次反馈认领。</p>
+     *
+     * @return 写入后的消费记录
+     */
+    EventConsumptionDocument recordAttempt(String eventId, String consumerId, boolean success,
+                                           Instant consumedAt, String errorMessage, String errorCode);
+
+    /**
+     * 批量记录一批消费反馈（批量消费监听器每个投递批次一次）：一次查询批内各 (eventId, consumerId) 的待消费记录，
+     * 一次 bulk 认领，其余一次查询各对的最大 attemptNo、顺序分配后一次 bulk 插入（撞号的条目重新取号后重试）。
+     * 被并发反馈抢先认领的记录改为按新尝试插入。
+     *
+     * @param results 仅需设置 eventId、consumerId、success、consumedAt、errorMessage、errorCode；写入后回填 attemptNo
+     * @return 入参列表本身（已回填 attemptNo）
+     */
+    List<EventConsumptionDocument> recordAttempts(List<EventConsumptionDocument> results);
+}
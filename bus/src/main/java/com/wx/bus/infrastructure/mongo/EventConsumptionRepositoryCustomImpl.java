@@ -0,0 +1,203 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@link EventConsumptionRepositoryCustom} 实现：待消费记录用 findAndModify 认领，新记录取现有最大 attemptNo + 1 插入；批量版本改为 bulk 写入。
+ * <p>attemptNo 不另设序列：由 (eventId, consumerId, attemptNo) 唯一索引兜底，并发插入同一 attemptNo 时后到者得到重复键，
+ * 重新读取最大值后重试（最多 {@value #MAX_INSERT_ROUNDS} 轮）。该唯一索引是正确性的前提，旧数据中的重复 attemptNo 由
+ * {@link BusIndexManager} 建索引失败时重新编号。</p>
+ */
+class EventConsumptionRepositoryCustomImpl implements EventConsumptionRepositoryCustom {
+
+    /** 重复键重试轮数上限；同一对的并发反馈通常只有个位数 */
+    static final int MAX_INSERT_ROUNDS = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    EventConsumptionRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public EventConsumptionDocument recordAttempt(String eventId, String consumerId, boolean success,
+                                                  Instant consumedAt, String errorMessage, String errorCode) {
+        Update result = resultUpdate(success, consumedAt, errorMessage, errorCode);
+
+        Query pending = Query.query(Criteria.where("eventId").is(eventId)
+                .and("consumerId").is(consumerId)
+                .and("success").is(null))
+            .with(Sort.by(Sort.Direction.DESC, "attemptNo"));
+        EventConsumptionDocument claimed = mongoTemplate.findAndModify(
+            pending, result, FindAndModifyOptions.options().returnNew(true), EventConsumptionDocument.class
+        );
+        if (claimed != null) {
+            return claimed;
+        }
+
+        for (int round = 1; ; round++) {
+            EventConsumptionDocument attempt = new EventConsumptionDocument();
+            attempt.setEventId(eventId);
+            attempt.setConsumerId(consumerId);
+            attempt.setAttemptNo(latestAttemptNos(List.of(attempt)).getOrDefault(pairKey(eventId, consumerId), 0) + 1);
+            attempt.setSuccess(success);
+            attempt.setConsumedAt(consumedAt);
+            attempt.setErrorMessage(errorMessage);
+            attempt.setErrorCode(errorCode);
+            attempt.setCreatedAt(Instant.now());
+            try {
+                return mongoTemplate.insert(attempt);
+            } catch (DuplicateKeyException e) {
+                // 并发反馈已占用该 attemptNo：重新读取最大值
+                if (round >= MAX_INSERT_ROUNDS) throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<EventConsumptionDocument> recordAttempts(List<EventConsumptionDocument> results) {
+        if (results == null || results.isEmpty()) return results;
+
+        Set<String> eventIds = new HashSet<>();
+        for (EventConsumptionDocument r : results) {
+            eventIds.add(r.getEventId());
+        }
+        Query pendingQuery = Query.query(Criteria.where("eventId").in(eventIds).and("success").is(null));
+        pendingQuery.fields().include("eventId").include("consumerId").include("attemptNo");
+        Map<String, EventConsumptionDocument> pendingByPair = new HashMap<>();
+        for (EventConsumptionDocument p : mongoTemplate.find(pendingQuery, EventConsumptionDocument.class)) {
+            pendingByPair.merge(pairKey(p.getEventId(), p.getConsumerId()), p,
+                (a, b) -> a.getAttemptNo() >= b.getAttemptNo() ? a : b);
+        }
+
+        List<EventConsumptionDocument> claims = new ArrayList<>();
+        List<EventConsumptionDocument> attempts = new ArrayList<>();
+        for (EventConsumptionDocument r : results) {
+            // 同一批内同一对出现多次：第一条认领待消费记录，其余按新尝试写入
+            EventConsumptionDocument pending = pendingByPair.remove(pairKey(r.getEventId(), r.getConsumerId()));
+            if (pending != null) {
+                r.setId(pending.getId());
+                r.setAttemptNo(pending.getAttemptNo());
+                claims.add(r);
+            } else {
+                attempts.add(r);
+            }
+        }
+
+        if (!claims.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventConsumptionDocument.class);
+            for (EventConsumptionDocument r : claims) {
+                bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(r.getId()).and("success").is(null)),
+                    resultUpdate(r.getSuccess(), r.getConsumedAt(), r.getErrorMessage(), r.getErrorCode())
+                );
+            }
+            if (bulk.execute().getMatchedCount() < claims.size()) {
+                attempts.addAll(lostClaims(claims));
+            }
+        }
+
+        if (!attempts.isEmpty()) {
+            insertAttempts(attempts);
+        }
+        return results;
+    }
+
+    /** 认领未命中的记录（已被并发反馈抢先写入结果）：按 _id 回读，结果不是本批写入的即视为丢失，改为新尝试写入 */
+    private List<EventConsumptionDocument> lostClaims(List<EventConsumptionDocument> claims) {
+        Map<String, EventConsumptionDocument> byId = new HashMap<>();
+        for (EventConsumptionDocument r : claims) {
+            byId.put(r.getId(), r);
+        }
+        Query query = Query.query(Criteria.where("_id").in(byId.keySet()));
+        query.fields().include("success").include("consumedAt");
+        List<EventConsumptionDocument> lost = new ArrayList<>();
+        for (EventConsumptionDocument stored : mongoTemplate.find(query, EventConsumptionDocument.class)) {
+            EventConsumptionDocument r = byId.get(stored.getId());
+            boolean ours = Objects.equals(stored.getSuccess(), r.getSuccess())
+                && stored.getConsumedAt() != null && r.getConsumedAt() != null
+                && stored.getConsumedAt().toEpochMilli() == r.getConsumedAt().toEpochMilli();
+            if (!ours) {
+                lost.add(r);
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * 一次查询批内各对的最大 attemptNo 并顺序分配，一次 bulk 插入；重复键（并发反馈已占用）的条目重新读取最大值后重试。
+     */
+    private void insertAttempts(List<EventConsumptionDocument> attempts) {
+        Instant now = Instant.now();
+        List<EventConsumptionDocument> remaining = attempts;
+        for (int round = 1; ; round++) {
+            Map<String, Integer> latest = latestAttemptNos(remaining);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventConsumptionDocument.class);
+            for (EventConsumptionDocument r : remaining) {
+                r.setId(null);
+                r.setAttemptNo(latest.merge(pairKey(r.getEventId(), r.getConsumerId()), 1, Integer::sum));
+                r.setCreatedAt(now);
+                bulk.insert(r);
+            }
+            try {
+                bulk.execute();
+                return;
+            } catch (BulkOperationException e) {
+                List<EventConsumptionDocument> duplicates = new ArrayList<>();
+                for (BulkWriteError error : e.getErrors()) {
+                    if (error.getCategory() != ErrorCategory.DUPLICATE_KEY || round >= MAX_INSERT_ROUNDS) throw e;
+                    duplicates.add(remaining.get(error.getIndex()));
+                }
+                remaining = duplicates;
+            }
+        }
+    }
+
+    /** 各 (eventId, consumerId) 现有的最大 attemptNo，只投影键字段；没有记录的对不在结果中 */
+    private Map<String, Integer> latestAttemptNos(List<EventConsumptionDocument> attempts) {
+        Set<String> eventIds = new HashSet<>();
+        Set<String> consumerIds = new HashSet<>();
+        for (EventConsumptionDocument r : attempts) {
+            eventIds.add(r.getEventId());
+            consumerIds.add(r.getConsumerId());
+        }
+        Query query = Query.query(Criteria.where("eventId").in(eventIds).and("consumerId").in(consumerIds));
+        query.fields().include("eventId").include("consumerId").include("attemptNo");
+        Map<String, Integer> latest = new HashMap<>();
+        for (EventConsumptionDocument existing : mongoTemplate.find(query, EventConsumptionDocument.class)) {
+            latest.merge(pairKey(existing.getEventId(), existing.getConsumerId()), existing.getAttemptNo(), Math::max);
+        }
+        return latest;
+    }
+
+    private static Update resultUpdate(Boolean success, Instant consumedAt, String errorMessage, String errorCode) {
+        return new Update()
+            .set("success", success)
+            .set("consumedAt", consumedAt)
+            .set("errorMessage", errorMessage)
+            .set("errorCode", errorCode);
+    }
+
+    private static String pairKey(String eventId, String consumerId) {
+        return eventId + "|" + consumerId;
+    }
+}
@@ -1,6 +1,8 @@
 package com.wx.bus.infrastructure.mongo;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -12,6 +14,19 @@ import java.util.Map;
  * <p>仅存 envelope + 发送/重试相关状态；消费态（CONSUMED/PARTIAL/FAILED）由消费汇总异步回写。</p>
  */
 @Document(collection = "events")
+@CompoundIndexes({
+    @CompoundIndex(name = "status_outboxPartition_createdAt", def = "{'status': 1, 'outboxPartition': 1, 'createdAt': 1}"),
+    // 管理端列表：等值筛选字段在前、occurredAt 倒序在后，筛选 + 排序 + 分页均走索引；末尾 _id 供游标分页的 (occurredAt, _id) 全序
+    @CompoundIndex(name = "occurredAt_desc", def = "{'occurredAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_occurredAt", def = "{'status': 1, 'occurredAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_topic_occurredAt", def = "{'status': 1, 'topic': 1, 'occurredAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "topic_occurredAt", def = "{'topic': 1, 'occurredAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "initiatorUserId_occurredAt", def = "{'initiator.userId': 1, 'occurredAt': -1, '_id': -1}"),
+    @CompoundIndex(name = "traceId_occurredAt", def = "{'traceId': 1, 'occurredAt': -1, '_id': -1}"),
+    // 管理端统计预聚合按 updatedAt 增量扫描；回填时按 occurredAt 小时与 status 对齐统计标记
+    @CompoundIndex(name = "updatedAt", def = "{'updatedAt': 1}"),
+    @CompoundIndex(name = "occurredAt_topic_status", def = "{'occurredAt': 1, 'topic': 1, 'status': 1}")
+})
 public class EventDocument {
 
     /** 使用 eventId 作为 _id，便于幂等与 findById(eventId) */
@@ -23,7 +38,6 @@ public class EventDocument {
     private String traceId;
     private String spanId;
     private String parentEventId;
-    @Indexed
     private String topic;
     private Object payload;
     private String payloadType;
@@ -32,11 +46,20 @@ public class EventDocument {
     private Instant occurredAt;
     private Instant sentAt;
     private Instant expireAt;
-    @Indexed
     private String status;
     private Instant statusAt;
     private int retryCount;
     private Instant lastSentAt;
+    /** 各消费者最新结果 consumerId → PENDING/SUCCESS/FAILED，发布时按路由到的消费者初始化为 PENDING */
+    private Map<String, String> consumerOutcomes;
+    /** 最新结果计数，与 consumerOutcomes 在同一次更新中维护；旧文档为 null（走队列汇总） */
+    private Integer pendingCount;
+    private Integer successCount;
+    private Integer failedCount;
+    /** outbox 分区号（hash(eventId) % 分区数），relay 按分区认领投递 */
+    private Integer outboxPartition;
+    /** 管理端统计预聚合已计入的状态（event_stats 中本事件所在的组），由统计任务维护；与 status 不同表示有待计入的状态变化 */
+    private String statsStatus;
     private Instant createdAt;
     private Instant updatedAt;
 
@@ -72,6 +95,18 @@ public class EventDocument {
     public void setRetryCount(int retryCount) { this.retryCount = retryCount; }
     public Instant getLastSentAt() { return lastSentAt; }
     public void setLastSentAt(Instant lastSentAt) { this.lastSentAt = lastSentAt; }
+    public Map<String, String> getConsumerOutcomes() { return consumerOutcomes; }
+    public void setConsumerOutcomes(Map<String, String> consumerOutcomes) { this.consumerOutcomes = consumerOutcomes; }
+    public Integer getPendingCount() { return pendingCount; }
+    public void setPendingCount(Integer pendingCount) { this.pendingCount = pendingCount; }
+    public Integer getSuccessCount() { return successCount; }
+    public void setSuccessCount(Integer successCount) { this.successCount = successCount; }
+    public Integer getFailedCount() { return failedCount; }
+    public void setFailedCount(Integer failedCount) { this.failedCount = failedCount; }
+    public Integer getOutboxPartition() { return outboxPartition; }
+    public void setOutboxPartition(Integer outboxPartition) { this.outboxPartition = outboxPartition; }
+    public String getStatsStatus() { return statsStatus; }
+    public void setStatsStatus(String statsStatus) { this.statsStatus = statsStatus; }
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     public Instant getUpdatedAt() { return updatedAt; }
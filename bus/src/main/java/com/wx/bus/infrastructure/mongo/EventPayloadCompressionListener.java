@@ -0,0 +1,71 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.mongodb.MongoClientSettings;
+import com.wx.bus.infrastructure.codec.PayloadCompressor;
+import com.wx.bus.infrastructure.codec.PayloadCompressors;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * events.payload 透明压缩：写入前将 payload 编为 BSON，超过 {@code bus.compression.threshold-bytes} 时按
+ * {@code bus.compression.algorithm} 压缩为二进制，并记录 {@value #PAYLOAD_ENCODING_FIELD}；读取时在映射为 {@link EventDocument} 前还原。
+ * <p>在 BSON 文档层处理，所有经 {@link EventDocument} 映射的读写（仓储、MongoTemplate、bulk insert）均透明，
+ * 包括 {@link com.wx.bus.application.EventDocumentMapper#documentToEnvelope} 与管理端详情；直接读原始 Document 的聚合需自行忽略 payload。</p>
+ */
+@Component
+public class EventPayloadCompressionListener extends AbstractMongoEventListener<EventDocument> {
+
+    private static final Logger log = LoggerFactory.getLogger(EventPayloadCompressionListener.class);
+
+    public static final String PAYLOAD_FIELD = "payload";
+    public static final String PAYLOAD_ENCODING_FIELD = "payloadEncoding";
+    /** payload 可能是对象、数组或标量，包一层后整体按 BSON 文档编码 */
+    private static final String WRAPPER_KEY = "v";
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    private final PayloadCompressors payloadCompressors;
+
+    public EventPayloadCompressionListener(PayloadCompressors payloadCompressors) {
+        this.payloadCompressors = payloadCompressors;
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<EventDocument> event) {
+        Document doc = event.getDocument();
+        if (doc == null) return;
+        Object payload = doc.get(PAYLOAD_FIELD);
+        if (payload == null || payload instanceof Binary) return;
+        RawBsonDocument raw = new RawBsonDocument(new Document(WRAPPER_KEY, payload), DOCUMENT_CODEC);
+        byte[] bytes = new byte[raw.getByteBuffer().remaining()];
+        raw.getByteBuffer().get(bytes);
+        PayloadCompressor compressor = payloadCompressors.forSize(bytes.length);
+        if (compressor == null) return;
+        doc.put(PAYLOAD_FIELD, new Binary(compressor.compress(bytes)));
+        doc.put(PAYLOAD_ENCODING_FIELD, compressor.encoding());
+    }
+
+    @Override
+    public void onAfterLoad(AfterLoadEvent<EventDocument> event) {
+        Document doc = event.getDocument();
+        if (doc == null) return;
+        String encoding = doc.getString(PAYLOAD_ENCODING_FIELD);
+        if (encoding == null) return;
+        Object payload = doc.get(PAYLOAD_FIELD);
+        PayloadCompressor compressor = payloadCompressors.forEncoding(encoding);
+        if (compressor == null || !(payload instanceof Binary binary)) {
+            log.warn("Cannot decompress event payload encoding={} eventId={}", encoding, doc.get("_id"));
+            return;
+        }
+        byte[] bytes = compressor.decompress(binary.getData());
+        doc.put(PAYLOAD_FIELD, new RawBsonDocument(bytes).decode(DOCUMENT_CODEC).get(WRAPPER_KEY));
+        doc.remove(PAYLOAD_ENCODING_FIELD);
+    }
+}
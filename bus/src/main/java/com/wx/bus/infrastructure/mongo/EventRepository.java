@@ -6,8 +6,9 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 /**
  * events 集合；插入时以 eventId 作为 _id，便于幂等与 findById(eventId)。
+ * <p>批量状态更新见 {@link EventRepositoryCustom}。</p>
  */
-public interface EventRepository extends MongoRepository<EventDocument, String> {
+public interface EventRepository extends MongoRepository<EventDocument, String>, EventRepositoryCustom {
 
     Page<EventDocument> findAllByOrderByOccurredAtDesc(Pageable pageable);
 
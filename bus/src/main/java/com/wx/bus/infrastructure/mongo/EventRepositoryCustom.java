@@ -0,0 +1,88 @@
+package com.wx.bus.infrastructure.mongo;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * events 集合的批量状态更新（自定义片段，由 {@link EventRepositoryCustomImpl} 基于 MongoTemplate 实现）。
+ * <p>批量发布时用一次 updateMulti 替代逐条 save。</p>
+ */
+public interface EventRepositoryCustom {
+
+    /**
+     * 无序 bulk insert：eventId 已存在（或批内重复）的文档跳过且不覆盖已落库的事件，其余照常写入。
+     *
+     * @return 因 eventId 重复未写入的文档在入参中的下标，升序；全部写入时为空
+     */
+    List<Integer> insertAbsent(List<EventDocument> docs);
+
+    /**
+     * 仅当仍为 PENDING 时置为 SENT：statusAt、sentAt、lastSentAt 取 sentAt，updatedAt 取实际写入时间。
+     * <p>同步发布与 publisher confirm 回执均使用，不覆盖消费者已先行反馈汇总出的消费态。</p>
+     *
+     * @return 实际更新条数
+     */
+    long markSentIfPending(Collection<String> eventIds, Instant sentAt);
+
+    /**
+     * 仅当仍为 PENDING 时置为 FAILED（MQ 发送抛异常）。
+     *
+     * @return 实际更新条数
+     */
+    long markFailedIfPending(Collection<String> eventIds, Instant at);
+
+    /**
+     * broker nack 或消息被退回：仍为 PENDING（首次发送）或 RETRYING（重推）时置为 FAILED。
+     *
+     * @return 实际更新条数
+     */
+    long markFailedIfUnconfirmed(Collection<String> eventIds, Instant at);
+
+    /**
+     * outbox 待投递批次：指定分区内 status=PENDING 且从未投递或上次投递早于 {@code dispatchedBefore}，按 createdAt 升序。
+     */
+    List<EventDocument> findOutboxBatch(Collection<Integer> partitions, Instant dispatchedBefore, int limit);
+
+    /**
+     * relay 投递前登记 lastSentAt（仍为 PENDING 时），在 {@code resend-after} 内不会被再次取出。
+     *
+     * @return 实际更新条数
+     */
+    long markDispatched(Collection<String> eventIds, Instant at);
+
+    /**
+     * 消费汇总批量回写：eventId → status，一次无序 bulk write。
+     *
+     * @return 匹配到的事件数（小于入参大小说明部分事件不存在）
+     */
+    int applyRollupStatuses(Map<String, String> statusByEventId, Instant at);
+
+    /**
+     * 增量汇总：仅当 consumerId 当前结果为 {@code from} 时改为 {@code to}，同步调整计数并按计数推导 status，
+     * 一次条件 findAndModify 完成，不读取消费记录。
+     *
+     * @return 更新后的 status；当前结果不是 {@code from} 或文档未初始化计数时为 null
+     */
+    String applyConsumerOutcome(String eventId, String consumerId, String from, String to, Instant at);
+
+    /**
+     * consumerId 当前结果是否已为 {@code outcome}（区分重复反馈与未初始化计数的旧文档）。
+     */
+    boolean hasConsumerOutcome(String eventId, String consumerId, String outcome);
+
+    /**
+     * 重推后登记：retryCount+1，写 lastSentAt、status=SENT、statusAt、updatedAt；只更新这些字段，不覆盖消费计数。
+     *
+     * @return 是否匹配到事件
+     */
+    boolean markRetried(String eventId, Instant at);
+
+    /**
+     * 批量重推后登记：与 {@link #markRetried} 相同的字段更新，一次 updateMulti。
+     *
+     * @return 实际匹配条数
+     */
+    long markRetriedAll(Collection<String> eventIds, Instant at);
+}
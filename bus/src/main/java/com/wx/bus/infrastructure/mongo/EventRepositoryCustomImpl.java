@@ -0,0 +1,195 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.wx.bus.domain.ConsumerOutcome;
+import com.wx.bus.domain.EventStatus;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link EventRepositoryCustom} 实现：按 _id $in 一次 updateMulti；增量汇总用 pipeline update 在一次 findAndModify 内完成。
+ */
+class EventRepositoryCustomImpl implements EventRepositoryCustom {
+
+    /** 消费结果 → 对应计数字段 */
+    private static final Map<String, String> COUNT_FIELDS = Map.of(
+        ConsumerOutcome.PENDING.name(), "pendingCount",
+        ConsumerOutcome.SUCCESS.name(), "successCount",
+        ConsumerOutcome.FAILED.name(), "failedCount"
+    );
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    EventRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Integer> insertAbsent(List<EventDocument> docs) {
+        if (docs == null || docs.isEmpty()) return List.of();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventDocument.class).insert(docs).execute();
+            return List.of();
+        } catch (BulkOperationException e) {
+            List<Integer> duplicates = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) throw e;
+                duplicates.add(error.getIndex());
+            }
+            Collections.sort(duplicates);
+            return duplicates;
+        }
+    }
+
+    @Override
+    public long markSentIfPending(Collection<String> eventIds, Instant sentAt) {
+        if (eventIds == null || eventIds.isEmpty()) return 0;
+        Query query = byIds(eventIds).addCriteria(Criteria.where("status").is(EventStatus.PENDING.name()));
+        return mongoTemplate.updateMulti(query, sentUpdate(sentAt), EventDocument.class).getModifiedCount();
+    }
+
+    @Override
+    public long markFailedIfPending(Collection<String> eventIds, Instant at) {
+        if (eventIds == null || eventIds.isEmpty()) return 0;
+        Query query = byIds(eventIds).addCriteria(Criteria.where("status").is(EventStatus.PENDING.name()));
+        return mongoTemplate.updateMulti(query, failedUpdate(at), EventDocument.class).getModifiedCount();
+    }
+
+    @Override
+    public long markFailedIfUnconfirmed(Collection<String> eventIds, Instant at) {
+        if (eventIds == null || eventIds.isEmpty()) return 0;
+        Query query = byIds(eventIds).addCriteria(
+            Criteria.where("status").in(EventStatus.PENDING.name(), EventStatus.RETRYING.name()));
+        return mongoTemplate.updateMulti(query, failedUpdate(at), EventDocument.class).getModifiedCount();
+    }
+
+    @Override
+    public List<EventDocument> findOutboxBatch(Collection<Integer> partitions, Instant dispatchedBefore, int limit) {
+        if (partitions == null || partitions.isEmpty()) return List.of();
+        Query query = Query.query(Criteria.where("status").is(EventStatus.PENDING.name())
+                .and("outboxPartition").in(partitions)
+                .orOperator(Criteria.where("lastSentAt").is(null), Criteria.where("lastSentAt").lt(dispatchedBefore)))
+            .with(Sort.by(Sort.Direction.ASC, "createdAt"))
+            .limit(limit);
+        return mongoTemplate.find(query, EventDocument.class);
+    }
+
+    @Override
+    public long markDispatched(Collection<String> eventIds, Instant at) {
+        if (eventIds == null || eventIds.isEmpty()) return 0;
+        Query query = byIds(eventIds).addCriteria(Criteria.where("status").is(EventStatus.PENDING.name()));
+        Update update = new Update().set("lastSentAt", at).set("updatedAt", Instant.now());
+        return mongoTemplate.updateMulti(query, update, EventDocument.class).getModifiedCount();
+    }
+
+    @Override
+    public int applyRollupStatuses(Map<String, String> statusByEventId, Instant at) {
+        if (statusByEventId == null || statusByEventId.isEmpty()) return 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventDocument.class);
+        statusByEventId.forEach((eventId, status) -> bulk.updateOne(
+            Query.query(Criteria.where("_id").is(eventId)),
+            new Update().set("status", status).set("statusAt", at).set("updatedAt", Instant.now())
+        ));
+        return bulk.execute().getMatchedCount();
+    }
+
+    @Override
+    public String applyConsumerOutcome(String eventId, String consumerId, String from, String to, Instant at) {
+        String outcomeField = "consumerOutcomes." + consumerId;
+        Query query = Query.query(Criteria.where("_id").is(eventId)
+            .and(outcomeField).is(from)
+            .and(COUNT_FIELDS.get(from)).gt(0));
+        query.fields().include("status");
+
+        Document moveOutcome = new Document(outcomeField, to)
+            .append(COUNT_FIELDS.get(from), new Document("$add", List.of("$" + COUNT_FIELDS.get(from), -1)))
+            .append(COUNT_FIELDS.get(to), new Document("$add", List.of("$" + COUNT_FIELDS.get(to), 1)));
+        /* 与 ConsumptionRollupService#rollupStatus 规则一致：有待消费 → SENT；全失败 → FAILED；全成功 → CONSUMED；否则 PARTIAL */
+        Document deriveStatus = new Document("status", new Document("$switch", new Document("branches", List.of(
+                new Document("case", new Document("$gt", List.of("$pendingCount", 0))).append("then", EventStatus.SENT.name()),
+                new Document("case", new Document("$eq", List.of("$successCount", 0))).append("then", EventStatus.FAILED.name()),
+                new Document("case", new Document("$eq", List.of("$failedCount", 0))).append("then", EventStatus.CONSUMED.name())
+            )).append("default", EventStatus.PARTIAL.name())))
+            .append("statusAt", at)
+            .append("updatedAt", Instant.now());
+        List<AggregationOperation> pipeline = List.of(
+            context -> new Document("$set", moveOutcome),
+            context -> new Document("$set", deriveStatus)
+        );
+        AggregationUpdate update = AggregationUpdate.from(pipeline);
+
+        EventDocument updated = mongoTemplate.findAndModify(
+            query, update, FindAndModifyOptions.options().returnNew(true), EventDocument.class
+        );
+        return updated != null ? updated.getStatus() : null;
+    }
+
+    @Override
+    public boolean hasConsumerOutcome(String eventId, String consumerId, String outcome) {
+        return mongoTemplate.exists(
+            Query.query(Criteria.where("_id").is(eventId).and("consumerOutcomes." + consumerId).is(outcome)),
+            EventDocument.class
+        );
+    }
+
+    @Override
+    public boolean markRetried(String eventId, Instant at) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(eventId)), retriedUpdate(at), EventDocument.class)
+            .getMatchedCount() > 0;
+    }
+
+    @Override
+    public long markRetriedAll(Collection<String> eventIds, Instant at) {
+        if (eventIds == null || eventIds.isEmpty()) return 0;
+        return mongoTemplate.updateMulti(byIds(eventIds), retriedUpdate(at), EventDocument.class).getMatchedCount();
+    }
+
+    private static Query byIds(Collection<String> eventIds) {
+        return Query.query(Criteria.where("_id").in(eventIds));
+    }
+
+    private static Update retriedUpdate(Instant at) {
+        return new Update()
+            .inc("retryCount", 1)
+            .set("lastSentAt", at)
+            .set("status", EventStatus.SENT.name())
+            .set("statusAt", at)
+            .set("updatedAt", Instant.now());
+    }
+
+    /* statusAt/sentAt 等业务时间按调用方传入（可能是发布开始或原始发送时间）；updatedAt 一律取实际写入时间，
+       管理端统计按 updatedAt 水位增量扫描，回填的旧时间会落在水位之前而被漏掉 */
+    private static Update sentUpdate(Instant sentAt) {
+        return new Update()
+            .set("status", EventStatus.SENT.name())
+            .set("statusAt", sentAt)
+            .set("sentAt", sentAt)
+            .set("lastSentAt", sentAt)
+            .set("updatedAt", Instant.now());
+    }
+
+    private static Update failedUpdate(Instant at) {
+        return new Update()
+            .set("status", EventStatus.FAILED.name())
+            .set("statusAt", at)
+            .set("updatedAt", Instant.now());
+    }
+}
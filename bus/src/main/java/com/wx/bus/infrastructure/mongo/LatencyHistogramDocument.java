@@ -0,0 +1,53 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * latency_histograms 集合文档：一个节点在一个上报周期内某 (阶段, topic, consumerId) 的延迟直方图（HdrHistogram 压缩编码，单位微秒）。
+ * <p>由 {@link com.wx.bus.application.LatencyHistograms} 按周期追加写入，管理端按时间窗口合并后计算分位数；expireAt 到期后由 TTL 索引清理。</p>
+ */
+@Document(collection = "latency_histograms")
+@CompoundIndex(name = "windowEnd", def = "{'windowEnd': 1}")
+public class LatencyHistogramDocument {
+
+    @Id
+    private String id;
+    private String nodeId;
+    /** 阶段：occurred_sent / sent_consumed / consumed_rolled_up */
+    private String stage;
+    private String topic;
+    private String consumerId;
+    private Instant windowStart;
+    private Instant windowEnd;
+    private long count;
+    /** HdrHistogram 压缩编码 */
+    private byte[] histogram;
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expireAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+    public String getConsumerId() { return consumerId; }
+    public void setConsumerId(String consumerId) { this.consumerId = consumerId; }
+    public Instant getWindowStart() { return windowStart; }
+    public void setWindowStart(Instant windowStart) { this.windowStart = windowStart; }
+    public Instant getWindowEnd() { return windowEnd; }
+    public void setWindowEnd(Instant windowEnd) { this.windowEnd = windowEnd; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    public byte[] getHistogram() { return histogram; }
+    public void setHistogram(byte[] histogram) { this.histogram = histogram; }
+    public Instant getExpireAt() { return expireAt; }
+    public void setExpireAt(Instant expireAt) { this.expireAt = expireAt; }
+}
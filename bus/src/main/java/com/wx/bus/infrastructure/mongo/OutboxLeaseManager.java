@@ -0,0 +1,18 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * outbox 分区租约：租约存 outbox_leases，成员心跳存 outbox_nodes，供 {@code OutboxRelay} 多节点均分 outbox 分区。
+ */
+@Component
+public class OutboxLeaseManager extends PartitionLeaseManager {
+
+    public static final String LEASE_COLLECTION = "outbox_leases";
+    public static final String NODE_COLLECTION = "outbox_nodes";
+
+    public OutboxLeaseManager(MongoTemplate mongoTemplate) {
+        super(mongoTemplate, LEASE_COLLECTION, NODE_COLLECTION);
+    }
+}
@@ -0,0 +1,27 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * 分区租约文档：一个分区一条，记录当前持有节点与租约到期时间。
+ * <p>默认集合为 outbox_leases；其他租约组（如 rollup_leases）沿用同一结构，由 {@link PartitionLeaseManager} 显式指定集合读写。</p>
+ */
+@Document(collection = "outbox_leases")
+public class PartitionLeaseDocument {
+
+    /** 分区号 */
+    @Id
+    private Integer partition;
+    private String owner;
+    private Instant expiresAt;
+
+    public Integer getPartition() { return partition; }
+    public void setPartition(Integer partition) { this.partition = partition; }
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
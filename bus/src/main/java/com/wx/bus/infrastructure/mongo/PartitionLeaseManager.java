@@ -0,0 +1,133 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 分区租约：各节点按存活节点数均分分区，过期租约可被其他节点接管。
+ * <p>一组租约对应一对集合：租约集合（{@link PartitionLeaseDocument}，一个分区一条）与成员集合（{@link PartitionNodeDocument}）。
+ * 存活节点以成员心跳为准（每次续约时刷新），不持有任何分区的新节点也计入，已持有分区的节点据此让出多余分区，新节点在下一轮抢到。</p>
+ * <p>抢占依赖 _id 唯一：条件不满足时 upsert 触发重复键，视为未抢到。续约按分区逐个以 owner 为条件更新，未命中的分区视为已被接管。</p>
+ * <p>现有租约组：{@link OutboxLeaseManager}（outbox 分区）、{@link RollupLeaseManager}（汇总分片）。</p>
+ */
+public class PartitionLeaseManager {
+
+    private final MongoTemplate mongoTemplate;
+    private final String leaseCollection;
+    private final String nodeCollection;
+
+    protected PartitionLeaseManager(MongoTemplate mongoTemplate, String leaseCollection, String nodeCollection) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseCollection = leaseCollection;
+        this.nodeCollection = nodeCollection;
+    }
+
+    /** 成员心跳集合名，用于确保其 TTL 索引 */
+    public String nodeCollection() {
+        return nodeCollection;
+    }
+
+    /**
+     * 续约本节点持有的分区，按 ceil(分区数 / 存活节点数) 释放多余或抢占空闲分区，返回续约后本节点持有的分区。
+     */
+    public List<Integer> rebalance(String owner, int partitions, Duration leaseTtl) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(leaseTtl);
+        mongoTemplate.upsert(
+            Query.query(Criteria.where("_id").is(owner)),
+            new Update().set("expiresAt", expiresAt),
+            PartitionNodeDocument.class,
+            nodeCollection
+        );
+        List<PartitionLeaseDocument> leases = mongoTemplate.findAll(PartitionLeaseDocument.class, leaseCollection);
+
+        Set<String> liveOwners = new HashSet<>();
+        liveOwners.add(owner);
+        for (PartitionNodeDocument node : mongoTemplate.find(
+            Query.query(Criteria.where("expiresAt").gt(now)), PartitionNodeDocument.class, nodeCollection)) {
+            liveOwners.add(node.getNodeId());
+        }
+        List<Integer> owned = new ArrayList<>();
+        Set<Integer> taken = new HashSet<>();
+        for (PartitionLeaseDocument lease : leases) {
+            if (lease.getExpiresAt() == null || !lease.getExpiresAt().isAfter(now)) continue;
+            liveOwners.add(lease.getOwner());
+            taken.add(lease.getPartition());
+            if (owner.equals(lease.getOwner()) && lease.getPartition() < partitions) {
+                owned.add(lease.getPartition());
+            }
+        }
+        int target = (partitions + liveOwners.size() - 1) / liveOwners.size();
+
+        while (owned.size() > target) {
+            Integer released = owned.remove(owned.size() - 1);
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(released).and("owner").is(owner)),
+                new Update().set("expiresAt", now),
+                PartitionLeaseDocument.class,
+                leaseCollection
+            );
+        }
+        // 逐个条件续约：读取租约后被其他节点接管的分区不再计入，避免两个节点同时处理同一分区
+        owned.removeIf(p -> mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(p).and("owner").is(owner)),
+            new Update().set("expiresAt", expiresAt),
+            PartitionLeaseDocument.class,
+            leaseCollection
+        ).getMatchedCount() == 0);
+        for (int p = 0; p < partitions && owned.size() < target; p++) {
+            if (taken.contains(p)) continue;
+            if (tryAcquire(p, owner, now, expiresAt)) {
+                owned.add(p);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * 租约集合中出现过的全部分区号，升序。租约文档不删除，分区数调小后仍能据此找到旧分区号。
+     */
+    public List<Integer> knownPartitions() {
+        Query query = new Query();
+        query.fields().include("_id");
+        return mongoTemplate.find(query, PartitionLeaseDocument.class, leaseCollection).stream()
+            .map(PartitionLeaseDocument::getPartition)
+            .sorted()
+            .toList();
+    }
+
+    /**
+     * 节点正常退出：删除成员心跳并立即释放其持有的分区，其余节点下一轮即可接管。
+     */
+    public void leave(String owner) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(owner)), PartitionNodeDocument.class, nodeCollection);
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("owner").is(owner)),
+            new Update().set("expiresAt", Instant.now()),
+            PartitionLeaseDocument.class,
+            leaseCollection
+        );
+    }
+
+    private boolean tryAcquire(int partition, String owner, Instant now, Instant expiresAt) {
+        Query free = Query.query(Criteria.where("_id").is(partition).and("expiresAt").lte(now));
+        Update claim = new Update().set("owner", owner).set("expiresAt", expiresAt);
+        try {
+            mongoTemplate.findAndModify(free, claim, FindAndModifyOptions.options().upsert(true).returnNew(true), PartitionLeaseDocument.class, leaseCollection);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * 租约成员文档：一个节点一条成员心跳，{@link PartitionLeaseManager} 每次续约时刷新 expiresAt。
+ * <p>默认集合为 outbox_nodes，其他租约组（如 rollup_nodes）沿用同一结构。expiresAt 之后视为节点已离开；
+ * 记录本身过期一小时后由 TTL 索引清理（各成员集合的 TTL 索引由 {@link BusIndexManager} 确保）。</p>
+ */
+@Document(collection = "outbox_nodes")
+public class PartitionNodeDocument {
+
+    /** 节点 id */
+    @Id
+    private String nodeId;
+    @Indexed(expireAfterSeconds = 3600)
+    private Instant expiresAt;
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
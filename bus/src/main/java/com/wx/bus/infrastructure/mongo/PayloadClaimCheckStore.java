@@ -0,0 +1,121 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * claim-check 载荷的外部存储：大载荷写入 GridFS（默认 bucket fs），events 与 MQ 消息只携带返回的引用 ID。
+ * <p>文件名为 eventId，metadata 记录 eventId、原始 payloadType 与 expireAt，便于按事件排查与清理。
+ * GridFS 的 chunks 不能用 TTL 索引清理，过期与孤儿文件由 {@link com.wx.bus.application.PayloadClaimCheckCleaner}
+ * 经 {@link #deleteExpired} / {@link #delete} 连同 chunks 一起删除。</p>
+ */
+@Component
+public class PayloadClaimCheckStore {
+
+    static final String EVENT_ID_KEY = "metadata.eventId";
+    static final String EXPIRE_AT_KEY = "metadata.expireAt";
+
+    private final GridFsTemplate gridFsTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final String filesCollection;
+
+    public PayloadClaimCheckStore(
+        GridFsTemplate gridFsTemplate,
+        MongoTemplate mongoTemplate,
+        @Value("${spring.data.mongodb.gridfs.bucket:fs}") String bucket
+    ) {
+        this.gridFsTemplate = gridFsTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.filesCollection = bucket + ".files";
+    }
+
+    /**
+     * 写入一份载荷，返回引用 ID（GridFS 文件 ObjectId 的十六进制串）。
+     *
+     * @param expireAt 到期时间，到期后由清理任务删除
+     */
+    public String store(String eventId, byte[] bytes, String payloadType, Instant expireAt) {
+        Document metadata = new Document("eventId", eventId)
+            .append("payloadType", payloadType)
+            .append("expireAt", Date.from(expireAt));
+        ObjectId id = gridFsTemplate.store(new ByteArrayInputStream(bytes), eventId, payloadType, metadata);
+        return id.toHexString();
+    }
+
+    /**
+     * 按引用读取载荷字节；引用不存在时返回 null。
+     */
+    public byte[] load(String ref) {
+        GridFSFile file = gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(ref))));
+        if (file == null) return null;
+        GridFsResource resource = gridFsTemplate.getResource(file);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read claim-check payload ref=" + ref, e);
+        }
+    }
+
+    /** 清理查询所需索引：metadata.expireAt（过期删除）、uploadDate（孤儿扫描按上传时间分页） */
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(filesCollection).ensureIndex(new Index().on(EXPIRE_AT_KEY, Sort.Direction.ASC).named("metadata_expireAt"));
+        mongoTemplate.indexOps(filesCollection).ensureIndex(new Index().on("uploadDate", Sort.Direction.ASC).named("uploadDate"));
+    }
+
+    /** 删除 metadata.expireAt 早于 now 的文件及其 chunks */
+    public void deleteExpired(Instant now) {
+        gridFsTemplate.delete(Query.query(Criteria.where(EXPIRE_AT_KEY).lt(Date.from(now))));
+    }
+
+    /**
+     * 按上传时间升序取 [from, to) 内上传的文件，最多 limit 个，供孤儿扫描按 metadata.eventId 回查 events。
+     */
+    public List<StoredPayload> findUploadedBetween(Instant from, Instant to, int limit) {
+        Query query = Query.query(Criteria.where("uploadDate").gte(Date.from(from)).lt(Date.from(to)))
+            .with(Sort.by(Sort.Direction.ASC, "uploadDate"))
+            .limit(limit);
+        List<StoredPayload> result = new ArrayList<>(limit);
+        for (GridFSFile file : gridFsTemplate.find(query)) {
+            Document metadata = file.getMetadata();
+            String eventId = metadata != null ? metadata.getString("eventId") : null;
+            result.add(new StoredPayload(file.getObjectId().toHexString(), eventId, file.getUploadDate().toInstant()));
+        }
+        return result;
+    }
+
+    /** 按引用删除文件及其 chunks */
+    public void delete(Collection<String> refs) {
+        if (refs.isEmpty()) return;
+        List<ObjectId> ids = refs.stream().map(ObjectId::new).toList();
+        gridFsTemplate.delete(Query.query(Criteria.where("_id").in(ids)));
+    }
+
+    /**
+     * 已存储的载荷文件摘要。
+     *
+     * @param ref        引用 ID
+     * @param eventId    metadata.eventId，旧文件可能为 null
+     * @param uploadedAt 上传时间
+     */
+    public record StoredPayload(String ref, String eventId, Instant uploadedAt) {}
+}
@@ -0,0 +1,18 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 汇总分片租约：租约存 rollup_leases，成员心跳存 rollup_nodes，供 {@code RollupShardCoordinator} 多节点均分汇总分片。
+ */
+@Component
+public class RollupLeaseManager extends PartitionLeaseManager {
+
+    public static final String LEASE_COLLECTION = "rollup_leases";
+    public static final String NODE_COLLECTION = "rollup_nodes";
+
+    public RollupLeaseManager(MongoTemplate mongoTemplate) {
+        super(mongoTemplate, LEASE_COLLECTION, NODE_COLLECTION);
+    }
+}
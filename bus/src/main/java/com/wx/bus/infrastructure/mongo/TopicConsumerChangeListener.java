@@ -0,0 +1,30 @@
+package com.wx.bus.infrastructure.mongo;
+
+import com.wx.bus.application.TopicRoutingTable;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * topic_consumers 写入后立即失效内存路由表：覆盖管理端 TopicConsumerController 的增删改及进程内其他写入。
+ */
+@Component
+public class TopicConsumerChangeListener extends AbstractMongoEventListener<TopicConsumerDocument> {
+
+    private final TopicRoutingTable topicRoutingTable;
+
+    public TopicConsumerChangeListener(TopicRoutingTable topicRoutingTable) {
+        this.topicRoutingTable = topicRoutingTable;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<TopicConsumerDocument> event) {
+        topicRoutingTable.invalidate();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<TopicConsumerDocument> event) {
+        topicRoutingTable.invalidate();
+    }
+}
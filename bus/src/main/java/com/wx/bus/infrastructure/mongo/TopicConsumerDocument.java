@@ -2,6 +2,7 @@ package com.wx.bus.infrastructure.mongo;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -11,7 +12,11 @@ import java.time.Instant;
  * <p>维护 topic 与消费者的关联，支持动态配置；仅 enabled=true 的配置参与发送校验与 event_consumptions 初始化。</p>
  */
 @Document(collection = "topic_consumers")
-@CompoundIndex(name = "topic_consumerId", def = "{'topic': 1, 'consumerId': 1}", unique = true)
+@CompoundIndexes({
+    @CompoundIndex(name = "topic_consumerId", def = "{'topic': 1, 'consumerId': 1}", unique = true),
+    // findByEnabledTrue（消费者路由缓存全量加载）
+    @CompoundIndex(name = "enabled_topic", def = "{'enabled': 1, 'topic': 1}")
+})
 public class TopicConsumerDocument {
 
     @Id
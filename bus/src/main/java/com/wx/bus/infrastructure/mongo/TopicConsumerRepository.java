@@ -16,6 +16,11 @@ public interface TopicConsumerRepository extends MongoRepository<TopicConsumerDo
      */
     List<TopicConsumerDocument> findByTopicAndEnabledTrue(String topic);
 
+    /**
+     * 所有启用中的消费者配置，用于加载内存路由表 {@link com.wx.bus.application.TopicRoutingTable}。
+     */
+    List<TopicConsumerDocument> findByEnabledTrue();
+
     /**
      * 按 topic 查询并排序（管理端列表）。
      */
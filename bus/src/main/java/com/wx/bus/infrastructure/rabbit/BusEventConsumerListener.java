@@ -1,72 +1,231 @@
 package com.wx.bus.infrastructure.rabbit;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wx.bus.application.PayloadClaimCheck;
 import com.wx.bus.application.port.BusEventConsumer;
 import com.wx.bus.application.port.ConsumptionFeedbackPort;
 import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.codec.PayloadCodecs;
+import com.wx.bus.infrastructure.codec.PayloadCompressor;
+import com.wx.bus.infrastructure.codec.PayloadCompressors;
+import com.wx.bus.support.BusMetrics;
 import com.wx.bus.support.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.BatchMessageListener;
 import org.springframework.amqp.core.Message;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * 业务事件消费者监听器：从消费者队列拉取消息，反序列化为 {@link EventEnvelope}，调用 {@link BusEventConsumer}，并根据结果上报消费反馈。
+ * 业务事件消费者监听器：从消费者队列拉取消息，按 content-type 选择 {@link com.wx.bus.infrastructure.codec.PayloadCodec} 直接从字节解码为 {@link EventEnvelope}（带 content-encoding 时先解压），调用 {@link BusEventConsumer}，并根据结果上报消费反馈。
+ * <p>claim-check 引用载荷在调用消费者前经 {@link PayloadClaimCheck} 加载（本地 LRU 缓存），加载失败记为该事件消费失败。</p>
+ * <p>解码、消费者处理、反馈上报各阶段耗时，消费结果与发布→消费延迟经 {@link BusMetrics} 按 topic、consumerId 记录。</p>
  * <p>仅在配置了 bus.consumer.consumer-id 且存在 {@link BusEventConsumer} Bean 时生效。</p>
+ * <p>{@code bus.consumer.batch-enabled=true} 时按投递批次调用 {@link BusEventConsumer#onEvents}，每批反馈一次批量写入；
+ * 批内单条失败只记为该条消费失败，整批照常 ack，失败事件经管理端重推。</p>
+ * <p>消息体无法解码时按消息属性中的 eventId（messageId）记失败反馈；单条消费时该消息不重回队列，批量消费时跳过该条继续处理其余消息。</p>
  */
 @Component
 @ConditionalOnBean(BusEventConsumer.class)
 @ConditionalOnProperty(prefix = "bus.consumer", name = "consumer-id")
-public class BusEventConsumerListener {
+public class BusEventConsumerListener implements RabbitListenerConfigurer {
 
     private static final Logger log = LoggerFactory.getLogger(BusEventConsumerListener.class);
 
     private final BusEventConsumer busEventConsumer;
     private final ConsumptionFeedbackPort consumptionFeedback;
-    private final ObjectMapper objectMapper;
+    private final PayloadCodecs payloadCodecs;
+    private final PayloadCompressors payloadCompressors;
+    /** 为 null 时不解析 claim-check 引用 */
+    private final PayloadClaimCheck payloadClaimCheck;
+    private final BusMetrics busMetrics;
     private final String consumerId;
+    private final boolean batchEnabled;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
 
     public BusEventConsumerListener(
         BusEventConsumer busEventConsumer,
         ConsumptionFeedbackPort consumptionFeedback,
-        ObjectMapper objectMapper,
-        @Value("${bus.consumer.consumer-id}") String consumerId
+        PayloadCodecs payloadCodecs,
+        PayloadCompressors payloadCompressors,
+        PayloadClaimCheck payloadClaimCheck,
+        BusMetrics busMetrics,
+        @Value("${bus.consumer.consumer-id}") String consumerId,
+        @Value("${bus.consumer.batch-enabled:false}") boolean batchEnabled,
+        @Qualifier("busConsumerContainerFactory") SimpleRabbitListenerContainerFactory containerFactory
     ) {
         this.busEventConsumer = busEventConsumer;
         this.consumptionFeedback = consumptionFeedback;
-        this.objectMapper = objectMapper;
+        this.payloadCodecs = payloadCodecs;
+        this.payloadCompressors = payloadCompressors;
+        this.payloadClaimCheck = payloadClaimCheck;
+        this.busMetrics = busMetrics;
         this.consumerId = consumerId;
+        this.batchEnabled = batchEnabled;
+        this.containerFactory = containerFactory;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("bus-consumer-" + consumerId);
+        endpoint.setQueueNames(ConsumerBindingConfig.queueName(consumerId));
+        endpoint.setMessageListener(batchEnabled
+            ? (BatchMessageListener) this::onMessages
+            : (MessageListener) this::onMessage);
+        registrar.registerEndpoint(endpoint, containerFactory);
     }
 
-    @RabbitListener(queues = "#{busConsumerQueue.name}")
     public void onMessage(Message message) {
-        String body = new String(message.getBody(), StandardCharsets.UTF_8);
         EventEnvelope envelope;
         try {
-            envelope = objectMapper.readValue(body, EventEnvelope.class);
-        } catch (Exception e) {
-            log.error("Failed to deserialize event body consumerId={} userId={}", consumerId, LogContext.getUserId(), e);
-            throw new RuntimeException("Event deserialization failed", e);
+            envelope = deserialize(message);
+        } catch (MessageConversionException e) {
+            ConsumptionFeedbackPort.Feedback feedback = undecodable(message, e, Instant.now());
+            if (feedback != null) {
+                consumptionFeedback.recordFeedback(feedback);
+            }
+            // 转换异常由容器按致命错误处理：不重回队列（队列配置了死信交换机时进入死信队列）
+            throw e;
         }
         String eventId = envelope.eventId();
+        String topic = envelope.topic();
         Instant consumedAt = Instant.now();
+        busMetrics.consumeLatency(topic, consumerId, envelope.occurredAt(), envelope.sentAt(), consumedAt);
+        long start = System.nanoTime();
         try {
-            busEventConsumer.onEvent(envelope);
-            consumptionFeedback.recordFeedback(eventId, consumerId, true, consumedAt, null, null);
+            busEventConsumer.onEvent(resolve(envelope));
+            busMetrics.consumeStage("handler", topic, consumerId, start);
+            busMetrics.consumeResult(topic, consumerId, true);
+            start = System.nanoTime();
+            consumptionFeedback.recordFeedback(new ConsumptionFeedbackPort.Feedback(eventId, topic, consumerId, true, consumedAt, null, null));
+            busMetrics.consumeStage("feedback", topic, consumerId, start);
         } catch (Exception e) {
             log.warn("Consumer failed eventId={} consumerId={} userId={}", eventId, consumerId, LogContext.getUserId(), e);
-            consumptionFeedback.recordFeedback(
-                eventId, consumerId, false, consumedAt,
+            busMetrics.consumeStage("handler", topic, consumerId, start);
+            busMetrics.consumeResult(topic, consumerId, false);
+            start = System.nanoTime();
+            consumptionFeedback.recordFeedback(new ConsumptionFeedbackPort.Feedback(
+                eventId, topic, consumerId, false, consumedAt,
                 e.getMessage(), e.getClass().getSimpleName()
-            );
+            ));
+            busMetrics.consumeStage("feedback", topic, consumerId, start);
             throw e;
         }
     }
+
+    /**
+     * 批量消费一个投递批次：整批调用 {@link BusEventConsumer#onEvents}，失败时对每条（含已处理的）调用 {@link BusEventConsumer#onEvent} 区分结果，
+     * 最后一次性上报整批反馈。回退中失败的事件只记失败反馈、不向容器抛出，整批 ack 不重回队列（消费者幂等要求见 {@link BusEventConsumer#onEvents}）。
+     */
+    public void onMessages(List<Message> messages) {
+        Instant consumedAt = Instant.now();
+        List<EventEnvelope> envelopes = new ArrayList<>(messages.size());
+        List<ConsumptionFeedbackPort.Feedback> feedbacks = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                envelopes.add(deserialize(message));
+            } catch (MessageConversionException e) {
+                // 单条无法解码不拖累整批：能定位 eventId 的记失败反馈，其余记日志后丢弃，继续处理其它消息
+                ConsumptionFeedbackPort.Feedback feedback = undecodable(message, e, consumedAt);
+                if (feedback != null) {
+                    feedbacks.add(feedback);
+                }
+            }
+        }
+        for (EventEnvelope envelope : envelopes) {
+            busMetrics.consumeLatency(envelope.topic(), consumerId, envelope.occurredAt(), envelope.sentAt(), consumedAt);
+        }
+        String batchTopic = envelopes.isEmpty() ? null : BusMetrics.batchTopic(envelopes);
+        if (envelopes.isEmpty()) {
+            if (!feedbacks.isEmpty()) {
+                consumptionFeedback.recordFeedbacks(feedbacks);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            busEventConsumer.onEvents(envelopes.stream().map(this::resolve).toList());
+            busMetrics.consumeStage("handler", batchTopic, consumerId, start);
+            for (EventEnvelope envelope : envelopes) {
+                feedbacks.add(new ConsumptionFeedbackPort.Feedback(envelope.eventId(), envelope.topic(), consumerId, true, consumedAt, null, null));
+                busMetrics.consumeResult(envelope.topic(), consumerId, true);
+            }
+        } catch (Exception batchError) {
+            // 逐条回退：onEvents 可能已处理过部分事件，依赖消费者幂等；单条失败只记反馈，不重回队列
+            log.warn("Batch consume failed, falling back to per-event size={} consumerId={} userId={}", envelopes.size(), consumerId, LogContext.getUserId(), batchError);
+            for (EventEnvelope envelope : envelopes) {
+                Instant at = Instant.now();
+                long eventStart = System.nanoTime();
+                try {
+                    busEventConsumer.onEvent(resolve(envelope));
+                    feedbacks.add(new ConsumptionFeedbackPort.Feedback(envelope.eventId(), envelope.topic(), consumerId, true, at, null, null));
+                    busMetrics.consumeResult(envelope.topic(), consumerId, true);
+                } catch (Exception e) {
+                    log.warn("Consumer failed eventId={} consumerId={} userId={}", envelope.eventId(), consumerId, LogContext.getUserId(), e);
+                    feedbacks.add(new ConsumptionFeedbackPort.Feedback(
+                        envelope.eventId(), envelope.topic(), consumerId, false, at, e.getMessage(), e.getClass().getSimpleName()
+                    ));
+                    busMetrics.consumeResult(envelope.topic(), consumerId, false);
+                }
+                busMetrics.consumeStage("handler", envelope.topic(), consumerId, eventStart);
+            }
+        }
+        start = System.nanoTime();
+        consumptionFeedback.recordFeedbacks(feedbacks);
+        busMetrics.consumeStage("feedback", batchTopic, consumerId, start);
+    }
+
+    private EventEnvelope resolve(EventEnvelope envelope) {
+        return payloadClaimCheck != null ? payloadClaimCheck.resolve(envelope) : envelope;
+    }
+
+    private EventEnvelope deserialize(Message message) {
+        MessageProperties props = message.getMessageProperties();
+        long start = System.nanoTime();
+        try {
+            byte[] body = message.getBody();
+            PayloadCompressor compressor = payloadCompressors.forEncoding(props.getContentEncoding());
+            if (compressor != null) {
+                body = compressor.decompress(body);
+            }
+            EventEnvelope envelope = payloadCodecs.forContentType(props.getContentType()).decode(body);
+            busMetrics.consumeStage("deserialize", envelope.topic(), consumerId, start);
+            return envelope;
+        } catch (Exception e) {
+            log.error("Failed to deserialize event body eventId={} consumerId={} userId={}", props.getMessageId(), consumerId, LogContext.getUserId(), e);
+            throw new MessageConversionException("Event deserialization failed", e);
+        }
+    }
+
+    /**
+     * 无法解码的消息：消息属性带 eventId（messageId）时返回一条失败反馈，管理端可见并可重推；否则只记日志，返回 null。
+     */
+    private ConsumptionFeedbackPort.Feedback undecodable(Message message, MessageConversionException e, Instant at) {
+        MessageProperties props = message.getMessageProperties();
+        busMetrics.consumeResult(props.getType(), consumerId, false);
+        if (props.getMessageId() == null) {
+            log.error("Discarding undecodable message without eventId consumerId={} contentType={} contentEncoding={} size={} userId={}",
+                consumerId, props.getContentType(), props.getContentEncoding(), message.getBody().length, LogContext.getUserId());
+            return null;
+        }
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new ConsumptionFeedbackPort.Feedback(
+            props.getMessageId(), props.getType(), consumerId, false, at, e.getMessage() + ": " + cause.getMessage(), cause.getClass().getSimpleName()
+        );
+    }
 }
@@ -6,19 +6,26 @@ import org.springframework.amqp.core.Declarable;
 import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 /**
  * 消费者队列与绑定：当配置了 bus.consumer.consumer-id 与 bus.consumer.topics 时，声明专用队列并绑定到业务事件交换机。
  * <p>队列名为 bus.consumer.{consumerId}，routing key 为各 topic。</p>
+ * <p>消费容器 {@code busConsumerContainerFactory}：prefetch、并发数取自 bus.consumer.*；
+ * {@code bus.consumer.batch-enabled=true} 时按批交付（攒满 batch-size 条或 batch-receive-timeout-ms 内无新消息）。</p>
  */
 @Configuration
 @ConditionalOnProperty(prefix = "bus.consumer", name = "consumer-id")
@@ -26,6 +33,11 @@ public class ConsumerBindingConfig {
 
     private static final String QUEUE_PREFIX = "bus.consumer.";
 
+    /** 消费者队列名 */
+    public static String queueName(String consumerId) {
+        return QUEUE_PREFIX + consumerId;
+    }
+
     private final TopicExchange eventsExchange;
     private final String topicsCsv;
 
@@ -41,7 +53,35 @@ public class ConsumerBindingConfig {
     Queue busConsumerQueue(
         @Value("${bus.consumer.consumer-id}") String consumerId
     ) {
-        return new Queue(QUEUE_PREFIX + consumerId, true, false, false);
+        return new Queue(queueName(consumerId), true, false, false);
+    }
+
+    /** 业务事件消费容器：未配置的项沿用 spring.rabbitmq.listener.simple.* */
+    @Bean
+    SimpleRabbitListenerContainerFactory busConsumerContainerFactory(
+        SimpleRabbitListenerContainerFactoryConfigurer configurer,
+        ConnectionFactory connectionFactory,
+        @Value("${bus.consumer.prefetch:250}") int prefetch,
+        @Value("${bus.consumer.concurrency:1}") int concurrency,
+        @Value("${bus.consumer.max-concurrency:1}") int maxConcurrency,
+        @Value("${bus.consumer.batch-enabled:false}") boolean batchEnabled,
+        @Value("${bus.consumer.batch-size:100}") int batchSize,
+        @Value("${bus.consumer.batch-receive-timeout-ms:100}") long batchReceiveTimeoutMillis,
+        @Qualifier("busListenerTaskExecutor") ObjectProvider<Executor> listenerTaskExecutor
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        listenerTaskExecutor.ifAvailable(factory::setTaskExecutor);
+        factory.setPrefetchCount(batchEnabled ? Math.max(prefetch, batchSize) : prefetch);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        if (batchEnabled) {
+            factory.setBatchListener(true);
+            factory.setConsumerBatchEnabled(true);
+            factory.setBatchSize(batchSize);
+            factory.setReceiveTimeout(batchReceiveTimeoutMillis);
+        }
+        return factory;
     }
 
     /**
@@ -0,0 +1,218 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * publisher confirm 异步跟踪：按 eventId 维护未确认的 {@link CorrelationData}，ack 后置 SENT、nack/退回后置 FAILED。
+ * <p>回执在 AMQP 连接线程上到达，这里只入队；由单独线程合并后批量回写 events，不阻塞 broker 回执。
+ * ack 只更新仍为 PENDING 的文档；nack/退回更新 PENDING 或 RETRYING（重推被拒同样记失败）。同一 eventId 在回执到达前被再次发送时，
+ * 旧发送的 nack 不再回写，以新发送的结果为准。</p>
+ * <p>回写失败时回执放回队列，按 {@value #MIN_RETRY_BACKOFF_MILLIS}ms 起指数退避（上限 {@value #MAX_RETRY_BACKOFF_MILLIS}ms）重试。
+ * 停止时先等待未确认消息最多 {@code bus.mq.confirm-shutdown-timeout-ms}，再在调用线程上同步回写剩余回执；
+ * 仍未确认的事件保持 PENDING（outbox 模式下由 relay 重发）。</p>
+ */
+@Component
+public class PublisherConfirmTracker implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PublisherConfirmTracker.class);
+
+    static final long MIN_RETRY_BACKOFF_MILLIS = 100;
+    static final long MAX_RETRY_BACKOFF_MILLIS = 5_000;
+
+    private final EventRepository eventRepository;
+    private final long shutdownTimeoutMillis;
+    private final Map<String, CorrelationData> outstanding = new ConcurrentHashMap<>();
+    /** 回执到达前已被同一 eventId 的新发送取代的登记 */
+    private final Set<CorrelationData> superseded = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    /** 只由 flush 所在线程访问 */
+    private long retryBackoffMillis;
+    private volatile ScheduledThreadPoolExecutor flusher;
+
+    public PublisherConfirmTracker(
+        EventRepository eventRepository,
+        ObjectProvider<MeterRegistry> meterRegistry,
+        @Value("${bus.mq.confirm-shutdown-timeout-ms:5000}") long shutdownTimeoutMillis
+    ) {
+        this.eventRepository = eventRepository;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("bus.publish.confirms.outstanding", outstanding, Map::size).register(registry);
+        Gauge.builder("bus.publish.confirms.unwritten", outcomes, ConcurrentLinkedQueue::size).register(registry);
+    }
+
+    /**
+     * 为一条待发送事件创建 CorrelationData 并登记；回执到达时自动出表并回写状态。
+     *
+     * @param sentAt 本次发送时间，ack 后写入 sentAt/lastSentAt
+     */
+    public CorrelationData track(String eventId, Instant sentAt) {
+        CorrelationData correlation = new CorrelationData(eventId);
+        CorrelationData previous = outstanding.put(eventId, correlation);
+        if (previous != null) {
+            superseded.add(previous);
+        }
+        correlation.getFuture().whenComplete((confirm, ex) -> {
+            outstanding.remove(eventId, correlation);
+            boolean stale = superseded.remove(correlation);
+            ReturnedMessage returned = correlation.getReturned();
+            if (ex == null && confirm != null && confirm.isAck() && returned == null) {
+                enqueue(new Outcome(eventId, true, sentAt));
+                return;
+            }
+            String reason = ex != null ? ex.getMessage()
+                : returned != null ? "returned: " + returned.getReplyText()
+                : confirm != null ? confirm.getReason() : null;
+            if (stale) {
+                log.warn("Publisher confirm negative for superseded send, ignored eventId={} reason={}", eventId, reason);
+                return;
+            }
+            log.warn("Publisher confirm negative eventId={} reason={}", eventId, reason);
+            enqueue(new Outcome(eventId, false, sentAt));
+        });
+        return correlation;
+    }
+
+    /** 发送本身抛异常时撤销登记（调用方负责置 FAILED） */
+    public void untrack(String eventId) {
+        CorrelationData correlation = outstanding.remove(eventId);
+        if (correlation != null) {
+            superseded.remove(correlation);
+        }
+    }
+
+    /** 尚未收到回执的消息数 */
+    public int outstandingCount() {
+        return outstanding.size();
+    }
+
+    @Override
+    public void start() {
+        ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "bus-confirm-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        // 停止时由 stop 同步回写，不再执行排队中的退避重试
+        s.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        flusher = s;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledThreadPoolExecutor s = flusher;
+        if (s == null) return;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        try {
+            while (!outstanding.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            flusher = null;
+            s.shutdown();
+            s.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushScheduled.set(false);
+        flush();
+        if (!outstanding.isEmpty()) {
+            log.warn("Publisher confirms still outstanding at shutdown, events stay PENDING count={}", outstanding.size());
+        }
+        if (!outcomes.isEmpty()) {
+            log.error("Publisher confirms not written back at shutdown, events stay PENDING count={}", outcomes.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    /** 早于 Rabbit 连接关闭、晚于 {@code AsyncPublishPipeline} 停止，保证排空时发出的消息回执能被回写 */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    private void enqueue(Outcome outcome) {
+        outcomes.add(outcome);
+        if (flushScheduled.compareAndSet(false, true)) {
+            ScheduledThreadPoolExecutor s = flusher;
+            if (s == null || s.isShutdown()) {
+                // 未启动或已停止：在回执线程上同步回写
+                flushScheduled.set(false);
+                flush();
+            } else {
+                s.execute(this::flush);
+            }
+        }
+    }
+
+    /** 取出全部回执合并回写；失败时整批放回队列并退避重试 */
+    void flush() {
+        flushScheduled.set(false);
+        List<Outcome> batch = new ArrayList<>();
+        Outcome o;
+        while ((o = outcomes.poll()) != null) {
+            batch.add(o);
+        }
+        if (batch.isEmpty()) return;
+        Map<Instant, List<String>> ackedBySentAt = new LinkedHashMap<>();
+        List<String> failed = new ArrayList<>();
+        for (Outcome outcome : batch) {
+            if (outcome.ack()) {
+                ackedBySentAt.computeIfAbsent(outcome.sentAt(), k -> new ArrayList<>()).add(outcome.eventId());
+            } else {
+                failed.add(outcome.eventId());
+            }
+        }
+        try {
+            // ack 与 nack 均为条件更新，重试时整批重放是幂等的
+            ackedBySentAt.forEach((sentAt, ids) -> eventRepository.markSentIfPending(ids, sentAt));
+            if (!failed.isEmpty()) {
+                eventRepository.markFailedIfUnconfirmed(failed, Instant.now());
+            }
+            retryBackoffMillis = 0;
+        } catch (Exception e) {
+            outcomes.addAll(batch);
+            retryBackoffMillis = retryBackoffMillis == 0
+                ? MIN_RETRY_BACKOFF_MILLIS : Math.min(retryBackoffMillis * 2, MAX_RETRY_BACKOFF_MILLIS);
+            log.error("Failed to write back publisher confirms, retry in {}ms count={}", retryBackoffMillis, batch.size(), e);
+            ScheduledThreadPoolExecutor s = flusher;
+            if (s != null && flushScheduled.compareAndSet(false, true)) {
+                try {
+                    s.schedule(this::flush, retryBackoffMillis, TimeUnit.MILLISECONDS);
+                } catch (RuntimeException rejected) {
+                    // 停止过程中被拒绝：由 stop 的同步回写兜底
+                    flushScheduled.set(false);
+                }
+            }
+        }
+    }
+
+    private record Outcome(String eventId, boolean ack, Instant sentAt) {}
+}
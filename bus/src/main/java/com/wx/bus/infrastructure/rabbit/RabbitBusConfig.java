@@ -1,17 +1,34 @@
 package com.wx.bus.infrastructure.rabbit;
 
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * RabbitMQ 声明：业务事件 topic 交换机、消费汇总专用队列。
  * <ul>
  *   <li>eventsExchange：业务事件发布到此，routing key = topic，各消费者自行绑定队列</li>
- *   <li>rollupQueue：消费汇总专用，单消费者串行消费 eventId 并回写 events.status</li>
+ *   <li>rollupQueue：消费汇总专用（分片 0），单消费者串行消费 eventId 并回写 events.status</li>
+ *   <li>汇总分片队列默认带 {@code x-single-active-consumer}（{@code bus.mq.rollup-single-active-consumer}）；队列参数不可修改，
+ *       已按旧参数声明的队列需先排空删除再由新版本重建，或关闭该开关</li>
+ *   <li>rollupShardQueues：{@code bus.mq.rollup-shards} &gt; 1 时的其余分片队列，见 {@link RollupShards}</li>
+ *   <li>rollupContainerFactory：汇总队列按批消费，攒满 {@code bus.mq.rollup-batch-size} 条或
+ *       {@code bus.mq.rollup-window-ms} 内无新消息即交付一批</li>
  * </ul>
  */
 @Configuration
@@ -24,6 +41,15 @@ public class RabbitBusConfig {
     @Value("${bus.mq.rollup-queue:bus.consumption-rollup}")
     private String rollupQueueName;
 
+    @Value("${bus.mq.rollup-single-active-consumer:true}")
+    private boolean rollupSingleActiveConsumer;
+
+    @Value("${bus.mq.rollup-batch-size:200}")
+    private int rollupBatchSize;
+
+    @Value("${bus.mq.rollup-window-ms:100}")
+    private long rollupWindowMillis;
+
     /** 业务事件 topic 交换机，持久化、非自动删除 */
     @Bean
     TopicExchange eventsExchange() {
@@ -33,6 +59,45 @@ public class RabbitBusConfig {
     /** 消费汇总专用队列，持久化，由 {@link RollupListener} 消费 */
     @Bean
     Queue rollupQueue() {
-        return new Queue(rollupQueueName, true, false, false);
+        return rollupShardQueue(rollupQueueName);
+    }
+
+    /** 汇总分片 1..N-1 的队列；分片数为 1 时为空 */
+    @Bean
+    Declarables rollupShardQueues(RollupShards rollupShards) {
+        List<Declarable> queues = new ArrayList<>();
+        for (int shard = 1; shard < rollupShards.shardCount(); shard++) {
+            queues.add(rollupShardQueue(rollupShards.queueName(shard)));
+        }
+        return new Declarables(queues);
+    }
+
+    /** 汇总分片队列：持久化；开启 single active consumer 时同一时刻只向一个消费者投递，其余消费者待命 */
+    private Queue rollupShardQueue(String name) {
+        QueueBuilder builder = QueueBuilder.durable(name);
+        if (rollupSingleActiveConsumer) {
+            builder.singleActiveConsumer();
+        }
+        return builder.build();
+    }
+
+    /** 汇总队列的批量容器：每个分片单消费者，保证同一事件的汇总串行；其余设置沿用 spring.rabbitmq.listener.simple.* */
+    @Bean
+    SimpleRabbitListenerContainerFactory rollupContainerFactory(
+        SimpleRabbitListenerContainerFactoryConfigurer configurer,
+        ConnectionFactory connectionFactory,
+        @Qualifier("busListenerTaskExecutor") ObjectProvider<Executor> listenerTaskExecutor
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        listenerTaskExecutor.ifAvailable(factory::setTaskExecutor);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(rollupBatchSize);
+        factory.setReceiveTimeout(rollupWindowMillis);
+        factory.setPrefetchCount(Math.max(rollupBatchSize, 250));
+        return factory;
     }
 }
@@ -1,19 +1,38 @@
 package com.wx.bus.infrastructure.rabbit;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wx.bus.application.port.EventPublisherPort;
 import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.codec.PayloadCodec;
+import com.wx.bus.infrastructure.codec.PayloadCodecs;
+import com.wx.bus.infrastructure.codec.PayloadCompressor;
+import com.wx.bus.infrastructure.codec.PayloadCompressors;
+import com.wx.bus.support.BusMetrics;
 import com.wx.bus.support.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 将事件信封发布到 RabbitMQ topic 交换机。
- * <p>routing key = envelope.topic()，消息体为 envelope 的 JSON 序列化。</p>
+ * <p>routing key = envelope.topic()，消息体为 envelope 按 topic 选定的 {@link PayloadCodec} 编码的字节，
+ * 消息头 content-type 标明编码，消费端据此解码（默认 JSON）。编码后超过 {@code bus.compression.threshold-bytes} 时按
+ * {@link PayloadCompressor} 压缩并写入 content-encoding。</p>
+ * <p>序列化（含压缩）与发送耗时经 {@link BusMetrics} 按 topic 记录为 serialize/send 阶段。</p>
+ * <p>批量发布时先全部序列化，再在同一 channel 上连续发送，避免每条消息各取一次 channel。</p>
+ * <p>定向重投（{@link #redeliver}）经默认交换机以队列名 {@code bus.consumer.{consumerId}} 为 routing key 直接投递，
+ * 同一条消息只序列化一次，按消费者逐个发送。</p>
+ * <p>{@code bus.mq.publisher-confirms=true} 时使用 correlated publisher confirm + returns：发送不等待回执，
+ * 由 {@link PublisherConfirmTracker} 在 ack/nack 到达后异步回写 SENT/FAILED。需同时配置
+ * {@code spring.rabbitmq.publisher-confirm-type=correlated}、{@code spring.rabbitmq.publisher-returns=true}、
+ * {@code spring.rabbitmq.template.mandatory=true}。</p>
  */
 @Component
 public class RabbitEventPublisher implements EventPublisherPort {
@@ -21,30 +40,131 @@ public class RabbitEventPublisher implements EventPublisherPort {
     private static final Logger log = LoggerFactory.getLogger(RabbitEventPublisher.class);
 
     private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
+    private final PayloadCodecs payloadCodecs;
+    private final PayloadCompressors payloadCompressors;
     private final String eventsExchangeName;
+    private final PublisherConfirmTracker confirmTracker;
+    private final boolean publisherConfirms;
+    private final BusMetrics busMetrics;
 
     public RabbitEventPublisher(
         RabbitTemplate rabbitTemplate,
-        ObjectMapper objectMapper,
-        @Value("${bus.mq.events-exchange:bus.events}") String eventsExchangeName
+        PayloadCodecs payloadCodecs,
+        PayloadCompressors payloadCompressors,
+        @Value("${bus.mq.events-exchange:bus.events}") String eventsExchangeName,
+        PublisherConfirmTracker confirmTracker,
+        @Value("${bus.mq.publisher-confirms:false}") boolean publisherConfirms,
+        BusMetrics busMetrics
     ) {
         this.rabbitTemplate = rabbitTemplate;
-        this.objectMapper = objectMapper;
+        this.payloadCodecs = payloadCodecs;
+        this.payloadCompressors = payloadCompressors;
         this.eventsExchangeName = eventsExchangeName;
+        this.confirmTracker = confirmTracker;
+        this.publisherConfirms = publisherConfirms;
+        this.busMetrics = busMetrics;
+        if (publisherConfirms && !rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            throw new IllegalStateException(
+                "bus.mq.publisher-confirms=true requires spring.rabbitmq.publisher-confirm-type=correlated");
+        }
     }
 
     @Override
     public void publish(EventEnvelope envelope) {
         String routingKey = envelope.topic();
-        String body;
+        Message message = toMessage(envelope);
+        long start = System.nanoTime();
+        if (publisherConfirms) {
+            sendConfirmed(envelope, message);
+        } else {
+            rabbitTemplate.send(eventsExchangeName, routingKey, message);
+        }
+        busMetrics.publishStage("send", routingKey, start);
+        log.debug("Published event eventId={} topic={} userId={}", envelope.eventId(), routingKey, LogContext.getUserId());
+    }
+
+    @Override
+    public void publishAll(List<EventEnvelope> envelopes) {
+        if (envelopes.isEmpty()) return;
+        List<Message> messages = envelopes.stream().map(this::toMessage).toList();
+        long start = System.nanoTime();
+        if (publisherConfirms) {
+            for (int i = 0; i < envelopes.size(); i++) {
+                sendConfirmed(envelopes.get(i), messages.get(i));
+            }
+        } else {
+            rabbitTemplate.invoke(ops -> {
+                for (int i = 0; i < envelopes.size(); i++) {
+                    ops.send(eventsExchangeName, envelopes.get(i).topic(), messages.get(i));
+                }
+                return null;
+            });
+        }
+        busMetrics.publishStage("send", BusMetrics.batchTopic(envelopes), start);
+        log.debug("Published event batch size={} userId={}", envelopes.size(), LogContext.getUserId());
+    }
+
+    @Override
+    public void redeliver(EventEnvelope envelope, Collection<String> consumerIds) {
+        redeliverAll(List.of(new Redelivery(envelope, List.copyOf(consumerIds))));
+    }
+
+    @Override
+    public void redeliverAll(List<Redelivery> redeliveries) {
+        if (redeliveries.isEmpty()) return;
+        List<Message> messages = redeliveries.stream().map(r -> toMessage(r.envelope())).toList();
+        long start = System.nanoTime();
+        rabbitTemplate.invoke(ops -> {
+            for (int i = 0; i < redeliveries.size(); i++) {
+                for (String consumerId : redeliveries.get(i).consumerIds()) {
+                    ops.send("", ConsumerBindingConfig.queueName(consumerId), messages.get(i));
+                }
+            }
+            return null;
+        });
+        List<EventEnvelope> envelopes = redeliveries.stream().map(Redelivery::envelope).toList();
+        busMetrics.publishStage("redeliver", BusMetrics.batchTopic(envelopes), start);
+        log.debug("Redelivered event batch size={} userId={}", redeliveries.size(), LogContext.getUserId());
+    }
+
+    @Override
+    public boolean confirmsAsynchronously() {
+        return publisherConfirms;
+    }
+
+    private void sendConfirmed(EventEnvelope envelope, Message message) {
+        Instant sentAt = envelope.sentAt() != null ? envelope.sentAt() : Instant.now();
         try {
-            body = objectMapper.writeValueAsString(envelope);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize event envelope eventId={} userId={}", envelope.eventId(), LogContext.getUserId(), e);
+            rabbitTemplate.send(eventsExchangeName, envelope.topic(), message,
+                confirmTracker.track(envelope.eventId(), sentAt));
+        } catch (RuntimeException e) {
+            confirmTracker.untrack(envelope.eventId());
+            throw e;
+        }
+    }
+
+    private Message toMessage(EventEnvelope envelope) {
+        long start = System.nanoTime();
+        PayloadCodec codec = payloadCodecs.forTopic(envelope.topic());
+        byte[] body;
+        try {
+            body = codec.encode(envelope);
+        } catch (RuntimeException e) {
+            log.error("Failed to serialize event envelope eventId={} codec={} userId={}", envelope.eventId(), codec.name(), LogContext.getUserId(), e);
             throw new RuntimeException("Event serialization failed", e);
         }
-        rabbitTemplate.convertAndSend(eventsExchangeName, routingKey, body);
-        log.debug("Published event eventId={} topic={} userId={}", envelope.eventId(), routingKey, LogContext.getUserId());
+        MessageProperties props = new MessageProperties();
+        props.setContentType(codec.contentType());
+        // 消息体无法解码时消费端仍可据此定位事件并上报失败
+        props.setMessageId(envelope.eventId());
+        props.setType(envelope.topic());
+        PayloadCompressor compressor = payloadCompressors.forSize(body.length);
+        if (compressor != null) {
+            body = compressor.compress(body);
+            props.setContentEncoding(compressor.encoding());
+        }
+        props.setContentLength(body.length);
+        busMetrics.publishStage("serialize", envelope.topic(), start);
+        return new Message(body, props);
     }
 }
@@ -4,38 +4,81 @@ import com.wx.bus.application.ConsumptionRollupService;
 import com.wx.bus.support.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * 消费汇总专用队列的单一消费者，串行处理 eventId 并回写 events.status。
+ * 消费汇总队列消费者：每个分片队列注册一个单消费者容器，按批处理 eventId 并回写 events.status。
+ * <p>同一分片内串行（同一事件的汇总保持有序），分片之间并行；一批内同一 eventId 只汇总一次，
+ * 批处理成功后整批 ack，失败则整批按容器策略重投。</p>
+ * <p>容器不随上下文自动启动：由 {@link RollupShardCoordinator} 按分片租约只启动本节点持有的分片，多节点时分片在节点间均分；
+ * 分片队列声明为 single active consumer，租约交接的间隙里同一分片也只有一个消费者在投递。</p>
  */
 @Component
-public class RollupListener {
+public class RollupListener implements RabbitListenerConfigurer {
 
     private static final Logger log = LoggerFactory.getLogger(RollupListener.class);
 
     private final ConsumptionRollupService rollupService;
-    private final String rollupQueueName;
+    private final RollupShards rollupShards;
+    private final SimpleRabbitListenerContainerFactory rollupContainerFactory;
 
     public RollupListener(
         ConsumptionRollupService rollupService,
-        @Value("${bus.mq.rollup-queue:bus.consumption-rollup}") String rollupQueueName
+        RollupShards rollupShards,
+        @Qualifier("rollupContainerFactory") SimpleRabbitListenerContainerFactory rollupContainerFactory
     ) {
         this.rollupService = rollupService;
-        this.rollupQueueName = rollupQueueName;
+        this.rollupShards = rollupShards;
+        this.rollupContainerFactory = rollupContainerFactory;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int shard = 0; shard < rollupShards.shardCount(); shard++) {
+            String queue = rollupShards.queueName(shard);
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId(endpointId(shard));
+            endpoint.setQueueNames(queue);
+            endpoint.setAutoStartup(false);
+            endpoint.setMessageListener((BatchMessageListener) messages -> onRollupMessages(queue, messages));
+            registrar.registerEndpoint(endpoint, rollupContainerFactory);
+        }
+    }
+
+    /** 分片消费容器在 {@code RabbitListenerEndpointRegistry} 中的 id */
+    static String endpointId(int shard) {
+        return "bus-rollup-" + shard;
     }
 
     /**
-     * 消费汇总队列消息：消息体为 eventId，串行执行汇总并回写 events。
+     * 消费一个分片的一批汇总消息：消息体为 eventId，消息头带触发反馈的 topic、consumerId（旧消息没有），去重后汇总并回写 events。
      */
-    @RabbitListener(queues = "${bus.mq.rollup-queue:bus.consumption-rollup}")
-    public void onRollupMessage(String eventId) {
+    void onRollupMessages(String queue, List<Message> messages) {
+        List<ConsumptionRollupService.RollupRequest> requests = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            MessageProperties props = message.getMessageProperties();
+            requests.add(new ConsumptionRollupService.RollupRequest(
+                new String(message.getBody(), StandardCharsets.UTF_8),
+                props.getHeader(RollupPublisher.HEADER_TOPIC),
+                props.getHeader(RollupPublisher.HEADER_CONSUMER_ID)
+            ));
+        }
         try {
-            rollupService.rollupAndWriteBack(eventId);
+            rollupService.rollupAndWriteBackAll(requests);
         } catch (Exception e) {
-            log.error("Rollup failed for eventId={} userId={}", eventId, LogContext.getUserId(), e);
+            log.error("Rollup failed for batch size={} queue={} userId={}", requests.size(), queue, LogContext.getUserId(), e);
             throw e; /* 抛出以触发 AMQP 重试或进入 DLQ */
         }
     }
@@ -3,34 +3,42 @@ package com.wx.bus.infrastructure.rabbit;
 import com.wx.bus.support.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * 向消费汇总专用队列投递 eventId，触发异步回写 events.status。
+ * <p>按 {@link RollupShards#shardOf(String)} 投递到 eventId 所属分片队列，保证同一事件的汇总串行。</p>
  */
 @Component
 public class RollupPublisher {
 
     private static final Logger log = LoggerFactory.getLogger(RollupPublisher.class);
 
+    static final String HEADER_TOPIC = "bus-topic";
+    static final String HEADER_CONSUMER_ID = "bus-consumer-id";
+
     private final RabbitTemplate rabbitTemplate;
-    private final String rollupQueueName;
+    private final RollupShards rollupShards;
 
-    public RollupPublisher(
-        RabbitTemplate rabbitTemplate,
-        @Value("${bus.mq.rollup-queue:bus.consumption-rollup}") String rollupQueueName
-    ) {
+    public RollupPublisher(RabbitTemplate rabbitTemplate, RollupShards rollupShards) {
         this.rabbitTemplate = rabbitTemplate;
-        this.rollupQueueName = rollupQueueName;
+        this.rollupShards = rollupShards;
     }
 
     /**
-     * 向消费汇总队列发送 eventId，由 {@link RollupListener} 串行消费并回写 events.status。
+     * 向 eventId 所属的汇总分片队列发送 eventId，由 {@link RollupListener} 在该分片上串行消费并回写 events.status。
+     * <p>触发本次汇总的反馈的 topic、consumerId 放在消息头，只用于汇总阶段的指标标签，可为空。</p>
      */
-    public void sendEventIdForRollup(String eventId) {
-        rabbitTemplate.convertAndSend(rollupQueueName, eventId);
-        log.debug("Sent eventId to rollup queue eventId={} userId={}", eventId, LogContext.getUserId());
+    public void sendEventIdForRollup(String eventId, String topic, String consumerId) {
+        String queue = rollupShards.queueNameFor(eventId);
+        rabbitTemplate.convertAndSend(queue, eventId, message -> {
+            MessageProperties props = message.getMessageProperties();
+            if (topic != null) props.setHeader(HEADER_TOPIC, topic);
+            if (consumerId != null) props.setHeader(HEADER_CONSUMER_ID, consumerId);
+            return message;
+        });
+        log.debug("Sent eventId to rollup queue eventId={} queue={} userId={}", eventId, queue, LogContext.getUserId());
     }
 }
@@ -0,0 +1,133 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import com.wx.bus.infrastructure.mongo.RollupLeaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 汇总分片分配：按 {@link RollupLeaseManager} 的分片租约，只启动本节点持有分片的消费容器。
+ * <p>每 {@code bus.mq.rollup-lease-ttl-ms}/3 续约一次，按存活节点数均分分片；新持有的分片启动容器，被让出或被接管的分片停止容器。
+ * 续约失败（如 MongoDB 不可达）时保持当前容器不变，租约过期后其他节点可能接管同一分片，此时由分片队列的
+ * single active consumer 保证同一时刻仍只有一个消费者在投递。</p>
+ * <p>正常关闭时先停止本节点容器再释放租约，其余节点下一轮即可接管。</p>
+ */
+@Component
+public class RollupShardCoordinator implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupShardCoordinator.class);
+
+    private final RollupLeaseManager leaseManager;
+    private final RollupShards rollupShards;
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final Duration leaseTtl;
+    private final String nodeId;
+
+    private volatile ScheduledExecutorService scheduler;
+    private volatile List<Integer> ownedShards = List.of();
+
+    public RollupShardCoordinator(
+        RollupLeaseManager leaseManager,
+        RollupShards rollupShards,
+        RabbitListenerEndpointRegistry listenerRegistry,
+        @Value("${bus.mq.rollup-lease-ttl-ms:15000}") long leaseTtlMillis,
+        @Value("${spring.application.name:bus}") String applicationName
+    ) {
+        this.leaseManager = leaseManager;
+        this.rollupShards = rollupShards;
+        this.listenerRegistry = listenerRegistry;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMillis);
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+    }
+
+    /** 本节点当前持有（已启动消费容器）的分片 */
+    public List<Integer> ownedShards() {
+        return ownedShards;
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bus-rollup-coordinator");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::rebalance, 0, Math.max(1, leaseTtl.toMillis() / 3), TimeUnit.MILLISECONDS);
+        scheduler = s;
+        log.info("Rollup shard coordinator started nodeId={} shards={}", nodeId, rollupShards.shardCount());
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s == null) return;
+        s.shutdown();
+        scheduler = null;
+        try {
+            // 等当前一轮结束，否则进行中的续约会把租约与心跳写回
+            boolean idle = s.awaitTermination(5, TimeUnit.SECONDS);
+            for (int shard = 0; shard < rollupShards.shardCount(); shard++) {
+                MessageListenerContainer container = container(shard);
+                if (container != null && container.isRunning()) container.stop();
+            }
+            ownedShards = List.of();
+            if (idle) {
+                leaseManager.leave(nodeId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Rollup shard coordinator failed to release leases nodeId={}", nodeId, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /** 续约并按持有分片启停容器；续约失败时保持现状 */
+    void rebalance() {
+        List<Integer> owned;
+        try {
+            owned = leaseManager.rebalance(nodeId, rollupShards.shardCount(), leaseTtl);
+        } catch (Exception e) {
+            log.warn("Rollup shard lease rebalance failed, keep current shards nodeId={} shards={}", nodeId, ownedShards, e);
+            return;
+        }
+        Set<Integer> ownedSet = new HashSet<>(owned);
+        for (int shard = 0; shard < rollupShards.shardCount(); shard++) {
+            MessageListenerContainer container = container(shard);
+            if (container == null) continue;
+            try {
+                if (ownedSet.contains(shard) && !container.isRunning()) {
+                    container.start();
+                    log.info("Rollup shard acquired nodeId={} shard={} queue={}", nodeId, shard, rollupShards.queueName(shard));
+                } else if (!ownedSet.contains(shard) && container.isRunning()) {
+                    container.stop();
+                    log.info("Rollup shard released nodeId={} shard={} queue={}", nodeId, shard, rollupShards.queueName(shard));
+                }
+            } catch (Exception e) {
+                log.warn("Rollup shard container toggle failed nodeId={} shard={}", nodeId, shard, e);
+            }
+        }
+        ownedShards = owned.stream().sorted().toList();
+    }
+
+    private MessageListenerContainer container(int shard) {
+        return listenerRegistry.getListenerContainer(RollupListener.endpointId(shard));
+    }
+}
@@ -0,0 +1,131 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 消费汇总队列分片：按 hash(eventId) 将汇总消息路由到固定分片队列，每个分片一个消费者。
+ * <p>同一 eventId 总落在同一分片，分片内串行消费，因此同一事件的回写保持有序；分片之间并行，吞吐随分片数横向扩展。</p>
+ * <p>分片 0 沿用 {@code bus.mq.rollup-queue} 原队列名，分片 i（i ≥ 1）为 {@code {rollup-queue}.{i}}，
+ * 因此 {@code bus.mq.rollup-shards=1}（默认）时与未分片部署完全一致。</p>
+ * <p>各分片积压导出为 {@code bus.rollup.queue.depth{shard,queue}}；读取 broker 的结果缓存
+ * {@code bus.mq.rollup-depth-sample-ms}，避免每次抓取指标都被动声明队列，broker 不可达时为 NaN。</p>
+ */
+@Component
+public class RollupShards {
+
+    private final String baseQueueName;
+    private final int shardCount;
+    private final AmqpAdmin amqpAdmin;
+    private final long depthSampleMillis;
+
+    private volatile List<ShardDepth> sampledDepths;
+    private volatile long sampledAt;
+
+    public RollupShards(
+        @Value("${bus.mq.rollup-queue:bus.consumption-rollup}") String baseQueueName,
+        @Value("${bus.mq.rollup-shards:1}") int shardCount,
+        AmqpAdmin amqpAdmin,
+        @Value("${bus.mq.rollup-depth-sample-ms:5000}") long depthSampleMillis,
+        ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("bus.mq.rollup-shards must be >= 1, got " + shardCount);
+        }
+        this.baseQueueName = baseQueueName;
+        this.shardCount = shardCount;
+        this.amqpAdmin = amqpAdmin;
+        this.depthSampleMillis = depthSampleMillis;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            Gauge.builder("bus.rollup.queue.depth", this, s -> s.sampledDepth(shard))
+                .tag("shard", String.valueOf(shard))
+                .tag("queue", queueName(shard))
+                .register(registry);
+        }
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /** eventId 所属分片，与发布端、消费端一致 */
+    public int shardOf(String eventId) {
+        return Math.floorMod(eventId.hashCode(), shardCount);
+    }
+
+    /** 分片队列名：分片 0 为原队列名，其余追加 .{shard} */
+    public String queueName(int shard) {
+        return shard == 0 ? baseQueueName : baseQueueName + "." + shard;
+    }
+
+    /** eventId 应投递的分片队列名 */
+    public String queueNameFor(String eventId) {
+        return queueName(shardOf(eventId));
+    }
+
+    /** 全部分片队列名，下标即分片号 */
+    public List<String> queueNames() {
+        List<String> names = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            names.add(queueName(i));
+        }
+        return names;
+    }
+
+    /**
+     * 各分片积压情况（通过 broker 被动声明读取），队列不存在时 messageCount/consumerCount 为 -1。
+     */
+    public List<ShardDepth> depths() {
+        List<ShardDepth> result = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            String queue = queueName(i);
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            result.add(info == null
+                ? new ShardDepth(i, queue, -1, -1)
+                : new ShardDepth(i, queue, info.getMessageCount(), info.getConsumerCount()));
+        }
+        return result;
+    }
+
+    /** 指标用的分片积压：按采样间隔缓存 {@link #depths()}，队列不存在或 broker 不可达时为 NaN */
+    private double sampledDepth(int shard) {
+        List<ShardDepth> depths = sampledDepths;
+        long now = System.currentTimeMillis();
+        if (depths == null || now - sampledAt > depthSampleMillis) {
+            synchronized (this) {
+                if (sampledDepths == null || now - sampledAt > depthSampleMillis) {
+                    try {
+                        sampledDepths = depths();
+                    } catch (RuntimeException e) {
+                        sampledDepths = List.of();
+                    }
+                    sampledAt = now;
+                }
+                depths = sampledDepths;
+            }
+        }
+        if (shard >= depths.size() || depths.get(shard).messageCount() < 0) return Double.NaN;
+        return depths.get(shard).messageCount();
+    }
+
+    /**
+     * 单个分片的积压快照。
+     *
+     * @param shard         分片号
+     * @param queue         分片队列名
+     * @param messageCount  待消费消息数（即该分片滞后量）
+     * @param consumerCount 当前消费者数
+     */
+    public record ShardDepth(int shard, String queue, long messageCount, int consumerCount) {}
+}
@@ -0,0 +1,188 @@
+package com.wx.bus.support;
+
+import com.wx.bus.application.LatencyHistograms;
+import com.wx.bus.domain.EventEnvelope;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * bus 各阶段的 Micrometer 埋点，统一指标名与标签：
+ * <ul>
+ *   <li>{@code bus.publish.stage{stage,topic}}：发布各阶段耗时，stage = lookup/mongo_write/mq_send/status_update/serialize/send/redeliver</li>
+ *   <li>{@code bus.publish.events{topic,result}}：发布结果计数，result = ok/skipped/failed</li>
+ *   <li>{@code bus.consume.stage{stage,topic,consumerId}}：消费各阶段耗时，stage = deserialize/handler/feedback</li>
+ *   <li>{@code bus.consume.events{topic,consumerId,result}}：消费结果计数，result = success/failure</li>
+ *   <li>{@code bus.consume.latency{topic,consumerId,from}}：发布→消费延迟，from = occurred（occurredAt 起算）/sent（sentAt 起算）；
+ *       {@code bus.consume.lag{topic,consumerId}} 为最近一条的 sentAt 延迟（秒）</li>
+ *   <li>{@code bus.feedback.stage{stage,topic,consumerId}}：消费反馈写入/触发汇总耗时，stage = record/rollup</li>
+ *   <li>{@code bus.rollup.stage{stage,topic,consumerId}}：汇总查询与回写耗时，stage = query/write</li>
+ * </ul>
+ * <p>发生→发送（发布端每事件一次）、发送→消费与消费→汇总延迟同时写入 {@link LatencyHistograms}
+ * （HdrHistogram，供管理端按窗口查询分位数），未启用时跳过。</p>
+ * <p>topic/consumerId 取自 topic_consumers 配置，基数有限；批量阶段的批内 topic 或 consumerId 不一致时标记为 {@link #MIXED}。
+ * Meter 按标签组合缓存，热路径上只有一次 map 查找。</p>
+ */
+@Component
+public class BusMetrics {
+
+    /** 批内标签值（topic、consumerId 等）不一致时的标签值 */
+    public static final String MIXED = "mixed";
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+    /** 为 null 时不记录延迟直方图 */
+    private final LatencyHistograms latencyHistograms;
+    private final Map<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<MeterKey, AtomicLong> lagMillis = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BusMetrics(ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<LatencyHistograms> latencyHistograms) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), latencyHistograms.getIfAvailable());
+    }
+
+    public BusMetrics(MeterRegistry registry, LatencyHistograms latencyHistograms) {
+        this.registry = registry;
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    /** 不导出任何指标的实例，供测试与基准测试构造 */
+    public static BusMetrics noop() {
+        return new BusMetrics(new CompositeMeterRegistry(), null);
+    }
+
+    /** 批内 topic 一致时返回该 topic，否则返回 {@link #MIXED}，用于批量阶段的指标标签 */
+    public static String batchTopic(List<EventEnvelope> envelopes) {
+        return batchTag(envelopes, EventEnvelope::topic);
+    }
+
+    /** 批内各元素取出的标签值（topic、consumerId 等）一致时返回该值，否则返回 {@link #MIXED} */
+    public static <T> String batchTag(List<T> items, Function<T, String> tag) {
+        String value = tag.apply(items.get(0));
+        for (T item : items) {
+            if (!Objects.equals(value, tag.apply(item))) return MIXED;
+        }
+        return value;
+    }
+
+    public void publishStage(String stage, String topic, long startNanos) {
+        timer("bus.publish.stage", "stage", stage, "topic", topic, null, null).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void publishResult(String topic, String result) {
+        counter("bus.publish.events", "topic", topic, "result", result, null, null).increment();
+    }
+
+    public void consumeStage(String stage, String topic, String consumerId, long startNanos) {
+        timer("bus.consume.stage", "stage", stage, "topic", topic, "consumerId", consumerId)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void consumeResult(String topic, String consumerId, boolean success) {
+        counter("bus.consume.events", "topic", topic, "consumerId", consumerId, "result", success ? "success" : "failure").increment();
+    }
+
+    /**
+     * 记录发布→消费延迟；occurredAt/sentAt 为空时跳过对应指标，时钟回拨导致的负值按 0 记。
+     */
+    public void consumeLatency(String topic, String consumerId, Instant occurredAt, Instant sentAt, Instant consumedAt) {
+        if (occurredAt != null) {
+            timer("bus.consume.latency", "topic", topic, "consumerId", consumerId, "from", "occurred")
+                .record(nonNegative(Duration.between(occurredAt, consumedAt)));
+        }
+        if (sentAt != null) {
+            Duration lag = nonNegative(Duration.between(sentAt, consumedAt));
+            timer("bus.consume.latency", "topic", topic, "consumerId", consumerId, "from", "sent").record(lag);
+            lagGauge(topic, consumerId).set(lag.toMillis());
+        }
+        if (latencyHistograms != null) {
+            latencyHistograms.record(LatencyHistograms.Stage.SENT_CONSUMED, tag(topic), tag(consumerId), sentAt, consumedAt);
+        }
+    }
+
+    /**
+     * 记录已投递事件的发生→发送延迟（occurredAt → sentAt），仅写入延迟直方图。
+     * <p>在发布端每个事件投递成功后记录一次，与消费者数量无关，consumerId 记为 {@link LatencyHistograms#ANY_CONSUMER}。</p>
+     */
+    public void sentLatency(List<EventEnvelope> envelopes) {
+        if (latencyHistograms == null) return;
+        for (EventEnvelope envelope : envelopes) {
+            latencyHistograms.record(LatencyHistograms.Stage.OCCURRED_SENT, tag(envelope.topic()), LatencyHistograms.ANY_CONSUMER,
+                envelope.occurredAt(), envelope.sentAt());
+        }
+    }
+
+    /** 记录消费反馈（consumedAt）到汇总回写 events（rolledUpAt）的延迟，仅写入延迟直方图 */
+    public void rollupLatency(String topic, String consumerId, Instant consumedAt, Instant rolledUpAt) {
+        if (latencyHistograms != null) {
+            latencyHistograms.record(LatencyHistograms.Stage.CONSUMED_ROLLED_UP, tag(topic), tag(consumerId), consumedAt, rolledUpAt);
+        }
+    }
+
+    public void feedbackStage(String stage, String topic, String consumerId, long startNanos) {
+        timer("bus.feedback.stage", "stage", stage, "topic", topic, "consumerId", consumerId)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rollupStage(String stage, String topic, String consumerId, long startNanos) {
+        timer("bus.rollup.stage", "stage", stage, "topic", topic, "consumerId", consumerId)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String name, String k1, String v1, String k2, String v2, String k3, String v3) {
+        return timers.computeIfAbsent(new MeterKey(name, tag(v1), tag(v2), tag(v3)), key -> {
+            Timer.Builder b = Timer.builder(name).tag(k1, key.v1());
+            if (k2 != null) b.tag(k2, key.v2());
+            if (k3 != null) b.tag(k3, key.v3());
+            return b.register(registry);
+        });
+    }
+
+    private Counter counter(String name, String k1, String v1, String k2, String v2, String k3, String v3) {
+        return counters.computeIfAbsent(new MeterKey(name, tag(v1), tag(v2), tag(v3)), key -> {
+            Counter.Builder b = Counter.builder(name).tag(k1, key.v1());
+            if (k2 != null) b.tag(k2, key.v2());
+            if (k3 != null) b.tag(k3, key.v3());
+            return b.register(registry);
+        });
+    }
+
+    private AtomicLong lagGauge(String topic, String consumerId) {
+        return lagMillis.computeIfAbsent(new MeterKey("bus.consume.lag", tag(topic), tag(consumerId), UNKNOWN), key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("bus.consume.lag", value, v -> v.get() / 1000.0)
+                .tag("topic", key.v1())
+                .tag("consumerId", key.v2())
+                .baseUnit("seconds")
+                .register(registry);
+            return value;
+        });
+    }
+
+    private static String tag(String value) {
+        return value == null || value.isEmpty() ? UNKNOWN : value;
+    }
+
+    private static Duration nonNegative(Duration d) {
+        return d.isNegative() ? Duration.ZERO : d;
+    }
+
+    private record MeterKey(String name, String v1, String v2, String v3) {}
+}
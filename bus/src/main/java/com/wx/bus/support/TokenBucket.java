@@ -0,0 +1,48 @@
+package com.wx.bus.support;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶限速：按 {@code permitsPerSecond} 匀速补充令牌，最多积攒 {@code burst} 个，用于平滑批量投递速率。
+ * <p>单线程使用为主（批量重推执行线程），方法加锁保证多线程下也不超发。</p>
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double available;
+    private long refilledAt;
+
+    public TokenBucket(double permitsPerSecond, double burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be > 0, got " + permitsPerSecond);
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.available = this.burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * 取 {@code permits} 个令牌，不足时阻塞到补足；permits 大于 burst 时按欠账处理，下一次调用等待补回。
+     *
+     * @throws InterruptedException 等待期间被中断（执行线程停止）
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            available -= permits;
+            waitNanos = available >= 0 ? 0 : (long) (-available / permitsPerNano);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(burst, available + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,97 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import com.wx.bus.domain.EventEnvelope;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 异步发布管道关闭竞态测试：stop 与并发 submit 交错时，每条提交的事件都被发布且只发布一次。
+ * <p>发布服务为记录调用的 mock，不连接 MongoDB、RabbitMQ。</p>
+ */
+class AsyncPublishPipelineShutdownTest {
+
+    private static final String TOPIC = "order.purchased";
+    private static final int PRODUCERS = 4;
+
+    private final Map<String, AtomicInteger> published = new ConcurrentHashMap<>();
+
+    @Nested
+    @DisplayName("关闭竞态")
+    class ConcurrentStop {
+
+        @Test
+        @DisplayName("提交线程持续提交时 stop：已提交的事件全部发布，没有留在队列里的，也没有重复")
+        void submitDuringStop_shouldPublishEveryEventOnce() throws Exception {
+            for (int round = 0; round < 20; round++) {
+                published.clear();
+                AsyncPublishPipeline pipeline = pipeline();
+                pipeline.start();
+                Set<String> submitted = ConcurrentHashMap.newKeySet();
+                CountDownLatch started = new CountDownLatch(PRODUCERS);
+                List<Thread> producers = new ArrayList<>();
+                for (int p = 0; p < PRODUCERS; p++) {
+                    Thread t = new Thread(() -> {
+                        started.countDown();
+                        for (int i = 0; i < 500; i++) {
+                            EventEnvelope envelope = envelope();
+                            submitted.add(envelope.eventId());
+                            pipeline.submit(envelope);
+                        }
+                    });
+                    t.start();
+                    producers.add(t);
+                }
+                started.await();
+                pipeline.stop();
+                for (Thread t : producers) {
+                    t.join();
+                }
+
+                assertThat(published.keySet()).containsExactlyInAnyOrderElementsOf(submitted);
+                assertThat(published.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+            }
+        }
+    }
+
+    private AsyncPublishPipeline pipeline() {
+        EventPublishService service = mock(EventPublishService.class);
+        when(service.publishAll(anyList())).thenAnswer(invocation -> {
+            List<EventEnvelope> envelopes = invocation.getArgument(0);
+            return envelopes.stream().map(e -> record(e)).toList();
+        });
+        when(service.publish(any())).thenAnswer(invocation -> record(invocation.getArgument(0)));
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()));
+        return new AsyncPublishPipeline(
+            service, beans.getBeanProvider(MeterRegistry.class), true, 10_000, 20, 10, AsyncPublishPipeline.OverflowPolicy.CALLER_RUNS, 0
+        );
+    }
+
+    private PublishResult record(EventEnvelope envelope) {
+        published.computeIfAbsent(envelope.eventId(), k -> new AtomicInteger()).incrementAndGet();
+        return PublishResult.ok(envelope.eventId());
+    }
+
+    private static EventEnvelope envelope() {
+        return EventPublishService.buildEnvelope(null, "trace-1", null, null, TOPIC, "{\"orderId\":\"o1\"}", null, null, null, null);
+    }
+}
@@ -0,0 +1,163 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.wx.bus.BusTestApplication;
+import com.wx.bus.TestRabbitConfig;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 异步发布管道集成测试：使用本机 MongoDB、RabbitMQ，验证队列溢出策略与关闭排空（每条事件恰好落库一次、不丢不重）。
+ * <p>运行前需本机已启动 MongoDB、RabbitMQ。</p>
+ */
+@SpringBootTest(classes = BusTestApplication.class)
+@ActiveProfiles("test")
+class AsyncPublishPipelineTest {
+
+    @Autowired
+    private EventPublishService eventPublishService;
+    @Autowired
+    private TopicConsumerRepository topicConsumerRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventConsumptionRepository eventConsumptionRepository;
+    @Autowired
+    private RabbitAdmin rabbitAdmin;
+
+    private static final String TOPIC = "order.purchased";
+    private static final String PAYLOAD = "{\"orderId\":\"o1\"}";
+    private static final int EVENTS = 50;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository.deleteAll();
+        eventConsumptionRepository.deleteAll();
+        topicConsumerRepository.deleteAll();
+        rabbitAdmin.purgeQueue(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, true);
+
+        TopicConsumerDocument tc = new TopicConsumerDocument();
+        tc.setTopic(TOPIC);
+        tc.setConsumerId("member-service");
+        tc.setEnabled(true);
+        tc.setCreatedAt(Instant.now());
+        tc.setUpdatedAt(Instant.now());
+        topicConsumerRepository.save(tc);
+
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Nested
+    @DisplayName("队列溢出")
+    class Overflow {
+
+        @Test
+        @DisplayName("CALLER_RUNS：队列满时业务线程同步发布，关闭后全部事件落库且各一条消费记录")
+        void callerRuns_shouldPublishEveryEvent() {
+            AsyncPublishPipeline pipeline = pipeline(1, AsyncPublishPipeline.OverflowPolicy.CALLER_RUNS);
+            pipeline.start();
+            List<EventEnvelope> envelopes = submitAll(pipeline);
+            pipeline.stop();
+
+            assertPublishedOnce(envelopes);
+        }
+
+        @Test
+        @DisplayName("DROP：入队的全部发出，溢出的丢弃并计数，二者之和等于提交数")
+        void drop_shouldCountEveryDroppedEvent() {
+            AsyncPublishPipeline pipeline = pipeline(1, AsyncPublishPipeline.OverflowPolicy.DROP);
+            pipeline.start();
+            submitAll(pipeline);
+            pipeline.stop();
+
+            double dropped = registry.get("bus.publish.async.overflow").counter().count();
+            assertThat(eventRepository.count() + (long) dropped).isEqualTo(EVENTS);
+            assertThat(eventConsumptionRepository.count()).isEqualTo(eventRepository.count());
+        }
+    }
+
+    @Nested
+    @DisplayName("关闭")
+    class Shutdown {
+
+        @Test
+        @DisplayName("stop 时排空队列：每条事件恰好发布一次，没有重复发布与失败")
+        void stop_shouldDrainQueueWithoutDuplicates() {
+            AsyncPublishPipeline pipeline = pipeline(10_000, AsyncPublishPipeline.OverflowPolicy.CALLER_RUNS);
+            pipeline.start();
+            List<EventEnvelope> envelopes = submitAll(pipeline);
+            pipeline.stop();
+
+            assertThat(pipeline.isRunning()).isFalse();
+            assertPublishedOnce(envelopes);
+            assertThat(registry.get("bus.publish.async.failed").counter().count()).isZero();
+        }
+
+        @Test
+        @DisplayName("stop 之后提交：直接同步发布")
+        void submitAfterStop_shouldPublishSynchronously() {
+            AsyncPublishPipeline pipeline = pipeline(10_000, AsyncPublishPipeline.OverflowPolicy.CALLER_RUNS);
+            pipeline.start();
+            pipeline.stop();
+
+            EventEnvelope envelope = envelope();
+            pipeline.submit(envelope);
+
+            assertPublishedOnce(List.of(envelope));
+        }
+    }
+
+    private AsyncPublishPipeline pipeline(int capacity, AsyncPublishPipeline.OverflowPolicy policy) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+        return new AsyncPublishPipeline(
+            eventPublishService, beans.getBeanProvider(MeterRegistry.class), true, capacity, 20, 10, policy, 0
+        );
+    }
+
+    private List<EventEnvelope> submitAll(AsyncPublishPipeline pipeline) {
+        List<EventEnvelope> envelopes = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            EventEnvelope envelope = envelope();
+            envelopes.add(envelope);
+            pipeline.submit(envelope);
+        }
+        return envelopes;
+    }
+
+    private void assertPublishedOnce(List<EventEnvelope> envelopes) {
+        for (EventEnvelope envelope : envelopes) {
+            assertThat(eventRepository.findById(envelope.eventId())).get()
+                .extracting(e -> e.getStatus()).isNotEqualTo("PENDING");
+            assertThat(eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(envelope.eventId())).hasSize(1);
+        }
+        assertThat(eventRepository.count()).isEqualTo(envelopes.size());
+    }
+
+    private static EventEnvelope envelope() {
+        return EventPublishService.buildEnvelope(null, "trace-1", null, null, TOPIC, PAYLOAD, null, null, null, null);
+    }
+}
@@ -0,0 +1,359 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.BulkRetryJobDocument;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.MongoRepositories;
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.bus.infrastructure.rabbit.ConsumerBindingConfig;
+import com.wx.bus.support.InMemoryMongo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 批量重推执行测试：验证断点续推、取消、接管、背压暂停与异步统计总数。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），发布端为记录调用的桩，队列积压由 mock 的 AmqpAdmin 给出。
+ * 执行器以极长轮询间隔启动、由测试直接调用 tick，单线程同步执行。</p>
+ */
+class BulkRetryRunnerTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final EventRepository eventRepository = MongoRepositories.eventRepository(mongoTemplate);
+    private final EventConsumptionRepository eventConsumptionRepository = MongoRepositories.eventConsumptionRepository(mongoTemplate);
+    private final TopicRoutingTable topicRoutingTable = new TopicRoutingTable(
+        MongoRepositories.topicConsumerRepository(mongoTemplate),
+        new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry())).getBeanProvider(MeterRegistry.class),
+        30_000
+    );
+    private final BulkRetryJobs bulkRetryJobs = new BulkRetryJobs(mongoTemplate, 200, 2_000, 100);
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+
+    private static final String TOPIC = "order.purchased";
+    private static final int EVENTS = 5;
+    private static final int BATCH_SIZE = 2;
+    private static final Instant TIED_AT = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final RecordingPublisher publisher = new RecordingPublisher();
+    private final List<BulkRetryRunner> runners = new ArrayList<>();
+    /** 按 (occurredAt, _id) 升序，与执行端游标顺序一致 */
+    private List<String> eventIds;
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+
+        // 前三条 occurredAt 相同，断点需按 _id 区分
+        eventIds = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            String eventId = "evt-bulk-" + i;
+            EventDocument doc = new EventDocument();
+            doc.setId(eventId);
+            doc.setEventId(eventId);
+            doc.setTopic(TOPIC);
+            doc.setPayload("{\"orderId\":\"o" + i + "\"}");
+            doc.setStatus(EventStatus.FAILED.name());
+            doc.setOccurredAt(i < 3 ? TIED_AT : TIED_AT.plusSeconds(i));
+            mongoTemplate.insert(doc);
+            eventIds.add(eventId);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        runners.forEach(BulkRetryRunner::stop);
+    }
+
+    @AfterAll
+    static void closeMongo() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("断点")
+    class Checkpoint {
+
+        @Test
+        @DisplayName("逐批写断点，全部发出后 COMPLETED，每条事件恰好发布一次")
+        void run_shouldCompleteWithCheckpointAtLastEvent() {
+            BulkRetryJobDocument job = createJob();
+
+            runner("node-a").tick();
+
+            BulkRetryJobDocument done = bulkRetryJobs.get(job.getId());
+            assertThat(done.getState()).isEqualTo(BulkRetryJobs.State.COMPLETED.name());
+            assertThat(done.getScanned()).isEqualTo(EVENTS);
+            assertThat(done.getRetried()).isEqualTo(EVENTS);
+            assertThat(done.getCheckpointEventId()).isEqualTo(eventIds.get(EVENTS - 1));
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds);
+        }
+
+        @Test
+        @DisplayName("发布失败：任务 FAILED，断点停在失败批之前；恢复后从断点继续，已发批次不重发")
+        void failedBatch_shouldResumeAfterCheckpoint() {
+            BulkRetryJobDocument job = createJob();
+            publisher.failOnCall = 2;
+
+            runner("node-a").tick();
+
+            BulkRetryJobDocument failed = bulkRetryJobs.get(job.getId());
+            assertThat(failed.getState()).isEqualTo(BulkRetryJobs.State.FAILED.name());
+            assertThat(failed.getCheckpointEventId()).isEqualTo(eventIds.get(BATCH_SIZE - 1));
+            assertThat(failed.getRetried()).isEqualTo(BATCH_SIZE);
+            assertThat(failed.getFailed()).isEqualTo(BATCH_SIZE);
+            assertThat(failed.getError()).contains("broker unavailable");
+
+            publisher.failOnCall = 0;
+            assertThat(bulkRetryJobs.resume(job.getId())).isNotNull();
+            runner("node-a").tick();
+
+            BulkRetryJobDocument done = bulkRetryJobs.get(job.getId());
+            assertThat(done.getState()).isEqualTo(BulkRetryJobs.State.COMPLETED.name());
+            assertThat(done.getScanned()).isEqualTo(EVENTS);
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds);
+        }
+    }
+
+    @Nested
+    @DisplayName("取消")
+    class Cancel {
+
+        @Test
+        @DisplayName("执行中取消：写断点时发现已取消即停止，保持 CANCELLED，后续批次不再发出")
+        void cancelWhileRunning_shouldStopAfterCurrentBatch() {
+            BulkRetryJobDocument job = createJob();
+            publisher.onFirstCall = () -> bulkRetryJobs.cancel(job.getId());
+
+            runner("node-a").tick();
+
+            BulkRetryJobDocument cancelled = bulkRetryJobs.get(job.getId());
+            assertThat(cancelled.getState()).isEqualTo(BulkRetryJobs.State.CANCELLED.name());
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds.subList(0, BATCH_SIZE));
+            // 已取消时断点不再写入：恢复后该批会重发一次（至少一次）
+            assertThat(cancelled.getCheckpointEventId()).isNull();
+        }
+
+        @Test
+        @DisplayName("未开始即取消：不会被认领")
+        void cancelledPendingJob_shouldNotBeClaimed() {
+            BulkRetryJobDocument job = createJob();
+            bulkRetryJobs.cancel(job.getId());
+
+            runner("node-a").tick();
+
+            assertThat(bulkRetryJobs.get(job.getId()).getState()).isEqualTo(BulkRetryJobs.State.CANCELLED.name());
+            assertThat(publisher.published).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("接管")
+    class Takeover {
+
+        @Test
+        @DisplayName("心跳过期的 RUNNING 任务由其他节点接管，从原断点之后继续")
+        void expiredHeartbeat_shouldBeTakenOverFromCheckpoint() {
+            BulkRetryJobDocument job = createJob();
+            markRunning(job, "node-dead", Instant.now().minusSeconds(3600), eventIds.get(2));
+
+            runner("node-b").tick();
+
+            BulkRetryJobDocument done = bulkRetryJobs.get(job.getId());
+            assertThat(done.getState()).isEqualTo(BulkRetryJobs.State.COMPLETED.name());
+            assertThat(done.getOwner()).startsWith("node-b");
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds.subList(3, EVENTS));
+        }
+
+        @Test
+        @DisplayName("心跳未过期的 RUNNING 任务不被其他节点认领")
+        void liveHeartbeat_shouldNotBeTakenOver() {
+            BulkRetryJobDocument job = createJob();
+            markRunning(job, "node-live", Instant.now(), null);
+
+            runner("node-b").tick();
+
+            BulkRetryJobDocument running = bulkRetryJobs.get(job.getId());
+            assertThat(running.getState()).isEqualTo(BulkRetryJobs.State.RUNNING.name());
+            assertThat(running.getOwner()).isEqualTo("node-live");
+            assertThat(publisher.published).isEmpty();
+        }
+
+        @Test
+        @DisplayName("执行中被接管：原节点写断点时发现 owner 已变即停止，不覆盖新节点的断点与状态")
+        void takenOverWhileRunning_shouldStopOriginalOwner() {
+            BulkRetryJobDocument job = createJob();
+            publisher.onFirstCall = () -> mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(job.getId())), Update.update("owner", "node-new"), BulkRetryJobDocument.class);
+
+            runner("node-a").tick();
+
+            BulkRetryJobDocument running = bulkRetryJobs.get(job.getId());
+            assertThat(running.getState()).isEqualTo(BulkRetryJobs.State.RUNNING.name());
+            assertThat(running.getOwner()).isEqualTo("node-new");
+            assertThat(running.getCheckpointEventId()).isNull();
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds.subList(0, BATCH_SIZE));
+        }
+    }
+
+    @Nested
+    @DisplayName("背压")
+    class Backpressure {
+
+        @Test
+        @DisplayName("目标队列积压：关闭游标后等待，积压回落后从断点重开，每条事件恰好发布一次")
+        void backloggedQueue_shouldCloseCursorWhileWaiting() throws InterruptedException {
+            TopicConsumerDocument consumer = new TopicConsumerDocument();
+            consumer.setTopic(TOPIC);
+            consumer.setConsumerId("member-service");
+            consumer.setEnabled(true);
+            mongoTemplate.insert(consumer);
+            AtomicInteger depthChecks = new AtomicInteger();
+            AtomicInteger openCursors = new AtomicInteger();
+            AtomicInteger cursorOpenedDuringWait = new AtomicInteger();
+            MongoTemplate tracking = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory()) {
+                @Override
+                public <T> Stream<T> stream(Query query, Class<T> entityType) {
+                    openCursors.incrementAndGet();
+                    return super.stream(query, entityType).onClose(openCursors::decrementAndGet);
+                }
+            };
+            // 第 2 批发布前积压超过上限，暂停等待一轮后回落
+            when(amqpAdmin.getQueueInfo(ConsumerBindingConfig.queueName("member-service"))).thenAnswer(invocation -> {
+                int check = depthChecks.incrementAndGet();
+                if (check == 3) cursorOpenedDuringWait.set(openCursors.get());
+                return new QueueInformation(invocation.getArgument(0), check == 2 ? 500 : 0, 1);
+            });
+            BulkRetryJobDocument job = createJob();
+
+            // 背压等待间隔即轮询间隔：由调度线程认领执行，测试等待任务结束
+            BulkRetryRunner runner = new BulkRetryRunner(
+                tracking, eventRepository, eventConsumptionRepository, publisher, topicRoutingTable, amqpAdmin,
+                20L, 30_000L, 100L, "node-a"
+            );
+            runners.add(runner);
+            runner.start();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!BulkRetryJobs.State.COMPLETED.name().equals(bulkRetryJobs.get(job.getId()).getState())
+                && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            BulkRetryJobDocument done = bulkRetryJobs.get(job.getId());
+            assertThat(done.getState()).isEqualTo(BulkRetryJobs.State.COMPLETED.name());
+            assertThat(done.getScanned()).isEqualTo(EVENTS);
+            assertThat(publisher.published).containsExactlyElementsOf(eventIds);
+            // 第 3 次检查发生在暂停等待中：此时游标已关闭
+            assertThat(depthChecks.get()).isGreaterThanOrEqualTo(3);
+            assertThat(cursorOpenedDuringWait.get()).isZero();
+            assertThat(openCursors.get()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("创建")
+    class Create {
+
+        @Test
+        @DisplayName("创建立即返回，total 由后台统计后回填")
+        void create_shouldCountTotalAsynchronously() throws InterruptedException {
+            BulkRetryJobDocument job = createJob();
+            assertThat(job.getTotal()).isNull();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (bulkRetryJobs.get(job.getId()).getTotal() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertThat(bulkRetryJobs.get(job.getId()).getTotal()).isEqualTo(EVENTS);
+        }
+    }
+
+    private BulkRetryJobDocument createJob() {
+        return bulkRetryJobs.create(
+            new BulkRetryJobs.Filter(TOPIC, List.of(EventStatus.FAILED.name()), null, null, null), 10_000.0, BATCH_SIZE, "test");
+    }
+
+    private void markRunning(BulkRetryJobDocument job, String owner, Instant heartbeatAt, String checkpointEventId) {
+        Update update = new Update()
+            .set("state", BulkRetryJobs.State.RUNNING.name())
+            .set("owner", owner)
+            .set("heartbeatAt", heartbeatAt);
+        if (checkpointEventId != null) {
+            EventDocument checkpoint = eventRepository.findById(checkpointEventId).orElseThrow();
+            update.set("checkpointOccurredAt", checkpoint.getOccurredAt()).set("checkpointEventId", checkpointEventId);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job.getId())), update, BulkRetryJobDocument.class);
+    }
+
+    /** 轮询间隔设为 1 小时：调度线程不会自行执行，由测试调用 tick；背压检查关闭 */
+    private BulkRetryRunner runner(String applicationName) {
+        BulkRetryRunner runner = new BulkRetryRunner(
+            mongoTemplate, eventRepository, eventConsumptionRepository, publisher, topicRoutingTable, amqpAdmin,
+            3_600_000L, 30_000L, 0L, applicationName
+        );
+        runner.start();
+        runners.add(runner);
+        return runner;
+    }
+
+    /** 记录按 topic 发布与定向重投的 eventId；可在第 N 次调用时抛异常，或在首次调用时执行回调 */
+    static class RecordingPublisher implements EventPublisherPort {
+        final List<String> published = new ArrayList<>();
+        int failOnCall;
+        Runnable onFirstCall;
+        private int calls;
+
+        @Override
+        public void publish(EventEnvelope envelope) {
+            publishAll(List.of(envelope));
+        }
+
+        @Override
+        public void publishAll(List<EventEnvelope> envelopes) {
+            record(envelopes);
+        }
+
+        @Override
+        public void redeliverAll(List<Redelivery> redeliveries) {
+            record(redeliveries.stream().map(Redelivery::envelope).toList());
+        }
+
+        private void record(List<EventEnvelope> envelopes) {
+            calls++;
+            if (calls == failOnCall) throw new IllegalStateException("broker unavailable");
+            if (calls == 1 && onFirstCall != null) onFirstCall.run();
+            envelopes.forEach(e -> published.add(e.eventId()));
+        }
+    }
+}
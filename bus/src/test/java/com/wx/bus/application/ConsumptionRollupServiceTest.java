@@ -0,0 +1,143 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.wx.bus.application.ConsumptionRollupService.RollupRequest;
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.support.BusMetrics;
+
+/**
+ * 消费汇总测试：批量汇总时同一 eventId 只查询、回写一次；增量汇总按前置结果依次尝试条件迁移，重复反馈视为已处理，未初始化计数时回退队列。
+ * <p>仓储为 mock，不依赖 MongoDB、RabbitMQ；增量汇总的 pipeline update（计数迁移与 status 推导）进程内 MongoDB 不支持，不在此覆盖。</p>
+ */
+class ConsumptionRollupServiceTest {
+
+    private static final String EVENT_ID = "evt-rollup-1";
+    private static final String MEMBER = "member-service";
+    private static final String POINTS = "points-service";
+
+    @Nested
+    @DisplayName("批量汇总")
+    class Coalescing {
+
+        @Test
+        @DisplayName("一批内同一 eventId 多次请求：去重后一次 $in 查询、一次 bulk 回写，每个事件按最新一条记录汇总")
+        void duplicateRequests_shouldBeCoalesced() {
+            EventRepository eventRepository = mock(EventRepository.class);
+            EventConsumptionRepository consumptionRepository = mock(EventConsumptionRepository.class);
+            when(consumptionRepository.findByEventIdIn(anyCollection())).thenReturn(List.of(
+                consumption(EVENT_ID, MEMBER, 0, false),
+                consumption(EVENT_ID, MEMBER, 1, true),
+                consumption(EVENT_ID, POINTS, 0, true),
+                consumption("evt-rollup-2", MEMBER, 0, false)
+            ));
+            when(eventRepository.applyRollupStatuses(any(), any())).thenReturn(2);
+            ConsumptionRollupService service = new ConsumptionRollupService(eventRepository, consumptionRepository, BusMetrics.noop());
+
+            int matched = service.rollupAndWriteBackAll(List.of(
+                new RollupRequest(EVENT_ID, "order.purchased", MEMBER),
+                new RollupRequest("evt-rollup-2", "order.purchased", MEMBER),
+                new RollupRequest(EVENT_ID, "order.purchased", POINTS)
+            ));
+
+            assertThat(matched).isEqualTo(2);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+            verify(consumptionRepository, times(1)).findByEventIdIn(ids.capture());
+            assertThat(ids.getValue()).containsExactly(EVENT_ID, "evt-rollup-2");
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Map<String, String>> statuses = ArgumentCaptor.forClass(Map.class);
+            verify(eventRepository, times(1)).applyRollupStatuses(statuses.capture(), any());
+            assertThat(statuses.getValue()).containsExactly(
+                Map.entry(EVENT_ID, EventStatus.CONSUMED.name()),
+                Map.entry("evt-rollup-2", EventStatus.FAILED.name())
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("增量汇总")
+    class Incremental {
+
+        private final EventRepository eventRepository = mock(EventRepository.class);
+        private final ConsumptionRollupService service = new ConsumptionRollupService(
+            eventRepository, mock(EventConsumptionRepository.class), BusMetrics.noop()
+        );
+
+        @Test
+        @DisplayName("首次反馈：以 PENDING 为前置条件迁移命中即完成，不再尝试其它结果")
+        void firstOutcome_shouldMoveFromPending() {
+            when(eventRepository.applyConsumerOutcome(eq(EVENT_ID), eq(MEMBER), eq("PENDING"), eq("SUCCESS"), any()))
+                .thenReturn(EventStatus.SENT.name());
+
+            assertThat(service.applyOutcome(EVENT_ID, MEMBER, true)).isTrue();
+
+            verify(eventRepository, never()).applyConsumerOutcome(any(), any(), eq("FAILED"), any(), any());
+            verify(eventRepository, never()).hasConsumerOutcome(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("失败后重试成功：PENDING 未命中，以 FAILED 为前置条件迁移")
+        void retriedOutcome_shouldMoveFromOtherOutcome() {
+            when(eventRepository.applyConsumerOutcome(eq(EVENT_ID), eq(MEMBER), eq("FAILED"), eq("SUCCESS"), any()))
+                .thenReturn(EventStatus.CONSUMED.name());
+
+            assertThat(service.applyOutcome(EVENT_ID, MEMBER, true)).isTrue();
+
+            verify(eventRepository).applyConsumerOutcome(eq(EVENT_ID), eq(MEMBER), eq("PENDING"), eq("SUCCESS"), any());
+            verify(eventRepository, never()).applyConsumerOutcome(any(), any(), eq("SUCCESS"), any(), any());
+        }
+
+        @Test
+        @DisplayName("重复反馈同一结果：迁移均未命中但结果已是目标值，视为已处理，不回退队列")
+        void repeatedOutcome_shouldBeTreatedAsApplied() {
+            when(eventRepository.hasConsumerOutcome(EVENT_ID, MEMBER, "FAILED")).thenReturn(true);
+
+            assertThat(service.applyOutcome(EVENT_ID, MEMBER, false)).isTrue();
+
+            verify(eventRepository, times(2)).applyConsumerOutcome(eq(EVENT_ID), eq(MEMBER), any(), eq("FAILED"), any());
+        }
+
+        @Test
+        @DisplayName("未初始化计数的事件、不能作为字段名的 consumerId：返回 false，回退到队列汇总")
+        void uninitialized_shouldFallBackToQueue() {
+            assertThat(service.applyOutcome(EVENT_ID, MEMBER, true)).isFalse();
+            assertThat(service.applyOutcome(EVENT_ID, "bad.consumer", true)).isFalse();
+            assertThat(service.applyOutcome(EVENT_ID, "$consumer", true)).isFalse();
+
+            verify(eventRepository, never()).applyConsumerOutcome(any(), eq("bad.consumer"), any(), any(), any());
+            verify(eventRepository, never()).applyConsumerOutcome(any(), eq("$consumer"), any(), any(), any());
+        }
+    }
+
+    private static EventConsumptionDocument consumption(String eventId, String consumerId, int attemptNo, boolean success) {
+        EventConsumptionDocument c = new EventConsumptionDocument();
+        c.setEventId(eventId);
+        c.setConsumerId(consumerId);
+        c.setAttemptNo(attemptNo);
+        c.setSuccess(success);
+        c.setConsumedAt(Instant.now());
+        return c;
+    }
+}
@@ -4,8 +4,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -183,6 +188,137 @@ class EventPublishServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("publishAll - 批量发送")
+    class PublishAll {
+
+        @Test
+        @DisplayName("混合有/无消费者 topic：结果与入参顺序一致，有消费者的批量落库并置 SENT")
+        void shouldPublishBatchAndKeepResultOrder() {
+            TopicConsumerDocument tc = new TopicConsumerDocument();
+            tc.setTopic(TOPIC);
+            tc.setConsumerId("member-service");
+            tc.setEnabled(true);
+            tc.setCreatedAt(Instant.now());
+            tc.setUpdatedAt(Instant.now());
+            topicConsumerRepository.save(tc);
+
+            EventEnvelope first = EventPublishService.buildEnvelope(
+                null, "trace-1", null, null, TOPIC, PAYLOAD, null, null, null, null
+            );
+            EventEnvelope noConsumer = EventPublishService.buildEnvelope(
+                null, "trace-1", null, null, "order.unknown", PAYLOAD, null, null, null, null
+            );
+            EventEnvelope second = EventPublishService.buildEnvelope(
+                null, "trace-1", null, null, TOPIC, PAYLOAD, null, null, null, null
+            );
+
+            List<PublishResult> results = eventPublishService.publishAll(List.of(first, noConsumer, second));
+
+            assertThat(results).extracting(PublishResult::eventId)
+                .containsExactly(first.eventId(), noConsumer.eventId(), second.eventId());
+            assertThat(results).extracting(PublishResult::success).containsExactly(true, false, true);
+
+            assertThat(eventRepository.findById(first.eventId())).get()
+                .extracting(EventDocument::getStatus).isEqualTo("SENT");
+            assertThat(eventRepository.findById(second.eventId())).get()
+                .extracting(EventDocument::getStatus).isEqualTo("SENT");
+            assertThat(eventRepository.findById(noConsumer.eventId())).isEmpty();
+            assertThat(eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(second.eventId())).hasSize(1);
+
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, TimeUnit.SECONDS.toMillis(5))).isNotNull();
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, TimeUnit.SECONDS.toMillis(5))).isNotNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("publish - 重复 eventId")
+    class PublishDuplicateEventId {
+
+        @Test
+        @DisplayName("同一 eventId 再次发送时返回 skipped，不覆盖已落库事件、不新增消费记录、不重发 MQ")
+        void whenEventIdAlreadyPublished_shouldSkipWithoutOverwriting() {
+            saveEnabledConsumer("member-service");
+
+            PublishResult first = eventPublishService.publish(envelope);
+            assertThat(first.success()).isTrue();
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, TimeUnit.SECONDS.toMillis(5))).isNotNull();
+            EventDocument stored = eventRepository.findById(EVENT_ID).orElseThrow();
+            eventConsumptionRepository.recordAttempt(EVENT_ID, "member-service", true, Instant.now(), null, null);
+
+            PublishResult second = eventPublishService.publish(envelope);
+
+            assertThat(second.success()).isFalse();
+            assertThat(second.eventId()).isEqualTo(EVENT_ID);
+            assertThat(second.message()).contains("Duplicate eventId");
+
+            EventDocument after = eventRepository.findById(EVENT_ID).orElseThrow();
+            assertThat(after.getStatus()).isNotEqualTo("PENDING");
+            assertThat(after.getCreatedAt()).isEqualTo(stored.getCreatedAt());
+            List<EventConsumptionDocument> consumptions = eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(EVENT_ID);
+            assertThat(consumptions).hasSize(1);
+            assertThat(consumptions.get(0).getSuccess()).isTrue();
+
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, 500)).isNull();
+        }
+
+        @Test
+        @DisplayName("publishAll 批内含重复 eventId：仅首条落库发送，其余 skipped")
+        void whenBatchContainsDuplicate_shouldPublishOnlyFirst() {
+            saveEnabledConsumer("member-service");
+
+            List<PublishResult> results = eventPublishService.publishAll(List.of(envelope, envelope));
+
+            assertThat(results).extracting(PublishResult::success).containsExactly(true, false);
+            assertThat(eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(EVENT_ID)).hasSize(1);
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, TimeUnit.SECONDS.toMillis(5))).isNotNull();
+            assertThat(rabbitTemplate.receive(TestRabbitConfig.TEST_QUEUE_ORDER_PURCHASED, 500)).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("recordAttempt - 并发反馈")
+    class ConcurrentRecordAttempt {
+
+        @Test
+        @DisplayName("多线程同时写同一 eventId+consumerId 的反馈：attemptNo 连续且不重复")
+        void concurrentAttempts_shouldGetDistinctAttemptNos() throws Exception {
+            saveEnabledConsumer("member-service");
+            EventEnvelope fresh = EventPublishService.buildEnvelope(
+                null, "trace-1", null, null, TOPIC, PAYLOAD, null, null, null, null
+            );
+            assertThat(eventPublishService.publish(fresh).success()).isTrue();
+
+            int threads = 8;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<EventConsumptionDocument>> futures = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    boolean success = i % 2 == 0;
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        return eventConsumptionRepository.recordAttempt(
+                            fresh.eventId(), "member-service", success, Instant.now(), success ? null : "boom", null
+                        );
+                    }));
+                }
+                start.countDown();
+                for (Future<EventConsumptionDocument> f : futures) {
+                    assertThat(f.get(10, TimeUnit.SECONDS)).isNotNull();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            List<EventConsumptionDocument> consumptions = eventConsumptionRepository.findByEventIdOrderByAttemptNoDesc(fresh.eventId());
+            assertThat(consumptions).hasSize(threads);
+            assertThat(consumptions).extracting(EventConsumptionDocument::getAttemptNo)
+                .containsExactly(7, 6, 5, 4, 3, 2, 1, 0);
+            assertThat(consumptions).extracting(EventConsumptionDocument::getSuccess).doesNotContainNull();
+        }
+    }
+
     @Nested
     @DisplayName("buildEnvelope - 静态工厂")
     class BuildEnvelope {
@@ -217,4 +353,14 @@ class EventPublishServiceTest {
             assertThat(built.occurredAt()).isNotNull();
         }
     }
+
+    private void saveEnabledConsumer(String consumerId) {
+        TopicConsumerDocument tc = new TopicConsumerDocument();
+        tc.setTopic(TOPIC);
+        tc.setConsumerId(consumerId);
+        tc.setEnabled(true);
+        tc.setCreatedAt(Instant.now());
+        tc.setUpdatedAt(Instant.now());
+        topicConsumerRepository.save(tc);
+    }
 }
@@ -0,0 +1,140 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.MongoRepositories;
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * 单条重推测试：只向最新一次消费失败的消费者定向重投，没有失败消费者时按 topic 发布，并回写 retryCount 与 status。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），发布端为记录调用的桩。</p>
+ */
+class EventRetryServiceTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final String EVENT_ID = "evt-retry-1";
+    private static final String TOPIC = "order.purchased";
+    private static final String MEMBER = "member-service";
+    private static final String POINTS = "points-service";
+    private static final String COUPON = "coupon-service";
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final EventRepository eventRepository = MongoRepositories.eventRepository(mongoTemplate);
+    private final RecordingPublisher publisher = new RecordingPublisher();
+    private final EventRetryService retryService = new EventRetryService(
+        eventRepository, publisher, MongoRepositories.eventConsumptionRepository(mongoTemplate)
+    );
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("定向重投")
+    class Redeliver {
+
+        @Test
+        @DisplayName("按各消费者最新一条记录：仍失败的重投，重试后已成功、一直成功的不再收到")
+        void failedConsumers_shouldReceiveRedelivery() {
+            insertEvent(EventStatus.PARTIAL);
+            insertConsumption(MEMBER, 0, false);
+            insertConsumption(POINTS, 0, false);
+            insertConsumption(POINTS, 1, true);
+            insertConsumption(COUPON, 0, true);
+
+            assertThat(retryService.retry(EVENT_ID)).isTrue();
+
+            assertThat(publisher.published).isEmpty();
+            assertThat(publisher.redelivered).containsExactly(List.of(MEMBER));
+            EventDocument doc = eventRepository.findById(EVENT_ID).orElseThrow();
+            assertThat(doc.getRetryCount()).isEqualTo(1);
+            assertThat(doc.getStatus()).isEqualTo(EventStatus.SENT.name());
+        }
+
+        @Test
+        @DisplayName("没有失败的消费记录（发送失败、超时未消费）：按 topic 发布")
+        void noFailedConsumer_shouldPublishToTopic() {
+            insertEvent(EventStatus.FAILED);
+            insertConsumption(MEMBER, 0, null);
+
+            assertThat(retryService.retry(EVENT_ID)).isTrue();
+
+            assertThat(publisher.published).containsExactly(EVENT_ID);
+            assertThat(publisher.redelivered).isEmpty();
+        }
+
+        @Test
+        @DisplayName("状态不允许重推：不发布，retryCount 不变")
+        void consumedEvent_shouldNotBeRetried() {
+            insertEvent(EventStatus.CONSUMED);
+            insertConsumption(MEMBER, 0, false);
+
+            assertThat(retryService.retry(EVENT_ID)).isFalse();
+
+            assertThat(publisher.published).isEmpty();
+            assertThat(publisher.redelivered).isEmpty();
+            assertThat(eventRepository.findById(EVENT_ID).orElseThrow().getRetryCount()).isZero();
+        }
+    }
+
+    private void insertEvent(EventStatus status) {
+        EventDocument doc = new EventDocument();
+        doc.setId(EVENT_ID);
+        doc.setEventId(EVENT_ID);
+        doc.setTopic(TOPIC);
+        doc.setPayload("{\"orderId\":\"o1\"}");
+        doc.setStatus(status.name());
+        doc.setOccurredAt(Instant.now());
+        mongoTemplate.insert(doc);
+    }
+
+    private void insertConsumption(String consumerId, int attemptNo, Boolean success) {
+        EventConsumptionDocument c = new EventConsumptionDocument();
+        c.setEventId(EVENT_ID);
+        c.setConsumerId(consumerId);
+        c.setAttemptNo(attemptNo);
+        c.setSuccess(success);
+        c.setConsumedAt(success != null ? Instant.now() : null);
+        mongoTemplate.insert(c);
+    }
+
+    /** 记录按 topic 发布的 eventId 与每次定向重投的消费者列表 */
+    static class RecordingPublisher implements EventPublisherPort {
+        final List<String> published = new ArrayList<>();
+        final List<List<String>> redelivered = new ArrayList<>();
+
+        @Override
+        public void publish(EventEnvelope envelope) {
+            published.add(envelope.eventId());
+        }
+
+        @Override
+        public void redeliver(EventEnvelope envelope, Collection<String> consumerIds) {
+            redelivered.add(List.copyOf(consumerIds));
+        }
+    }
+}
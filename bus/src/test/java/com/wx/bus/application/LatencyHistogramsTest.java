@@ -0,0 +1,90 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.wx.bus.application.LatencyHistograms.Stage;
+import com.wx.bus.infrastructure.mongo.LatencyHistogramDocument;
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * 延迟直方图测试：区间直方图按键写出、超量程按最大值记，空闲键在上报时移除，移除后再次记录重新建键。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），直接调用 {@code flush}，不启动上报线程。</p>
+ */
+class LatencyHistogramsTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final String TOPIC = "order.purchased";
+    private static final String CONSUMER = "member-service";
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("上报")
+    class Flush {
+
+        @Test
+        @DisplayName("有记录的键写出一条区间直方图，超过最大量程的延迟按最大值记")
+        void recorded_shouldBeFlushedAndClamped() {
+            LatencyHistograms histograms = histograms(600_000);
+            Instant sentAt = Instant.now();
+            histograms.record(Stage.SENT_CONSUMED, TOPIC, CONSUMER, sentAt, sentAt.plusMillis(20));
+            histograms.record(Stage.SENT_CONSUMED, TOPIC, CONSUMER, sentAt, sentAt.plus(Duration.ofDays(2)));
+
+            histograms.flush();
+
+            List<LatencyHistogramDocument> docs = mongoTemplate.findAll(LatencyHistogramDocument.class);
+            assertThat(docs).singleElement().satisfies(doc -> {
+                assertThat(doc.getStage()).isEqualTo(Stage.SENT_CONSUMED.tag());
+                assertThat(doc.getCount()).isEqualTo(2);
+                assertThat(doc.getHistogram()).isNotEmpty();
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("空闲键")
+    class IdleEviction {
+
+        @Test
+        @DisplayName("超过 idle-evict-ms 无记录：上报时移除；再次记录重新建键并正常写出")
+        void idleKey_shouldBeEvictedAndRecreated() {
+            LatencyHistograms histograms = histograms(0);
+            Instant sentAt = Instant.now();
+            histograms.record(Stage.SENT_CONSUMED, TOPIC, CONSUMER, sentAt, sentAt.plusMillis(5));
+
+            histograms.flush();
+            assertThat(histograms.keyCount()).isEqualTo(1);
+            histograms.flush();
+            assertThat(histograms.keyCount()).isZero();
+
+            histograms.record(Stage.SENT_CONSUMED, TOPIC, CONSUMER, sentAt, sentAt.plusMillis(7));
+            histograms.flush();
+            assertThat(mongoTemplate.findAll(LatencyHistogramDocument.class)).hasSize(2);
+        }
+    }
+
+    private LatencyHistograms histograms(long idleEvictMillis) {
+        return new LatencyHistograms(mongoTemplate, 10_000, 24, idleEvictMillis, "latency-test");
+    }
+}
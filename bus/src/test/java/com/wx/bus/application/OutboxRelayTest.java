@@ -0,0 +1,140 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.wx.bus.application.port.EventPublisherPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.bus.infrastructure.mongo.MongoRepositories;
+import com.wx.bus.infrastructure.mongo.PartitionLeaseDocument;
+import com.wx.bus.infrastructure.mongo.OutboxLeaseManager;
+import com.wx.bus.support.BusMetrics;
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * outbox 投递测试：验证调小 {@code bus.outbox.partitions} 后，写在旧分区上的 PENDING 事件按取模继续投递。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），发布端为记录调用的桩。</p>
+ */
+class OutboxRelayTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+
+    private static final int OLD_PARTITIONS = 32;
+    private static final int PARTITIONS = 16;
+    private static final String TOPIC = "order.purchased";
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final EventRepository eventRepository = MongoRepositories.eventRepository(mongoTemplate);
+    private final List<String> published = new CopyOnWriteArrayList<>();
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterEach
+    void stopRelay() {
+        if (relay != null) relay.stop();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("分区数调小")
+    class LoweredPartitions {
+
+        @Test
+        @DisplayName("旧分区 q ≥ partitions 上的 PENDING 事件由持有 q % partitions 的节点投递并置 SENT")
+        void pendingEventsInLegacyPartitions_shouldBeRelayed() throws Exception {
+            // 旧配置（32 个分区）下各分区的租约均已过期
+            for (int p = 0; p < OLD_PARTITIONS; p++) {
+                PartitionLeaseDocument lease = new PartitionLeaseDocument();
+                lease.setPartition(p);
+                lease.setOwner("old-node");
+                lease.setExpiresAt(Instant.now().minusSeconds(60));
+                mongoTemplate.insert(lease);
+            }
+            insertPending("evt-outbox-legacy", 20);
+            insertPending("evt-outbox-current", 4);
+
+            relay = relay();
+            relay.start();
+            awaitPublished(2);
+            // 发布桩先记录、再由 relay 回写 SENT，等回写完成再断言
+            awaitStatus("evt-outbox-legacy", EventStatus.SENT);
+
+            assertThat(published).containsExactlyInAnyOrder("evt-outbox-legacy", "evt-outbox-current");
+            assertThat(eventRepository.findById("evt-outbox-legacy")).get()
+                .extracting(EventDocument::getStatus).isEqualTo(EventStatus.SENT.name());
+        }
+
+        @Test
+        @DisplayName("轮询分区：持有分区加上取模归属它们的旧分区，未持有分区的旧分区不轮询")
+        void pollPartitions_shouldMapLegacyPartitionsByModulo() {
+            List<Integer> polled = OutboxRelay.pollPartitions(List.of(3, 4), List.of(16, 19, 20, 35, 36), PARTITIONS);
+
+            assertThat(polled).containsExactly(3, 4, 19, 20, 35, 36);
+            assertThat(OutboxRelay.pollPartitions(List.of(), List.of(20), PARTITIONS)).isEmpty();
+        }
+    }
+
+    private void insertPending(String eventId, int outboxPartition) {
+        EventDocument doc = new EventDocument();
+        doc.setId(eventId);
+        doc.setEventId(eventId);
+        doc.setTopic(TOPIC);
+        doc.setPayload("{\"orderId\":\"o1\"}");
+        doc.setPayloadType(EventEnvelope.PAYLOAD_TYPE_JSON);
+        doc.setStatus(EventStatus.PENDING.name());
+        doc.setOutboxPartition(outboxPartition);
+        doc.setOccurredAt(Instant.now());
+        doc.setCreatedAt(Instant.now());
+        mongoTemplate.insert(doc);
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (published.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    private void awaitStatus(String eventId, EventStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!status.name().equals(eventRepository.findById(eventId).map(EventDocument::getStatus).orElse(null))
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    private OutboxRelay relay() {
+        EventPublisherPort publisher = new EventPublisherPort() {
+            @Override
+            public void publish(EventEnvelope envelope) {
+                published.add(envelope.eventId());
+            }
+        };
+        return new OutboxRelay(
+            eventRepository, publisher, new OutboxLeaseManager(mongoTemplate), BusMetrics.noop(),
+            PARTITIONS, 100, 20, 15_000, 30_000, "relay-test"
+        );
+    }
+}
@@ -0,0 +1,159 @@
+package com.wx.bus.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.bus.infrastructure.mongo.PayloadClaimCheckStore;
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * claim-check 测试：超过阈值的载荷写入 GridFS 并替换为引用，消费前按引用还原（读过的引用走本地缓存）；
+ * 清理任务删除到期文件与事件不存在的孤儿文件。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），清理任务不启动调度线程，由测试直接调用 {@code cleanup}。</p>
+ */
+class PayloadClaimCheckTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final String TOPIC = "order.purchased";
+    private static final int THRESHOLD_BYTES = 64;
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final GridFsTemplate gridFsTemplate = new GridFsTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+    private final PayloadClaimCheckStore store = new PayloadClaimCheckStore(gridFsTemplate, mongoTemplate, "fs");
+    private final PayloadClaimCheck claimCheck = new PayloadClaimCheck(store, new ObjectMapper(), true, THRESHOLD_BYTES, 168, 1 << 20);
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("写入与还原")
+    class CheckInAndResolve {
+
+        @Test
+        @DisplayName("超过阈值：载荷写入存储、信封改为引用；还原后载荷与 payloadType 与原来一致")
+        void largePayload_shouldRoundTripThroughStore() {
+            EventEnvelope original = envelope("evt-claim-1", largePayload(), Instant.now().plus(1, ChronoUnit.DAYS));
+
+            EventEnvelope checkedIn = claimCheck.checkIn(original);
+
+            assertThat(checkedIn.payloadType()).isEqualTo(EventEnvelope.PAYLOAD_TYPE_CLAIM_CHECK);
+            assertThat(checkedIn.payload()).isInstanceOf(Map.class);
+            assertThat(gridFsTemplate.find(new Query())).hasSize(1);
+
+            EventEnvelope resolved = claimCheck.resolve(checkedIn);
+            assertThat(resolved.payload()).isEqualTo(original.payload());
+            assertThat(resolved.payloadType()).isEqualTo(EventEnvelope.PAYLOAD_TYPE_JSON);
+            assertThat(resolved.eventId()).isEqualTo(original.eventId());
+        }
+
+        @Test
+        @DisplayName("未达阈值、已是引用：原样返回，不写存储")
+        void smallOrCheckedInPayload_shouldBeUnchanged() {
+            EventEnvelope small = envelope("evt-claim-1", Map.of("orderId", "o1"), null);
+            assertThat(claimCheck.checkIn(small)).isSameAs(small);
+
+            EventEnvelope checkedIn = claimCheck.checkIn(envelope("evt-claim-2", largePayload(), null));
+            assertThat(claimCheck.checkIn(checkedIn)).isSameAs(checkedIn);
+            assertThat(gridFsTemplate.find(new Query())).hasSize(1);
+        }
+
+        @Test
+        @DisplayName("已还原过的引用走本地缓存：存储文件删除后仍可还原；未缓存的引用不存在时抛异常")
+        void resolvedRef_shouldBeCached() {
+            EventEnvelope cached = claimCheck.checkIn(envelope("evt-claim-1", largePayload(), null));
+            EventEnvelope uncached = new PayloadClaimCheck(store, new ObjectMapper(), true, THRESHOLD_BYTES, 168, 1 << 20)
+                .checkIn(envelope("evt-claim-2", largePayload(), null));
+            claimCheck.resolve(cached);
+
+            store.deleteExpired(Instant.now().plus(365, ChronoUnit.DAYS));
+
+            assertThat(claimCheck.resolve(cached).payload()).isEqualTo(largePayload());
+            assertThatThrownBy(() -> claimCheck.resolve(uncached))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not found");
+        }
+    }
+
+    @Nested
+    @DisplayName("清理")
+    class Cleanup {
+
+        @Test
+        @DisplayName("到期文件删除；过了宽限期且事件不存在的孤儿文件删除；事件存在且未到期的保留")
+        void expiredAndOrphaned_shouldBeDeleted() throws Exception {
+            EventEnvelope kept = claimCheck.checkIn(envelope("evt-claim-kept", largePayload(), Instant.now().plus(1, ChronoUnit.DAYS)));
+            claimCheck.checkIn(envelope("evt-claim-orphan", largePayload(), Instant.now().plus(1, ChronoUnit.DAYS)));
+            claimCheck.checkIn(envelope("evt-claim-expired", largePayload(), Instant.now().minusSeconds(1)));
+            insertEvent("evt-claim-kept");
+            insertEvent("evt-claim-expired");
+            // 孤儿扫描区间按毫秒右开，等上传时间落到扫描上界之前
+            Thread.sleep(5);
+
+            PayloadClaimCheckCleaner cleaner = new PayloadClaimCheckCleaner(store, mongoTemplate, 3_600_000, 0, 168, false);
+            cleaner.start();
+            cleaner.stop();
+            cleaner.cleanup();
+
+            List<PayloadClaimCheckStore.StoredPayload> remaining =
+                store.findUploadedBetween(Instant.now().minus(1, ChronoUnit.DAYS), Instant.now().plusSeconds(1), 10);
+            assertThat(remaining).extracting(PayloadClaimCheckStore.StoredPayload::eventId).containsExactly("evt-claim-kept");
+            assertThat(claimCheck.resolve(kept).payload()).isEqualTo(largePayload());
+        }
+
+        @Test
+        @DisplayName("宽限期内的新文件：事件尚未落库也不删除")
+        void withinGrace_shouldBeKept() {
+            claimCheck.checkIn(envelope("evt-claim-new", largePayload(), null));
+
+            PayloadClaimCheckCleaner cleaner = new PayloadClaimCheckCleaner(store, mongoTemplate, 3_600_000, 600_000, 168, false);
+            cleaner.start();
+            cleaner.stop();
+            cleaner.cleanup();
+
+            assertThat(store.findUploadedBetween(Instant.now().minus(1, ChronoUnit.DAYS), Instant.now().plusSeconds(1), 10)).hasSize(1);
+        }
+    }
+
+    private void insertEvent(String eventId) {
+        EventDocument doc = new EventDocument();
+        doc.setId(eventId);
+        doc.setEventId(eventId);
+        doc.setTopic(TOPIC);
+        mongoTemplate.insert(doc);
+    }
+
+    private static Map<String, Object> largePayload() {
+        return Map.of("orderId", "o1", "note", "x".repeat(THRESHOLD_BYTES * 2));
+    }
+
+    private static EventEnvelope envelope(String eventId, Object payload, Instant expireAt) {
+        return new EventEnvelope(
+            eventId, "trace-1", null, null, TOPIC, payload, EventEnvelope.PAYLOAD_TYPE_JSON,
+            null, Instant.now(), null, expireAt
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package com.wx.bus.infrastructure.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.wx.bus.domain.EventEnvelope;
+
+/**
+ * 编解码装配测试：应用 ObjectMapper 为 {@link JsonMapper} 时上下文可启动，Smile/CBOR 只在 bus.codec.* 选用时创建。
+ * <p>不依赖 MongoDB、RabbitMQ。</p>
+ */
+class PayloadCodecConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withUserConfiguration(JsonMapperConfig.class, PayloadCodecConfig.class, PayloadCodecs.class);
+
+    private static final EventEnvelope ENVELOPE = new EventEnvelope(
+        "evt-codec-1", "trace-1", null, null, "order.purchased", "{\"orderId\":\"o1\"}", EventEnvelope.PAYLOAD_TYPE_JSON,
+        null, Instant.parse("2026-01-01T00:00:00.123Z"), null, null
+    );
+
+    @Nested
+    @DisplayName("按配置创建")
+    class Selection {
+
+        @Test
+        @DisplayName("未选用二进制编码：只有 json，Smile content-type 回退 JSON 解码")
+        void defaults_shouldRegisterJsonOnly() {
+            runner.run(context -> {
+                assertThat(context).hasNotFailed();
+                assertThat(context.getBeansOfType(PayloadCodec.class)).containsOnlyKeys("jsonPayloadCodec");
+                assertThat(context.getBean(PayloadCodecs.class).forContentType(PayloadCodecConfig.SMILE_CONTENT_TYPE).name())
+                    .isEqualTo("json");
+            });
+        }
+
+        @Test
+        @DisplayName("bus.codec.topics 选用 smile：只创建 smile，并作为该 topic 的发布编码")
+        void topicMapping_shouldRegisterSelectedCodec() {
+            runner.withPropertyValues("bus.codec.topics=order.purchased=smile").run(context -> {
+                assertThat(context).hasNotFailed();
+                assertThat(context.getBeansOfType(PayloadCodec.class)).containsOnlyKeys("jsonPayloadCodec", "smilePayloadCodec");
+                assertThat(context.getBean(PayloadCodecs.class).forTopic("order.purchased").name()).isEqualTo("smile");
+            });
+        }
+
+        @Test
+        @DisplayName("bus.codec.default 与 bus.codec.decoders 同样生效")
+        void defaultAndDecoders_shouldRegisterCodecs() {
+            runner.withPropertyValues("bus.codec.default=cbor", "bus.codec.decoders=smile").run(context -> {
+                assertThat(context).hasNotFailed();
+                assertThat(context.getBeansOfType(PayloadCodec.class))
+                    .containsOnlyKeys("jsonPayloadCodec", "smilePayloadCodec", "cborPayloadCodec");
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("编解码")
+    class RoundTrip {
+
+        @Test
+        @DisplayName("JsonMapper 为主 ObjectMapper 时 Smile/CBOR 往返一致，Instant 按 JavaTimeModule 处理")
+        void binaryCodecs_shouldRoundTripWithJsonMapper() {
+            runner.withPropertyValues("bus.codec.decoders=smile,cbor").run(context -> {
+                PayloadCodecs codecs = context.getBean(PayloadCodecs.class);
+                for (String contentType : new String[] {PayloadCodecConfig.SMILE_CONTENT_TYPE, PayloadCodecConfig.CBOR_CONTENT_TYPE}) {
+                    PayloadCodec codec = codecs.forContentType(contentType);
+                    assertThat(codec.contentType()).isEqualTo(contentType);
+                    assertThat(codec.decode(codec.encode(ENVELOPE))).isEqualTo(ENVELOPE);
+                }
+            });
+        }
+
+        @Test
+        @DisplayName("沿用应用 ObjectMapper 的特性开关：日期按 ISO 字符串写出时二进制编码同样如此")
+        void binaryCodecs_shouldFollowApplicationFeatures() {
+            ObjectMapper source = JsonMapper.builder().findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+            PayloadCodec smile = PayloadCodecConfig.smile(source, List.of());
+
+            byte[] encoded = smile.encode(ENVELOPE);
+
+            assertThat(new String(encoded, StandardCharsets.ISO_8859_1)).contains("2026-01-01T00:00:00.123Z");
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class JsonMapperConfig {
+
+        @Bean
+        @Primary
+        JsonMapper jsonMapper() {
+            return JsonMapper.builder().findAndAddModules().build();
+        }
+    }
+}
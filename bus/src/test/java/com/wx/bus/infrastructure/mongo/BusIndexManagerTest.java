@@ -0,0 +1,58 @@
+package com.wx.bus.infrastructure.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * 索引管理测试：按实体注解确保索引后，删除已被复合索引取代的旧索引。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}）。</p>
+ */
+class BusIndexManagerTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("旧索引")
+    class Obsolete {
+
+        @Test
+        @DisplayName("events 上的单字段 topic、status 索引被删除，复合索引保留")
+        void singleFieldTopicAndStatus_shouldBeDropped() {
+            mongoTemplate.indexOps(EventDocument.class).ensureIndex(new Index().on("topic", Sort.Direction.ASC).named("topic"));
+            mongoTemplate.indexOps(EventDocument.class).ensureIndex(new Index().on("status", Sort.Direction.ASC).named("status"));
+
+            new BusIndexManager(mongoTemplate, true).ensureAll();
+
+            List<String> names = mongoTemplate.indexOps(EventDocument.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .toList();
+            assertThat(names).doesNotContain("topic", "status");
+            assertThat(names).contains("topic_occurredAt", "status_occurredAt");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.wx.bus.infrastructure.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * 消费反馈 attemptNo 分配测试：认领待消费记录、按现有最大值顺序取号、并发撞号后重新取号，以及旧数据重复 attemptNo 的改号。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），唯一索引由 {@link BusIndexManager} 按实体注解建立。</p>
+ */
+class EventConsumptionRepositoryCustomImplTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final String EVENT_ID = "evt-attempt-1";
+    private static final String CONSUMER = "member-service";
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+        new BusIndexManager(mongoTemplate, true).ensureAll();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("单条反馈")
+    class Single {
+
+        @Test
+        @DisplayName("首次反馈认领待消费记录，之后每次反馈取现有最大 attemptNo + 1")
+        void recordAttempt_shouldClaimThenAppend() {
+            EventConsumptionRepositoryCustomImpl repository = new EventConsumptionRepositoryCustomImpl(mongoTemplate);
+            insert(EVENT_ID, CONSUMER, 0, null);
+
+            assertThat(repository.recordAttempt(EVENT_ID, CONSUMER, false, Instant.now(), "boom", null).getAttemptNo()).isZero();
+            assertThat(repository.recordAttempt(EVENT_ID, CONSUMER, false, Instant.now(), "boom", null).getAttemptNo()).isEqualTo(1);
+            assertThat(repository.recordAttempt(EVENT_ID, CONSUMER, true, Instant.now(), null, null).getAttemptNo()).isEqualTo(2);
+
+            assertThat(attemptNos(EVENT_ID, CONSUMER)).containsExactly(0, 1, 2);
+        }
+
+        @Test
+        @DisplayName("取号后被并发反馈占用：唯一索引拒绝，重新取号写入")
+        void recordAttempt_duplicateKey_shouldRetryWithNextNumber() {
+            insert(EVENT_ID, CONSUMER, 1, true);
+            EventConsumptionRepositoryCustomImpl repository = new EventConsumptionRepositoryCustomImpl(racing(EVENT_ID, CONSUMER, 2));
+
+            EventConsumptionDocument recorded = repository.recordAttempt(EVENT_ID, CONSUMER, false, Instant.now(), "boom", null);
+
+            assertThat(recorded.getAttemptNo()).isEqualTo(3);
+            assertThat(attemptNos(EVENT_ID, CONSUMER)).containsExactly(1, 2, 3);
+        }
+    }
+
+    @Nested
+    @DisplayName("批量反馈")
+    class Batch {
+
+        @Test
+        @DisplayName("批内同一对多次反馈：第一条认领待消费记录，其余按现有最大值顺序取号")
+        void recordAttempts_shouldNumberSequentially() {
+            EventConsumptionRepositoryCustomImpl repository = new EventConsumptionRepositoryCustomImpl(mongoTemplate);
+            insert(EVENT_ID, CONSUMER, 0, null);
+            insert("evt-attempt-2", CONSUMER, 4, false);
+
+            List<EventConsumptionDocument> results = repository.recordAttempts(List.of(
+                result(EVENT_ID, CONSUMER), result(EVENT_ID, CONSUMER), result(EVENT_ID, CONSUMER), result("evt-attempt-2", CONSUMER)
+            ));
+
+            assertThat(results).extracting(EventConsumptionDocument::getAttemptNo).containsExactly(0, 1, 2, 5);
+            assertThat(attemptNos(EVENT_ID, CONSUMER)).containsExactly(0, 1, 2);
+            assertThat(attemptNos("evt-attempt-2", CONSUMER)).containsExactly(4, 5);
+        }
+
+        @Test
+        @DisplayName("批量插入撞号：只重试重复键的条目，重新取号写入")
+        void recordAttempts_duplicateKey_shouldRetryOnlyDuplicates() {
+            insert(EVENT_ID, CONSUMER, 1, true);
+            EventConsumptionRepositoryCustomImpl repository = new EventConsumptionRepositoryCustomImpl(racing(EVENT_ID, CONSUMER, 2));
+
+            List<EventConsumptionDocument> results = repository.recordAttempts(List.of(
+                result(EVENT_ID, CONSUMER), result("evt-attempt-2", CONSUMER)
+            ));
+
+            assertThat(results).extracting(EventConsumptionDocument::getAttemptNo).containsExactly(3, 1);
+            assertThat(attemptNos(EVENT_ID, CONSUMER)).containsExactly(1, 2, 3);
+            assertThat(attemptNos("evt-attempt-2", CONSUMER)).containsExactly(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("旧数据")
+    class Legacy {
+
+        @Test
+        @DisplayName("重复 attemptNo 导致唯一索引建立失败：保留最早一条，其余改号为最大值 + 1 后重建索引")
+        void duplicateAttempts_shouldBeRenumberedBeforeUniqueIndex() {
+            MONGO.reset();
+            insert(EVENT_ID, CONSUMER, 1, false);
+            insert(EVENT_ID, CONSUMER, 1, true);
+            insert(EVENT_ID, CONSUMER, 2, true);
+            insert(EVENT_ID, "points-service", 1, true);
+
+            new BusIndexManager(mongoTemplate, true).ensureAll();
+
+            assertThat(attemptNos(EVENT_ID, CONSUMER)).containsExactly(1, 2, 3);
+            assertThat(attemptNos(EVENT_ID, "points-service")).containsExactly(1);
+            assertThat(mongoTemplate.indexOps(EventConsumptionDocument.class).getIndexInfo())
+                .anySatisfy(index -> {
+                    assertThat(index.getName()).isEqualTo("eventId_consumerId_attemptNo");
+                    assertThat(index.isUnique()).isTrue();
+                });
+        }
+    }
+
+    /** 首次按 (eventId, consumerId) 读取最大 attemptNo 之后，模拟另一节点抢先写入 {@code takenAttemptNo} */
+    private MongoTemplate racing(String eventId, String consumerId, int takenAttemptNo) {
+        AtomicBoolean raced = new AtomicBoolean();
+        return new MongoTemplate(mongoTemplate.getMongoDatabaseFactory()) {
+            @Override
+            public <T> List<T> find(Query query, Class<T> entityClass) {
+                List<T> found = super.find(query, entityClass);
+                if (!query.getQueryObject().containsKey("consumerId") || !raced.compareAndSet(false, true)) return found;
+                EventConsumptionRepositoryCustomImplTest.this.insert(eventId, consumerId, takenAttemptNo, true);
+                return found;
+            }
+        };
+    }
+
+    private void insert(String eventId, String consumerId, int attemptNo, Boolean success) {
+        EventConsumptionDocument doc = new EventConsumptionDocument();
+        doc.setEventId(eventId);
+        doc.setConsumerId(consumerId);
+        doc.setAttemptNo(attemptNo);
+        doc.setSuccess(success);
+        doc.setCreatedAt(Instant.now());
+        mongoTemplate.insert(doc);
+    }
+
+    private static EventConsumptionDocument result(String eventId, String consumerId) {
+        EventConsumptionDocument doc = new EventConsumptionDocument();
+        doc.setEventId(eventId);
+        doc.setConsumerId(consumerId);
+        doc.setSuccess(false);
+        doc.setConsumedAt(Instant.now());
+        doc.setErrorMessage("boom");
+        return doc;
+    }
+
+    private List<Integer> attemptNos(String eventId, String consumerId) {
+        Query query = Query.query(Criteria.where("eventId").is(eventId).and("consumerId").is(consumerId))
+            .with(Sort.by("attemptNo"));
+        return mongoTemplate.find(query, EventConsumptionDocument.class).stream()
+            .map(EventConsumptionDocument::getAttemptNo)
+            .toList();
+    }
+}
@@ -0,0 +1,28 @@
+package com.wx.bus.infrastructure.mongo;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+/**
+ * 不启动 Spring 上下文时构造 bus 仓储（含自定义片段），供基于 {@code InMemoryMongo} 的聚焦测试使用。
+ */
+public final class MongoRepositories {
+
+    private MongoRepositories() {
+    }
+
+    public static EventRepository eventRepository(MongoTemplate mongoTemplate) {
+        return new MongoRepositoryFactory(mongoTemplate)
+            .getRepository(EventRepository.class, RepositoryFragments.just(new EventRepositoryCustomImpl(mongoTemplate)));
+    }
+
+    public static EventConsumptionRepository eventConsumptionRepository(MongoTemplate mongoTemplate) {
+        return new MongoRepositoryFactory(mongoTemplate)
+            .getRepository(EventConsumptionRepository.class, RepositoryFragments.just(new EventConsumptionRepositoryCustomImpl(mongoTemplate)));
+    }
+
+    public static TopicConsumerRepository topicConsumerRepository(MongoTemplate mongoTemplate) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(TopicConsumerRepository.class);
+    }
+}
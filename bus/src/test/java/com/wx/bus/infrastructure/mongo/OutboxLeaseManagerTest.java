@@ -0,0 +1,145 @@
+package com.wx.bus.infrastructure.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.wx.bus.support.InMemoryMongo;
+
+/**
+ * outbox 分区租约测试：验证节点加入、正常退出、崩溃后的分区重分配，以及续约时不再计入已被接管的分区。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），不依赖本机服务。</p>
+ */
+class OutboxLeaseManagerTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final OutboxLeaseManager leaseManager = new OutboxLeaseManager(mongoTemplate);
+
+    private static final int PARTITIONS = 16;
+    private static final Duration TTL = Duration.ofSeconds(30);
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("节点加入")
+    class Join {
+
+        @Test
+        @DisplayName("单节点持有全部分区")
+        void singleNode_shouldOwnAllPartitions() {
+            assertThat(leaseManager.rebalance("node-1", PARTITIONS, TTL)).hasSize(PARTITIONS);
+        }
+
+        @Test
+        @DisplayName("不持有分区的新节点也计入存活节点：老节点让出一半，新节点下一轮接管，双方不重叠")
+        void newNodeWithoutLeases_shouldReceiveHalf() {
+            assertThat(leaseManager.rebalance("node-1", PARTITIONS, TTL)).hasSize(PARTITIONS);
+
+            // 全部分区已被占用，新节点本轮只登记心跳
+            assertThat(leaseManager.rebalance("node-2", PARTITIONS, TTL)).isEmpty();
+
+            List<Integer> first = leaseManager.rebalance("node-1", PARTITIONS, TTL);
+            List<Integer> second = leaseManager.rebalance("node-2", PARTITIONS, TTL);
+
+            assertThat(first).hasSize(PARTITIONS / 2);
+            assertThat(second).hasSize(PARTITIONS / 2);
+            Set<Integer> all = new HashSet<>(first);
+            all.addAll(second);
+            assertThat(all).hasSize(PARTITIONS);
+        }
+    }
+
+    @Nested
+    @DisplayName("节点退出")
+    class Leave {
+
+        @Test
+        @DisplayName("正常退出：删除心跳并释放分区，剩余节点下一轮接管全部分区")
+        void leave_shouldReleasePartitionsToRemainingNode() {
+            leaseManager.rebalance("node-1", PARTITIONS, TTL);
+            leaseManager.rebalance("node-2", PARTITIONS, TTL);
+            leaseManager.rebalance("node-1", PARTITIONS, TTL);
+            assertThat(leaseManager.rebalance("node-2", PARTITIONS, TTL)).hasSize(PARTITIONS / 2);
+
+            leaseManager.leave("node-2");
+
+            assertThat(mongoTemplate.findById("node-2", PartitionNodeDocument.class)).isNull();
+            assertThat(leaseManager.rebalance("node-1", PARTITIONS, TTL)).hasSize(PARTITIONS);
+        }
+
+        @Test
+        @DisplayName("崩溃：心跳与租约过期后剩余节点接管全部分区")
+        void crashedNode_shouldBeDroppedAfterExpiry() throws Exception {
+            Duration shortTtl = Duration.ofMillis(300);
+            leaseManager.rebalance("node-1", PARTITIONS, shortTtl);
+            leaseManager.rebalance("node-2", PARTITIONS, shortTtl);
+            leaseManager.rebalance("node-1", PARTITIONS, shortTtl);
+            assertThat(leaseManager.rebalance("node-2", PARTITIONS, shortTtl)).hasSize(PARTITIONS / 2);
+
+            // node-2 不再续约
+            Thread.sleep(shortTtl.toMillis() + 200);
+
+            assertThat(leaseManager.rebalance("node-1", PARTITIONS, shortTtl)).hasSize(PARTITIONS);
+        }
+    }
+
+    @Nested
+    @DisplayName("续约")
+    class Renewal {
+
+        @Test
+        @DisplayName("读取租约后分区被其他节点接管：续约未命中的分区不再计入持有，两节点不重叠")
+        void partitionTakenOverDuringRenewal_shouldBeDropped() {
+            assertThat(leaseManager.rebalance("node-1", PARTITIONS, TTL)).hasSize(PARTITIONS);
+            // 模拟 node-1 读取租约之后、续约之前 node-2 接管了分区 3
+            OutboxLeaseManager racing = new OutboxLeaseManager(new MongoTemplate(mongoTemplate.getMongoDatabaseFactory()) {
+                @Override
+                public <T> List<T> findAll(Class<T> entityClass, String collectionName) {
+                    List<T> leases = super.findAll(entityClass, collectionName);
+                    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(3)),
+                        new Update().set("owner", "node-2").set("expiresAt", Instant.now().plus(TTL)), PartitionLeaseDocument.class);
+                    return leases;
+                }
+            });
+
+            List<Integer> owned = racing.rebalance("node-1", PARTITIONS, TTL);
+
+            assertThat(owned).hasSize(PARTITIONS - 1).doesNotContain(3);
+            assertThat(mongoTemplate.findById(3, PartitionLeaseDocument.class).getOwner()).isEqualTo("node-2");
+        }
+
+        @Test
+        @DisplayName("knownPartitions 返回租约集合中出现过的全部分区号")
+        void knownPartitions_shouldIncludePartitionsAboveCurrentCount() {
+            leaseManager.rebalance("node-1", 32, TTL);
+            leaseManager.leave("node-1");
+            leaseManager.rebalance("node-1", PARTITIONS, TTL);
+
+            assertThat(leaseManager.knownPartitions()).hasSize(32).startsWith(0).endsWith(31);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wx.bus.application.port.BusEventConsumer;
+import com.wx.bus.application.port.ConsumptionFeedbackPort;
+import com.wx.bus.domain.EventEnvelope;
+import com.wx.bus.infrastructure.codec.PayloadCodec;
+import com.wx.bus.infrastructure.codec.PayloadCodecConfig;
+import com.wx.bus.infrastructure.codec.PayloadCodecs;
+import com.wx.bus.infrastructure.codec.PayloadCompressors;
+import com.wx.bus.support.BusMetrics;
+
+/**
+ * 批量消费回退测试：整批 onEvents 抛异常后逐条调用 onEvent，失败的一条记为 FAILED，整批不向容器抛出（ack，不重回队列）。
+ * <p>反馈端口为 mock，不依赖 MongoDB、RabbitMQ；消息由 JSON 编解码直接构造。</p>
+ */
+class BusEventConsumerListenerBatchTest {
+
+    private static final String CONSUMER_ID = "member-service";
+    private static final String TOPIC = "order.purchased";
+    private static final String POISON_EVENT_ID = "evt-batch-2";
+    private static final String FAILURE_MESSAGE = "业务处理失败";
+
+    private final PayloadCodec codec = PayloadCodecConfig.json(new ObjectMapper().findAndRegisterModules());
+
+    @Nested
+    @DisplayName("批内单条失败")
+    class PartialFailure {
+
+        @Test
+        @DisplayName("onEvents 抛异常 -> 每条（含已处理的）再调 onEvent；失败条记 success=false，其余 success=true，整批不抛出")
+        void batchFailure_shouldRecordFailedItemWithoutRequeue() {
+            FailingConsumer consumer = new FailingConsumer();
+            ConsumptionFeedbackPort feedbackPort = mock(ConsumptionFeedbackPort.class);
+            BusEventConsumerListener listener = new BusEventConsumerListener(
+                consumer, feedbackPort, PayloadCodecs.of(codec), PayloadCompressors.decompressOnly(List.of()),
+                null, BusMetrics.noop(), CONSUMER_ID, true, null
+            );
+
+            assertThatCode(() -> listener.onMessages(List.of(message("evt-batch-1"), message(POISON_EVENT_ID), message("evt-batch-3"))))
+                .doesNotThrowAnyException();
+
+            assertThat(consumer.perEvent).containsExactly("evt-batch-1", POISON_EVENT_ID, "evt-batch-3");
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<ConsumptionFeedbackPort.Feedback>> captor = ArgumentCaptor.forClass(List.class);
+            verify(feedbackPort, times(1)).recordFeedbacks(captor.capture());
+            List<ConsumptionFeedbackPort.Feedback> feedbacks = captor.getValue();
+            assertThat(feedbacks).extracting(ConsumptionFeedbackPort.Feedback::eventId)
+                .containsExactly("evt-batch-1", POISON_EVENT_ID, "evt-batch-3");
+            assertThat(feedbacks).filteredOn(ConsumptionFeedbackPort.Feedback::success)
+                .extracting(ConsumptionFeedbackPort.Feedback::eventId)
+                .containsExactly("evt-batch-1", "evt-batch-3");
+            assertThat(feedbacks).filteredOn(f -> !f.success()).singleElement().satisfies(f -> {
+                assertThat(f.eventId()).isEqualTo(POISON_EVENT_ID);
+                assertThat(f.errorMessage()).isEqualTo(FAILURE_MESSAGE);
+                assertThat(f.errorCode()).isEqualTo(IllegalStateException.class.getSimpleName());
+            });
+        }
+    }
+
+    private Message message(String eventId) {
+        EventEnvelope envelope = new EventEnvelope(
+            eventId, "trace-1", null, null, TOPIC, "{\"orderId\":\"o1\"}", EventEnvelope.PAYLOAD_TYPE_JSON,
+            null, Instant.parse("2026-01-01T00:00:00Z"), null, null
+        );
+        MessageProperties props = new MessageProperties();
+        props.setContentType(codec.contentType());
+        props.setMessageId(eventId);
+        props.setType(TOPIC);
+        return new Message(codec.encode(envelope), props);
+    }
+
+    /**
+     * 整批处理总是抛异常；逐条处理时 {@link #POISON_EVENT_ID} 抛异常，其余成功。
+     */
+    static class FailingConsumer implements BusEventConsumer {
+        final List<String> perEvent = new ArrayList<>();
+
+        @Override
+        public void onEvents(List<EventEnvelope> envelopes) {
+            throw new IllegalStateException("batch failed");
+        }
+
+        @Override
+        public void onEvent(EventEnvelope envelope) {
+            perEvent.add(envelope.eventId());
+            if (POISON_EVENT_ID.equals(envelope.eventId())) {
+                throw new IllegalStateException(FAILURE_MESSAGE);
+            }
+        }
+    }
+}
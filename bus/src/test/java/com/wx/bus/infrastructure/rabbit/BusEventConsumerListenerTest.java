@@ -12,12 +12,20 @@ import com.wx.bus.application.port.ConsumptionFeedbackPort;
 import com.wx.bus.domain.EventEnvelope;
 import com.wx.bus.domain.EventStatus;
 import com.wx.bus.domain.Initiator;
+import com.wx.bus.infrastructure.codec.GzipPayloadCompressor;
+import com.wx.bus.infrastructure.codec.Lz4PayloadCompressor;
+import com.wx.bus.infrastructure.codec.PayloadCodecConfig;
+import com.wx.bus.infrastructure.codec.PayloadCodecs;
+import com.wx.bus.infrastructure.codec.PayloadCompressors;
 import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
 import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
 import com.wx.bus.infrastructure.mongo.EventDocument;
 import com.wx.bus.infrastructure.mongo.EventRepository;
 import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
 import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
+import com.wx.bus.support.BusMetrics;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
@@ -28,12 +36,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.core.AmqpAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -64,8 +74,10 @@ class BusEventConsumerListenerTest {
 
     private static final String CONSUMER_ID = "member-service";
     private static final String EVENT_ID = "evt-test-001";
+    private static final String POISON_EVENT_ID = "evt-test-poison";
     private static final String TOPIC = "order.purchased";
     private static final String FAILURE_MESSAGE = "业务处理失败";
+    private static final int MAX_DECOMPRESSED_BYTES = 1 << 20;
 
     @Autowired
     private EventPublishService eventPublishService;
@@ -127,8 +139,13 @@ class BusEventConsumerListenerTest {
         listener = new BusEventConsumerListener(
             testConsumer,
             consumptionFeedbackPort,
-            objectMapper,
-            CONSUMER_ID
+            PayloadCodecs.of(PayloadCodecConfig.json(objectMapper)),
+            PayloadCompressors.decompressOnly(List.of(new GzipPayloadCompressor(MAX_DECOMPRESSED_BYTES), new Lz4PayloadCompressor(MAX_DECOMPRESSED_BYTES))),
+            null,
+            BusMetrics.noop(),
+            CONSUMER_ID,
+            false,
+            null
         );
     }
 
@@ -218,6 +235,102 @@ class BusEventConsumerListenerTest {
         }
     }
 
+    @Nested
+    @DisplayName("批量消费")
+    class Batch {
+
+        @Test
+        @DisplayName("批内消费抛异常 -> 逐条回退后记录 success=false，整批不抛出 -> rollup 回写 events.status=FAILED")
+        void publish_thenConsumeBatch_failure_feedbackWithoutRethrow() throws Exception {
+            testConsumer.failNext.set(true);
+            assertThat(eventPublishService.publish(sampleEnvelope()).success()).isTrue();
+
+            Message mqMsg = rabbitTemplate.receive(busConsumerQueue.getName(), 5000);
+            assertThat(mqMsg).isNotNull();
+
+            listener.onMessages(List.of(mqMsg));
+
+            List<EventConsumptionDocument> list =
+                eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(EVENT_ID, CONSUMER_ID);
+            assertThat(list).hasSize(1);
+            EventConsumptionDocument latest = list.get(0);
+            assertThat(latest.getAttemptNo()).isEqualTo(0);
+            assertThat(latest.getSuccess()).isFalse();
+            assertThat(latest.getErrorMessage()).isEqualTo(FAILURE_MESSAGE);
+
+            consumptionRollupService.rollupAndWriteBack(EVENT_ID);
+
+            EventDocument event = eventRepository.findById(EVENT_ID).orElseThrow();
+            assertThat(event.getStatus()).isEqualTo(EventStatus.FAILED.name());
+        }
+    }
+
+    @Nested
+    @DisplayName("无法解码的消息")
+    class Undecodable {
+
+        @Test
+        @DisplayName("批内单条无法解码 -> 按 messageId 记失败反馈，其余消息照常消费，整批不抛出")
+        void batchWithPoisonMessage_shouldConsumeTheRest() throws Exception {
+            assertThat(eventPublishService.publish(sampleEnvelope()).success()).isTrue();
+            Message good = rabbitTemplate.receive(busConsumerQueue.getName(), 5000);
+            assertThat(good).isNotNull();
+            assertThat(good.getMessageProperties().getMessageId()).isEqualTo(EVENT_ID);
+
+            MessageProperties poisonProps = new MessageProperties();
+            poisonProps.setContentType(good.getMessageProperties().getContentType());
+            poisonProps.setMessageId(POISON_EVENT_ID);
+            poisonProps.setType(TOPIC);
+            Message poison = new Message("not an envelope".getBytes(StandardCharsets.UTF_8), poisonProps);
+            Message anonymous = new Message("{".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+
+            listener.onMessages(List.of(poison, anonymous, good));
+
+            assertThat(testConsumer.received).extracting(EventEnvelope::eventId).containsExactly(EVENT_ID);
+            assertThat(eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(EVENT_ID, CONSUMER_ID))
+                .extracting(EventConsumptionDocument::getSuccess).containsExactly(true);
+            List<EventConsumptionDocument> poisoned =
+                eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(POISON_EVENT_ID, CONSUMER_ID);
+            assertThat(poisoned).hasSize(1);
+            assertThat(poisoned.get(0).getSuccess()).isFalse();
+            assertThat(poisoned.get(0).getErrorMessage()).contains("Event deserialization failed");
+        }
+
+        @Test
+        @DisplayName("单条消费无法解码 -> 记失败反馈并抛转换异常（不重回队列）")
+        void singlePoisonMessage_shouldRecordFailureAndReject() {
+            MessageProperties props = new MessageProperties();
+            props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            props.setMessageId(POISON_EVENT_ID);
+            Message poison = new Message("not an envelope".getBytes(StandardCharsets.UTF_8), props);
+
+            assertThatThrownBy(() -> listener.onMessage(poison)).isInstanceOf(MessageConversionException.class);
+
+            assertThat(testConsumer.received).isEmpty();
+            assertThat(eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(POISON_EVENT_ID, CONSUMER_ID))
+                .extracting(EventConsumptionDocument::getSuccess).containsExactly(false);
+        }
+
+        @Test
+        @DisplayName("lz4 消息体声明的原始长度超过上限 -> 不按声明长度分配，记失败反馈并抛转换异常")
+        void lz4WithForgedLength_shouldBeRejected() {
+            MessageProperties props = new MessageProperties();
+            props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            props.setContentEncoding("lz4");
+            props.setMessageId(POISON_EVENT_ID);
+            byte[] body = ByteBuffer.allocate(Integer.BYTES + 4).putInt(Integer.MAX_VALUE).put(new byte[] {1, 2, 3, 4}).array();
+            Message forged = new Message(body, props);
+
+            assertThatThrownBy(() -> listener.onMessage(forged))
+                .isInstanceOf(MessageConversionException.class)
+                .hasRootCauseInstanceOf(IllegalArgumentException.class);
+
+            assertThat(testConsumer.received).isEmpty();
+            assertThat(eventConsumptionRepository.findByEventIdAndConsumerIdOrderByAttemptNoDesc(POISON_EVENT_ID, CONSUMER_ID))
+                .extracting(EventConsumptionDocument::getSuccess).containsExactly(false);
+        }
+    }
+
     @TestConfiguration
     static class TestConsumerConfig {
 
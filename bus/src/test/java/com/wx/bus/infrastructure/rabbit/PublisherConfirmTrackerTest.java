@@ -0,0 +1,193 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.wx.bus.infrastructure.mongo.EventRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * publisher confirm 回写测试：ack、nack、退回、被新发送取代、回写失败重试与停止时的同步回写。
+ * <p>events 仓储为 mock，不依赖 MongoDB、RabbitMQ；回执由测试直接完成 CorrelationData 的 future 模拟。</p>
+ */
+class PublisherConfirmTrackerTest {
+
+    private static final String EVENT_ID = "evt-confirm-1";
+    private static final Instant SENT_AT = Instant.parse("2026-01-01T00:00:00Z");
+    private static final long WAIT_MILLIS = 2_000;
+
+    private EventRepository eventRepository;
+    private PublisherConfirmTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        tracker = newTracker(1_000);
+        tracker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.stop();
+    }
+
+    @Nested
+    @DisplayName("回执回写")
+    class Outcomes {
+
+        @Test
+        @DisplayName("ack：仍为 PENDING 时置 SENT，写入本次发送时间，登记出表")
+        void ack_shouldMarkSent() {
+            CorrelationData correlation = tracker.track(EVENT_ID, SENT_AT);
+            assertThat(tracker.outstandingCount()).isEqualTo(1);
+
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            verify(eventRepository, timeout(WAIT_MILLIS)).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+            verify(eventRepository, never()).markFailedIfUnconfirmed(anyCollection(), any());
+            assertThat(tracker.outstandingCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("nack：置 FAILED（PENDING 或 RETRYING）")
+        void nack_shouldMarkFailed() {
+            CorrelationData correlation = tracker.track(EVENT_ID, SENT_AT);
+
+            correlation.getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+
+            verify(eventRepository, timeout(WAIT_MILLIS)).markFailedIfUnconfirmed(eq(List.of(EVENT_ID)), any());
+            verify(eventRepository, never()).markSentIfPending(anyCollection(), any());
+        }
+
+        @Test
+        @DisplayName("退回：broker ack 但消息无法路由，同样置 FAILED")
+        void returned_shouldMarkFailed() {
+            CorrelationData correlation = tracker.track(EVENT_ID, SENT_AT);
+
+            correlation.setReturned(new ReturnedMessage(
+                new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE", "bus.events", "order.unknown"));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            verify(eventRepository, timeout(WAIT_MILLIS)).markFailedIfUnconfirmed(eq(List.of(EVENT_ID)), any());
+            verify(eventRepository, never()).markSentIfPending(anyCollection(), any());
+        }
+
+        @Test
+        @DisplayName("同一 eventId 再次发送后旧发送的 nack 不回写，以新发送的 ack 为准")
+        void nackOfSupersededSend_shouldBeIgnored() {
+            CorrelationData first = tracker.track(EVENT_ID, SENT_AT);
+            CorrelationData second = tracker.track(EVENT_ID, SENT_AT.plusSeconds(30));
+
+            first.getFuture().complete(new CorrelationData.Confirm(false, "channel closed"));
+            second.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            verify(eventRepository, timeout(WAIT_MILLIS)).markSentIfPending(List.of(EVENT_ID), SENT_AT.plusSeconds(30));
+            verify(eventRepository, never()).markFailedIfUnconfirmed(anyCollection(), any());
+            assertThat(tracker.outstandingCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("回写失败")
+    class WriteFailure {
+
+        @Test
+        @DisplayName("回写抛异常：回执放回队列并退避重试，直到写入成功")
+        void failedWrite_shouldBeRetried() {
+            doThrow(new DataAccessResourceFailureException("mongo down"))
+                .doThrow(new DataAccessResourceFailureException("mongo down"))
+                .doReturn(1L)
+                .when(eventRepository).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+
+            tracker.track(EVENT_ID, SENT_AT).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+            verify(eventRepository, timeout(WAIT_MILLIS).times(3)).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+        }
+
+        @Test
+        @DisplayName("停止时同步回写：退避中的回执在 stop 返回前写入")
+        void stop_shouldFlushPendingOutcomes() {
+            tracker.stop();
+            tracker = newTracker(1_000);
+            tracker.start();
+            doThrow(new DataAccessResourceFailureException("mongo down"))
+                .doReturn(1L)
+                .when(eventRepository).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+
+            tracker.track(EVENT_ID, SENT_AT).getFuture().complete(new CorrelationData.Confirm(true, null));
+            verify(eventRepository, timeout(WAIT_MILLIS)).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+            tracker.stop();
+
+            verify(eventRepository, times(2)).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+            assertThat(tracker.isRunning()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("停止")
+    class Shutdown {
+
+        @Test
+        @DisplayName("停止时等待未确认消息的回执并回写")
+        void stop_shouldAwaitOutstandingConfirms() {
+            CorrelationData correlation = tracker.track(EVENT_ID, SENT_AT);
+            CompletableFuture.runAsync(() -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)),
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS));
+
+            tracker.stop();
+
+            verify(eventRepository).markSentIfPending(List.of(EVENT_ID), SENT_AT);
+            assertThat(tracker.outstandingCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("超时仍未确认：stop 在超时后返回，事件保持 PENDING")
+        void stop_shouldGiveUpAfterTimeout() {
+            tracker.stop();
+            tracker = newTracker(100);
+            tracker.start();
+            tracker.track(EVENT_ID, SENT_AT);
+
+            long start = System.nanoTime();
+            tracker.stop();
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(WAIT_MILLIS);
+            assertThat(tracker.outstandingCount()).isEqualTo(1);
+            verify(eventRepository, never()).markSentIfPending(anyCollection(), any());
+            verify(eventRepository, never()).markFailedIfUnconfirmed(anyCollection(), any());
+        }
+    }
+
+    private PublisherConfirmTracker newTracker(long shutdownTimeoutMillis) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()));
+        return new PublisherConfirmTracker(eventRepository, beans.getBeanProvider(MeterRegistry.class), shutdownTimeoutMillis);
+    }
+}
@@ -0,0 +1,157 @@
+package com.wx.bus.infrastructure.rabbit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.wx.bus.infrastructure.mongo.RollupLeaseManager;
+import com.wx.bus.support.InMemoryMongo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 汇总分片分配测试：多节点按租约均分分片、只启动持有分片的容器，续约失败保持现状，正常关闭释放分片。
+ * <p>租约使用进程内 MongoDB（{@link InMemoryMongo}）；消费容器为只记录启停状态的 mock，不连接 RabbitMQ。</p>
+ */
+class RollupShardCoordinatorTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final int SHARDS = 4;
+
+    private final RollupLeaseManager leaseManager = new RollupLeaseManager(MONGO.mongoTemplate());
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("分片均分")
+    class Balance {
+
+        @Test
+        @DisplayName("两个节点：先到节点让出一半分片并停止对应容器，后到节点启动其余分片，双方不重叠")
+        void twoNodes_shouldSplitShards() {
+            Node first = new Node(leaseManager);
+            Node second = new Node(leaseManager);
+
+            first.coordinator.rebalance();
+            assertThat(first.runningShards()).containsExactly(0, 1, 2, 3);
+
+            // 全部分片已被占用，新节点本轮只登记心跳
+            second.coordinator.rebalance();
+            assertThat(second.runningShards()).isEmpty();
+
+            first.coordinator.rebalance();
+            second.coordinator.rebalance();
+
+            assertThat(first.runningShards()).hasSize(SHARDS / 2);
+            assertThat(second.runningShards()).hasSize(SHARDS / 2);
+            Set<Integer> all = new HashSet<>(first.runningShards());
+            all.addAll(second.runningShards());
+            assertThat(all).containsExactlyInAnyOrder(0, 1, 2, 3);
+            assertThat(first.coordinator.ownedShards()).isEqualTo(first.runningShards());
+        }
+
+        @Test
+        @DisplayName("续约失败：保持当前已启动的容器")
+        void rebalanceFailure_shouldKeepRunningContainers() {
+            RollupLeaseManager failing = mock(RollupLeaseManager.class);
+            when(failing.rebalance(anyString(), anyInt(), any()))
+                .thenReturn(List.of(0, 1))
+                .thenThrow(new DataAccessResourceFailureException("mongo down"));
+            Node node = new Node(failing);
+
+            node.coordinator.rebalance();
+            node.coordinator.rebalance();
+
+            assertThat(node.runningShards()).containsExactly(0, 1);
+            assertThat(node.coordinator.ownedShards()).containsExactly(0, 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("关闭")
+    class Shutdown {
+
+        @Test
+        @DisplayName("正常关闭：停止全部容器并释放租约，剩余节点下一轮接管全部分片")
+        void stop_shouldStopContainersAndReleaseShards() throws Exception {
+            Node first = new Node(leaseManager);
+            Node second = new Node(leaseManager);
+            first.coordinator.start();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (first.runningShards().size() < SHARDS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(first.runningShards()).hasSize(SHARDS);
+
+            first.coordinator.stop();
+            second.coordinator.rebalance();
+
+            assertThat(first.runningShards()).isEmpty();
+            assertThat(first.coordinator.isRunning()).isFalse();
+            assertThat(second.runningShards()).containsExactly(0, 1, 2, 3);
+        }
+    }
+
+    /** 一个节点：独立的容器注册表与分片分配 */
+    private static final class Node {
+
+        private final List<AtomicBoolean> running = new ArrayList<>();
+        private final RollupShardCoordinator coordinator;
+
+        Node(RollupLeaseManager leaseManager) {
+            RabbitListenerEndpointRegistry registry = mock(RabbitListenerEndpointRegistry.class);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                AtomicBoolean state = new AtomicBoolean();
+                running.add(state);
+                MessageListenerContainer container = mock(MessageListenerContainer.class);
+                doAnswer(invocation -> { state.set(true); return null; }).when(container).start();
+                doAnswer(invocation -> { state.set(false); return null; }).when(container).stop();
+                when(container.isRunning()).thenAnswer(invocation -> state.get());
+                when(registry.getListenerContainer(RollupListener.endpointId(shard))).thenReturn(container);
+            }
+            StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()));
+            RollupShards shards = new RollupShards("bus.consumption-rollup", SHARDS, mock(AmqpAdmin.class), 5_000,
+                beans.getBeanProvider(MeterRegistry.class));
+            coordinator = new RollupShardCoordinator(leaseManager, shards, registry, 30_000, "rollup-test");
+        }
+
+        List<Integer> runningShards() {
+            List<Integer> shards = new ArrayList<>();
+            for (int shard = 0; shard < running.size(); shard++) {
+                if (running.get(shard).get()) shards.add(shard);
+            }
+            return shards;
+        }
+    }
+}
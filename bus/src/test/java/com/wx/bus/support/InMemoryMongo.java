@@ -0,0 +1,45 @@
+package com.wx.bus.support;
+
+import java.net.InetSocketAddress;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+/**
+ * 进程内 MongoDB（mongo-java-server 内存后端），供不需要完整上下文的聚焦测试使用。
+ * <p>只实现常用的查询、更新、upsert、findAndModify 与唯一索引；事务、TTL 删除与多数聚合阶段不可用，
+ * 依赖这些能力的行为仍由连接本机 MongoDB 的集成测试覆盖。</p>
+ */
+public final class InMemoryMongo implements AutoCloseable {
+
+    private final MongoServer server;
+    private final MongoClient client;
+    private final MongoTemplate mongoTemplate;
+
+    public InMemoryMongo() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "bus-test");
+    }
+
+    public MongoTemplate mongoTemplate() {
+        return mongoTemplate;
+    }
+
+    /** 清空全部集合（含索引），每个用例前调用 */
+    public void reset() {
+        mongoTemplate.getDb().drop();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        server.shutdown();
+    }
+}
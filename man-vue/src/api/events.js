@@ -1,4 +1,4 @@
-import { request } from './request.js'
+import { request, BASE } from './request.js'
 
 /**
  * 事件分页列表
@@ -15,6 +15,37 @@ export async function getEventList(params = {}) {
   return data
 }
 
+/**
+ * 事件游标分页列表（深页与首页耗时相同）
+ * @param {Record<string, string|number|undefined>} params cursor, size, total(none|estimated|exact), status, topic, userId, occurredAtFrom, occurredAtTo, traceId
+ * @returns {Promise<{ items: any[], nextCursor: string|null, total: number|null, totalEstimated: boolean }>}
+ */
+export async function getEventCursorPage(params = {}) {
+  const qs = new URLSearchParams()
+  Object.entries(params).forEach(([k, v]) => {
+    if (v !== undefined && v !== null && v !== '') qs.set(k, String(v))
+  })
+  const { ok, data } = await request(`/events/cursor?${qs.toString()}`)
+  if (!ok) throw new Error(data?.message || '加载失败')
+  return data
+}
+
+/**
+ * 单个事件的消费记录（游标分页，按 attemptNo 倒序）
+ * @param {string} eventId
+ * @param {Record<string, string|number|undefined>} params cursor, size, consumerId
+ * @returns {Promise<{ items: any[], nextCursor: string|null }>}
+ */
+export async function getEventConsumptions(eventId, params = {}) {
+  const qs = new URLSearchParams()
+  Object.entries(params).forEach(([k, v]) => {
+    if (v !== undefined && v !== null && v !== '') qs.set(k, String(v))
+  })
+  const { ok, data } = await request(`/events/${eventId}/consumptions?${qs.toString()}`)
+  if (!ok) throw new Error(data?.message || '加载失败')
+  return data
+}
+
 /**
  * 事件详情（含消费记录）
  * @param {string} eventId
@@ -37,3 +68,28 @@ export async function retryEvent(eventId) {
   const { ok, data } = await request(`/events/${eventId}/retry`, { method: 'POST' })
   return { success: ok && data?.success, message: data?.message }
 }
+
+/**
+ * 订阅事件状态实时推送（SSE），断线由浏览器自动重连
+ * 状态更新只带 eventId、status、statusAt、retryCount（其余为 null），跟踪单个事件请按 eventId 订阅
+ * @param {{ eventId?: string, topic?: string, status?: string, traceId?: string }} params 服务端筛选条件
+ * @param {(change: { eventId, topic, status, statusAt, traceId, occurredAt, retryCount }) => void} onChange
+ * @returns {() => void} 取消订阅
+ */
+export function subscribeEventStream(params, onChange) {
+  const qs = new URLSearchParams()
+  if (params?.eventId) qs.set('eventId', params.eventId)
+  if (params?.topic) qs.set('topic', params.topic)
+  if (params?.status) qs.set('status', params.status)
+  if (params?.traceId) qs.set('traceId', params.traceId)
+  const query = qs.toString()
+  const source = new EventSource(`${BASE}/events/stream${query ? `?${query}` : ''}`)
+  source.addEventListener('status', (e) => {
+    try {
+      onChange(JSON.parse(e.data))
+    } catch {
+      // ignore malformed message
+    }
+  })
+  return () => source.close()
+}
@@ -1,8 +1,15 @@
 /**
  * 管理端 API 统一入口，对应后端 /api/v1 下的 REST 接口。
  */
-export { getHomeStats } from './stats.js'
-export { getEventList, getEventDetail, retryEvent } from './events.js'
+export { getHomeStats, getLatencyStats } from './stats.js'
+export {
+  getEventList,
+  getEventCursorPage,
+  getEventConsumptions,
+  getEventDetail,
+  retryEvent,
+  subscribeEventStream,
+} from './events.js'
 export {
   getTopicConfigList,
   getTopicConfig,
@@ -17,3 +24,10 @@ export {
   updateTopicConsumer,
   deleteTopicConsumer,
 } from './topicConsumers.js'
+export {
+  getRetryJobList,
+  getRetryJob,
+  createRetryJob,
+  cancelRetryJob,
+  resumeRetryJob,
+} from './retryJobs.js'
@@ -0,0 +1,57 @@
+import { request } from './request.js'
+
+/**
+ * 最近的批量重推任务
+ * @param {number} [size]
+ */
+export async function getRetryJobList(size = 20) {
+  const { ok, data } = await request(`/retry-jobs?size=${size}`)
+  if (!ok) throw new Error(data?.message || '加载失败')
+  return Array.isArray(data) ? data : []
+}
+
+/**
+ * 批量重推任务详情与进度
+ * @param {string} id
+ */
+export async function getRetryJob(id) {
+  const { ok, data, status } = await request(`/retry-jobs/${id}`)
+  if (!ok) {
+    if (status === 404) return null
+    throw new Error(data?.message || '加载失败')
+  }
+  return data
+}
+
+/**
+ * 新建批量重推任务
+ * @param {{ topic?: string, statuses?: string[], occurredFrom?: string, occurredTo?: string, consumerId?: string, ratePerSecond?: number, batchSize?: number }} body
+ */
+export async function createRetryJob(body) {
+  const { ok, data } = await request('/retry-jobs', {
+    method: 'POST',
+    body: JSON.stringify(body),
+  })
+  if (!ok) throw new Error(data?.message || '创建失败')
+  return data
+}
+
+/**
+ * 取消批量重推任务
+ * @param {string} id
+ */
+export async function cancelRetryJob(id) {
+  const { ok, data } = await request(`/retry-jobs/${id}/cancel`, { method: 'POST' })
+  if (!ok) throw new Error(data?.message || '取消失败')
+  return data
+}
+
+/**
+ * 从断点恢复已取消或失败的批量重推任务
+ * @param {string} id
+ */
+export async function resumeRetryJob(id) {
+  const { ok, data } = await request(`/retry-jobs/${id}/resume`, { method: 'POST' })
+  if (!ok) throw new Error(data?.message || '恢复失败')
+  return data
+}
@@ -11,3 +11,29 @@ export async function getHomeStats(date) {
   if (!ok) return null
   return data
 }
+
+/**
+ * 消费汇总各分片积压
+ * @returns {Promise<Array<{ shard, queue, messageCount, consumerCount }>>}
+ */
+export async function getRollupShardStats() {
+  const { ok, data } = await request('/stats/rollup-shards')
+  if (!ok) return []
+  return data
+}
+
+/**
+ * 端到端延迟分位数（毫秒）
+ * @param {{ windowMinutes?: number, topic?: string, consumerId?: string }} [params]
+ * @returns {Promise<Array<{ stage, topic, consumerId, count, p50Ms, p99Ms, p999Ms, maxMs }>>}
+ */
+export async function getLatencyStats(params = {}) {
+  const search = new URLSearchParams()
+  if (params.windowMinutes) search.set('windowMinutes', String(params.windowMinutes))
+  if (params.topic) search.set('topic', params.topic)
+  if (params.consumerId) search.set('consumerId', params.consumerId)
+  const qs = search.toString()
+  const { ok, data } = await request(qs ? `/stats/latency?${qs}` : '/stats/latency')
+  if (!ok) return []
+  return data
+}
@@ -0,0 +1,121 @@
+package com.wx.man.api;
+
+import com.wx.bus.application.BulkRetryJobs;
+import com.wx.bus.infrastructure.mongo.BulkRetryJobDocument;
+import com.wx.bus.support.LogContext;
+import com.wx.man.api.dto.request.BulkRetryJobRequest;
+import com.wx.man.api.dto.response.BulkRetryJobResponse;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 管理端：批量重推任务。创建后由开启 {@code bus.retry.bulk.enabled} 的节点后台限速执行，进度通过详情轮询。
+ */
+@RestController
+@RequestMapping("/api/v1/retry-jobs")
+public class BulkRetryJobController {
+
+    private static final int MAX_LIST_SIZE = 100;
+
+    private final BulkRetryJobs bulkRetryJobs;
+
+    public BulkRetryJobController(BulkRetryJobs bulkRetryJobs) {
+        this.bulkRetryJobs = bulkRetryJobs;
+    }
+
+    /**
+     * 新建任务；statuses 含不允许重推的状态或时间范围颠倒时返回 400。
+     */
+    @PostMapping
+    public ResponseEntity<?> create(@Valid @RequestBody BulkRetryJobRequest body) {
+        BulkRetryJobs.Filter filter = new BulkRetryJobs.Filter(
+            body.topic(), body.statuses(), body.occurredFrom(), body.occurredTo(), body.consumerId()
+        );
+        try {
+            BulkRetryJobDocument job = bulkRetryJobs.create(filter, body.ratePerSecond(), body.batchSize(), LogContext.getUserId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toDto(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageBody(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 最近创建的任务，按创建时间倒序。
+     */
+    @GetMapping
+    public List<BulkRetryJobResponse> list(@RequestParam(defaultValue = "20") int size) {
+        return bulkRetryJobs.list(Math.max(1, Math.min(size, MAX_LIST_SIZE))).stream().map(this::toDto).toList();
+    }
+
+    /**
+     * 任务详情与进度。
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<BulkRetryJobResponse> get(@PathVariable String id) {
+        BulkRetryJobDocument job = bulkRetryJobs.get(id);
+        return job != null ? ResponseEntity.ok(toDto(job)) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 取消 PENDING/RUNNING 任务；已发出的批次不回滚。
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        BulkRetryJobDocument job = bulkRetryJobs.cancel(id);
+        if (job == null) {
+            return ResponseEntity.badRequest().body(new MessageBody(false, "任务不存在或已结束"));
+        }
+        return ResponseEntity.ok(toDto(job));
+    }
+
+    /**
+     * 恢复 CANCELLED/FAILED 任务，从断点继续。
+     */
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable String id) {
+        BulkRetryJobDocument job = bulkRetryJobs.resume(id);
+        if (job == null) {
+            return ResponseEntity.badRequest().body(new MessageBody(false, "任务不存在或状态不允许恢复"));
+        }
+        return ResponseEntity.ok(toDto(job));
+    }
+
+    private BulkRetryJobResponse toDto(BulkRetryJobDocument doc) {
+        return new BulkRetryJobResponse(
+            doc.getId(),
+            doc.getState(),
+            doc.getTopic(),
+            doc.getStatuses(),
+            doc.getOccurredFrom(),
+            doc.getOccurredTo(),
+            doc.getConsumerId(),
+            doc.getRatePerSecond(),
+            doc.getBatchSize(),
+            doc.getTotal(),
+            doc.getScanned(),
+            doc.getRetried(),
+            doc.getSkipped(),
+            doc.getFailed(),
+            doc.getCheckpointEventId(),
+            doc.getOwner(),
+            doc.getError(),
+            doc.getCreatedBy(),
+            doc.getCreatedAt(),
+            doc.getStartedAt(),
+            doc.getFinishedAt(),
+            doc.getUpdatedAt()
+        );
+    }
+
+    private record MessageBody(boolean success, String message) {}
+}
@@ -0,0 +1,33 @@
+package com.wx.man.api;
+
+import com.wx.bus.infrastructure.mongo.BusIndexManager;
+import com.wx.man.api.dto.response.QueryPlanResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 管理端：存储诊断接口。
+ */
+@RestController
+@RequestMapping("/api/v1/diagnostics")
+public class DiagnosticsController {
+
+    private final BusIndexManager busIndexManager;
+
+    public DiagnosticsController(BusIndexManager busIndexManager) {
+        this.busIndexManager = busIndexManager;
+    }
+
+    /**
+     * 对 bus 各热点查询执行 explain（queryPlanner，不实际执行查询），返回胜出计划的阶段与索引；collectionScan=true 的查询需补索引。
+     */
+    @GetMapping("/query-plans")
+    public List<QueryPlanResponse> queryPlans() {
+        return busIndexManager.explainCanonicalQueries().stream()
+            .map(p -> new QueryPlanResponse(p.name(), p.collection(), p.stages(), p.indexes(), p.collectionScan(), p.error()))
+            .toList();
+    }
+}
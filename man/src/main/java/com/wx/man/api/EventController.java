@@ -1,17 +1,25 @@
 package com.wx.man.api;
 
 import com.wx.bus.application.EventRetryService;
+import com.wx.bus.application.PayloadClaimCheck;
 import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
 import com.wx.bus.infrastructure.mongo.EventConsumptionRepository;
 import com.wx.bus.infrastructure.mongo.EventDocument;
 import com.wx.bus.infrastructure.mongo.EventRepository;
+import com.wx.man.api.dto.response.CursorPageResponse;
 import com.wx.man.api.dto.response.EventConsumptionItemResponse;
 import com.wx.man.api.dto.response.EventDetailResponse;
 import com.wx.man.api.dto.response.EventListItemResponse;
 import com.wx.man.application.EventQueryService;
+import com.wx.man.application.EventStatusStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,32 +27,46 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 import java.util.List;
 
 /**
  * 管理端：事件列表、详情、重推。
+ * <p>{@code /cursor} 与 {@code /{eventId}/consumptions} 为游标分页，深页与首页耗时相同，供大数据量下的列表使用。</p>
+ * <p>{@code /stream} 以 SSE 推送事件状态变化（{@link EventStatusStream}），替代轮询列表/详情观察状态流转。</p>
+ * <p>详情中 claim-check 引用载荷解析为原始载荷展示；存储中缺失时原样返回引用。</p>
  */
 @RestController
 @RequestMapping("/api/v1/events")
 public class EventController {
 
+    private static final Logger log = LoggerFactory.getLogger(EventController.class);
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
+
     private final EventRepository eventRepository;
     private final EventConsumptionRepository eventConsumptionRepository;
     private final EventRetryService eventRetryService;
     private final EventQueryService eventQueryService;
+    private final PayloadClaimCheck payloadClaimCheck;
+    /** man.stream.enabled=false 时不存在 */
+    private final ObjectProvider<EventStatusStream> eventStatusStream;
 
     public EventController(
         EventRepository eventRepository,
         EventConsumptionRepository eventConsumptionRepository,
         EventRetryService eventRetryService,
-        EventQueryService eventQueryService
+        EventQueryService eventQueryService,
+        PayloadClaimCheck payloadClaimCheck,
+        ObjectProvider<EventStatusStream> eventStatusStream
     ) {
         this.eventRepository = eventRepository;
         this.eventConsumptionRepository = eventConsumptionRepository;
         this.eventRetryService = eventRetryService;
         this.eventQueryService = eventQueryService;
+        this.payloadClaimCheck = payloadClaimCheck;
+        this.eventStatusStream = eventStatusStream;
     }
 
     /**
@@ -69,6 +91,75 @@ public class EventController {
         return docPage.map(this::toListItem);
     }
 
+    /**
+     * 游标分页列表；筛选参数同 {@link #list}。
+     *
+     * @param cursor 上一页返回的 nextCursor，首页不传
+     * @param total  总数统计方式：none（默认，不统计）、estimated（估算/短期缓存）、exact（精确 count）
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponse<EventListItemResponse>> listByCursor(
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) String topic,
+        @RequestParam(required = false) String userId,
+        @RequestParam(required = false) String occurredAtFrom,
+        @RequestParam(required = false) String occurredAtTo,
+        @RequestParam(required = false) String traceId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size,
+        @RequestParam(defaultValue = "none") String total
+    ) {
+        EventQueryService.TotalMode totalMode;
+        try {
+            totalMode = EventQueryService.TotalMode.valueOf(total.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        EventQueryService.CursorSlice<EventDocument> slice;
+        try {
+            slice = eventQueryService.findEventsByCursor(
+                status, topic, userId, parseInstant(occurredAtFrom), parseInstant(occurredAtTo), traceId,
+                cursor, clampSize(size), totalMode
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(new CursorPageResponse<>(
+            slice.content().stream().map(this::toListItem).toList(),
+            slice.nextCursor(),
+            slice.total(),
+            slice.totalEstimated()
+        ));
+    }
+
+    /**
+     * 单个事件的消费记录，游标分页，按 attemptNo 倒序；可选按 consumerId 筛选。
+     */
+    @GetMapping("/{eventId}/consumptions")
+    public ResponseEntity<CursorPageResponse<EventConsumptionItemResponse>> consumptions(
+        @PathVariable String eventId,
+        @RequestParam(required = false) String consumerId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int size
+    ) {
+        EventQueryService.CursorSlice<EventConsumptionDocument> slice;
+        try {
+            slice = eventQueryService.findConsumptionsByCursor(eventId, consumerId, cursor, clampSize(size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(new CursorPageResponse<>(
+            slice.content().stream().map(EventController::toConsumptionItem).toList(),
+            slice.nextCursor(),
+            null,
+            false
+        ));
+    }
+
+    private static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
     private static Instant parseInstant(String value) {
         if (value == null || value.isBlank()) return null;
         try {
@@ -78,6 +169,26 @@ public class EventController {
         }
     }
 
+    /**
+     * 事件状态实时推送（SSE，事件名 status，数据为 eventId、topic、status、statusAt、traceId、occurredAt、retryCount）。
+     * <p>可选按 eventId、topic、status、traceId 在服务端筛选；状态更新只带 eventId、status、statusAt、retryCount，
+     * 因此按 topic、traceId 筛选只收到新事件，跟踪单个事件的状态应按 eventId 订阅。推送关闭或订阅数已满时返回 503。</p>
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(
+        @RequestParam(required = false) String eventId,
+        @RequestParam(required = false) String topic,
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) String traceId
+    ) {
+        EventStatusStream stream = eventStatusStream.getIfAvailable();
+        SseEmitter emitter = stream != null ? stream.subscribe(eventId, topic, status, traceId) : null;
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * 事件详情（含消费记录）。
      */
@@ -93,7 +204,7 @@ public class EventController {
     }
 
     /**
-     * 重推：再次发布到 MQ 并更新 retryCount/status。
+     * 重推：有消费失败的消费者时只向其队列定向重投，否则按 topic 再次发布；并更新 retryCount/status。
      */
     @PostMapping("/{eventId}/retry")
     public ResponseEntity<Object> retry(@PathVariable String eventId) {
@@ -119,25 +230,17 @@ public class EventController {
 
     private EventDetailResponse toDetail(EventDocument doc, List<EventConsumptionDocument> consumptions) {
         List<EventConsumptionItemResponse> list = consumptions.stream()
-            .map(c -> new EventConsumptionItemResponse(
-                c.getId(),
-                c.getConsumerId(),
-                c.getAttemptNo(),
-                c.getSuccess(),
-                c.getConsumedAt(),
-                c.getErrorMessage(),
-                c.getErrorCode(),
-                c.getCreatedAt()
-            ))
+            .map(EventController::toConsumptionItem)
             .toList();
+        PayloadClaimCheck.ResolvedPayload payload = resolvePayload(doc);
         return new EventDetailResponse(
             doc.getEventId(),
             doc.getTraceId(),
             doc.getSpanId(),
             doc.getParentEventId(),
             doc.getTopic(),
-            doc.getPayload(),
-            doc.getPayloadType(),
+            payload.payload(),
+            payload.payloadType(),
             doc.getInitiator(),
             doc.getOccurredAt(),
             doc.getSentAt(),
@@ -152,5 +255,27 @@ public class EventController {
         );
     }
 
+    private static EventConsumptionItemResponse toConsumptionItem(EventConsumptionDocument c) {
+        return new EventConsumptionItemResponse(
+            c.getId(),
+            c.getConsumerId(),
+            c.getAttemptNo(),
+            c.getSuccess(),
+            c.getConsumedAt(),
+            c.getErrorMessage(),
+            c.getErrorCode(),
+            c.getCreatedAt()
+        );
+    }
+
+    private PayloadClaimCheck.ResolvedPayload resolvePayload(EventDocument doc) {
+        try {
+            return payloadClaimCheck.resolvePayload(doc.getPayload(), doc.getPayloadType());
+        } catch (Exception e) {
+            log.warn("Claim-check payload unavailable eventId={}", doc.getEventId(), e);
+            return new PayloadClaimCheck.ResolvedPayload(doc.getPayload(), doc.getPayloadType());
+        }
+    }
+
     private record RetryResult(boolean success, String message) {}
 }
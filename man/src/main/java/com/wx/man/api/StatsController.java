@@ -1,9 +1,12 @@
 package com.wx.man.api;
 
-import com.wx.bus.infrastructure.mongo.TopicConfigRepository;
-import com.wx.bus.infrastructure.mongo.TopicConsumerRepository;
+import com.wx.bus.infrastructure.rabbit.RollupShards;
 import com.wx.man.api.dto.response.HomeStatsResponse;
+import com.wx.man.api.dto.response.LatencyStatsResponse;
+import com.wx.man.api.dto.response.RollupShardStatsResponse;
 import com.wx.man.application.EventQueryService;
+import com.wx.man.application.EventStatsService;
+import com.wx.man.application.LatencyStatsService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -27,21 +31,25 @@ public class StatsController {
     private static final Set<String> PROCESSING_STATUSES = Set.of("PENDING", "SENT", "PARTIAL", "RETRYING");
 
     private final EventQueryService eventQueryService;
-    private final TopicConfigRepository topicConfigRepository;
-    private final TopicConsumerRepository topicConsumerRepository;
+    private final EventStatsService eventStatsService;
+    private final RollupShards rollupShards;
+    private final LatencyStatsService latencyStatsService;
 
     public StatsController(
         EventQueryService eventQueryService,
-        TopicConfigRepository topicConfigRepository,
-        TopicConsumerRepository topicConsumerRepository
+        EventStatsService eventStatsService,
+        RollupShards rollupShards,
+        LatencyStatsService latencyStatsService
     ) {
         this.eventQueryService = eventQueryService;
-        this.topicConfigRepository = topicConfigRepository;
-        this.topicConsumerRepository = topicConsumerRepository;
+        this.eventStatsService = eventStatsService;
+        this.rollupShards = rollupShards;
+        this.latencyStatsService = latencyStatsService;
     }
 
     /**
      * 首页统计：指定日期（或今日）的处理中事件数、当日事件总数、Topic 总数、消费者总数、0-23 时每小时事件数。
+     * <p>事件数优先读 event_stats 预聚合小时桶（滞后不超过一个聚合周期）；日期早于统计覆盖起点时回退为直接查询 events。</p>
      * @param date 可选，yyyy-MM-dd，不传则使用当天（服务器默认时区）。
      */
     @GetMapping("/home")
@@ -53,25 +61,53 @@ public class StatsController {
         Instant dayStart = target.atStartOfDay(zone).toInstant();
         Instant dayEnd = target.plusDays(1).atStartOfDay(zone).toInstant();
 
-        long todayProcessingCount = eventQueryService.countEventsWithStatusInAndOccurredAtBetween(
-            PROCESSING_STATUSES, dayStart, dayEnd
-        );
-        long totalEventCount = eventQueryService.countEventsWithStatusInAndOccurredAtBetween(
-            null, dayStart, dayEnd
-        );
-        long topicCount = topicConfigRepository.count();
-        long consumerCount = topicConsumerRepository.count();
-        List<Long> hourlyCounts = eventQueryService.countEventsByHourOfDay(
-            dayStart, dayEnd, zone
-        );
+        EventStatsService.DayStats stats = eventStatsService.dayStats(dayStart, dayEnd, zone, PROCESSING_STATUSES);
+        if (stats == null) {
+            stats = new EventStatsService.DayStats(
+                eventQueryService.countEventsWithStatusInAndOccurredAtBetween(PROCESSING_STATUSES, dayStart, dayEnd),
+                eventQueryService.countEventsWithStatusInAndOccurredAtBetween(null, dayStart, dayEnd),
+                eventQueryService.countEventsByHourOfDay(dayStart, dayEnd, zone)
+            );
+        }
 
         return new HomeStatsResponse(
             target.toString(),
-            todayProcessingCount,
-            totalEventCount,
-            topicCount,
-            consumerCount,
-            hourlyCounts
+            stats.processingCount(),
+            stats.totalCount(),
+            eventStatsService.topicCount(),
+            eventStatsService.consumerCount(),
+            stats.hourlyCounts()
         );
     }
+
+    /**
+     * 消费汇总各分片的积压：分片号、队列名、待汇总消息数、消费者数。
+     */
+    @GetMapping("/rollup-shards")
+    public List<RollupShardStatsResponse> rollupShards() {
+        return rollupShards.depths().stream()
+            .map(d -> new RollupShardStatsResponse(d.shard(), d.queue(), d.messageCount(), d.consumerCount()))
+            .toList();
+    }
+
+    /**
+     * 端到端延迟分位数：最近 windowMinutes 分钟内，按 阶段 × topic × consumerId 的 p50/p99/p999/max（毫秒）。
+     * <p>数据来自各节点内存 HdrHistogram 按周期上报的区间直方图，滞后不超过一个上报周期（bus.latency.flush-interval-ms）。</p>
+     * @param windowMinutes 窗口分钟数，默认 5，取值 1–1440
+     * @param topic         可选，按 topic 筛选
+     * @param consumerId    可选，按消费者筛选
+     */
+    @GetMapping("/latency")
+    public List<LatencyStatsResponse> latency(
+        @RequestParam(defaultValue = "5") int windowMinutes,
+        @RequestParam(required = false) String topic,
+        @RequestParam(required = false) String consumerId
+    ) {
+        Duration window = Duration.ofMinutes(Math.max(1, Math.min(windowMinutes, 1440)));
+        return latencyStatsService.summarize(window, topic, consumerId).stream()
+            .map(l -> new LatencyStatsResponse(
+                l.stage(), l.topic(), l.consumerId(), l.count(), l.p50Ms(), l.p99Ms(), l.p999Ms(), l.maxMs()
+            ))
+            .toList();
+    }
 }
@@ -0,0 +1,40 @@
+package com.wx.man.api.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 批量重推任务创建请求体；筛选条件为空表示不限。
+ *
+ * @param topic         Topic 名称，长度 &lt;= 256，可选
+ * @param statuses      事件状态（FAILED/PARTIAL/RETRYING/SENT），可选，默认 FAILED、PARTIAL
+ * @param occurredFrom  occurredAt 下界（含），ISO-8601，可选
+ * @param occurredTo    occurredAt 上界（含），ISO-8601，可选
+ * @param consumerId    只重推该消费者最新一次消费失败的事件，长度 &lt;= 256，可选
+ * @param ratePerSecond 每秒重推事件数，可选，默认取 bus.retry.bulk.rate-per-second
+ * @param batchSize     每批事件数（&lt;= 1000），可选，默认取 bus.retry.bulk.batch-size
+ */
+public record BulkRetryJobRequest(
+    @Size(max = 256)
+    String topic,
+
+    List<String> statuses,
+
+    Instant occurredFrom,
+
+    Instant occurredTo,
+
+    @Size(max = 256)
+    String consumerId,
+
+    @Positive
+    Double ratePerSecond,
+
+    @Positive
+    @Max(1000)
+    Integer batchSize
+) {}
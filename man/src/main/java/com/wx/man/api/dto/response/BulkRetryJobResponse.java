@@ -0,0 +1,55 @@
+package com.wx.man.api.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 批量重推任务（列表/详情响应）。
+ *
+ * @param id                任务 ID
+ * @param state             PENDING/RUNNING/CANCELLED/COMPLETED/FAILED
+ * @param topic             筛选 topic，null 表示不限
+ * @param statuses          筛选的事件状态
+ * @param occurredFrom      occurredAt 下界
+ * @param occurredTo        occurredAt 上界
+ * @param consumerId        筛选的消费者（只重推其最新一次消费失败的事件）
+ * @param ratePerSecond     每秒重推事件数
+ * @param batchSize         每批事件数
+ * @param total             创建时符合条件的事件数（估计值）；创建后异步统计，null 表示统计中
+ * @param scanned           已扫描事件数
+ * @param retried           已重推事件数
+ * @param skipped           跳过事件数（已过期或该消费者最新一次未失败）
+ * @param failed            发布失败的事件数
+ * @param checkpointEventId 断点：最后处理的事件 ID
+ * @param owner             执行节点
+ * @param error             失败原因
+ * @param createdBy         创建人
+ * @param createdAt         创建时间
+ * @param startedAt         首次开始执行时间
+ * @param finishedAt        结束时间
+ * @param updatedAt         最后更新时间（执行中即最近一批的时间）
+ */
+public record BulkRetryJobResponse(
+    String id,
+    String state,
+    String topic,
+    List<String> statuses,
+    Instant occurredFrom,
+    Instant occurredTo,
+    String consumerId,
+    double ratePerSecond,
+    int batchSize,
+    Long total,
+    long scanned,
+    long retried,
+    long skipped,
+    long failed,
+    String checkpointEventId,
+    String owner,
+    String error,
+    String createdBy,
+    Instant createdAt,
+    Instant startedAt,
+    Instant finishedAt,
+    Instant updatedAt
+) {}
@@ -0,0 +1,21 @@
+package com.wx.man.api.dto.response;
+
+import java.util.List;
+
+/**
+ * 游标分页（响应）。
+ * <p>
+ * 与 Page 不同，不返回页码；前端用 {@code nextCursor} 请求下一页，为 null 表示已到末页。
+ * </p>
+ *
+ * @param items          本页记录
+ * @param nextCursor     下一页游标（不透明字符串），无更多数据时为 null
+ * @param total          总数；未请求统计时为 null
+ * @param totalEstimated total 是否为估算值或短期缓存值（非实时精确数）
+ */
+public record CursorPageResponse<T>(
+    List<T> items,
+    String nextCursor,
+    Long total,
+    boolean totalEstimated
+) {}
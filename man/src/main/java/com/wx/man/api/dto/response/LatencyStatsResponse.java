@@ -0,0 +1,24 @@
+package com.wx.man.api.dto.response;
+
+/**
+ * 端到端延迟分位数（响应），单位毫秒。
+ *
+ * @param stage      阶段：occurred_sent（发生→发送）、sent_consumed（发送→消费）、consumed_rolled_up（消费→汇总回写）
+ * @param topic      topic
+ * @param consumerId 消费者 ID，occurred_sent 阶段为 {@code *}
+ * @param count      窗口内样本数
+ * @param p50Ms      中位数
+ * @param p99Ms      99 分位
+ * @param p999Ms     99.9 分位
+ * @param maxMs      最大值
+ */
+public record LatencyStatsResponse(
+    String stage,
+    String topic,
+    String consumerId,
+    long count,
+    double p50Ms,
+    double p99Ms,
+    double p999Ms,
+    double maxMs
+) {}
@@ -0,0 +1,22 @@
+package com.wx.man.api.dto.response;
+
+import java.util.List;
+
+/**
+ * 热点查询的执行计划（响应）。
+ *
+ * @param name           查询名（集合.用途）
+ * @param collection     集合名
+ * @param stages         胜出计划中的各阶段，如 IXSCAN、FETCH、SORT、COLLSCAN
+ * @param indexes        使用的索引名
+ * @param collectionScan 是否全表扫描（缺少可用索引）
+ * @param error          explain 失败时的错误信息，成功时为空
+ */
+public record QueryPlanResponse(
+    String name,
+    String collection,
+    List<String> stages,
+    List<String> indexes,
+    boolean collectionScan,
+    String error
+) {}
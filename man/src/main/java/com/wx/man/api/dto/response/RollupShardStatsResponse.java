@@ -0,0 +1,16 @@
+package com.wx.man.api.dto.response;
+
+/**
+ * 消费汇总分片积压（响应）。
+ *
+ * @param shard         分片号，0 为原汇总队列
+ * @param queue         分片队列名
+ * @param messageCount  待汇总消息数（分片滞后量），队列不存在时为 -1
+ * @param consumerCount 当前消费者数，队列不存在时为 -1
+ */
+public record RollupShardStatsResponse(
+    int shard,
+    String queue,
+    long messageCount,
+    int consumerCount
+) {}
@@ -1,7 +1,10 @@
 package com.wx.man.application;
 
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
 import com.wx.bus.infrastructure.mongo.EventDocument;
 import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -17,28 +20,47 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 事件列表动态查询：支持 status、topic、userId、occurredAt 范围。
+ * <p>列表只投影 {@link #LIST_FIELDS}，不拉取 payload、consumerOutcomes 等大字段；对应复合索引见 {@link EventDocument}。</p>
  */
 @Service
 public class EventQueryService {
 
     private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "occurredAt");
+    /** 列表项（EventListItemResponse）所需字段 */
+    private static final String[] LIST_FIELDS = {
+        "eventId", "parentEventId", "topic", "status", "occurredAt", "statusAt", "retryCount", "initiator"
+    };
+    /** 游标分页排序：occurredAt 相同时按 _id 保证全序，游标才能唯一定位 */
+    private static final Sort CURSOR_SORT = Sort.by(Sort.Direction.DESC, "occurredAt").and(Sort.by(Sort.Direction.DESC, "_id"));
+    private static final Sort CONSUMPTION_CURSOR_SORT = Sort.by(Sort.Direction.DESC, "attemptNo").and(Sort.by(Sort.Direction.DESC, "_id"));
+    private static final int COUNT_CACHE_MAX_ENTRIES = 1024;
 
     private final MongoTemplate mongoTemplate;
+    private final long countCacheTtlMillis;
+    private final Map<String, CachedCount> countCache = new ConcurrentHashMap<>();
 
-    public EventQueryService(MongoTemplate mongoTemplate) {
+    public EventQueryService(
+        MongoTemplate mongoTemplate,
+        @Value("${man.events.count-cache-ttl-ms:30000}") long countCacheTtlMillis
+    ) {
         this.mongoTemplate = mongoTemplate;
+        this.countCacheTtlMillis = countCacheTtlMillis;
     }
 
     /**
-     * 分页查询；任一参数为 null 或空则不参与筛选。
+     * 分页查询；任一参数为 null 或空则不参与筛选。返回的文档只含列表字段，payload 等为 null。
      *
      * @param occurredAtFrom occurredAt 起始（>=），ISO-8601 或毫秒时间戳
      * @param occurredAtTo   occurredAt 截止（<=）
@@ -54,28 +76,145 @@ public class EventQueryService {
         Pageable pageable
     ) {
         Query q = new Query();
+        for (Criteria c : listCriteria(status, topic, userId, occurredAtFrom, occurredAtTo, traceId)) {
+            q.addCriteria(c);
+        }
+        long total = mongoTemplate.count(q, EventDocument.class);
+        q.with(DEFAULT_SORT).with(pageable);
+        q.fields().include(LIST_FIELDS);
+        List<EventDocument> content = mongoTemplate.find(q, EventDocument.class);
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * 游标分页（keyset）：按 (occurredAt, _id) 倒序，从上一页最后一条之后继续读，不做 skip，任意深度的页耗时相同。
+     * <p>总数按 {@code totalMode} 可选：NONE 不统计；ESTIMATED 无筛选时取集合元数据估算值，有筛选时取按条件缓存的计数
+     * （{@code man.events.count-cache-ttl-ms}）；EXACT 每次精确 count。</p>
+     *
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     * @param size   每页条数
+     */
+    public CursorSlice<EventDocument> findEventsByCursor(
+        String status,
+        String topic,
+        String userId,
+        Instant occurredAtFrom,
+        Instant occurredAtTo,
+        String traceId,
+        String cursor,
+        int size,
+        TotalMode totalMode
+    ) {
+        List<Criteria> criteria = listCriteria(status, topic, userId, occurredAtFrom, occurredAtTo, traceId);
+        Long total = null;
+        boolean estimated = false;
+        if (totalMode == TotalMode.EXACT) {
+            total = mongoTemplate.count(query(criteria), EventDocument.class);
+        } else if (totalMode == TotalMode.ESTIMATED) {
+            estimated = true;
+            total = criteria.isEmpty()
+                ? mongoTemplate.estimatedCount(EventDocument.class)
+                : cachedCount(criteria);
+        }
+
+        List<Criteria> seek = new ArrayList<>(criteria);
+        SeekCursor after = SeekCursor.decode(cursor);
+        if (after != null) {
+            seek.add(after.criteria("occurredAt", Instant.ofEpochMilli(after.key()), after.id()));
+        }
+        Query q = query(seek).with(CURSOR_SORT).limit(size + 1);
+        q.fields().include(LIST_FIELDS);
+        List<EventDocument> docs = mongoTemplate.find(q, EventDocument.class);
+        boolean hasMore = docs.size() > size;
+        List<EventDocument> content = hasMore ? docs.subList(0, size) : docs;
+        String nextCursor = null;
+        if (hasMore) {
+            EventDocument last = content.get(content.size() - 1);
+            nextCursor = new SeekCursor(last.getOccurredAt().toEpochMilli(), last.getId()).encode();
+        }
+        return new CursorSlice<>(content, nextCursor, total, total != null && estimated);
+    }
+
+    /**
+     * 单个事件的消费记录游标分页：按 (attemptNo, _id) 倒序，可选按 consumerId 筛选；不统计总数。
+     *
+     * @param cursor 上一页返回的 nextCursor，首页传 null
+     */
+    public CursorSlice<EventConsumptionDocument> findConsumptionsByCursor(String eventId, String consumerId, String cursor, int size) {
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("eventId").is(eventId));
+        if (consumerId != null && !consumerId.isBlank()) {
+            criteria.add(Criteria.where("consumerId").is(consumerId.trim()));
+        }
+        SeekCursor after = SeekCursor.decode(cursor);
+        if (after != null) {
+            criteria.add(after.criteria("attemptNo", (int) after.key(), after.objectId()));
+        }
+        Query q = query(criteria).with(CONSUMPTION_CURSOR_SORT).limit(size + 1);
+        List<EventConsumptionDocument> docs = mongoTemplate.find(q, EventConsumptionDocument.class);
+        boolean hasMore = docs.size() > size;
+        List<EventConsumptionDocument> content = hasMore ? docs.subList(0, size) : docs;
+        String nextCursor = null;
+        if (hasMore) {
+            EventConsumptionDocument last = content.get(content.size() - 1);
+            nextCursor = new SeekCursor(last.getAttemptNo(), last.getId()).encode();
+        }
+        return new CursorSlice<>(content, nextCursor, null, false);
+    }
+
+    /** 列表筛选条件；任一参数为 null 或空则不参与筛选 */
+    private static List<Criteria> listCriteria(
+        String status,
+        String topic,
+        String userId,
+        Instant occurredAtFrom,
+        Instant occurredAtTo,
+        String traceId
+    ) {
+        List<Criteria> criteria = new ArrayList<>();
         if (status != null && !status.isBlank()) {
-            q.addCriteria(Criteria.where("status").is(status.trim()));
+            criteria.add(Criteria.where("status").is(status.trim()));
         }
         if (topic != null && !topic.isBlank()) {
-            q.addCriteria(Criteria.where("topic").is(topic.trim()));
+            criteria.add(Criteria.where("topic").is(topic.trim()));
         }
         if (userId != null && !userId.isBlank()) {
-            q.addCriteria(Criteria.where("initiator.userId").is(userId.trim()));
+            criteria.add(Criteria.where("initiator.userId").is(userId.trim()));
         }
         if (occurredAtFrom != null || occurredAtTo != null) {
             Criteria range = Criteria.where("occurredAt");
             if (occurredAtFrom != null) range.gte(occurredAtFrom);
             if (occurredAtTo != null) range.lte(occurredAtTo);
-            q.addCriteria(range);
+            criteria.add(range);
         }
         if (traceId != null && !traceId.isBlank()) {
-            q.addCriteria(Criteria.where("traceId").is(traceId.trim()));
+            criteria.add(Criteria.where("traceId").is(traceId.trim()));
         }
-        long total = mongoTemplate.count(q, EventDocument.class);
-        q.with(DEFAULT_SORT).with(pageable);
-        List<EventDocument> content = mongoTemplate.find(q, EventDocument.class);
-        return new PageImpl<>(content, pageable, total);
+        return criteria;
+    }
+
+    /** 多个条件可能作用于同一字段（occurredAt 范围 + 游标），统一用 $and 组合 */
+    private static Query query(List<Criteria> criteria) {
+        if (criteria.isEmpty()) return new Query();
+        if (criteria.size() == 1) return new Query(criteria.get(0));
+        return new Query(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+    }
+
+    /** 按筛选条件缓存的计数：同一组条件在 TTL 内只 count 一次，过期后由下一次请求刷新 */
+    private long cachedCount(List<Criteria> criteria) {
+        Query q = query(criteria);
+        String key = q.getQueryObject().toJson();
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(key);
+        if (cached != null && now - cached.at() < countCacheTtlMillis) {
+            return cached.count();
+        }
+        long count = mongoTemplate.count(q, EventDocument.class);
+        if (countCache.size() >= COUNT_CACHE_MAX_ENTRIES) {
+            countCache.clear();
+        }
+        countCache.put(key, new CachedCount(count, now));
+        return count;
     }
 
     /**
@@ -137,4 +276,63 @@ public class EventQueryService {
         }
         return hourly;
     }
+
+    /** 游标分页的总数统计方式 */
+    public enum TotalMode {
+        /** 不统计 */
+        NONE,
+        /** 估算：无筛选取集合估算值，有筛选取短期缓存的计数 */
+        ESTIMATED,
+        /** 每次精确 count */
+        EXACT
+    }
+
+    /**
+     * 游标分页结果。
+     *
+     * @param content        本页文档
+     * @param nextCursor     下一页游标，无更多数据时为 null
+     * @param total          总数，未统计时为 null
+     * @param totalEstimated total 是否为估算/缓存值
+     */
+    public record CursorSlice<T>(List<T> content, String nextCursor, Long total, boolean totalEstimated) {}
+
+    private record CachedCount(long count, long at) {}
+
+    /** 游标：上一页最后一条的排序键（occurredAt 毫秒或 attemptNo）与 _id，Base64URL 编码后对前端不透明 */
+    private record SeekCursor(long key, String id) {
+
+        /**
+         * 排序键倒序时的「下一页」条件：key 更小，或 key 相同且 _id 更小。
+         * <p>idValue 须与库中 _id 同类型：比较运算符不跨 BSON 类型匹配，且查询映射只对等值条件把十六进制串转为 ObjectId。</p>
+         */
+        Criteria criteria(String keyField, Object keyValue, Object idValue) {
+            return new Criteria().orOperator(
+                Criteria.where(keyField).lt(keyValue),
+                new Criteria().andOperator(
+                    Criteria.where(keyField).is(keyValue),
+                    Criteria.where("_id").lt(idValue)
+                )
+            );
+        }
+
+        /** 自动生成的 _id（event_consumptions）以 ObjectId 存储；非 ObjectId 格式的按字符串比较 */
+        Object objectId() {
+            return ObjectId.isValid(id) ? new ObjectId(id) : id;
+        }
+
+        String encode() {
+            String raw = key + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** 空串返回 null（首页）；格式错误抛 IllegalArgumentException */
+        static SeekCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return null;
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep <= 0) throw new IllegalArgumentException("Invalid cursor");
+            return new SeekCursor(Long.parseLong(raw.substring(0, sep)), raw.substring(sep + 1));
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package com.wx.man.application;
+
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.man.infrastructure.EventStatsDocument;
+import com.wx.man.infrastructure.EventStatsStateDocument;
+import com.wx.man.infrastructure.StatsLeaseManager;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 首页统计预聚合：后台按 events.updatedAt 增量扫描有变化的事件，把状态迁移换算为 event_stats 的 $inc 增量。
+ * <p>每个事件记录已计入的状态（{@code statsStatus}）：扫描窗口内 status 与之不同的事件，在其 occurredAt 小时桶上
+ * 对旧组 -1、新组 +1，再把 statsStatus 置为本轮计入的状态。event_stats 的计数因此恒等于按 (topic, statsStatus) 分组的结果，
+ * 不依赖发布、确认、汇总、重推等各条状态变更路径；重叠扫描到已计入的事件时两者相等，直接跳过。</p>
+ * <p>开销：每轮只读 updatedAt 索引中本轮变化的事件并写回同等数量的计数与标记，与当前小时的事件总量无关。</p>
+ * <p>增量与标记是两次写入：写入前把涉及的小时桶记入进度（pendingHours），写完再清空；中途中断时下一轮先按 statsStatus
+ * 整桶重算这些桶，水位未推进，未写标记的事件会被再次扫到并补记。计数只由持有 {@link StatsLeaseManager} 租约的一个实例写入，
+ * 其余实例空转，避免并发增量重复计入。</p>
+ * <p>首次启动回填最近 {@code man.stats.backfill-hours} 小时（把 statsStatus 对齐为 status 后整桶重算）并记为覆盖起点；
+ * 覆盖起点之前的事件不计入。每轮从上次水位减去 {@code man.stats.overlap-ms} 开始扫描，容忍写入时间略早于提交时间的事件。
+ * 依赖 events 上的 updatedAt 与 occurredAt 索引。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "man.stats.enabled", havingValue = "true", matchIfMissing = true)
+public class EventStatsAggregator implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStatsAggregator.class);
+
+    static final String STATE_ID = "events";
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final MongoTemplate mongoTemplate;
+    private final StatsLeaseManager leaseManager;
+    private final long intervalMillis;
+    private final Duration backfill;
+    private final Duration overlap;
+    private final Duration leaseTtl;
+    private final String nodeId;
+
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean indexesEnsured;
+
+    public EventStatsAggregator(
+        MongoTemplate mongoTemplate,
+        StatsLeaseManager leaseManager,
+        @Value("${man.stats.interval-ms:10000}") long intervalMillis,
+        @Value("${man.stats.backfill-hours:48}") long backfillHours,
+        @Value("${man.stats.overlap-ms:5000}") long overlapMillis,
+        @Value("${man.stats.lease-ttl-ms:60000}") long leaseTtlMillis,
+        @Value("${spring.application.name:man}") String applicationName
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.leaseManager = leaseManager;
+        this.intervalMillis = intervalMillis;
+        this.backfill = Duration.ofHours(backfillHours);
+        this.overlap = Duration.ofMillis(overlapMillis);
+        this.leaseTtl = Duration.ofMillis(leaseTtlMillis);
+        this.nodeId = applicationName + "-" + UUID.randomUUID();
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService s = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "man-stats-aggregator");
+            t.setDaemon(true);
+            return t;
+        });
+        s.scheduleWithFixedDelay(this::tick, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        scheduler = s;
+        log.info("Event stats aggregator started intervalMs={} nodeId={}", intervalMillis, nodeId);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService s = scheduler;
+        if (s == null) return;
+        s.shutdown();
+        scheduler = null;
+        try {
+            if (s.awaitTermination(5, TimeUnit.SECONDS)) {
+                leaseManager.leave(nodeId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Event stats aggregator failed to release lease nodeId={}", nodeId, e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void tick() {
+        try {
+            if (!indexesEnsured) {
+                leaseManager.ensureIndexes();
+                indexesEnsured = true;
+            }
+            if (leaseManager.rebalance(nodeId, 1, leaseTtl).isEmpty()) return;
+            aggregateOnce();
+        } catch (Exception e) {
+            log.error("Event stats aggregation failed", e);
+        }
+    }
+
+    /**
+     * 执行一轮：首次回填或恢复中断的桶，然后把水位之后的状态变化按增量计入并推进水位。
+     *
+     * @return 本轮计入的状态变化数（回填与恢复重算的桶不计）
+     */
+    int aggregateOnce() {
+        Instant scanTo = Instant.now();
+        EventStatsStateDocument state = mongoTemplate.findById(STATE_ID, EventStatsStateDocument.class);
+        if (state == null || state.getWatermark() == null) {
+            Instant since = scanTo.minus(backfill).truncatedTo(ChronoUnit.HOURS);
+            int buckets = 0;
+            for (Instant h = since; !h.isAfter(scanTo); h = h.plusMillis(HOUR_MILLIS)) {
+                alignMarks(h);
+                recomputeHour(h);
+                buckets++;
+            }
+            saveState(scanTo, since, List.of());
+            log.info("Event stats backfilled buckets={} since={}", buckets, since);
+            return 0;
+        }
+        Instant since = state.getSince();
+        if (state.getPendingHours() != null && !state.getPendingHours().isEmpty()) {
+            for (Instant hour : state.getPendingHours()) {
+                recomputeHour(hour);
+            }
+            log.warn("Event stats recovered interrupted buckets={}", state.getPendingHours().size());
+        }
+
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        Map<String, List<String>> marks = new HashMap<>();
+        Query changed = Query.query(Criteria.where("updatedAt").gte(state.getWatermark().minus(overlap)).lt(scanTo)
+            .and("occurredAt").gte(since));
+        changed.fields().include("_id", "topic", "status", "statsStatus", "occurredAt");
+        for (EventDocument e : mongoTemplate.find(changed, EventDocument.class)) {
+            if (Objects.equals(e.getStatus(), e.getStatsStatus())) continue;
+            Instant hour = hourOf(e.getOccurredAt());
+            if (e.getStatsStatus() != null) {
+                deltas.computeIfAbsent(key(hour, e.getTopic(), e.getStatsStatus()), k -> new Delta(hour, e.getTopic(), e.getStatsStatus())).count--;
+            }
+            if (e.getStatus() != null) {
+                deltas.computeIfAbsent(key(hour, e.getTopic(), e.getStatus()), k -> new Delta(hour, e.getTopic(), e.getStatus())).count++;
+            }
+            marks.computeIfAbsent(e.getStatus(), k -> new ArrayList<>()).add(e.getId());
+        }
+        int changes = marks.values().stream().mapToInt(List::size).sum();
+        if (changes > 0) {
+            List<Instant> hours = deltas.values().stream().map(d -> d.hour).distinct().sorted().toList();
+            saveState(state.getWatermark(), since, hours);
+            applyDeltas(deltas.values());
+            applyMarks(marks);
+            log.debug("Event stats applied changes={} buckets={}", changes, hours.size());
+        }
+        saveState(scanTo, since, List.of());
+        return changes;
+    }
+
+    /** 按增量 $inc 计数，组不存在时新建；计数归零的组删除 */
+    private void applyDeltas(Collection<Delta> deltas) {
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventStatsDocument.class);
+        boolean any = false;
+        for (Delta d : deltas) {
+            if (d.count == 0) continue;
+            bulk.upsert(
+                Query.query(Criteria.where("_id").is(key(d.hour, d.topic, d.status))),
+                new Update()
+                    .inc("count", d.count)
+                    .setOnInsert("bucket", d.hour)
+                    .setOnInsert("topic", d.topic)
+                    .setOnInsert("status", d.status)
+                    .set("updatedAt", now)
+            );
+            any = true;
+        }
+        if (!any) return;
+        bulk.execute();
+        mongoTemplate.remove(
+            Query.query(Criteria.where("bucket").in(deltas.stream().map(d -> d.hour).distinct().toList()).and("count").lte(0)),
+            EventStatsDocument.class
+        );
+    }
+
+    /** 把本轮计入的状态写回各事件的 statsStatus，按状态分组批量更新 */
+    private void applyMarks(Map<String, List<String>> marks) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventDocument.class);
+        for (Map.Entry<String, List<String>> m : marks.entrySet()) {
+            bulk.updateMulti(Query.query(Criteria.where("_id").in(m.getValue())), new Update().set("statsStatus", m.getKey()));
+        }
+        bulk.execute();
+    }
+
+    /** 回填：把一个小时桶内各事件的 statsStatus 对齐为当前 status，之后的变化由增量计入 */
+    private void alignMarks(Instant hour) {
+        Instant end = hour.plusMillis(HOUR_MILLIS);
+        for (EventStatus status : EventStatus.values()) {
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("occurredAt").gte(hour).lt(end)
+                    .and("status").is(status.name())
+                    .and("statsStatus").ne(status.name())),
+                new Update().set("statsStatus", status.name()),
+                EventDocument.class
+            );
+        }
+    }
+
+    /** 按 (topic, statsStatus) 重算一个小时桶：upsert 各组计数，删除本桶中已不存在的组 */
+    private void recomputeHour(Instant hour) {
+        Instant end = hour.plusMillis(HOUR_MILLIS);
+        AggregationOperation group = context -> new Document("$group",
+            new Document("_id", new Document("topic", "$topic").append("status", "$statsStatus"))
+                .append("count", new Document("$sum", 1)));
+        Aggregation agg = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("occurredAt").gte(hour).lt(end).and("statsStatus").ne(null)),
+            group
+        );
+        List<Document> groups = mongoTemplate.aggregate(agg, EventDocument.class, Document.class).getMappedResults();
+
+        Instant now = Instant.now();
+        List<String> ids = new ArrayList<>(groups.size());
+        if (!groups.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EventStatsDocument.class);
+            for (Document g : groups) {
+                Document key = (Document) g.get("_id");
+                String topic = key.getString("topic");
+                String status = key.getString("status");
+                Object c = g.get("count");
+                String id = key(hour, topic, status);
+                ids.add(id);
+                bulk.upsert(
+                    Query.query(Criteria.where("_id").is(id)),
+                    new Update()
+                        .set("bucket", hour)
+                        .set("topic", topic)
+                        .set("status", status)
+                        .set("count", c instanceof Number n ? n.longValue() : 0L)
+                        .set("updatedAt", now)
+                );
+            }
+            bulk.execute();
+        }
+        mongoTemplate.remove(
+            Query.query(Criteria.where("bucket").is(hour).and("_id").nin(ids)),
+            EventStatsDocument.class
+        );
+    }
+
+    private void saveState(Instant watermark, Instant since, List<Instant> pendingHours) {
+        EventStatsStateDocument next = new EventStatsStateDocument();
+        next.setId(STATE_ID);
+        next.setWatermark(watermark);
+        next.setSince(since);
+        next.setPendingHours(pendingHours);
+        mongoTemplate.save(next);
+    }
+
+    private static Instant hourOf(Instant occurredAt) {
+        return Instant.ofEpochMilli(occurredAt.toEpochMilli() - Math.floorMod(occurredAt.toEpochMilli(), HOUR_MILLIS));
+    }
+
+    private static String key(Instant hour, String topic, String status) {
+        return hour.toEpochMilli() + "|" + topic + "|" + status;
+    }
+
+    /** 一个 (小时桶, topic, status) 组本轮的计数增量 */
+    private static final class Delta {
+        private final Instant hour;
+        private final String topic;
+        private final String status;
+        private long count;
+
+        Delta(Instant hour, String topic, String status) {
+            this.hour = hour;
+            this.topic = topic;
+            this.status = status;
+        }
+    }
+}
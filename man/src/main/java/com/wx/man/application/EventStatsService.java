@@ -0,0 +1,78 @@
+package com.wx.man.application;
+
+import com.wx.bus.infrastructure.mongo.TopicConfigDocument;
+import com.wx.bus.infrastructure.mongo.TopicConsumerDocument;
+import com.wx.man.infrastructure.EventStatsDocument;
+import com.wx.man.infrastructure.EventStatsStateDocument;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 首页统计读取：从 event_stats 小时桶汇总某日数据，一天只读 24 × (topic × status) 条小文档。
+ * <p>日期早于统计覆盖起点、或时区偏移不是整小时（小时桶无法对齐当地日界）时返回 null，由调用方回退为直接查询 events。</p>
+ */
+@Service
+public class EventStatsService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public EventStatsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * 汇总 [dayStart, dayEnd) 的统计；不可用时返回 null。
+     *
+     * @param processingStatuses 计入「处理中」的状态
+     */
+    public DayStats dayStats(Instant dayStart, Instant dayEnd, ZoneId zone, Set<String> processingStatuses) {
+        if (zone.getRules().getOffset(dayStart).getTotalSeconds() % 3600 != 0) return null;
+        EventStatsStateDocument state = mongoTemplate.findById(EventStatsAggregator.STATE_ID, EventStatsStateDocument.class);
+        if (state == null || state.getSince() == null || state.getSince().isAfter(dayStart)) return null;
+
+        List<EventStatsDocument> buckets = mongoTemplate.find(
+            Query.query(Criteria.where("bucket").gte(dayStart).lt(dayEnd)),
+            EventStatsDocument.class
+        );
+        long total = 0;
+        long processing = 0;
+        List<Long> hourly = new ArrayList<>(24);
+        for (int i = 0; i < 24; i++) {
+            hourly.add(0L);
+        }
+        for (EventStatsDocument b : buckets) {
+            total += b.getCount();
+            if (processingStatuses.contains(b.getStatus())) processing += b.getCount();
+            int hour = b.getBucket().atZone(zone).getHour();
+            hourly.set(hour, hourly.get(hour) + b.getCount());
+        }
+        return new DayStats(processing, total, hourly);
+    }
+
+    /** topic_configs 条数（集合元数据估算，不扫描） */
+    public long topicCount() {
+        return mongoTemplate.estimatedCount(TopicConfigDocument.class);
+    }
+
+    /** topic_consumers 条数（集合元数据估算，不扫描） */
+    public long consumerCount() {
+        return mongoTemplate.estimatedCount(TopicConsumerDocument.class);
+    }
+
+    /**
+     * 某日统计。
+     *
+     * @param processingCount 处理中事件数
+     * @param totalCount      事件总数
+     * @param hourlyCounts    0–23 时每小时事件数
+     */
+    public record DayStats(long processingCount, long totalCount, List<Long> hourlyCounts) {}
+}
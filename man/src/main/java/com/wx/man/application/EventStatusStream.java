@@ -0,0 +1,396 @@
+package com.wx.man.application;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 事件状态实时推送：一个 events 集合的 change stream 扇出到所有 SSE 订阅者，替代管理端轮询列表/详情。
+ * <ul>
+ *   <li>只监听插入、整体替换与带 status 字段的更新；不做 updateLookup：更新只取 documentKey 与 updateDescription 中的状态字段，
+ *       插入与替换只投影 fullDocument 的列表字段，不传输 payload，也不为每次状态变化回查一次文档</li>
+ *   <li>各订阅者筛选条件的并集下推到 change stream 的 $match，订阅集合变化时按 resume token 重开；按 eventId 订阅（详情页）
+ *       只收到该事件的变化。更新不含 topic、traceId，按这两个条件订阅只收到新事件（插入、替换）</li>
+ *   <li>有订阅者时才打开 change stream，最后一个订阅者断开后关闭；断线按 resume token 续接，不丢中间变化</li>
+ *   <li>每个订阅者一个有界待发队列（{@code man.stream.client-buffer}），由发送线程池异步写出；积压超过上限的慢客户端被断开，
+ *       浏览器 EventSource 会自动重连，不拖慢其他订阅者</li>
+ *   <li>每 {@code man.stream.heartbeat-ms} 发送注释行保活并及时清理已断开的连接</li>
+ * </ul>
+ * <p>change stream 需要副本集或分片集群；单机 Mongo 上打开失败时记 warn 并按退避重试，订阅照常建立但收不到推送。</p>
+ */
+@Component
+@ConditionalOnProperty(name = "man.stream.enabled", havingValue = "true", matchIfMissing = true)
+public class EventStatusStream implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStatusStream.class);
+
+    private static final long RETRY_BACKOFF_MILLIS = 5000;
+    /** resume token 已超出 oplog 保留范围 */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final List<String> PROJECTED_FIELDS = List.of(
+        "eventId", "topic", "status", "statusAt", "traceId", "occurredAt", "retryCount"
+    );
+    /** 更新中会携带的状态字段 */
+    private static final List<String> UPDATED_FIELDS = List.of("status", "statusAt", "retryCount");
+
+    private final MongoTemplate mongoTemplate;
+    private final int maxSubscribers;
+    private final int clientBuffer;
+    private final long heartbeatMillis;
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+    /** 订阅集合版本：增删订阅者时递增，watcher 据此按新的筛选并集重开 change stream */
+    private final AtomicInteger subscriptionVersion = new AtomicInteger();
+    private final Object monitor = new Object();
+
+    /** 最后处理的变化位置，只由 watcher 线程读写；无订阅者时清空 */
+    private BsonDocument resumeToken;
+    private volatile boolean running;
+    private volatile Thread watcher;
+    private volatile ExecutorService sender;
+    private volatile ScheduledExecutorService heartbeat;
+
+    public EventStatusStream(
+        MongoTemplate mongoTemplate,
+        @Value("${man.stream.max-subscribers:200}") int maxSubscribers,
+        @Value("${man.stream.client-buffer:1000}") int clientBuffer,
+        @Value("${man.stream.heartbeat-ms:15000}") long heartbeatMillis
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxSubscribers = maxSubscribers;
+        this.clientBuffer = clientBuffer;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * 新建订阅；筛选条件为空表示不过滤。订阅数已达上限时返回 null。
+     */
+    public SseEmitter subscribe(String eventId, String topic, String status, String traceId) {
+        if (subscribers.size() >= maxSubscribers) return null;
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter,
+            new Filter(blankToNull(eventId), blankToNull(topic), blankToNull(status), blankToNull(traceId)));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        subscriptionVersion.incrementAndGet();
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+        return emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) subscriptionVersion.incrementAndGet();
+    }
+
+    /** 当前订阅数 */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sender = Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "man-event-stream-send");
+            t.setDaemon(true);
+            return t;
+        });
+        ScheduledExecutorService h = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "man-event-stream-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        h.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        heartbeat = h;
+        Thread t = new Thread(this::watchLoop, "man-event-stream");
+        t.setDaemon(true);
+        t.start();
+        watcher = t;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread t = watcher;
+        if (t != null) {
+            t.interrupt();
+            watcher = null;
+        }
+        ScheduledExecutorService h = heartbeat;
+        if (h != null) {
+            h.shutdownNow();
+            heartbeat = null;
+        }
+        for (Subscriber s : subscribers) {
+            s.emitter.complete();
+        }
+        subscribers.clear();
+        ExecutorService e = sender;
+        if (e != null) {
+            e.shutdownNow();
+            sender = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** 无订阅者时等待；有订阅者时打开 change stream 并分发，异常后按 resume token 续接 */
+    private void watchLoop() {
+        while (running) {
+            try {
+                if (subscribers.isEmpty()) {
+                    resumeToken = null;
+                    synchronized (monitor) {
+                        if (subscribers.isEmpty()) monitor.wait(1000);
+                    }
+                    continue;
+                }
+                watch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) return;
+                if (e instanceof MongoCommandException mce && mce.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                    resumeToken = null;
+                }
+                log.warn("Event change stream failed, retry in {}ms subscribers={}", RETRY_BACKOFF_MILLIS, subscribers.size(), e);
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** 持续读取直到没有订阅者、订阅集合变化或停止，每条变化后记录 resume token */
+    private void watch() {
+        int version = subscriptionVersion.get();
+        List<Bson> pipeline = pipeline(subscribers.stream().map(s -> s.filter).toList());
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(EventDocument.class))
+            .watch(pipeline)
+            .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) stream = stream.resumeAfter(resumeToken);
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            while (running && !subscribers.isEmpty() && subscriptionVersion.get() == version) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) continue;
+                resumeToken = change.getResumeToken();
+                StatusChange statusChange = toStatusChange(change);
+                if (statusChange != null) dispatch(statusChange);
+            }
+        }
+    }
+
+    /** change stream 管道：状态相关的变化，且满足至少一个订阅者的筛选条件；只投影列表字段与更新的状态字段 */
+    static List<Bson> pipeline(Collection<Filter> filters) {
+        Bson statusChanges = Filters.or(
+            Filters.in("operationType", "insert", "replace"),
+            Filters.exists("updateDescription.updatedFields.status")
+        );
+        List<Bson> wanted = new ArrayList<>();
+        for (Filter f : filters) {
+            Bson match = f.toMatch();
+            if (match == null) {
+                wanted = null;
+                break;
+            }
+            wanted.add(match);
+        }
+        Bson match = wanted == null || wanted.isEmpty() ? statusChanges : Filters.and(statusChanges, Filters.or(wanted));
+        List<String> fields = new ArrayList<>(List.of("operationType", "documentKey"));
+        PROJECTED_FIELDS.forEach(f -> fields.add("fullDocument." + f));
+        UPDATED_FIELDS.forEach(f -> fields.add("updateDescription.updatedFields." + f));
+        return List.of(Aggregates.match(match), Aggregates.project(Projections.include(fields)));
+    }
+
+    private void dispatch(StatusChange change) {
+        for (Subscriber s : subscribers) {
+            if (s.filter.matches(change)) s.offer(change);
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber s : subscribers) {
+            try {
+                s.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                s.close();
+            }
+        }
+    }
+
+    /** 插入与替换取 fullDocument；更新只有 documentKey（_id 即 eventId）与更新的状态字段，topic 等为 null */
+    private static StatusChange toStatusChange(ChangeStreamDocument<Document> change) {
+        Document doc = change.getFullDocument();
+        if (doc != null) {
+            return new StatusChange(
+                doc.getString("eventId"),
+                doc.getString("topic"),
+                doc.getString("status"),
+                toInstant(doc.getDate("statusAt")),
+                doc.getString("traceId"),
+                toInstant(doc.getDate("occurredAt")),
+                doc.getInteger("retryCount")
+            );
+        }
+        BsonDocument key = change.getDocumentKey();
+        if (key == null || !key.isString("_id") || change.getUpdateDescription() == null) return null;
+        BsonDocument updated = change.getUpdateDescription().getUpdatedFields();
+        if (updated == null || !updated.isString("status")) return null;
+        return new StatusChange(
+            key.getString("_id").getValue(),
+            null,
+            updated.getString("status").getValue(),
+            updated.isDateTime("statusAt") ? Instant.ofEpochMilli(updated.getDateTime("statusAt").getValue()) : null,
+            null,
+            null,
+            updated.isNumber("retryCount") ? updated.getNumber("retryCount").intValue() : null
+        );
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
+    /** 订阅者：待发队列由发送线程池串行写出，同一订阅者同时最多一个写任务 */
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Filter filter;
+        final Queue<StatusChange> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pendingSize = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Filter filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        void offer(StatusChange change) {
+            if (pendingSize.incrementAndGet() > clientBuffer) {
+                log.warn("Event stream client too slow, disconnecting buffered={}", clientBuffer);
+                close();
+                return;
+            }
+            pending.add(change);
+            ExecutorService e = sender;
+            if (e != null && draining.compareAndSet(false, true)) {
+                e.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                StatusChange change;
+                while ((change = pending.poll()) != null) {
+                    pendingSize.decrementAndGet();
+                    emitter.send(SseEmitter.event().name("status").id(change.eventId()).data(change));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // 释放 draining 后若又有新变化入队，重新调度
+            ExecutorService e = sender;
+            if (!pending.isEmpty() && e != null && draining.compareAndSet(false, true)) {
+                e.execute(this::drain);
+            }
+        }
+
+        void close() {
+            unsubscribe(this);
+            pending.clear();
+            emitter.complete();
+        }
+    }
+
+    /** 服务端筛选：各条件为 null 时不过滤 */
+    record Filter(String eventId, String topic, String status, String traceId) {
+        boolean matches(StatusChange c) {
+            return (eventId == null || eventId.equals(c.eventId()))
+                && (topic == null || topic.equals(c.topic()))
+                && (status == null || status.equals(c.status()))
+                && (traceId == null || traceId.equals(c.traceId()));
+        }
+
+        /** 对应的 change stream 条件；没有任何条件时返回 null（接收全部变化） */
+        Bson toMatch() {
+            List<Bson> conditions = new ArrayList<>();
+            if (eventId != null) conditions.add(Filters.eq("documentKey._id", eventId));
+            if (topic != null) conditions.add(Filters.eq("fullDocument.topic", topic));
+            if (status != null) conditions.add(Filters.or(
+                Filters.eq("fullDocument.status", status),
+                Filters.eq("updateDescription.updatedFields.status", status)
+            ));
+            if (traceId != null) conditions.add(Filters.eq("fullDocument.traceId", traceId));
+            return conditions.isEmpty() ? null : Filters.and(conditions);
+        }
+    }
+
+    /**
+     * 一次事件状态变化（SSE 事件名 status，id 为 eventId）。
+     *
+     * @param eventId    事件 ID
+     * @param topic      topic；状态更新时为 null
+     * @param status     变化后的状态
+     * @param statusAt   状态时间；更新未带该字段时为 null
+     * @param traceId    链路 ID；状态更新时为 null
+     * @param occurredAt 事件发生时间；状态更新时为 null
+     * @param retryCount 重推次数；更新未带该字段时为 null
+     */
+    public record StatusChange(
+        String eventId,
+        String topic,
+        String status,
+        Instant statusAt,
+        String traceId,
+        Instant occurredAt,
+        Integer retryCount
+    ) {}
+}
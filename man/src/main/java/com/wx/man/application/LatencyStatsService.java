@@ -0,0 +1,113 @@
+package com.wx.man.application;
+
+import com.wx.bus.application.LatencyHistograms;
+import com.wx.bus.infrastructure.mongo.LatencyHistogramDocument;
+import org.HdrHistogram.Histogram;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * 端到端延迟分位数：读取时间窗口内各节点上报的 latency_histograms 区间直方图，按 (阶段, topic, consumerId) 合并后计算 p50/p99/p999。
+ * <p>只读预先上报的小直方图（每节点每 key 每上报周期一条），不扫描 events / event_consumptions。</p>
+ */
+@Service
+public class LatencyStatsService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public LatencyStatsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * 汇总最近 window 内的延迟分位数，按 阶段、topic、consumerId 排序。
+     *
+     * @param topic      可选，只看该 topic
+     * @param consumerId 可选，只看该消费者（发生→发送阶段的 consumerId 恒为 {@link LatencyHistograms#ANY_CONSUMER}，指定消费者时不返回该阶段）
+     */
+    public List<LatencySummary> summarize(Duration window, String topic, String consumerId) {
+        Instant to = Instant.now();
+        Instant from = to.minus(window);
+        Criteria criteria = Criteria.where("windowEnd").gt(from);
+        if (topic != null && !topic.isBlank()) criteria = criteria.and("topic").is(topic);
+        if (consumerId != null && !consumerId.isBlank()) criteria = criteria.and("consumerId").is(consumerId);
+        Query query = Query.query(criteria);
+        query.fields().include("stage").include("topic").include("consumerId").include("histogram");
+
+        Map<Key, Histogram> merged = new LinkedHashMap<>();
+        for (LatencyHistogramDocument doc : mongoTemplate.find(query, LatencyHistogramDocument.class)) {
+            Histogram histogram = decode(doc.getHistogram());
+            if (histogram == null) continue;
+            merged.computeIfAbsent(new Key(doc.getStage(), doc.getTopic(), doc.getConsumerId()),
+                k -> new Histogram(LatencyHistograms.SIGNIFICANT_DIGITS)).add(histogram);
+        }
+
+        List<LatencySummary> result = new ArrayList<>(merged.size());
+        for (Map.Entry<Key, Histogram> e : merged.entrySet()) {
+            Histogram h = e.getValue();
+            result.add(new LatencySummary(
+                e.getKey().stage(), e.getKey().topic(), e.getKey().consumerId(),
+                h.getTotalCount(),
+                millis(h.getValueAtPercentile(50)),
+                millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)),
+                millis(h.getMaxValue())
+            ));
+        }
+        result.sort(Comparator.comparing(LatencySummary::stage)
+            .thenComparing(LatencySummary::topic, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(LatencySummary::consumerId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /** 解码失败（数据损坏）时跳过该条 */
+    private static Histogram decode(byte[] bytes) {
+        if (bytes == null) return null;
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), LatencyHistograms.HIGHEST_TRACKABLE_MICROS);
+        } catch (DataFormatException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private record Key(String stage, String topic, String consumerId) {}
+
+    /**
+     * 单个 (阶段, topic, consumerId) 在窗口内的延迟分位数，单位毫秒。
+     *
+     * @param stage      occurred_sent / sent_consumed / consumed_rolled_up
+     * @param topic      topic
+     * @param consumerId 消费者 ID，发生→发送阶段为 {@code *}
+     * @param count      样本数
+     * @param p50Ms      中位数
+     * @param p99Ms      99 分位
+     * @param p999Ms     99.9 分位
+     * @param maxMs      最大值
+     */
+    public record LatencySummary(
+        String stage,
+        String topic,
+        String consumerId,
+        long count,
+        double p50Ms,
+        double p99Ms,
+        double p999Ms,
+        double maxMs
+    ) {}
+}
@@ -0,0 +1,39 @@
+package com.wx.man.infrastructure;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * event_stats 集合文档：一个 (小时桶, topic, status) 一条，记录 occurredAt 落在该小时内、当前处于该状态的事件数。
+ * <p>由 {@link com.wx.man.application.EventStatsAggregator} 按状态迁移增量 $inc 维护（回填与中断恢复时整桶重算），首页统计只读本集合。</p>
+ */
+@Document(collection = "event_stats")
+public class EventStatsDocument {
+
+    /** bucket 毫秒|topic|status */
+    @Id
+    private String id;
+    /** 小时桶起点（UTC 整点） */
+    @Indexed
+    private Instant bucket;
+    private String topic;
+    private String status;
+    private long count;
+    private Instant updatedAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Instant getBucket() { return bucket; }
+    public void setBucket(Instant bucket) { this.bucket = bucket; }
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,32 @@
+package com.wx.man.infrastructure;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * event_stats_state 集合文档：统计聚合进度，单条记录。
+ */
+@Document(collection = "event_stats_state")
+public class EventStatsStateDocument {
+
+    @Id
+    private String id;
+    /** 已处理到的 events.updatedAt；下次从此处（减去重叠窗口）继续扫描 */
+    private Instant watermark;
+    /** 统计覆盖起点：此后的小时桶完整可用，更早的日期由首页回退为直接查询 events */
+    private Instant since;
+    /** 正在应用增量的小时桶；非空表示上一轮在写入计数与标记之间中断，下一轮先按标记重算这些桶 */
+    private List<Instant> pendingHours;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Instant getWatermark() { return watermark; }
+    public void setWatermark(Instant watermark) { this.watermark = watermark; }
+    public Instant getSince() { return since; }
+    public void setSince(Instant since) { this.since = since; }
+    public List<Instant> getPendingHours() { return pendingHours; }
+    public void setPendingHours(List<Instant> pendingHours) { this.pendingHours = pendingHours; }
+}
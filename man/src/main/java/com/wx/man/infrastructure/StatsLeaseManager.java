@@ -0,0 +1,32 @@
+package com.wx.man.infrastructure;
+
+import com.wx.bus.infrastructure.mongo.PartitionLeaseManager;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 统计预聚合租约：只有一个分区，持有者即本轮执行统计的管理端实例。租约存 stats_leases，成员心跳存 stats_nodes。
+ */
+@Component
+public class StatsLeaseManager extends PartitionLeaseManager {
+
+    public static final String LEASE_COLLECTION = "stats_leases";
+    public static final String NODE_COLLECTION = "stats_nodes";
+
+    private final MongoTemplate mongoTemplate;
+
+    public StatsLeaseManager(MongoTemplate mongoTemplate) {
+        super(mongoTemplate, LEASE_COLLECTION, NODE_COLLECTION);
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** 成员心跳过期一小时后由 TTL 索引清理（bus 的 BusIndexManager 不管理管理端集合） */
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(NODE_COLLECTION)
+            .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ofHours(1)));
+    }
+}
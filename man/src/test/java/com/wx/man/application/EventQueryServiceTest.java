@@ -0,0 +1,184 @@
+package com.wx.man.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.wx.bus.infrastructure.mongo.EventConsumptionDocument;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.man.WxManApplication;
+
+/**
+ * 事件列表与消费记录游标分页集成测试：使用本机 MongoDB，验证排序键相同（occurredAt、attemptNo 并列）时
+ * 按 _id 续页不重不漏，以及 event_consumptions 的 ObjectId _id 游标。
+ * <p>运行前需本机已启动 MongoDB、RabbitMQ（管理端上下文依赖 bus 组件）。</p>
+ */
+@SpringBootTest(
+    classes = WxManApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    properties = {"bus.retry.bulk.enabled=false", "man.stats.enabled=false"}
+)
+class EventQueryServiceTest {
+
+    @Autowired
+    private EventQueryService eventQueryService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private static final String TOPIC = "cursor.test";
+    private static final String EVENT_ID_PREFIX = "evt-cursor-";
+    private static final Instant TIED_AT = Instant.parse("2026-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate.remove(Query.query(Criteria.where("topic").is(TOPIC)), EventDocument.class);
+        mongoTemplate.remove(Query.query(Criteria.where("eventId").regex("^" + EVENT_ID_PREFIX)), EventConsumptionDocument.class);
+    }
+
+    @Nested
+    @DisplayName("事件游标分页")
+    class EventCursor {
+
+        @Test
+        @DisplayName("occurredAt 相同的事件跨页：按 _id 续页，不重不漏且顺序与全量排序一致")
+        void tiedOccurredAt_shouldPageWithoutGapsOrDuplicates() {
+            List<EventDocument> events = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                events.add(event(EVENT_ID_PREFIX + "tied-" + i, TIED_AT));
+            }
+            events.add(event(EVENT_ID_PREFIX + "later", TIED_AT.plusMillis(1)));
+            events.add(event(EVENT_ID_PREFIX + "earlier-a", TIED_AT.minusSeconds(1)));
+            events.add(event(EVENT_ID_PREFIX + "earlier-b", TIED_AT.minusSeconds(1)));
+            mongoTemplate.insertAll(events);
+
+            List<String> paged = pageAllEvents(null, null, 3);
+
+            List<String> expected = events.stream()
+                .sorted(Comparator.comparing(EventDocument::getOccurredAt).thenComparing(EventDocument::getId).reversed())
+                .map(EventDocument::getId)
+                .toList();
+            assertThat(paged).containsExactlyElementsOf(expected);
+        }
+
+        @Test
+        @DisplayName("游标与 occurredAt 范围筛选作用于同一字段时组合为 $and，只返回范围内的事件")
+        void cursorWithOccurredAtRange_shouldStayWithinRange() {
+            List<EventDocument> events = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                events.add(event(EVENT_ID_PREFIX + "in-" + i, TIED_AT));
+            }
+            events.add(event(EVENT_ID_PREFIX + "out", TIED_AT.minusSeconds(60)));
+            mongoTemplate.insertAll(events);
+
+            List<String> paged = pageAllEvents(TIED_AT.minusSeconds(1), TIED_AT, 2);
+
+            assertThat(paged).hasSize(5).doesNotHaveDuplicates().allMatch(id -> id.startsWith(EVENT_ID_PREFIX + "in-"));
+        }
+
+        @Test
+        @DisplayName("无法解析的游标抛 IllegalArgumentException")
+        void malformedCursor_shouldBeRejected() {
+            assertThatThrownBy(() -> eventQueryService.findEventsByCursor(
+                null, TOPIC, null, null, null, null, "bm8tc2VwYXJhdG9y", 10, EventQueryService.TotalMode.NONE
+            )).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        private List<String> pageAllEvents(Instant from, Instant to, int size) {
+            return pageAll(cursor -> eventQueryService.findEventsByCursor(
+                null, TOPIC, null, from, to, null, cursor, size, EventQueryService.TotalMode.NONE
+            ), EventDocument::getId);
+        }
+    }
+
+    @Nested
+    @DisplayName("消费记录游标分页")
+    class ConsumptionCursor {
+
+        private static final String EVENT_ID = EVENT_ID_PREFIX + "consumed";
+
+        @Test
+        @DisplayName("attemptNo 相同的多消费者记录（ObjectId _id）跨页不重不漏")
+        void tiedAttemptNo_shouldPageWithoutGapsOrDuplicates() {
+            List<EventConsumptionDocument> docs = new ArrayList<>();
+            for (String consumerId : List.of("member-service", "coupon-service", "point-service")) {
+                for (int attemptNo = 1; attemptNo <= 2; attemptNo++) {
+                    docs.add(consumption(consumerId, attemptNo));
+                }
+            }
+            List<String> ids = mongoTemplate.insertAll(docs).stream().map(EventConsumptionDocument::getId).toList();
+
+            List<EventConsumptionDocument> paged = pageAll(
+                cursor -> eventQueryService.findConsumptionsByCursor(EVENT_ID, null, cursor, 4), Function.identity());
+
+            assertThat(paged).extracting(EventConsumptionDocument::getId).containsExactlyInAnyOrderElementsOf(ids);
+            assertThat(paged).extracting(EventConsumptionDocument::getAttemptNo).containsExactly(2, 2, 2, 1, 1, 1);
+        }
+
+        @Test
+        @DisplayName("按 consumerId 筛选时逐页只返回该消费者的记录")
+        void filterByConsumer_shouldPageWithinConsumer() {
+            List<EventConsumptionDocument> docs = new ArrayList<>();
+            for (int attemptNo = 1; attemptNo <= 5; attemptNo++) {
+                docs.add(consumption("member-service", attemptNo));
+                docs.add(consumption("coupon-service", attemptNo));
+            }
+            mongoTemplate.insertAll(docs);
+
+            List<EventConsumptionDocument> paged = pageAll(
+                cursor -> eventQueryService.findConsumptionsByCursor(EVENT_ID, "member-service", cursor, 2), Function.identity());
+
+            assertThat(paged).extracting(EventConsumptionDocument::getAttemptNo).containsExactly(5, 4, 3, 2, 1);
+            assertThat(paged).extracting(EventConsumptionDocument::getConsumerId).containsOnly("member-service");
+        }
+
+        private EventConsumptionDocument consumption(String consumerId, int attemptNo) {
+            EventConsumptionDocument doc = new EventConsumptionDocument();
+            doc.setEventId(EVENT_ID);
+            doc.setConsumerId(consumerId);
+            doc.setAttemptNo(attemptNo);
+            doc.setSuccess(attemptNo > 1);
+            doc.setConsumedAt(TIED_AT);
+            doc.setCreatedAt(TIED_AT);
+            return doc;
+        }
+    }
+
+    /** 从首页起按 nextCursor 读到最后一页，按页序拼接 */
+    private static <T, R> List<R> pageAll(Function<String, EventQueryService.CursorSlice<T>> page, Function<T, R> key) {
+        List<R> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            EventQueryService.CursorSlice<T> slice = page.apply(cursor);
+            slice.content().forEach(doc -> all.add(key.apply(doc)));
+            cursor = slice.nextCursor();
+            assertThat(++pages).as("cursor must advance").isLessThan(100);
+        } while (cursor != null);
+        return all;
+    }
+
+    private static EventDocument event(String eventId, Instant occurredAt) {
+        EventDocument doc = new EventDocument();
+        doc.setId(eventId);
+        doc.setEventId(eventId);
+        doc.setTopic(TOPIC);
+        doc.setStatus("SENT");
+        doc.setOccurredAt(occurredAt);
+        return doc;
+    }
+}
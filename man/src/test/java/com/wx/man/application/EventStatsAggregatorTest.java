@@ -0,0 +1,153 @@
+package com.wx.man.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.wx.bus.domain.EventStatus;
+import com.wx.bus.infrastructure.mongo.EventDocument;
+import com.wx.man.infrastructure.EventStatsDocument;
+import com.wx.man.infrastructure.EventStatsStateDocument;
+import com.wx.man.infrastructure.StatsLeaseManager;
+import com.wx.man.support.InMemoryMongo;
+
+/**
+ * 首页统计预聚合测试：首次回填整桶计数并对齐统计标记，之后按状态迁移 $inc 增量计入，重叠扫描不重复计入，中断的桶按标记重算。
+ * <p>使用进程内 MongoDB（{@link InMemoryMongo}），直接调用 {@code aggregateOnce}，不经过租约与调度线程。</p>
+ */
+class EventStatsAggregatorTest {
+
+    private static final InMemoryMongo MONGO = new InMemoryMongo();
+    private static final String TOPIC = "order.purchased";
+    private static final Instant HOUR = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+    private final MongoTemplate mongoTemplate = MONGO.mongoTemplate();
+    private final EventStatsAggregator aggregator = new EventStatsAggregator(
+        mongoTemplate, new StatsLeaseManager(mongoTemplate), 10_000, 2, 60_000, 60_000, "stats-test"
+    );
+
+    @BeforeEach
+    void setUp() {
+        MONGO.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        MONGO.close();
+    }
+
+    @Nested
+    @DisplayName("回填")
+    class Backfill {
+
+        @Test
+        @DisplayName("首次运行：按 (topic, status) 整桶计数，statsStatus 对齐为当前 status")
+        void firstRun_shouldCountBucketsAndAlignMarks() {
+            insert("evt-stats-1", EventStatus.CONSUMED);
+            insert("evt-stats-2", EventStatus.CONSUMED);
+            insert("evt-stats-3", EventStatus.FAILED);
+
+            aggregator.aggregateOnce();
+
+            assertThat(counts()).containsExactlyInAnyOrderEntriesOf(Map.of("CONSUMED", 2L, "FAILED", 1L));
+            assertThat(mongoTemplate.findById("evt-stats-3", EventDocument.class).getStatsStatus()).isEqualTo("FAILED");
+        }
+    }
+
+    @Nested
+    @DisplayName("增量")
+    class Increment {
+
+        @Test
+        @DisplayName("状态迁移：旧组 -1、新组 +1，归零的组删除；再次扫描到同一事件不重复计入")
+        void statusChange_shouldMoveOneCount() {
+            insert("evt-stats-1", EventStatus.FAILED);
+            insert("evt-stats-2", EventStatus.CONSUMED);
+            aggregator.aggregateOnce();
+
+            changeStatus("evt-stats-1", EventStatus.CONSUMED);
+
+            assertThat(aggregator.aggregateOnce()).isEqualTo(1);
+            assertThat(counts()).containsExactlyInAnyOrderEntriesOf(Map.of("CONSUMED", 2L));
+            // 重叠窗口内再次扫到：statsStatus 已与 status 一致
+            assertThat(aggregator.aggregateOnce()).isZero();
+            assertThat(counts()).containsExactlyInAnyOrderEntriesOf(Map.of("CONSUMED", 2L));
+        }
+
+        @Test
+        @DisplayName("回填后新写入的事件：只对新组 +1")
+        void newEvent_shouldBeAdded() {
+            insert("evt-stats-1", EventStatus.SENT);
+            aggregator.aggregateOnce();
+
+            insert("evt-stats-2", EventStatus.PENDING);
+
+            assertThat(aggregator.aggregateOnce()).isEqualTo(1);
+            assertThat(counts()).containsExactlyInAnyOrderEntriesOf(Map.of("SENT", 1L, "PENDING", 1L));
+        }
+    }
+
+    @Nested
+    @DisplayName("中断恢复")
+    class Recovery {
+
+        @Test
+        @DisplayName("上一轮写入计数后中断：按 statsStatus 重算记录的桶，未写标记的事件再次补记")
+        void pendingHours_shouldBeRecomputedFromMarks() {
+            insert("evt-stats-1", EventStatus.FAILED);
+            aggregator.aggregateOnce();
+            changeStatus("evt-stats-1", EventStatus.CONSUMED);
+            // 模拟上一轮已 $inc 但未写 statsStatus、未推进水位
+            mongoTemplate.updateFirst(Query.query(Criteria.where("bucket").is(HOUR).and("status").is("FAILED")),
+                new Update().inc("count", -1), EventStatsDocument.class);
+            EventStatsStateDocument state = mongoTemplate.findById(EventStatsAggregator.STATE_ID, EventStatsStateDocument.class);
+            state.setPendingHours(List.of(HOUR));
+            mongoTemplate.save(state);
+
+            assertThat(aggregator.aggregateOnce()).isEqualTo(1);
+
+            assertThat(counts()).containsExactlyInAnyOrderEntriesOf(Map.of("CONSUMED", 1L));
+            assertThat(mongoTemplate.findById(EventStatsAggregator.STATE_ID, EventStatsStateDocument.class).getPendingHours()).isEmpty();
+        }
+    }
+
+    private void insert(String eventId, EventStatus status) {
+        EventDocument doc = new EventDocument();
+        doc.setId(eventId);
+        doc.setEventId(eventId);
+        doc.setTopic(TOPIC);
+        doc.setStatus(status.name());
+        doc.setOccurredAt(HOUR);
+        doc.setCreatedAt(Instant.now());
+        doc.setUpdatedAt(Instant.now());
+        mongoTemplate.insert(doc);
+    }
+
+    private void changeStatus(String eventId, EventStatus status) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(eventId)),
+            new Update().set("status", status.name()).set("updatedAt", Instant.now()), EventDocument.class);
+    }
+
+    /** 当前小时桶 status → count */
+    private Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (EventStatsDocument d : mongoTemplate.find(Query.query(Criteria.where("bucket").is(HOUR)), EventStatsDocument.class)) {
+            counts.merge(d.getStatus(), d.getCount(), Long::sum);
+        }
+        return counts;
+    }
+}
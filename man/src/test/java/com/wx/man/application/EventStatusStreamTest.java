@@ -0,0 +1,54 @@
+package com.wx.man.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoClientSettings;
+import com.wx.man.application.EventStatusStream.Filter;
+
+/**
+ * 状态推送 change stream 管道测试：订阅者筛选条件的并集下推到 $match，不做 updateLookup 时只投影状态字段。
+ */
+class EventStatusStreamTest {
+
+    @Nested
+    @DisplayName("筛选下推")
+    class Pipeline {
+
+        @Test
+        @DisplayName("按 eventId 与 topic 订阅：$match 为两者的并集，eventId 匹配 documentKey._id")
+        void subscriberFilters_shouldBePushedDownAsUnion() {
+            List<Bson> pipeline = EventStatusStream.pipeline(List.of(
+                new Filter("evt-1", null, null, null),
+                new Filter(null, "order.purchased", null, null)
+            ));
+
+            String match = render(pipeline.get(0));
+            assertThat(match).contains("\"documentKey._id\": \"evt-1\"", "\"fullDocument.topic\": \"order.purchased\"", "$or");
+            String project = render(pipeline.get(1));
+            assertThat(project).contains("updateDescription.updatedFields.status", "fullDocument.topic").doesNotContain("payload");
+        }
+
+        @Test
+        @DisplayName("存在无条件订阅者：只保留状态变化条件")
+        void unfilteredSubscriber_shouldMatchAllStatusChanges() {
+            List<Bson> pipeline = EventStatusStream.pipeline(List.of(
+                new Filter("evt-1", null, null, null),
+                new Filter(null, null, null, null)
+            ));
+
+            assertThat(render(pipeline.get(0))).doesNotContain("documentKey._id").contains("updateDescription.updatedFields.status");
+        }
+    }
+
+    private static String render(Bson stage) {
+        return stage.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).toJson();
+    }
+}